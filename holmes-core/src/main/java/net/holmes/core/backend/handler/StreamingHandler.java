@@ -22,6 +22,7 @@ import net.holmes.core.backend.response.PlaybackDevice;
 import net.holmes.core.backend.response.PlaybackStatus;
 import net.holmes.core.business.media.MediaManager;
 import net.holmes.core.business.media.MediaSearchRequest;
+import net.holmes.core.business.media.MediaSearchResult;
 import net.holmes.core.business.media.model.AbstractNode;
 import net.holmes.core.business.media.model.ContentNode;
 import net.holmes.core.business.media.model.FolderNode;
@@ -231,9 +232,9 @@ public class StreamingHandler {
      */
     private void addBrowseResult(final DeviceBrowseResult result, final Device device, final AbstractNode node) {
         // Get child nodes
-        Collection<AbstractNode> searchResult = mediaManager.searchChildNodes(new MediaSearchRequest(node, device.getSupportedMimeTypes()));
+        MediaSearchResult searchResult = mediaManager.searchChildNodes(new MediaSearchRequest(node, device.getSupportedMimeTypes()));
         // Build browse result
-        for (AbstractNode abstractNode : searchResult) {
+        for (AbstractNode abstractNode : searchResult.getNodes()) {
             if (abstractNode instanceof FolderNode) {
                 result.getFolders().add(buildBrowseFolder(abstractNode));
             } else if (abstractNode instanceof ContentNode) {
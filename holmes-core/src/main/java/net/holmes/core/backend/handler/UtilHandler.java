@@ -17,8 +17,13 @@
 
 package net.holmes.core.backend.handler;
 
+import net.holmes.core.business.media.BrowseCache;
+import net.holmes.core.business.media.MediaManager;
+import net.holmes.core.business.media.dao.index.MediaIndexStatistics;
+import net.holmes.core.business.media.scan.MediaScanStatistics;
 import net.holmes.core.business.version.ReleaseInfo;
 import net.holmes.core.business.version.VersionManager;
+import net.holmes.core.common.CacheStatistics;
 
 import javax.inject.Inject;
 import javax.ws.rs.*;
@@ -40,15 +45,21 @@ import static net.holmes.core.common.SystemProperty.USER_HOME;
 public final class UtilHandler {
 
     private final VersionManager versionManager;
+    private final MediaManager mediaManager;
+    private final BrowseCache browseCache;
 
     /**
      * Instantiates a new util handler.
      *
-     * @param versionManager holmes version manager
+     * @param versionManager    holmes version manager
+     * @param mediaManager      media manager
+     * @param browseCache       browse result cache
      */
     @Inject
-    public UtilHandler(final VersionManager versionManager) {
+    public UtilHandler(final VersionManager versionManager, final MediaManager mediaManager, final BrowseCache browseCache) {
         this.versionManager = versionManager;
+        this.mediaManager = mediaManager;
+        this.browseCache = browseCache;
     }
 
     /**
@@ -76,6 +87,66 @@ public final class UtilHandler {
         return versionManager.getRemoteReleaseInfo();
     }
 
+    /**
+     * Get media index statistics.
+     *
+     * @return media index statistics
+     */
+    @GET
+    @Path("/getMediaIndexStatistics")
+    @Produces(APPLICATION_JSON)
+    public MediaIndexStatistics getMediaIndexStatistics() {
+        return mediaManager.getIndexStatistics();
+    }
+
+    /**
+     * Get folder listing cache statistics.
+     *
+     * @return folder listing cache statistics
+     */
+    @GET
+    @Path("/getFolderCacheStatistics")
+    @Produces(APPLICATION_JSON)
+    public CacheStatistics getFolderCacheStatistics() {
+        return mediaManager.getFolderCacheStatistics();
+    }
+
+    /**
+     * Get number of coalesced folder listing and podcast requests.
+     *
+     * @return number of coalesced requests
+     */
+    @GET
+    @Path("/getCoalescedRequestCount")
+    @Produces(APPLICATION_JSON)
+    public long getCoalescedRequestCount() {
+        return mediaManager.getCoalescedRequestCount();
+    }
+
+    /**
+     * Get UPnP browse result cache statistics.
+     *
+     * @return browse result cache statistics
+     */
+    @GET
+    @Path("/getBrowseCacheStatistics")
+    @Produces(APPLICATION_JSON)
+    public CacheStatistics getBrowseCacheStatistics() {
+        return browseCache.getStatistics();
+    }
+
+    /**
+     * Get media scan statistics: progress of current or last scan.
+     *
+     * @return media scan statistics
+     */
+    @GET
+    @Path("/getMediaScanStatistics")
+    @Produces(APPLICATION_JSON)
+    public MediaScanStatistics getMediaScanStatistics() {
+        return mediaManager.getScanStatistics();
+    }
+
     /**
      * Get child folders.
      *
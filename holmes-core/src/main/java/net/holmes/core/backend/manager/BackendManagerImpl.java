@@ -28,6 +28,7 @@ import net.holmes.core.business.configuration.exception.UnknownNodeException;
 import net.holmes.core.business.configuration.model.ConfigurationNode;
 import net.holmes.core.business.media.model.RootNode;
 import net.holmes.core.common.event.ConfigurationEvent;
+import net.holmes.core.common.event.MediaEvent;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -43,6 +44,7 @@ import static net.holmes.core.common.ConfigurationParameter.*;
 import static net.holmes.core.common.FileUtils.isValidDirectory;
 import static net.holmes.core.common.UniqueIdGenerator.newUniqueId;
 import static net.holmes.core.common.event.ConfigurationEvent.EventType.*;
+import static net.holmes.core.common.event.MediaEvent.MediaEventType.SCAN_NODE;
 
 /**
  * Backend manager implementation.
@@ -105,6 +107,10 @@ public final class BackendManagerImpl implements BackendManager {
             if (configurationManager.addNode(rootNode, node)) {
                 // Post add folder event
                 eventBus.post(new ConfigurationEvent(ADD_FOLDER, node, rootNode));
+                if (rootNode.isLocalPath()) {
+                    // Scan new folder so that it is indexed before being browsed
+                    eventBus.post(new MediaEvent(SCAN_NODE, node.getId()));
+                }
             }
         } catch (IOException e) {
             throw new BackendException(e);
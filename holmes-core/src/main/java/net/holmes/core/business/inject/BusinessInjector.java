@@ -27,7 +27,9 @@ import net.holmes.core.business.media.MediaManagerImpl;
 import net.holmes.core.business.media.dao.MediaDao;
 import net.holmes.core.business.media.dao.MediaDaoImpl;
 import net.holmes.core.business.media.dao.index.MediaIndexDao;
-import net.holmes.core.business.media.dao.index.MediaIndexDaoImpl;
+import net.holmes.core.business.media.dao.index.PersistentMediaIndexDaoImpl;
+import net.holmes.core.business.media.scan.MediaScanner;
+import net.holmes.core.business.media.scan.MediaScannerImpl;
 import net.holmes.core.business.mimetype.MimeTypeManager;
 import net.holmes.core.business.mimetype.MimeTypeManagerImpl;
 import net.holmes.core.business.mimetype.dao.MimeTypeDao;
@@ -71,12 +73,15 @@ public class BusinessInjector extends AbstractModule {
         // Bind dao
         bind(ConfigurationDao.class).to(XmlConfigurationDaoImpl.class);
         bind(MediaDao.class).to(MediaDaoImpl.class);
-        bind(MediaIndexDao.class).to(MediaIndexDaoImpl.class);
+        bind(MediaIndexDao.class).to(PersistentMediaIndexDaoImpl.class);
         bind(DeviceDao.class).to(DeviceDaoImpl.class);
         bind(SessionDao.class).to(SessionDaoImpl.class);
         bind(ReleaseDao.class).to(ReleaseDaoImpl.class);
         bind(MimeTypeDao.class).to(MimeTypeDaoImpl.class);
 
+        // Bind media scanner
+        bind(MediaScanner.class).to(MediaScannerImpl.class);
+
         // Bind streaming utils
         bind(DeviceStreamer.class).annotatedWith(named("upnp")).to(UpnpStreamerImpl.class);
         bind(DeviceStreamer.class).annotatedWith(named("airplay")).to(AirplayStreamerImpl.class);
@@ -17,9 +17,11 @@
 
 package net.holmes.core.business.media;
 
+import net.holmes.core.business.media.dao.index.MediaIndexStatistics;
 import net.holmes.core.business.media.model.AbstractNode;
-
-import java.util.Collection;
+import net.holmes.core.business.media.scan.MediaScanStatistics;
+import net.holmes.core.business.media.search.SearchCriteria;
+import net.holmes.core.common.CacheStatistics;
 
 /**
  * Media manager.
@@ -42,15 +44,78 @@ public interface MediaManager {
     String getNodeUrl(AbstractNode node);
 
     /**
-     * Search child nodes.
+     * Search child nodes, returning requested page and total number of matching child nodes.
      *
      * @param request media search request
      * @return media search result
      */
-    Collection<AbstractNode> searchChildNodes(MediaSearchRequest request);
+    MediaSearchResult searchChildNodes(MediaSearchRequest request);
+
+    /**
+     * Search descendants of request parent node matching search criteria,
+     * returning requested page and total number of matching nodes.
+     *
+     * @param request  media search request
+     * @param criteria search criteria
+     * @return media search result
+     */
+    MediaSearchResult searchNodes(MediaSearchRequest request, SearchCriteria criteria);
+
+    /**
+     * Get number of child nodes matching search request, without listing child nodes when counts are known.
+     *
+     * @param request search request
+     * @return number of child nodes
+     */
+    int getChildCount(MediaSearchRequest request);
+
+    /**
+     * Clean up cache: clean next elements of media index.
+     *
+     * @param maxElements maximum number of media index elements to check
+     */
+    void cleanUpCache(int maxElements);
+
+    /**
+     * Get media index statistics.
+     *
+     * @return media index statistics
+     */
+    MediaIndexStatistics getIndexStatistics();
 
     /**
-     * Clean up cache
+     * Get folder listing cache statistics.
+     *
+     * @return folder listing cache statistics
+     */
+    CacheStatistics getFolderCacheStatistics();
+
+    /**
+     * Get number of folder listing and podcast requests which shared an in flight computation.
+     *
+     * @return number of coalesced requests
+     */
+    long getCoalescedRequestCount();
+
+    /**
+     * Get media scan statistics.
+     *
+     * @return media scan statistics
+     */
+    MediaScanStatistics getScanStatistics();
+
+    /**
+     * Get system update id, incremented each time media content changes.
+     *
+     * @return system update id
+     */
+    long getSystemUpdateId();
+
+    /**
+     * Get update id of a container: system update id of its last change.
+     *
+     * @param containerId container id
+     * @return container update id, 0 if container never changed
      */
-    void cleanUpCache();
+    long getContainerUpdateId(String containerId);
 }
@@ -17,15 +17,24 @@
 
 package net.holmes.core.business.media;
 
-import com.google.common.base.Predicate;
 import com.google.common.eventbus.Subscribe;
 import net.holmes.core.business.configuration.ConfigurationManager;
+import net.holmes.core.business.media.dao.FolderCounts;
 import net.holmes.core.business.media.dao.MediaDao;
+import net.holmes.core.business.media.dao.MediaSearchHit;
+import net.holmes.core.business.media.dao.index.MediaIndexStatistics;
 import net.holmes.core.business.media.model.AbstractNode;
 import net.holmes.core.business.media.model.FolderNode;
 import net.holmes.core.business.media.model.MimeTypeNode;
 import net.holmes.core.business.media.model.RootNode;
+import net.holmes.core.business.media.scan.MediaScanStatistics;
+import net.holmes.core.business.media.scan.MediaScanner;
+import net.holmes.core.business.media.search.SearchCriteria;
 import net.holmes.core.business.mimetype.MimeTypeManager;
+import net.holmes.core.business.mimetype.model.MimeType;
+import net.holmes.core.business.mimetype.model.MimeTypeProfile;
+import net.holmes.core.common.CacheStatistics;
+import net.holmes.core.common.event.ConfigurationEvent;
 import net.holmes.core.common.event.MediaEvent;
 import org.slf4j.Logger;
 
@@ -34,14 +43,17 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 import java.net.InetAddress;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 
-import static com.google.common.collect.Collections2.filter;
 import static net.holmes.core.business.media.model.RootNode.*;
 import static net.holmes.core.common.ConfigurationParameter.HTTP_SERVER_PORT;
 import static net.holmes.core.common.Constants.*;
+import static net.holmes.core.common.event.MediaEvent.MediaEventType.CONTAINER_UPDATED;
+import static net.holmes.core.common.event.MediaEvent.MediaEventType.FOLDER_CHANGED;
 import static net.holmes.core.common.event.MediaEvent.MediaEventType.SCAN_NODE;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -54,8 +66,10 @@ public final class MediaManagerImpl implements MediaManager {
     private final ResourceBundle resourceBundle;
     private final MediaDao mediaDao;
     private final MimeTypeManager mimeTypeManager;
+    private final MediaScanner mediaScanner;
     private final InetAddress localAddress;
     private final Integer httpServerPort;
+    private volatile RootTree rootTree = null;
 
     /**
      * Instantiates a new media manager implementation.
@@ -64,14 +78,16 @@ public final class MediaManagerImpl implements MediaManager {
      * @param resourceBundle       resource bundle
      * @param mediaDao             media dao
      * @param mimeTypeManager      mime type manager
+     * @param mediaScanner         media scanner
      * @param localAddress         local IP address
      */
     @Inject
     public MediaManagerImpl(final ConfigurationManager configurationManager, final ResourceBundle resourceBundle, final MediaDao mediaDao,
-                            final MimeTypeManager mimeTypeManager, @Named("localAddress") final InetAddress localAddress) {
+                            final MimeTypeManager mimeTypeManager, final MediaScanner mediaScanner, @Named("localAddress") final InetAddress localAddress) {
         this.resourceBundle = resourceBundle;
         this.mediaDao = mediaDao;
         this.mimeTypeManager = mimeTypeManager;
+        this.mediaScanner = mediaScanner;
         this.localAddress = localAddress;
         this.httpServerPort = configurationManager.getParameter(HTTP_SERVER_PORT);
     }
@@ -85,7 +101,7 @@ public final class MediaManagerImpl implements MediaManager {
         RootNode rootNode = getById(nodeId);
         if (rootNode != NONE) {
             // Get Root node
-            node = new FolderNode(rootNode.getId(), rootNode.getParentId(), resourceBundle.getString("rootNode." + rootNode.getId()));
+            node = getRootTree().getNode(rootNode.getId());
         } else if (nodeId != null) {
             node = mediaDao.getNode(nodeId);
         }
@@ -106,46 +122,265 @@ public final class MediaManagerImpl implements MediaManager {
      * {@inheritDoc}
      */
     @Override
-    public Collection<AbstractNode> searchChildNodes(final MediaSearchRequest request) {
+    public MediaSearchResult searchChildNodes(final MediaSearchRequest request) {
         List<AbstractNode> childNodes;
         RootNode rootNode = getById(request.getParentNode().getId());
         if (rootNode == ROOT) {
             // Get child nodes of root node
-            RootNode[] rootNodes = RootNode.values();
-            childNodes = new ArrayList<>(rootNodes.length);
-            for (RootNode subRootNode : rootNodes) {
-                if (subRootNode.getParentId().equals(ROOT.getId()) && !mediaDao.getRootNodeChildren(subRootNode).isEmpty()) {
-                    childNodes.add(new FolderNode(subRootNode.getId(), ROOT.getId(), resourceBundle.getString(subRootNode.getBundleKey())));
-                }
-            }
+            childNodes = getRootTree().getChildNodes();
         } else if (rootNode.getParentId().equals(ROOT.getId())) {
             // Get child nodes of sub root node
             childNodes = mediaDao.getRootNodeChildren(rootNode);
         } else {
-            // Get child nodes
-            childNodes = mediaDao.getChildNodes(request.getParentNode().getId());
+            // Get sorted child nodes
+            childNodes = mediaDao.getChildNodes(request.getParentNode().getId(), request.getSortCriteria());
+        }
+        if (rootNode != NONE && !request.getSortCriteria().isNone()) {
+            // Sort a copy of root node children, only a few nodes
+            childNodes = new ArrayList<>(childNodes);
+            Collections.sort(childNodes, request.getSortCriteria().getNodeComparator());
+        }
+
+        // Filter child nodes according to available mime types in a single pass, only keeping requested page
+        MimeTypeProfile profile = getProfile(request);
+        List<AbstractNode> pageNodes = new ArrayList<>(request.getLimit() > 0 ? Math.min(request.getLimit(), childNodes.size()) : childNodes.size());
+        int totalCount = 0;
+        for (AbstractNode childNode : childNodes) {
+            if (isVisible(childNode, profile)) {
+                if (request.isInPage(totalCount)) {
+                    pageNodes.add(childNode);
+                }
+                totalCount++;
+            }
         }
+        return new MediaSearchResult(pageNodes, totalCount);
+    }
 
-        // Filter child nodes according to available mime types
-        return filter(childNodes, new Predicate<AbstractNode>() {
-            /**
-             * {@inheritDoc}
-             */
-            @Override
-            public boolean apply(AbstractNode node) {
-                return !(node instanceof MimeTypeNode)
-                        || mimeTypeManager.isMimeTypeCompliant(((MimeTypeNode) node).getMimeType(), request.getAvailableMimeTypes());
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MediaSearchResult searchNodes(final MediaSearchRequest request, final SearchCriteria criteria) {
+        // Search title index, hits are sorted by title
+        MimeTypeProfile profile = getProfile(request);
+        List<MediaSearchHit> hits = mediaDao.searchNodes(request.getParentNode().getId(), criteria);
+        if (!request.getSortCriteria().isNone()) {
+            // Sorting requires every matching node to be read from file system
+            List<AbstractNode> nodes = new ArrayList<>(hits.size());
+            for (MediaSearchHit hit : hits) {
+                if (isVisible(hit, profile)) {
+                    AbstractNode node = mediaDao.getNode(hit.getNodeId());
+                    if (node != null) {
+                        nodes.add(node);
+                    }
+                }
+            }
+            Collections.sort(nodes, request.getSortCriteria().getNodeComparator());
+            List<AbstractNode> pageNodes = new ArrayList<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                if (request.isInPage(i)) {
+                    pageNodes.add(nodes.get(i));
+                }
+            }
+            return new MediaSearchResult(pageNodes, nodes.size());
+        }
 
+        // Only nodes in requested page are read from file system
+        List<AbstractNode> pageNodes = new ArrayList<>();
+        int totalCount = 0;
+        for (MediaSearchHit hit : hits) {
+            if (isVisible(hit, profile)) {
+                if (request.isInPage(totalCount)) {
+                    AbstractNode node = mediaDao.getNode(hit.getNodeId());
+                    if (node != null) {
+                        pageNodes.add(node);
+                    }
+                }
+                totalCount++;
             }
-        });
+        }
+        return new MediaSearchResult(pageNodes, totalCount);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void cleanUpCache() {
-        mediaDao.cleanUpCache();
+    public int getChildCount(final MediaSearchRequest request) {
+        String folderId = request.getParentNode().getId();
+        FolderCounts counts = mediaDao.getFolderCounts(folderId);
+        if (counts == null && getById(folderId) == NONE) {
+            // Folder never listed or evicted: list it once to count it, folder cache then serves its browse
+            mediaDao.getChildNodes(folderId);
+            counts = mediaDao.getFolderCounts(folderId);
+        }
+        if (counts == null) {
+            // Root node children are not read from file system, other nodes without counts are counted from their children
+            return searchChildNodes(request).getTotalCount();
+        }
+
+        // Count visible sub-folders and contents
+        MimeTypeProfile profile = getProfile(request);
+        int childCount = 0;
+        for (String folderId : counts.getFolderIds()) {
+            if (!isEmptyFolder(folderId, profile)) {
+                childCount++;
+            }
+        }
+        for (Map.Entry<MimeType, Integer> contentCount : counts.getContentCounts().entrySet()) {
+            if (profile.isCompliant(contentCount.getKey())) {
+                childCount += contentCount.getValue();
+            }
+        }
+        return childCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cleanUpCache(final int maxElements) {
+        mediaDao.cleanUpCache(maxElements);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MediaIndexStatistics getIndexStatistics() {
+        return mediaDao.getIndexStatistics();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CacheStatistics getFolderCacheStatistics() {
+        return mediaDao.getFolderCacheStatistics();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCoalescedRequestCount() {
+        return mediaDao.getCoalescedRequestCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MediaScanStatistics getScanStatistics() {
+        return mediaScanner.getStatistics();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSystemUpdateId() {
+        return mediaDao.getSystemUpdateId();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getContainerUpdateId(final String containerId) {
+        return mediaDao.getContainerUpdateId(containerId);
+    }
+
+    /**
+     * Get root tree: root node, sub root nodes and child nodes of root node.
+     * Tree is built once, then rebuilt when configuration changes or when root container update id changes.
+     *
+     * @return root tree
+     */
+    private RootTree getRootTree() {
+        // Read update id before sub root node children, so that a concurrent configuration change triggers a new build
+        long updateId = mediaDao.getContainerUpdateId(ROOT.getId());
+        RootTree cached = rootTree;
+        if (cached != null && cached.getUpdateId() == updateId) {
+            return cached;
+        }
+
+        Map<String, AbstractNode> nodes = new HashMap<>();
+        List<AbstractNode> childNodes = new ArrayList<>();
+        for (RootNode node : RootNode.values()) {
+            if (node != NONE) {
+                FolderNode folderNode = new FolderNode(node.getId(), node.getParentId(), resourceBundle.getString(node.getBundleKey()));
+                nodes.put(node.getId(), folderNode);
+                if (node.getParentId().equals(ROOT.getId()) && !mediaDao.getRootNodeChildren(node).isEmpty()) {
+                    // Only sub root nodes having children are visible
+                    childNodes.add(folderNode);
+                }
+            }
+        }
+        cached = new RootTree(updateId, nodes, Collections.unmodifiableList(childNodes));
+        rootTree = cached;
+        return cached;
+    }
+
+    /**
+     * Get mime type profile of a request: resolved profile if any, else profile of available mime types.
+     *
+     * @param request media search request
+     * @return mime type profile
+     */
+    private MimeTypeProfile getProfile(final MediaSearchRequest request) {
+        MimeTypeProfile profile = request.getMimeTypeProfile();
+        return profile != null ? profile : mimeTypeManager.getProfile(request.getAvailableMimeTypes());
+    }
+
+    /**
+     * Check whether a node is visible for available mime types.
+     *
+     * @param node    node
+     * @param profile available mime types profile
+     * @return true if node is visible
+     */
+    private boolean isVisible(final AbstractNode node, final MimeTypeProfile profile) {
+        if (node instanceof FolderNode && getById(node.getId()) == NONE) {
+            // Hide folders without any content for available mime types
+            return !isEmptyFolder(node.getId(), profile);
+        }
+        return !(node instanceof MimeTypeNode) || profile.isCompliant(((MimeTypeNode) node).getMimeType());
+    }
+
+    /**
+     * Check whether a search hit is visible for available mime types.
+     *
+     * @param hit     search hit
+     * @param profile available mime types profile
+     * @return true if search hit is visible
+     */
+    private boolean isVisible(final MediaSearchHit hit, final MimeTypeProfile profile) {
+        if (hit.isFolder()) {
+            return !isEmptyFolder(hit.getNodeId(), profile);
+        }
+        return profile.isCompliant(hit.getMimeType());
+    }
+
+    /**
+     * Check whether a folder tree does not contain any content for available mime types.
+     * A folder which tree is not completely counted is not considered empty.
+     *
+     * @param folderId folder id
+     * @param profile  available mime types profile
+     * @return true if folder is empty
+     */
+    private boolean isEmptyFolder(final String folderId, final MimeTypeProfile profile) {
+        FolderCounts counts = mediaDao.getFolderCounts(folderId);
+        if (counts == null || !counts.isComplete()) {
+            return false;
+        }
+        for (MimeType mimeType : counts.getTreeContentCounts().keySet()) {
+            if (profile.isCompliant(mimeType)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -156,23 +391,71 @@ public final class MediaManagerImpl implements MediaManager {
     @Subscribe
     public void handleMediaEvent(final MediaEvent mediaEvent) {
         if (mediaEvent.getType() == SCAN_NODE) {
-            scanNode(getNode(mediaEvent.getParameter()));
-        } else {
+            mediaScanner.scan(mediaEvent.getParameter());
+        } else if (mediaEvent.getType() == FOLDER_CHANGED) {
+            mediaDao.refreshFolder(mediaEvent.getParameter());
+        } else if (mediaEvent.getType() != CONTAINER_UPDATED) {
             LOGGER.error("Unknown media event {}", mediaEvent);
         }
     }
 
     /**
-     * Scan a specific node and its children
+     * Handle configuration event: root tree is rebuilt on next access.
      *
-     * @param node node to scan
+     * @param configurationEvent configuration event
      */
-    private void scanNode(final AbstractNode node) {
-        if (node instanceof FolderNode) {
-            Collection<AbstractNode> result = searchChildNodes(new MediaSearchRequest(node, null));
-            for (AbstractNode childNode : result) {
-                scanNode(childNode);
-            }
+    @Subscribe
+    public void handleConfigurationEvent(final ConfigurationEvent configurationEvent) {
+        rootTree = null;
+    }
+
+    /**
+     * Root and sub root nodes, built for a root container update id.
+     */
+    private static final class RootTree {
+        private final long updateId;
+        private final Map<String, AbstractNode> nodes;
+        private final List<AbstractNode> childNodes;
+
+        /**
+         * Instantiates a new root tree.
+         *
+         * @param updateId   root container update id
+         * @param nodes      root and sub root nodes, by id
+         * @param childNodes child nodes of root node
+         */
+        RootTree(final long updateId, final Map<String, AbstractNode> nodes, final List<AbstractNode> childNodes) {
+            this.updateId = updateId;
+            this.nodes = nodes;
+            this.childNodes = childNodes;
+        }
+
+        /**
+         * Get root container update id.
+         *
+         * @return update id
+         */
+        long getUpdateId() {
+            return updateId;
+        }
+
+        /**
+         * Get root or sub root node.
+         *
+         * @param nodeId node id
+         * @return node
+         */
+        AbstractNode getNode(final String nodeId) {
+            return nodes.get(nodeId);
+        }
+
+        /**
+         * Get child nodes of root node.
+         *
+         * @return child nodes
+         */
+        List<AbstractNode> getChildNodes() {
+            return childNodes;
         }
     }
 }
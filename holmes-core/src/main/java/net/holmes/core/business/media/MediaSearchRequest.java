@@ -18,6 +18,8 @@
 package net.holmes.core.business.media;
 
 import net.holmes.core.business.media.model.AbstractNode;
+import net.holmes.core.business.media.search.SortCriteria;
+import net.holmes.core.business.mimetype.model.MimeTypeProfile;
 
 import java.util.Collection;
 
@@ -27,16 +29,79 @@ import java.util.Collection;
 public final class MediaSearchRequest {
     private final AbstractNode parentNode;
     private final Collection<String> availableMimeTypes;
+    private final MimeTypeProfile mimeTypeProfile;
+    private final int offset;
+    private final int limit;
+    private final SortCriteria sortCriteria;
 
     /**
-     * Instantiates a new media search request.
+     * Instantiates a new media search request, returning all child nodes.
      *
      * @param parentNode         parent node
      * @param availableMimeTypes available mime types.
      */
     public MediaSearchRequest(final AbstractNode parentNode, final Collection<String> availableMimeTypes) {
+        this(parentNode, availableMimeTypes, 0, 0);
+    }
+
+    /**
+     * Instantiates a new media search request, returning a page of child nodes.
+     *
+     * @param parentNode         parent node
+     * @param availableMimeTypes available mime types.
+     * @param offset             index of first child node to return
+     * @param limit              maximum number of child nodes to return, 0 for no limit
+     */
+    public MediaSearchRequest(final AbstractNode parentNode, final Collection<String> availableMimeTypes, final int offset, final int limit) {
+        this(parentNode, availableMimeTypes, offset, limit, SortCriteria.NONE);
+    }
+
+    /**
+     * Instantiates a new media search request, returning a page of sorted child nodes.
+     *
+     * @param parentNode         parent node
+     * @param availableMimeTypes available mime types.
+     * @param offset             index of first child node to return
+     * @param limit              maximum number of child nodes to return, 0 for no limit
+     * @param sortCriteria       sort criteria
+     */
+    public MediaSearchRequest(final AbstractNode parentNode, final Collection<String> availableMimeTypes, final int offset, final int limit,
+                              final SortCriteria sortCriteria) {
+        this(parentNode, availableMimeTypes, null, offset, limit, sortCriteria);
+    }
+
+    /**
+     * Instantiates a new media search request, returning a page of sorted child nodes visible with an already resolved mime type profile.
+     *
+     * @param parentNode      parent node
+     * @param mimeTypeProfile mime type profile
+     * @param offset          index of first child node to return
+     * @param limit           maximum number of child nodes to return, 0 for no limit
+     * @param sortCriteria    sort criteria
+     */
+    public MediaSearchRequest(final AbstractNode parentNode, final MimeTypeProfile mimeTypeProfile, final int offset, final int limit,
+                              final SortCriteria sortCriteria) {
+        this(parentNode, null, mimeTypeProfile, offset, limit, sortCriteria);
+    }
+
+    /**
+     * Instantiates a new media search request.
+     *
+     * @param parentNode         parent node
+     * @param availableMimeTypes available mime types, null when mime type profile is resolved
+     * @param mimeTypeProfile    mime type profile, null to resolve it from available mime types
+     * @param offset             index of first child node to return
+     * @param limit              maximum number of child nodes to return, 0 for no limit
+     * @param sortCriteria       sort criteria
+     */
+    private MediaSearchRequest(final AbstractNode parentNode, final Collection<String> availableMimeTypes, final MimeTypeProfile mimeTypeProfile,
+                               final int offset, final int limit, final SortCriteria sortCriteria) {
         this.parentNode = parentNode;
         this.availableMimeTypes = availableMimeTypes;
+        this.mimeTypeProfile = mimeTypeProfile;
+        this.offset = offset;
+        this.limit = limit;
+        this.sortCriteria = sortCriteria;
     }
 
     /**
@@ -56,4 +121,50 @@ public final class MediaSearchRequest {
     public Collection<String> getAvailableMimeTypes() {
         return availableMimeTypes;
     }
+
+    /**
+     * Get resolved mime type profile.
+     *
+     * @return mime type profile, null if profile is resolved from available mime types
+     */
+    public MimeTypeProfile getMimeTypeProfile() {
+        return mimeTypeProfile;
+    }
+
+    /**
+     * Get index of first child node to return.
+     *
+     * @return offset
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get maximum number of child nodes to return, 0 for no limit.
+     *
+     * @return limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get sort criteria.
+     *
+     * @return sort criteria
+     */
+    public SortCriteria getSortCriteria() {
+        return sortCriteria;
+    }
+
+    /**
+     * Check whether a child node at given index (among all matching child nodes) belongs to requested page.
+     *
+     * @param index child node index
+     * @return true if child node belongs to requested page
+     */
+    public boolean isInPage(final int index) {
+        return index >= offset && (limit == 0 || index - offset < limit);
+    }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media;
+
+import net.holmes.core.business.media.model.AbstractNode;
+
+import java.util.List;
+
+/**
+ * Media search result: a page of child nodes and the total number of child nodes matching search request.
+ */
+public final class MediaSearchResult {
+    private final List<AbstractNode> nodes;
+    private final int totalCount;
+
+    /**
+     * Instantiates a new media search result.
+     *
+     * @param nodes      child nodes in requested page
+     * @param totalCount total number of matching child nodes
+     */
+    public MediaSearchResult(final List<AbstractNode> nodes, final int totalCount) {
+        this.nodes = nodes;
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * Get child nodes in requested page.
+     *
+     * @return child nodes
+     */
+    public List<AbstractNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get total number of matching child nodes, whatever the requested page.
+     *
+     * @return total count
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Update ids of containers, as defined by UPnP ContentDirectory:1.
+ * <p>
+ * Each change increments the system update id. A changed container takes the new system update id as container update id,
+ * so container update ids only grow. Containers which never changed have a 0 update id.
+ * </p>
+ * Container content is summed up by a fingerprint (e.g. folder modification date): a container changes when its fingerprint changes.
+ */
+final class ContainerUpdateIndex {
+    private static final long MAX_UPDATE_ID = 0xFFFFFFFFL;
+
+    private final Map<String, Long> fingerprints = new HashMap<>();
+    private final Map<String, Long> containerUpdateIds = new HashMap<>();
+    private long systemUpdateId = 0L;
+
+    /**
+     * Update fingerprint of a container.
+     * First fingerprint of a container is not a change: container content was not known before.
+     *
+     * @param containerId container id
+     * @param fingerprint container content fingerprint
+     * @return true if container changed
+     */
+    synchronized boolean update(final String containerId, final long fingerprint) {
+        Long previous = fingerprints.put(containerId, fingerprint);
+        if (previous != null && previous != fingerprint) {
+            changed(containerId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Record a change of some containers, incrementing system update id once.
+     *
+     * @param containerIds changed container ids, none if change does not concern specific containers
+     * @return new system update id
+     */
+    synchronized long changed(final String... containerIds) {
+        // Update ids are ui4 values, roll over to 1
+        systemUpdateId = systemUpdateId >= MAX_UPDATE_ID ? 1L : systemUpdateId + 1L;
+        for (String containerId : containerIds) {
+            containerUpdateIds.put(containerId, systemUpdateId);
+        }
+        return systemUpdateId;
+    }
+
+    /**
+     * Forget a removed container.
+     *
+     * @param containerId container id
+     */
+    synchronized void remove(final String containerId) {
+        fingerprints.remove(containerId);
+        containerUpdateIds.remove(containerId);
+    }
+
+    /**
+     * Get system update id.
+     *
+     * @return system update id
+     */
+    synchronized long getSystemUpdateId() {
+        return systemUpdateId;
+    }
+
+    /**
+     * Get container update id.
+     *
+     * @param containerId container id
+     * @return container update id, 0 if container never changed
+     */
+    synchronized long getContainerUpdateId(final String containerId) {
+        Long containerUpdateId = containerUpdateIds.get(containerId);
+        return containerUpdateId != null ? containerUpdateId : 0L;
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import net.holmes.core.business.mimetype.model.MimeType;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Child counts of listed folders, updated each time a folder is listed.
+ * Counts of a folder tree are maintained incrementally: a change in a folder is propagated to its ancestors.
+ * <p>
+ * Updates are serialized, counts are read without locking: each update publishes immutable counts
+ * of the folders it changed. Sub-folder ids and content counts of a folder are copied once, when it is listed:
+ * propagating a change to ancestors only rebuilds their tree counts.
+ * </p>
+ */
+final class FolderCountIndex {
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final ConcurrentMap<String, FolderCounts> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Update counts of a folder with its current children.
+     *
+     * @param folderId      folder id
+     * @param parentId      parent folder id
+     * @param folderIds     ids of sub-folders
+     * @param contentCounts number of contents by mime type
+     */
+    synchronized void update(final String folderId, final String parentId, final Set<String> folderIds, final Map<MimeType, Integer> contentCounts) {
+        Entry previous = entries.get(folderId);
+
+        // Build new entry, including counts of already counted sub-folders
+        Entry entry = new Entry(parentId, folderIds, contentCounts);
+        for (String childId : entry.folderIds) {
+            Entry child = entries.get(childId);
+            if (child != null && folderId.equals(child.parentId)) {
+                add(entry.treeContentCounts, child.treeContentCounts, 1);
+                if (!child.isComplete()) {
+                    entry.incompleteFolders++;
+                }
+            } else {
+                entry.incompleteFolders++;
+            }
+        }
+
+        // Forget removed sub-folders
+        Map<MimeType, Integer> delta = new HashMap<>(entry.treeContentCounts);
+        boolean wasComplete = false;
+        if (previous != null) {
+            for (String childId : previous.folderIds) {
+                if (!folderIds.contains(childId)) {
+                    removeTree(childId);
+                }
+            }
+            add(delta, previous.treeContentCounts, -1);
+            wasComplete = previous.isComplete();
+        }
+        entries.put(folderId, entry);
+        publish(folderId, entry);
+
+        // Propagate changes to ancestors
+        propagate(folderId, parentId, delta, wasComplete, entry.isComplete());
+    }
+
+    /**
+     * Remove counts of a folder and its sub-folders, when folder is removed from media index.
+     * Folder is no more counted in its ancestors trees.
+     *
+     * @param folderId folder id
+     */
+    synchronized void remove(final String folderId) {
+        Entry entry = entries.get(folderId);
+        if (entry != null) {
+            Map<MimeType, Integer> delta = new HashMap<>();
+            add(delta, entry.treeContentCounts, -1);
+            boolean wasComplete = entry.isComplete();
+            removeTree(folderId);
+
+            // Folder is still a sub-folder of its parent, until parent is listed again: parent tree becomes incomplete
+            propagate(folderId, entry.parentId, delta, wasComplete, false);
+        }
+    }
+
+    /**
+     * Get counts of a folder.
+     *
+     * @param folderId folder id
+     * @return folder counts or null if folder was never listed
+     */
+    FolderCounts get(final String folderId) {
+        return counts.get(folderId);
+    }
+
+    /**
+     * Get number of counted folders.
+     *
+     * @return number of counted folders
+     */
+    int size() {
+        return counts.size();
+    }
+
+    /**
+     * Publish counts of a folder.
+     *
+     * @param folderId folder id
+     * @param entry    folder count entry
+     */
+    private void publish(final String folderId, final Entry entry) {
+        counts.put(folderId, new FolderCounts(entry.folderIds.asList(), entry.contentCounts, ImmutableMap.copyOf(entry.treeContentCounts),
+                entry.isComplete()));
+    }
+
+    /**
+     * Propagate folder tree changes to ancestors.
+     *
+     * @param folderId    changed folder id
+     * @param parentId    changed folder parent id
+     * @param delta       content count changes
+     * @param wasComplete whether changed folder tree was complete
+     * @param isComplete  whether changed folder tree is complete
+     */
+    private void propagate(final String folderId, final String parentId, final Map<MimeType, Integer> delta, final boolean wasComplete, final boolean isComplete) {
+        String childId = folderId;
+        String ancestorId = parentId;
+        boolean childWasComplete = wasComplete;
+        boolean childIsComplete = isComplete;
+        while (ancestorId != null && (!delta.isEmpty() || childWasComplete != childIsComplete)) {
+            Entry ancestor = entries.get(ancestorId);
+            if (ancestor == null || !ancestor.folderIds.contains(childId)) {
+                // Ancestor not counted yet
+                return;
+            }
+            boolean ancestorWasComplete = ancestor.isComplete();
+            add(ancestor.treeContentCounts, delta, 1);
+            if (childWasComplete != childIsComplete) {
+                ancestor.incompleteFolders += childIsComplete ? -1 : 1;
+            }
+            publish(ancestorId, ancestor);
+            childWasComplete = ancestorWasComplete;
+            childIsComplete = ancestor.isComplete();
+            childId = ancestorId;
+            ancestorId = ancestor.parentId;
+        }
+    }
+
+    /**
+     * Remove counts of a folder and its sub-folders.
+     *
+     * @param folderId folder id
+     */
+    private void removeTree(final String folderId) {
+        Entry entry = entries.remove(folderId);
+        counts.remove(folderId);
+        if (entry != null) {
+            for (String childId : entry.folderIds) {
+                removeTree(childId);
+            }
+        }
+    }
+
+    /**
+     * Add counts to target counts. Zero counts are removed.
+     *
+     * @param target target counts
+     * @param counts counts to add
+     * @param sign   1 to add counts, -1 to subtract them
+     */
+    private static void add(final Map<MimeType, Integer> target, final Map<MimeType, Integer> counts, final int sign) {
+        for (Map.Entry<MimeType, Integer> count : counts.entrySet()) {
+            Integer current = target.get(count.getKey());
+            int value = (current != null ? current : 0) + sign * count.getValue();
+            if (value == 0) {
+                target.remove(count.getKey());
+            } else {
+                target.put(count.getKey(), value);
+            }
+        }
+    }
+
+    /**
+     * Folder count entry.
+     */
+    private static final class Entry {
+        private final String parentId;
+        private final ImmutableSet<String> folderIds;
+        private final ImmutableMap<MimeType, Integer> contentCounts;
+        private final Map<MimeType, Integer> treeContentCounts;
+        private int incompleteFolders = 0;
+
+        /**
+         * Instantiates a new folder count entry.
+         *
+         * @param parentId      parent folder id
+         * @param folderIds     sub-folder ids
+         * @param contentCounts number of contents by mime type
+         */
+        Entry(final String parentId, final Set<String> folderIds, final Map<MimeType, Integer> contentCounts) {
+            this.parentId = parentId;
+            this.folderIds = ImmutableSet.copyOf(folderIds);
+            this.contentCounts = ImmutableMap.copyOf(contentCounts);
+            this.treeContentCounts = new HashMap<>(contentCounts);
+        }
+
+        /**
+         * Whether all sub-folders trees are counted.
+         *
+         * @return true if folder tree is complete
+         */
+        boolean isComplete() {
+            return incompleteFolders == 0;
+        }
+    }
+}
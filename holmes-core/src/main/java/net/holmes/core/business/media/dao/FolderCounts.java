@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao;
+
+import net.holmes.core.business.mimetype.model.MimeType;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Folder child counts: direct sub-folders, and number of contents by mime type in folder and in its whole tree.
+ */
+public final class FolderCounts {
+    private final Collection<String> folderIds;
+    private final Map<MimeType, Integer> contentCounts;
+    private final Map<MimeType, Integer> treeContentCounts;
+    private final boolean complete;
+
+    /**
+     * Instantiates new folder counts.
+     *
+     * @param folderIds         ids of direct sub-folders
+     * @param contentCounts     number of direct contents by mime type
+     * @param treeContentCounts number of contents by mime type in folder tree
+     * @param complete          whether all folders of folder tree are counted
+     */
+    public FolderCounts(final Collection<String> folderIds, final Map<MimeType, Integer> contentCounts, final Map<MimeType, Integer> treeContentCounts,
+                        final boolean complete) {
+        this.folderIds = folderIds;
+        this.contentCounts = contentCounts;
+        this.treeContentCounts = treeContentCounts;
+        this.complete = complete;
+    }
+
+    /**
+     * Get ids of direct sub-folders.
+     *
+     * @return sub-folder ids
+     */
+    public Collection<String> getFolderIds() {
+        return folderIds;
+    }
+
+    /**
+     * Get number of direct contents by mime type.
+     *
+     * @return content counts
+     */
+    public Map<MimeType, Integer> getContentCounts() {
+        return contentCounts;
+    }
+
+    /**
+     * Get number of contents by mime type in folder tree.
+     *
+     * @return folder tree content counts
+     */
+    public Map<MimeType, Integer> getTreeContentCounts() {
+        return treeContentCounts;
+    }
+
+    /**
+     * Whether all folders of folder tree are counted. Otherwise, folder tree content counts are partial.
+     *
+     * @return true if folder tree content counts are complete
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("folderIds", folderIds)
+                .add("contentCounts", contentCounts)
+                .add("treeContentCounts", treeContentCounts)
+                .add("complete", complete)
+                .toString();
+    }
+}
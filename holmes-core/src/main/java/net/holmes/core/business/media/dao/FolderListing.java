@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao;
+
+import net.holmes.core.business.media.search.SortCriteria;
+import net.holmes.core.common.FileEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cached folder listing: valid children of a folder with their attributes, and folder modification date at listing time.
+ * Sorted orders of children are computed once and kept with the listing, they are dropped with it when folder changes.
+ */
+final class FolderListing {
+    private final long lastModified;
+    private final List<FileEntry> children;
+    private final ConcurrentMap<SortCriteria, List<FileEntry>> sortedChildren = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new folder listing.
+     *
+     * @param lastModified folder modification date
+     * @param children     folder children
+     */
+    FolderListing(final long lastModified, final List<FileEntry> children) {
+        this.lastModified = lastModified;
+        this.children = children;
+    }
+
+    /**
+     * Get folder modification date at listing time.
+     *
+     * @return folder modification date
+     */
+    long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Get folder children.
+     *
+     * @return folder children
+     */
+    List<FileEntry> getChildren() {
+        return children;
+    }
+
+    /**
+     * Get folder children sorted according to sort criteria.
+     *
+     * @param sortCriteria sort criteria
+     * @return sorted folder children
+     */
+    List<FileEntry> getChildren(final SortCriteria sortCriteria) {
+        if (sortCriteria.isNone()) {
+            return children;
+        }
+        List<FileEntry> sorted = sortedChildren.get(sortCriteria);
+        if (sorted == null) {
+            sorted = new ArrayList<>(children);
+            Collections.sort(sorted, sortCriteria.getFileEntryComparator());
+            sorted = Collections.unmodifiableList(sorted);
+            // Concurrent sorts of the same listing give the same order, keep the first one
+            List<FileEntry> previous = sortedChildren.putIfAbsent(sortCriteria, sorted);
+            if (previous != null) {
+                sorted = previous;
+            }
+        }
+        return sorted;
+    }
+}
@@ -17,8 +17,12 @@
 
 package net.holmes.core.business.media.dao;
 
+import net.holmes.core.business.media.dao.index.MediaIndexStatistics;
 import net.holmes.core.business.media.model.AbstractNode;
 import net.holmes.core.business.media.model.RootNode;
+import net.holmes.core.business.media.search.SearchCriteria;
+import net.holmes.core.business.media.search.SortCriteria;
+import net.holmes.core.common.CacheStatistics;
 
 import java.util.List;
 
@@ -42,16 +46,90 @@ public interface MediaDao {
      */
     List<AbstractNode> getChildNodes(String parentNodeId);
 
+    /**
+     * Get child nodes, sorted according to sort criteria.
+     * Sorted orders of folder children are cached until folder changes.
+     *
+     * @param parentNodeId parent node id
+     * @param sortCriteria sort criteria
+     * @return sorted child nodes
+     */
+    List<AbstractNode> getChildNodes(String parentNodeId, SortCriteria sortCriteria);
+
     /**
      * Get children of a root node.
+     * Children are loaded from configuration once, and reloaded after configuration changes.
      *
      * @param rootNode root node
-     * @return child nodes
+     * @return unmodifiable child nodes
      */
     List<AbstractNode> getRootNodeChildren(RootNode rootNode);
 
     /**
-     * Clean up cache
+     * Clean up cache: clean next elements of media index.
+     *
+     * @param maxElements maximum number of media index elements to check
+     */
+    void cleanUpCache(int maxElements);
+
+    /**
+     * Refresh a folder in media index: add new children and remove children that are no more on file system.
+     * Nothing is done if the folder is not indexed.
+     *
+     * @param folderPath folder path
+     */
+    void refreshFolder(String folderPath);
+
+    /**
+     * Get media index statistics.
+     *
+     * @return media index statistics
+     */
+    MediaIndexStatistics getIndexStatistics();
+
+    /**
+     * Get folder listing cache statistics.
+     *
+     * @return folder listing cache statistics
+     */
+    CacheStatistics getFolderCacheStatistics();
+
+    /**
+     * Get number of folder listing and podcast requests which shared an in flight computation.
+     *
+     * @return number of coalesced requests
+     */
+    long getCoalescedRequestCount();
+
+    /**
+     * Get child counts of a folder. Counts are updated each time a folder is listed.
+     *
+     * @param folderId folder id
+     * @return folder counts or null if folder was never listed
+     */
+    FolderCounts getFolderCounts(String folderId);
+
+    /**
+     * Search descendants of a container matching search criteria, among children of listed folders.
+     *
+     * @param containerId container id
+     * @param criteria    search criteria
+     * @return matching nodes, sorted by title
+     */
+    List<MediaSearchHit> searchNodes(String containerId, SearchCriteria criteria);
+
+    /**
+     * Get system update id, incremented each time media content changes.
+     *
+     * @return system update id
+     */
+    long getSystemUpdateId();
+
+    /**
+     * Get update id of a container: system update id of its last change.
+     *
+     * @param containerId container id
+     * @return container update id, 0 if container never changed
      */
-    void cleanUpCache();
+    long getContainerUpdateId(String containerId);
 }
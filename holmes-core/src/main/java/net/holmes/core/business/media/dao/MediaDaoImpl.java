@@ -18,32 +18,51 @@
 package net.holmes.core.business.media.dao;
 
 import com.google.common.cache.Cache;
+import com.google.common.cache.Weigher;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
 import net.holmes.core.business.configuration.ConfigurationManager;
 import net.holmes.core.business.configuration.model.ConfigurationNode;
 import net.holmes.core.business.media.dao.index.MediaIndexDao;
 import net.holmes.core.business.media.dao.index.MediaIndexElement;
+import net.holmes.core.business.media.dao.index.MediaIndexListener;
+import net.holmes.core.business.media.dao.index.MediaIndexStatistics;
 import net.holmes.core.business.media.model.*;
+import net.holmes.core.business.media.search.SearchCriteria;
+import net.holmes.core.business.media.search.SortCriteria;
 import net.holmes.core.business.mimetype.MimeTypeManager;
 import net.holmes.core.business.mimetype.model.MimeType;
+import net.holmes.core.common.CacheStatistics;
+import net.holmes.core.common.FileEntry;
 import net.holmes.core.common.MediaType;
+import net.holmes.core.common.SingleFlight;
+import net.holmes.core.common.event.ConfigurationEvent;
+import net.holmes.core.common.event.MediaEvent;
 import net.holmes.core.common.exception.HolmesException;
+import net.holmes.core.common.exception.HolmesRuntimeException;
 import org.slf4j.Logger;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.cache.CacheBuilder.newBuilder;
 import static net.holmes.core.business.media.dao.index.MediaIndexElementFactory.buildConfigMediaIndexElement;
 import static net.holmes.core.business.media.model.AbstractNode.NodeType.TYPE_UNKNOWN;
 import static net.holmes.core.business.media.model.RootNode.PODCAST;
+import static net.holmes.core.business.media.model.RootNode.ROOT;
 import static net.holmes.core.common.ConfigurationParameter.*;
 import static net.holmes.core.common.FileUtils.*;
+import static net.holmes.core.common.event.MediaEvent.MediaEventType.CONTAINER_UPDATED;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -52,11 +71,26 @@ import static org.slf4j.LoggerFactory.getLogger;
 @Singleton
 public class MediaDaoImpl implements MediaDao {
     private static final Logger LOGGER = getLogger(MediaDaoImpl.class);
+    /**
+     * Folders modified more recently are not cached: further changes could occur within file system timestamp granularity
+     */
+    private static final long FOLDER_CACHE_MIN_AGE_MILLIS = 2000L;
 
     private final ConfigurationManager configurationManager;
     private final MimeTypeManager mimeTypeManager;
     private final MediaIndexDao mediaIndexDao;
+    private final EventBus eventBus;
     private final Cache<String, List<AbstractNode>> podcastCache;
+    private final Cache<String, FolderListing> folderCache;
+    private final AtomicLong folderCacheHits = new AtomicLong();
+    private final AtomicLong folderCacheMisses = new AtomicLong();
+    private final FolderCountIndex folderCounts = new FolderCountIndex();
+    private final MediaTitleIndex titleIndex = new MediaTitleIndex();
+    private final ContainerUpdateIndex containerUpdates = new ContainerUpdateIndex();
+    private final SingleFlight<String, FolderChildNodes> folderListings = new SingleFlight<>();
+    private final SingleFlight<String, List<AbstractNode>> podcastLoads = new SingleFlight<>();
+    private final Map<RootNode, List<AbstractNode>> rootNodeChildren = new ConcurrentHashMap<>();
+    private final Object rootNodeChildrenLock = new Object();
 
     /**
      * Instantiates a new media dao implementation.
@@ -64,16 +98,34 @@ public class MediaDaoImpl implements MediaDao {
      * @param configurationManager configuration dao
      * @param mimeTypeManager      mime type manager
      * @param mediaIndexDao        media index dao
+     * @param eventBus             event bus
      */
     @Inject
-    public MediaDaoImpl(final ConfigurationManager configurationManager, final MimeTypeManager mimeTypeManager, final MediaIndexDao mediaIndexDao) {
+    public MediaDaoImpl(final ConfigurationManager configurationManager, final MimeTypeManager mimeTypeManager, final MediaIndexDao mediaIndexDao,
+                        final EventBus eventBus) {
         this.configurationManager = configurationManager;
         this.mimeTypeManager = mimeTypeManager;
         this.mediaIndexDao = mediaIndexDao;
+        this.eventBus = eventBus;
         this.podcastCache = newBuilder()
                 .maximumSize(configurationManager.getParameter(PODCAST_CACHE_MAX_ELEMENTS))
                 .expireAfterWrite(configurationManager.getParameter(PODCAST_CACHE_EXPIRE_HOURS), TimeUnit.HOURS)
                 .build();
+        this.folderCache = newBuilder()
+                .maximumWeight(configurationManager.getParameter(FOLDER_CACHE_MAX_ENTRIES))
+                .weigher(new FolderListingWeigher())
+                .recordStats()
+                .build();
+
+        // Forget counts, titles and update ids of nodes leaving media index
+        mediaIndexDao.addListener(new MediaIndexListener() {
+            @Override
+            public void elementRemoved(final String uuid) {
+                folderCounts.remove(uuid);
+                titleIndex.remove(uuid);
+                containerUpdates.remove(uuid);
+            }
+        });
     }
 
     /**
@@ -83,7 +135,7 @@ public class MediaDaoImpl implements MediaDao {
     public AbstractNode getNode(final String nodeId) {
         AbstractNode node = null;
         // Get node in mediaIndex
-        MediaIndexElement indexElement = mediaIndexDao.get(nodeId);
+        MediaIndexElement indexElement = getIndexElement(nodeId);
         if (indexElement != null) {
             MediaType mediaType = MediaType.getByValue(indexElement.getMediaType());
             switch (mediaType) {
@@ -111,10 +163,18 @@ public class MediaDaoImpl implements MediaDao {
      */
     @Override
     public List<AbstractNode> getChildNodes(final String parentNodeId) {
+        return getChildNodes(parentNodeId, SortCriteria.NONE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AbstractNode> getChildNodes(final String parentNodeId, final SortCriteria sortCriteria) {
         List<AbstractNode> childNodes;
 
         // Get node in mediaIndex
-        MediaIndexElement indexElement = mediaIndexDao.get(parentNodeId);
+        MediaIndexElement indexElement = getIndexElement(parentNodeId);
         if (indexElement != null) {
             // Get media type
             MediaType mediaType = MediaType.getByValue(indexElement.getMediaType());
@@ -122,6 +182,11 @@ public class MediaDaoImpl implements MediaDao {
                 case TYPE_PODCAST:
                     // Get podcast entries
                     childNodes = getPodcastEntries(parentNodeId, indexElement.getPath());
+                    if (!sortCriteria.isNone()) {
+                        // Cached podcast entries are kept in feed order
+                        childNodes = new ArrayList<>(childNodes);
+                        Collections.sort(childNodes, sortCriteria.getNodeComparator());
+                    }
                     break;
                 case TYPE_RAW_URL:
                     // Nothing
@@ -129,7 +194,7 @@ public class MediaDaoImpl implements MediaDao {
                     break;
                 default:
                     // Get folder child nodes
-                    childNodes = getFolderChildNodes(parentNodeId, indexElement.getPath(), mediaType);
+                    childNodes = getFolderChildNodes(parentNodeId, indexElement.getParentId(), indexElement.getPath(), mediaType, sortCriteria);
                     break;
             }
         } else {
@@ -145,6 +210,27 @@ public class MediaDaoImpl implements MediaDao {
      */
     @Override
     public List<AbstractNode> getRootNodeChildren(final RootNode rootNode) {
+        // Root node children only change with configuration: they are loaded once, until next configuration event
+        List<AbstractNode> nodes = rootNodeChildren.get(rootNode);
+        if (nodes == null) {
+            synchronized (rootNodeChildrenLock) {
+                nodes = rootNodeChildren.get(rootNode);
+                if (nodes == null) {
+                    nodes = loadRootNodeChildren(rootNode);
+                    rootNodeChildren.put(rootNode, nodes);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Load children of a root node from configuration, and add them to media index.
+     *
+     * @param rootNode root node
+     * @return unmodifiable child nodes
+     */
+    private List<AbstractNode> loadRootNodeChildren(final RootNode rootNode) {
         // Add nodes defined in configuration
         List<ConfigurationNode> configNodes = configurationManager.getNodes(rootNode);
         List<AbstractNode> nodes = new ArrayList<>(configNodes.size());
@@ -158,16 +244,199 @@ public class MediaDaoImpl implements MediaDao {
                 nodes.add(new FolderNode(configNode.getId(), rootNode.getId(), configNode.getLabel(), new File(configNode.getPath())));
             }
         }
-        return nodes;
+        if (rootNode.isLocalPath()) {
+            titleIndex.update(rootNode.getId(), nodes);
+        }
+        return Collections.unmodifiableList(nodes);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void cleanUpCache() {
+    public void cleanUpCache(final int maxElements) {
         podcastCache.cleanUp();
-        mediaIndexDao.clean();
+        folderCache.cleanUp();
+        // Parents which lost children have changed
+        Set<String> changedParentIds = mediaIndexDao.clean(maxElements);
+        if (!changedParentIds.isEmpty()) {
+            containersChanged(changedParentIds.toArray(new String[changedParentIds.size()]));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MediaIndexStatistics getIndexStatistics() {
+        return mediaIndexDao.getStatistics();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CacheStatistics getFolderCacheStatistics() {
+        return new CacheStatistics(folderCacheHits.get(), folderCacheMisses.get(), folderCache.stats().evictionCount(), folderCache.size());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCoalescedRequestCount() {
+        return folderListings.getCoalescedCount() + podcastLoads.getCoalescedCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FolderCounts getFolderCounts(final String folderId) {
+        return folderCounts.get(folderId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<MediaSearchHit> searchNodes(final String containerId, final SearchCriteria criteria) {
+        return titleIndex.search(containerId, criteria);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSystemUpdateId() {
+        return containerUpdates.getSystemUpdateId();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getContainerUpdateId(final String containerId) {
+        return containerUpdates.getContainerUpdateId(containerId);
+    }
+
+    /**
+     * Configuration has changed, update ids of changed containers.
+     *
+     * @param configurationEvent configuration event
+     */
+    @Subscribe
+    public void handleConfigEvent(final ConfigurationEvent configurationEvent) {
+        switch (configurationEvent.getType()) {
+            case ADD_FOLDER:
+            case DELETE_FOLDER:
+                // Root node children changed
+                removeRootNodeChildren(configurationEvent.getRootNode());
+                containerUpdates.remove(configurationEvent.getNode().getId());
+                containersChanged(configurationEvent.getRootNode().getId(), ROOT.getId());
+                break;
+            case UPDATE_FOLDER:
+                // Configuration node and root node children changed
+                removeRootNodeChildren(configurationEvent.getRootNode());
+                containerUpdates.remove(configurationEvent.getNode().getId());
+                containersChanged(configurationEvent.getNode().getId(), configurationEvent.getRootNode().getId(), ROOT.getId());
+                break;
+            case SAVE_SETTINGS:
+                // Settings may change any node
+                containersChanged();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Remove loaded children of a root node: they are reloaded from configuration on next access.
+     * Children are removed before container update ids change, so that a browse seeing new update ids reloads them.
+     *
+     * @param rootNode root node
+     */
+    private void removeRootNodeChildren(final RootNode rootNode) {
+        synchronized (rootNodeChildrenLock) {
+            rootNodeChildren.remove(rootNode);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void refreshFolder(final String folderPath) {
+        Path path = Paths.get(folderPath).toAbsolutePath();
+        for (RootNode rootNode : RootNode.values()) {
+            if (rootNode.isLocalPath()) {
+                // A folder may belong to several configuration nodes
+                for (ConfigurationNode configNode : configurationManager.getNodes(rootNode)) {
+                    Path configPath = Paths.get(configNode.getPath()).toAbsolutePath();
+                    if (path.startsWith(configPath)) {
+                        refreshFolder(configNode, rootNode, configPath.relativize(path));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Refresh children of an indexed folder.
+     *
+     * @param configNode   configuration node containing the folder
+     * @param rootNode     root node of configuration node
+     * @param relativePath folder path relative to configuration node path
+     */
+    private void refreshFolder(final ConfigurationNode configNode, final RootNode rootNode, final Path relativePath) {
+        // Folder id is derived from configuration node id and paths of intermediate folders
+        String parentId = rootNode.getId();
+        String folderId = configNode.getId();
+        String folderPath = configNode.getPath();
+        for (Path name : relativePath) {
+            if (!name.toString().isEmpty()) {
+                folderPath = new File(folderPath, name.toString()).getAbsolutePath();
+                parentId = folderId;
+                folderId = mediaIndexDao.findId(folderId, folderPath);
+                if (folderId == null) {
+                    // Folder is not indexed
+                    return;
+                }
+            }
+        }
+        LOGGER.debug("[refreshFolder] refresh {} in media index", folderPath);
+        // Folder may have changed within its modification date granularity
+        folderCache.invalidate(new File(folderPath).getAbsolutePath());
+        containerUpdates.remove(folderId);
+
+        // Add new children to media index and remove children that are no more on file system
+        getFolderChildNodes(folderId, parentId, folderPath, rootNode.getMediaType());
+        mediaIndexDao.cleanChildren(folderId);
+        containersChanged(folderId);
+    }
+
+    /**
+     * Get media index element.
+     * An element evicted from media index is rebuilt by listing its parent folder again.
+     *
+     * @param nodeId node id
+     * @return media index element or null if node is unknown
+     */
+    private MediaIndexElement getIndexElement(final String nodeId) {
+        MediaIndexElement indexElement = mediaIndexDao.get(nodeId);
+        if (indexElement == null) {
+            String parentId = mediaIndexDao.getEvictedParentId(nodeId);
+            if (parentId != null) {
+                // Parent may have been evicted too
+                MediaIndexElement parentElement = getIndexElement(parentId);
+                if (parentElement != null && parentElement.isLocalPath()) {
+                    LOGGER.debug("[getIndexElement] list {} to rebuild evicted node {}", parentElement.getPath(), nodeId);
+                    getFolderChildNodes(parentId, parentElement.getParentId(), parentElement.getPath(), MediaType.getByValue(parentElement.getMediaType()));
+                    indexElement = mediaIndexDao.get(nodeId);
+                }
+            }
+        }
+        return indexElement;
     }
 
     /**
@@ -180,17 +449,18 @@ public class MediaDaoImpl implements MediaDao {
      */
     private AbstractNode getFileNode(final String nodeId, final MediaIndexElement indexElement, final MediaType mediaType) {
         AbstractNode node = null;
-        File nodeFile = new File(indexElement.getPath());
-        if (isValidFile(nodeFile)) {
+        Path nodePath = Paths.get(indexElement.getPath());
+        BasicFileAttributes attributes = readValidAttributes(nodePath);
+        if (attributes != null && attributes.isRegularFile()) {
             // Content node
-            MimeType mimeType = mimeTypeManager.getMimeType(nodeFile.getName());
+            MimeType mimeType = mimeTypeManager.getMimeType(nodePath.getFileName().toString());
             if (mimeType != null) {
-                node = buildContentNode(nodeId, indexElement.getParentId(), nodeFile, mediaType, mimeType);
+                node = buildContentNode(nodeId, indexElement.getParentId(), new FileEntry(nodePath, attributes), mediaType, mimeType);
             }
-        } else if (isValidDirectory(nodeFile)) {
+        } else if (attributes != null && attributes.isDirectory()) {
             // Folder node
-            String nodeName = indexElement.getName() != null ? indexElement.getName() : nodeFile.getName();
-            node = new FolderNode(nodeId, indexElement.getParentId(), nodeName, nodeFile);
+            String nodeName = indexElement.getName() != null ? indexElement.getName() : nodePath.getFileName().toString();
+            node = new FolderNode(nodeId, indexElement.getParentId(), nodeName, nodePath, attributes);
         }
         return node;
     }
@@ -199,25 +469,158 @@ public class MediaDaoImpl implements MediaDao {
      * Get children of a folder node.
      *
      * @param folderNodeId folder node id
+     * @param parentNodeId folder parent node id
+     * @param folderPath   folder path
+     * @param mediaType    media type
+     * @return folder child nodes matching media type
+     */
+    private List<AbstractNode> getFolderChildNodes(final String folderNodeId, final String parentNodeId, final String folderPath, final MediaType mediaType) {
+        return getFolderChildNodes(folderNodeId, parentNodeId, folderPath, mediaType, SortCriteria.NONE);
+    }
+
+    /**
+     * Get children of a folder node, sorted according to sort criteria.
+     *
+     * @param folderNodeId folder node id
+     * @param parentNodeId folder parent node id
+     * @param folderPath   folder path
+     * @param mediaType    media type
+     * @param sortCriteria sort criteria
+     * @return sorted folder child nodes matching media type
+     */
+    private List<AbstractNode> getFolderChildNodes(final String folderNodeId, final String parentNodeId, final String folderPath, final MediaType mediaType,
+                                                   final SortCriteria sortCriteria) {
+        // Concurrent requests for the same folder share a single listing, whatever their sort criteria
+        FolderChildNodes folderChildNodes;
+        try {
+            folderChildNodes = folderListings.execute(folderNodeId, new Callable<FolderChildNodes>() {
+                @Override
+                public FolderChildNodes call() {
+                    return listFolderChildNodes(folderNodeId, parentNodeId, folderPath, mediaType);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new HolmesRuntimeException(e.getCause());
+        }
+        return folderChildNodes.getNodes(sortCriteria);
+    }
+
+    /**
+     * List children of a folder node and add them to media index.
+     *
+     * @param folderNodeId folder node id
+     * @param parentNodeId folder parent node id
      * @param folderPath   folder path
      * @param mediaType    media type
      * @return folder child nodes matching media type
      */
-    private List<AbstractNode> getFolderChildNodes(final String folderNodeId, final String folderPath, final MediaType mediaType) {
-        List<File> children = listChildren(folderPath, true);
+    private FolderChildNodes listFolderChildNodes(final String folderNodeId, final String parentNodeId, final String folderPath, final MediaType mediaType) {
+        FolderListing listing = listFolder(folderPath);
+        // Folder changes when its modification date changes
+        updateContainer(folderNodeId, listing.getLastModified());
+
+        List<FileEntry> children = listing.getChildren();
         List<AbstractNode> nodes = new ArrayList<>(children.size());
-        for (File child : children) {
+        Map<FileEntry, AbstractNode> childNodes = new IdentityHashMap<>(children.size());
+        for (FileEntry child : children) {
             // Add node to mediaIndex
+            AbstractNode node;
             if (child.isDirectory()) {
                 // Add folder node
-                String nodeId = mediaIndexDao.add(new MediaIndexElement(folderNodeId, mediaType.getValue(), null, child.getAbsolutePath(), null, true, false));
-                nodes.add(new FolderNode(nodeId, folderNodeId, child.getName(), child));
+                String nodeId = mediaIndexDao.add(new MediaIndexElement(folderNodeId, mediaType.getValue(), null, child.getPath().toString(), null, true, false));
+                node = new FolderNode(nodeId, folderNodeId, child.getName(), child.getPath(), child.getAttributes());
             } else {
                 // Add content node
-                addContentNode(nodes, folderNodeId, child, mediaType);
+                node = addContentNode(folderNodeId, child, mediaType);
+            }
+            if (node != null) {
+                nodes.add(node);
+                childNodes.put(child, node);
             }
         }
-        return nodes;
+        updateFolderCounts(folderNodeId, parentNodeId, nodes);
+        titleIndex.update(folderNodeId, nodes);
+        return new FolderChildNodes(listing, childNodes);
+    }
+
+    /**
+     * Update folder child counts.
+     *
+     * @param folderNodeId folder node id
+     * @param parentNodeId folder parent node id
+     * @param nodes        folder child nodes
+     */
+    private void updateFolderCounts(final String folderNodeId, final String parentNodeId, final List<AbstractNode> nodes) {
+        Set<String> folderIds = new HashSet<>();
+        Map<MimeType, Integer> contentCounts = new HashMap<>();
+        for (AbstractNode node : nodes) {
+            if (node instanceof FolderNode) {
+                folderIds.add(node.getId());
+            } else if (node instanceof ContentNode) {
+                MimeType mimeType = ((ContentNode) node).getMimeType();
+                Integer count = contentCounts.get(mimeType);
+                contentCounts.put(mimeType, count != null ? count + 1 : 1);
+            }
+        }
+        folderCounts.update(folderNodeId, parentNodeId, folderIds, contentCounts);
+    }
+
+    /**
+     * Update content fingerprint of a container, notifying a change when fingerprint differs from previous one.
+     *
+     * @param containerId container id
+     * @param fingerprint container content fingerprint
+     */
+    private void updateContainer(final String containerId, final long fingerprint) {
+        if (containerUpdates.update(containerId, fingerprint)) {
+            eventBus.post(new MediaEvent(CONTAINER_UPDATED, containerId));
+        }
+    }
+
+    /**
+     * Record a change of some containers and notify it.
+     *
+     * @param containerIds changed container ids, none if change does not concern specific containers
+     */
+    private void containersChanged(final String... containerIds) {
+        containerUpdates.changed(containerIds);
+        if (containerIds.length == 0) {
+            eventBus.post(new MediaEvent(CONTAINER_UPDATED, null));
+        }
+        for (String containerId : containerIds) {
+            eventBus.post(new MediaEvent(CONTAINER_UPDATED, containerId));
+        }
+    }
+
+    /**
+     * List readable children of a folder.
+     * Listings and their sorted orders are cached and reused as long as folder modification date does not change.
+     *
+     * @param folderPath folder path
+     * @return folder listing
+     */
+    private FolderListing listFolder(final String folderPath) {
+        File folder = new File(folderPath);
+        String cacheKey = folder.getAbsolutePath();
+        long lastModified = folder.lastModified();
+
+        // Check cached listing is still valid
+        FolderListing listing = folderCache.getIfPresent(cacheKey);
+        if (listing != null && lastModified != 0L && listing.getLastModified() == lastModified) {
+            folderCacheHits.incrementAndGet();
+            return listing;
+        }
+        folderCacheMisses.incrementAndGet();
+
+        // List folder, reading attributes of each child once
+        listing = new FolderListing(lastModified, listChildEntries(Paths.get(cacheKey)));
+
+        if (lastModified != 0L && System.currentTimeMillis() - lastModified >= FOLDER_CACHE_MIN_AGE_MILLIS) {
+            folderCache.put(cacheKey, listing);
+        } else {
+            folderCache.invalidate(cacheKey);
+        }
+        return listing;
     }
 
     /**
@@ -227,34 +630,36 @@ public class MediaDaoImpl implements MediaDao {
      * @param podcastUrl    podcast url
      * @return entries parsed from podcast RSS feed
      */
-    @SuppressWarnings("unchecked")
     private List<AbstractNode> getPodcastEntries(final String podcastNodeId, final String podcastUrl) {
-        try {
-            return podcastCache.get(podcastUrl, new PodcastCacheCallable(podcastNodeId, podcastUrl));
-        } catch (ExecutionException e) {
-            LOGGER.error(e.getMessage(), e);
+        List<AbstractNode> entries = podcastCache.getIfPresent(podcastUrl);
+        if (entries == null) {
+            // Concurrent requests for the same podcast share a single RSS feed parsing
+            try {
+                entries = podcastLoads.execute(podcastUrl, new PodcastCacheCallable(podcastNodeId, podcastUrl));
+            } catch (ExecutionException e) {
+                LOGGER.error(e.getMessage(), e);
+                entries = new ArrayList<>(0);
+            }
         }
-        return new ArrayList<>(0);
+        return entries;
     }
 
     /**
-     * Add content node to node list.
+     * Add content node to media index.
      *
-     * @param nodes     node list
      * @param parentId  parent id
-     * @param file      file
+     * @param file      file entry
      * @param mediaType media type
+     * @return content node, or null if file does not match media type
      */
-    private void addContentNode(final List<AbstractNode> nodes, final String parentId, final File file, final MediaType mediaType) {
+    private ContentNode addContentNode(final String parentId, final FileEntry file, final MediaType mediaType) {
         MimeType mimeType = mimeTypeManager.getMimeType(file.getName());
         if (mimeType != null) {
             // Add file node
-            String nodeId = mediaIndexDao.add(new MediaIndexElement(parentId, mediaType.getValue(), mimeType.getMimeType(), file.getAbsolutePath(), null, true, false));
-            ContentNode node = buildContentNode(nodeId, parentId, file, mediaType, mimeType);
-            if (node != null) {
-                nodes.add(node);
-            }
+            String nodeId = mediaIndexDao.add(new MediaIndexElement(parentId, mediaType.getValue(), mimeType.getMimeType(), file.getPath().toString(), null, true, false));
+            return buildContentNode(nodeId, parentId, file, mediaType, mimeType);
         }
+        return null;
     }
 
     /**
@@ -262,13 +667,62 @@ public class MediaDaoImpl implements MediaDao {
      *
      * @param nodeId    node id
      * @param parentId  parent id
-     * @param file      file
+     * @param file      file entry
      * @param mediaType media type
      * @return content node
      */
-    private ContentNode buildContentNode(final String nodeId, final String parentId, final File file, final MediaType mediaType, final MimeType mimeType) {
+    private ContentNode buildContentNode(final String nodeId, final String parentId, final FileEntry file, final MediaType mediaType, final MimeType mimeType) {
         // Check mime type
-        return mimeType.getType() == mediaType || mimeType.isSubTitle() ? new ContentNode(nodeId, parentId, file.getName(), file, mimeType) : null;
+        return mimeType.getType() == mediaType || mimeType.isSubTitle() ? new ContentNode(nodeId, parentId, file.getName(), file.getPath(), file.getAttributes(), mimeType) : null;
+    }
+
+    /**
+     * Folder listing weigher: weight is the number of folder children.
+     */
+    private static final class FolderListingWeigher implements Weigher<String, FolderListing> {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int weigh(final String folderPath, final FolderListing listing) {
+            return listing.getChildren().size() + 1;
+        }
+    }
+
+    /**
+     * Child nodes of a folder listing, sorted with cached sorted orders of the listing.
+     */
+    private static final class FolderChildNodes {
+        private final FolderListing listing;
+        private final Map<FileEntry, AbstractNode> childNodes;
+
+        /**
+         * Instantiates new folder child nodes.
+         *
+         * @param listing    folder listing
+         * @param childNodes child nodes by listing entry, entries not matching media type are omitted
+         */
+        FolderChildNodes(final FolderListing listing, final Map<FileEntry, AbstractNode> childNodes) {
+            this.listing = listing;
+            this.childNodes = childNodes;
+        }
+
+        /**
+         * Get child nodes sorted according to sort criteria.
+         *
+         * @param sortCriteria sort criteria
+         * @return sorted child nodes
+         */
+        List<AbstractNode> getNodes(final SortCriteria sortCriteria) {
+            List<AbstractNode> nodes = new ArrayList<>(childNodes.size());
+            for (FileEntry child : listing.getChildren(sortCriteria)) {
+                AbstractNode node = childNodes.get(child);
+                if (node != null) {
+                    nodes.add(node);
+                }
+            }
+            return nodes;
+        }
     }
 
     /**
@@ -294,18 +748,34 @@ public class MediaDaoImpl implements MediaDao {
          */
         @Override
         public List<AbstractNode> call() throws HolmesException {
+            // Entries may have been cached by a previous computation since cache was checked
+            List<AbstractNode> cachedEntries = podcastCache.getIfPresent(podcastUrl);
+            if (cachedEntries != null) {
+                return cachedEntries;
+            }
+
             // No entries in cache, read them from RSS feed
             // First remove children from media index
             mediaIndexDao.removeChildren(podcastId);
 
             // Then parse podcast
-            return new PodcastParser() {
+            List<AbstractNode> entries = new PodcastParser() {
                 @Override
                 public String addMediaIndexElement(MediaIndexElement mediaIndexElement) {
                     // Add element to media index
                     return mediaIndexDao.add(mediaIndexElement);
                 }
             }.parse(podcastUrl, podcastId);
+
+            // Entries ids are a hash of podcast id and entry URL: they are stable across parses, compare them with entries content
+            long fingerprint = 1L;
+            for (AbstractNode entry : entries) {
+                String url = entry instanceof RawUrlNode ? ((RawUrlNode) entry).getUrl() : null;
+                fingerprint = 31L * fingerprint + Objects.hash(entry.getId(), entry.getName(), entry.getModifiedDate(), url);
+            }
+            updateContainer(podcastId, fingerprint);
+            podcastCache.put(podcastUrl, entries);
+            return entries;
         }
     }
 }
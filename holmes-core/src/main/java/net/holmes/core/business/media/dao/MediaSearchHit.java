@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao;
+
+import net.holmes.core.business.mimetype.model.MimeType;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Node matching a search, as known by the title index: node is not read from file system.
+ */
+public final class MediaSearchHit {
+    private final String nodeId;
+    private final MimeType mimeType;
+
+    /**
+     * Instantiates a new media search hit.
+     *
+     * @param nodeId   node id
+     * @param mimeType content mime type, null for a folder
+     */
+    public MediaSearchHit(final String nodeId, final MimeType mimeType) {
+        this.nodeId = nodeId;
+        this.mimeType = mimeType;
+    }
+
+    /**
+     * Get node id.
+     *
+     * @return node id
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Get content mime type.
+     *
+     * @return mime type, null for a folder
+     */
+    public MimeType getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * Whether node is a folder.
+     *
+     * @return true for a folder
+     */
+    public boolean isFolder() {
+        return mimeType == null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("nodeId", nodeId)
+                .add("mimeType", mimeType)
+                .toString();
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao;
+
+import net.holmes.core.business.media.model.AbstractNode;
+import net.holmes.core.business.media.model.ContentNode;
+import net.holmes.core.business.media.model.FolderNode;
+import net.holmes.core.business.media.model.RootNode;
+import net.holmes.core.business.media.search.SearchCriteria;
+import net.holmes.core.business.media.search.SearchCriteria.Operator;
+import net.holmes.core.business.mimetype.model.MimeType;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static com.google.common.collect.Sets.newConcurrentHashSet;
+
+import static net.holmes.core.business.media.model.RootNode.NONE;
+import static net.holmes.core.business.media.search.SearchCriteria.PROPERTY_CLASS;
+import static net.holmes.core.business.media.search.SearchCriteria.PROPERTY_TITLE;
+import static net.holmes.core.business.media.search.SearchCriteria.Operator.*;
+import static net.holmes.core.business.media.search.SearchCriteria.toLowerCase;
+import static net.holmes.core.business.streaming.upnp.DidlWriter.CONTAINER_CLASS;
+import static net.holmes.core.business.streaming.upnp.DidlWriter.getItemClass;
+
+/**
+ * Title index of listed folders children, updated each time a folder is listed.
+ * <p>
+ * Titles are split into words stored in an inverted index, UPnP classes are stored in a second inverted index.
+ * A search only checks nodes having a word containing each searched title word, or having a searched class,
+ * instead of reading folders from file system.
+ * Suffixes of indexed words are kept sorted: words containing a searched word are found with a range lookup
+ * on suffixes starting with it, instead of scanning the whole vocabulary.
+ * </p>
+ * <p>
+ * Updates are serialized, searches do not lock: they read concurrent maps and check each candidate entry again.
+ * Nodes removed or evicted from media index are removed from title index with their descendants.
+ * </p>
+ */
+final class MediaTitleIndex {
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> childIds = new HashMap<>();
+    private final ConcurrentMap<String, Set<String>> wordIds = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Set<String>> wordSuffixes = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Set<String>> classIds = new ConcurrentHashMap<>();
+
+    /**
+     * Update index with current children of a folder.
+     * Children no more in folder are removed from index, with their descendants.
+     *
+     * @param folderId folder id
+     * @param children folder child nodes
+     */
+    synchronized void update(final String folderId, final List<AbstractNode> children) {
+        Set<String> ids = new HashSet<>();
+        for (AbstractNode child : children) {
+            // Only index nodes published in browse results, with the UPnP class they are published with
+            MimeType mimeType = child instanceof ContentNode ? ((ContentNode) child).getMimeType() : null;
+            String upnpClass = mimeType != null ? getItemClass(mimeType) : child instanceof FolderNode ? CONTAINER_CLASS : null;
+            if (upnpClass != null) {
+                ids.add(child.getId());
+                Entry entry = new Entry(child.getId(), folderId, toLowerCase(child.getName()), mimeType, upnpClass);
+                Entry previous = entries.get(child.getId());
+                if (previous == null || !previous.sameEntry(entry)) {
+                    if (previous != null) {
+                        unindex(previous);
+                    }
+                    index(entry);
+                }
+            }
+        }
+
+        Set<String> previousIds = childIds.put(folderId, ids);
+        if (previousIds != null) {
+            for (String id : previousIds) {
+                if (!ids.contains(id)) {
+                    removeTree(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove a node and its descendants from index.
+     *
+     * @param id node id
+     */
+    synchronized void remove(final String id) {
+        Entry entry = entries.get(id);
+        if (entry != null) {
+            Set<String> siblings = childIds.get(entry.parentId);
+            if (siblings != null) {
+                siblings.remove(id);
+            }
+        }
+        removeTree(id);
+    }
+
+    /**
+     * Search descendants of a container matching search criteria.
+     *
+     * @param containerId container id
+     * @param criteria    search criteria
+     * @return matching nodes, sorted by title
+     */
+    List<MediaSearchHit> search(final String containerId, final SearchCriteria criteria) {
+        // Only check candidates found in inverted indexes, or all nodes when criteria cannot use indexes
+        Set<String> candidates = getCandidates(criteria);
+        Collection<String> ids = candidates != null ? candidates : entries.keySet();
+
+        List<Entry> matches = new ArrayList<>();
+        for (String id : ids) {
+            Entry entry = entries.get(id);
+            if (entry != null && criteria.matches(entry.title, entry.upnpClass) && isDescendant(entry, containerId)) {
+                matches.add(entry);
+            }
+        }
+        Collections.sort(matches);
+
+        List<MediaSearchHit> hits = new ArrayList<>(matches.size());
+        for (Entry entry : matches) {
+            hits.add(new MediaSearchHit(entry.id, entry.mimeType));
+        }
+        return hits;
+    }
+
+    /**
+     * Get number of indexed nodes.
+     *
+     * @return number of indexed nodes
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get candidate node ids for search criteria.
+     * Candidates are a superset of matching nodes.
+     *
+     * @param criteria search criteria
+     * @return candidate node ids or null if every node is a candidate
+     */
+    private Set<String> getCandidates(final SearchCriteria criteria) {
+        switch (criteria.getOperator()) {
+            case AND:
+                Set<String> left = getCandidates(criteria.getLeft());
+                Set<String> right = getCandidates(criteria.getRight());
+                if (left == null || right == null) {
+                    return left != null ? left : right;
+                }
+                Set<String> intersection = new HashSet<>(left.size() < right.size() ? left : right);
+                intersection.retainAll(left.size() < right.size() ? right : left);
+                return intersection;
+            case OR:
+                Set<String> leftOr = getCandidates(criteria.getLeft());
+                Set<String> rightOr = getCandidates(criteria.getRight());
+                if (leftOr == null || rightOr == null) {
+                    return null;
+                }
+                Set<String> union = new HashSet<>(leftOr);
+                union.addAll(rightOr);
+                return union;
+            default:
+                Operator operator = criteria.getOperator();
+                if (PROPERTY_TITLE.equals(criteria.getProperty()) && (operator == EQUAL || operator == CONTAINS)) {
+                    return getWordCandidates(criteria.getValue());
+                } else if (PROPERTY_CLASS.equals(criteria.getProperty()) && (operator == EQUAL || operator == DERIVED_FROM)) {
+                    return getClassCandidates(criteria);
+                }
+                return null;
+        }
+    }
+
+    /**
+     * Get ids of nodes which title contains each word of a value.
+     * A word of value may be part of a title word: title words having a suffix starting with it are checked.
+     *
+     * @param value lower case value
+     * @return candidate node ids or null if value has no word
+     */
+    private Set<String> getWordCandidates(final String value) {
+        Set<String> candidates = null;
+        for (String word : getWords(value)) {
+            Set<String> ids = new HashSet<>();
+            for (Set<String> titleWords : wordSuffixes.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+                for (String titleWord : titleWords) {
+                    Set<String> wordNodeIds = wordIds.get(titleWord);
+                    if (wordNodeIds != null) {
+                        ids.addAll(wordNodeIds);
+                    }
+                }
+            }
+            if (candidates == null) {
+                candidates = ids;
+            } else {
+                candidates.retainAll(ids);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Get ids of nodes which class matches class criteria.
+     *
+     * @param criteria class criteria
+     * @return candidate node ids
+     */
+    private Set<String> getClassCandidates(final SearchCriteria criteria) {
+        Set<String> candidates = new HashSet<>();
+        for (Map.Entry<String, Set<String>> classEntry : classIds.entrySet()) {
+            if (criteria.matches(null, classEntry.getKey())) {
+                candidates.addAll(classEntry.getValue());
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Check whether a node is a descendant of a container.
+     *
+     * @param entry       node entry
+     * @param containerId container id
+     * @return true if node is a descendant of container
+     */
+    private boolean isDescendant(final Entry entry, final String containerId) {
+        String ancestorId = entry.parentId;
+        while (ancestorId != null) {
+            if (ancestorId.equals(containerId)) {
+                return true;
+            }
+            Entry ancestor = entries.get(ancestorId);
+            if (ancestor != null) {
+                ancestorId = ancestor.parentId;
+            } else {
+                // Root nodes are not indexed
+                RootNode rootNode = RootNode.getById(ancestorId);
+                ancestorId = rootNode != NONE ? rootNode.getParentId() : null;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add an entry to index.
+     *
+     * @param entry entry
+     */
+    private void index(final Entry entry) {
+        entries.put(entry.id, entry);
+        for (String word : getWords(entry.title)) {
+            if (addId(wordIds, word, entry.id)) {
+                // New word: index its suffixes
+                for (int i = 0; i < word.length(); i++) {
+                    addId(wordSuffixes, word.substring(i), word);
+                }
+            }
+        }
+        addId(classIds, toLowerCase(entry.upnpClass), entry.id);
+    }
+
+    /**
+     * Remove an entry from inverted indexes.
+     *
+     * @param entry entry
+     */
+    private void unindex(final Entry entry) {
+        for (String word : getWords(entry.title)) {
+            if (removeId(wordIds, word, entry.id)) {
+                // Word is no more used: remove its suffixes
+                for (int i = 0; i < word.length(); i++) {
+                    removeId(wordSuffixes, word.substring(i), word);
+                }
+            }
+        }
+        removeId(classIds, toLowerCase(entry.upnpClass), entry.id);
+    }
+
+    /**
+     * Remove a node and its descendants from index.
+     *
+     * @param id node id
+     */
+    private void removeTree(final String id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            unindex(entry);
+        }
+        Set<String> children = childIds.remove(id);
+        if (children != null) {
+            for (String childId : children) {
+                removeTree(childId);
+            }
+        }
+    }
+
+    /**
+     * Split a lower case string into words: sequences of letters and digits.
+     *
+     * @param value lower case value
+     * @return words
+     */
+    private static Set<String> getWords(final String value) {
+        Set<String> words = new HashSet<>();
+        if (value != null) {
+            int start = -1;
+            for (int i = 0; i <= value.length(); i++) {
+                boolean wordChar = i < value.length() && Character.isLetterOrDigit(value.charAt(i));
+                if (wordChar && start < 0) {
+                    start = i;
+                } else if (!wordChar && start >= 0) {
+                    words.add(value.substring(start, i));
+                    start = -1;
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Add an id to an inverted index.
+     *
+     * @param index inverted index
+     * @param key   key
+     * @param id    id
+     * @return true if key is a new key
+     */
+    private static boolean addId(final Map<String, Set<String>> index, final String key, final String id) {
+        Set<String> ids = index.get(key);
+        boolean newKey = ids == null;
+        if (newKey) {
+            ids = newConcurrentHashSet();
+            index.put(key, ids);
+        }
+        ids.add(id);
+        return newKey;
+    }
+
+    /**
+     * Remove an id from an inverted index.
+     *
+     * @param index inverted index
+     * @param key   key
+     * @param id    id
+     * @return true if key was removed
+     */
+    private static boolean removeId(final Map<String, Set<String>> index, final String key, final String id) {
+        Set<String> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                index.remove(key);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Title index entry.
+     */
+    private static final class Entry implements Comparable<Entry> {
+        private final String id;
+        private final String parentId;
+        private final String title;
+        private final MimeType mimeType;
+        private final String upnpClass;
+
+        /**
+         * Instantiates a new title index entry.
+         *
+         * @param id        node id
+         * @param parentId  parent node id
+         * @param title     lower case title
+         * @param mimeType  content mime type, null for a folder
+         * @param upnpClass UPnP class, as published in browse results
+         */
+        Entry(final String id, final String parentId, final String title, final MimeType mimeType, final String upnpClass) {
+            this.id = id;
+            this.parentId = parentId;
+            this.title = title;
+            this.mimeType = mimeType;
+            this.upnpClass = upnpClass;
+        }
+
+        /**
+         * Whether entries describe the same node.
+         *
+         * @param other other entry
+         * @return true for same node
+         */
+        boolean sameEntry(final Entry other) {
+            return id.equals(other.id) && Objects.equals(parentId, other.parentId) && Objects.equals(title, other.title)
+                    && Objects.equals(mimeType, other.mimeType);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compareTo(final Entry other) {
+            int result = String.valueOf(title).compareTo(String.valueOf(other.title));
+            return result != 0 ? result : id.compareTo(other.id);
+        }
+    }
+}
@@ -17,6 +17,8 @@
 
 package net.holmes.core.business.media.dao.index;
 
+import java.util.Set;
+
 /**
  * Media index dao.
  */
@@ -30,6 +32,24 @@ public interface MediaIndexDao {
      */
     MediaIndexElement get(String uuid);
 
+    /**
+     * Finds the id of an indexed element.
+     *
+     * @param parentId element parent id
+     * @param path     element path
+     * @return element uuid or null if element is not indexed
+     */
+    String findId(String parentId, String path);
+
+    /**
+     * Gets the parent id of an element evicted from media index.
+     * An evicted element is added back to media index when its parent is listed again.
+     *
+     * @param uuid element uuid
+     * @return parent id or null if element is not an evicted element
+     */
+    String getEvictedParentId(String uuid);
+
     /**
      * Adds media index element.
      *
@@ -57,4 +77,39 @@ public interface MediaIndexDao {
      * Clean media index.
      */
     void clean();
+
+    /**
+     * Clean children of a media index element: remove children that are no more on file system.
+     *
+     * @param uuid parent element uuid
+     */
+    void cleanChildren(String uuid);
+
+    /**
+     * Clean next elements of media index.
+     * Successive calls go on where previous call stopped and start a new pass over media index when the previous one is completed.
+     *
+     * @param maxElements maximum number of elements to check
+     * @return ids of elements still in media index which lost children
+     */
+    Set<String> clean(int maxElements);
+
+    /**
+     * Get media index statistics.
+     *
+     * @return media index statistics
+     */
+    MediaIndexStatistics getStatistics();
+
+    /**
+     * Add a listener notified when elements are removed or evicted from media index.
+     *
+     * @param listener media index listener
+     */
+    void addListener(MediaIndexListener listener);
+
+    /**
+     * Close media index: pending changes are saved.
+     */
+    void close();
 }
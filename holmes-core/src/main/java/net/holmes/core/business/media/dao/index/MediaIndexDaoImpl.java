@@ -17,40 +17,106 @@
 
 package net.holmes.core.business.media.dao.index;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
+import com.google.common.base.Function;
+import com.google.common.collect.Sets;
 import com.google.common.eventbus.Subscribe;
+import com.google.common.hash.HashFunction;
 import net.holmes.core.business.configuration.model.ConfigurationNode;
+import net.holmes.core.business.media.dao.index.MediaIndexPathTrie.Segment;
 import net.holmes.core.business.media.model.RootNode;
 import net.holmes.core.common.event.ConfigurationEvent;
 import org.slf4j.Logger;
 
 import javax.inject.Singleton;
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
 
-import static com.google.common.collect.Maps.synchronizedBiMap;
+import static com.google.common.collect.Iterables.transform;
+import static com.google.common.collect.Maps.immutableEntry;
+import static com.google.common.hash.Hashing.murmur3_128;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static net.holmes.core.business.media.dao.index.MediaIndexElementFactory.buildConfigMediaIndexElement;
 import static net.holmes.core.business.media.model.RootNode.PODCAST;
-import static net.holmes.core.common.UniqueIdGenerator.newUniqueId;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * Media index dao implementation.
+ * <p>
+ * Elements are stored in concurrent maps, so readers never wait for writers.
+ * A secondary parent id index keeps track of children of each element:
+ * removing a sub tree only visits the elements of this sub tree.
+ * </p>
+ * <p>
+ * Element ids are derived from parent id and path, so the id of an element is always the same
+ * and can be computed again to check whether an element is already indexed.
+ * Parent id and path identify an element: when other element data change (mime type, name...),
+ * the element is replaced in place and keeps its id.
+ * </p>
+ * <p>
+ * Elements are stored as compact {@link MediaIndexEntry entries}: directories are shared in a path trie
+ * and media types and mime types are stored as ordinals. Full paths are only rebuilt when an element is read.
+ * </p>
+ * <p>
+ * Media index size can be bounded: when it holds more elements than allowed, elements are evicted with a CLOCK algorithm.
+ * Only the parent id of an evicted element is kept, so that the element can be rebuilt by listing its parent again.
+ * Evicted elements are removed from their parent's children. At most as many evicted parent ids as max number of elements
+ * are kept: oldest ones are dropped first, a dropped element is only found again when its parent is browsed.
+ * Locked elements (configuration nodes) and non local elements (podcast entries) are never evicted.
+ * </p>
  */
 @Singleton
 public class MediaIndexDaoImpl implements MediaIndexDao {
     private static final Logger LOGGER = getLogger(MediaIndexDaoImpl.class);
+    private static final HashFunction ID_HASH_FUNCTION = murmur3_128();
+    private static final char ID_SEPARATOR = '\u0000';
 
-    private final BiMap<String, MediaIndexElement> elements;
+    private final ConcurrentMap<String, MediaIndexEntry> elements;
+    private final ConcurrentMap<String, Set<String>> childIds;
+    private final ConcurrentMap<String, String> evictedParentIds;
+    private final MediaIndexPathTrie localPaths;
+    private final MediaIndexPathTrie urlPaths;
+    private final MediaIndexSymbolTable symbols;
+    private final MediaIndexStatistics statistics;
+    private final Object cleanLock = new Object();
+    private Iterator<MediaIndexEntry> cleanIterator = null;
+    private final int maxElements;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private Iterator<MediaIndexEntry> clockHand = null;
+    private final Deque<String> evictedIds = new ArrayDeque<>();
+    private final List<MediaIndexListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
-     * Instantiates a new media index dao implementation.
+     * Instantiates a new unbounded media index dao implementation.
      */
     public MediaIndexDaoImpl() {
-        this.elements = synchronizedBiMap(HashBiMap.<String, MediaIndexElement>create());
+        this(0);
+    }
+
+    /**
+     * Instantiates a new media index dao implementation.
+     *
+     * @param maxElements max number of elements in media index before eviction (0 for an unbounded media index)
+     */
+    public MediaIndexDaoImpl(final int maxElements) {
+        this.maxElements = maxElements;
+        this.elements = new ConcurrentHashMap<>();
+        this.childIds = new ConcurrentHashMap<>();
+        this.evictedParentIds = new ConcurrentHashMap<>();
+        this.localPaths = new MediaIndexPathTrie(File.separatorChar);
+        this.urlPaths = new MediaIndexPathTrie('/');
+        this.symbols = new MediaIndexSymbolTable();
+        this.statistics = new MediaIndexStatistics();
     }
 
     /**
@@ -58,7 +124,42 @@ public class MediaIndexDaoImpl implements MediaIndexDao {
      */
     @Override
     public MediaIndexElement get(final String uuid) {
-        return elements.get(uuid);
+        MediaIndexEntry entry = elements.get(uuid);
+        if (entry == null) {
+            statistics.recordMiss();
+            return null;
+        }
+        statistics.recordHit();
+        entry.markReferenced();
+        return toElement(entry);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String findId(final String parentId, final String path) {
+        String uuid = buildId(parentId, path);
+        MediaIndexEntry entry = elements.get(uuid);
+        if (entry == null) {
+            // Element is not indexed, or has been evicted
+            return parentId.equals(evictedParentIds.get(uuid)) ? uuid : null;
+        }
+        return hasKey(entry, parentId, path) ? uuid : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getEvictedParentId(final String uuid) {
+        String parentId = evictedParentIds.get(uuid);
+        if (parentId != null && !isIndexed(parentId)) {
+            // Parent has been removed meanwhile
+            evictedParentIds.remove(uuid, parentId);
+            return null;
+        }
+        return parentId;
     }
 
     /**
@@ -66,12 +167,29 @@ public class MediaIndexDaoImpl implements MediaIndexDao {
      */
     @Override
     public String add(final MediaIndexElement element) {
-        String uuid = elements.inverse().get(element);
-        if (uuid == null) {
-            uuid = newUniqueId();
-            elements.put(uuid, element);
+        String uuid = buildId(element.getParentId(), element.getPath());
+        MediaIndexEntry entry = toEntry(uuid, element);
+        while (true) {
+            MediaIndexEntry indexEntry = elements.putIfAbsent(uuid, entry);
+            if (indexEntry == null) {
+                // New or evicted element
+                added(uuid, entry, element);
+                return uuid;
+            } else if (indexEntry.sameElement(entry)) {
+                // Element is already indexed
+                return uuid;
+            }
+            if (!hasKey(indexEntry, element.getParentId(), element.getPath())) {
+                // Only an element put with a forged id can hold the id of another element
+                LOGGER.warn("Media index id collision between {} and {}", element, toElement(indexEntry));
+            }
+            if (elements.replace(uuid, indexEntry, entry)) {
+                // Element data have changed, element keeps its id
+                replaced(uuid, indexEntry, entry, element);
+                return uuid;
+            }
+            // Entry was removed or replaced meanwhile, try again
         }
-        return uuid;
     }
 
     /**
@@ -79,8 +197,9 @@ public class MediaIndexDaoImpl implements MediaIndexDao {
      */
     @Override
     public void put(final String uuid, final MediaIndexElement element) {
-        if (elements.get(uuid) == null) {
-            elements.put(uuid, element);
+        MediaIndexEntry entry = toEntry(uuid, element);
+        if (elements.putIfAbsent(uuid, entry) == null) {
+            added(uuid, entry, element);
         }
     }
 
@@ -88,23 +207,34 @@ public class MediaIndexDaoImpl implements MediaIndexDao {
      * {@inheritDoc}
      */
     @Override
-    public synchronized void removeChildren(final String uuid) {
-        MediaIndexElement elValue;
-        Collection<String> toRemove = new ArrayList<>();
+    public void removeChildren(final String uuid) {
+        removeDescendants(uuid);
+    }
 
-        // Search elements to remove
-        for (Entry<String, MediaIndexElement> indexEntry : elements.entrySet()) {
-            elValue = indexEntry.getValue();
-            // Check parent id
-            if (elValue.getParentId().equals(uuid) || toRemove.contains(elValue.getParentId())) {
-                toRemove.add(indexEntry.getKey());
-                LOGGER.debug("Remove child entry {} from media index", elValue.toString());
-            }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clean() {
+        // Iteration is weakly consistent: elements added or removed concurrently may or may not be visited
+        for (MediaIndexEntry entry : elements.values()) {
+            clean(entry);
         }
+    }
 
-        // Remove elements
-        for (String id : toRemove) {
-            elements.remove(id);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cleanChildren(final String uuid) {
+        Set<String> children = childIds.get(uuid);
+        if (children != null) {
+            for (String childId : children) {
+                MediaIndexEntry entry = elements.get(childId);
+                if (entry != null) {
+                    clean(entry);
+                }
+            }
         }
     }
 
@@ -112,33 +242,100 @@ public class MediaIndexDaoImpl implements MediaIndexDao {
      * {@inheritDoc}
      */
     @Override
-    public synchronized void clean() {
-        String elId;
-        MediaIndexElement elValue;
-
-        // Search elements to remove
-        Collection<String> toRemove = new ArrayList<>();
-        for (Entry<String, MediaIndexElement> indexEntry : elements.entrySet()) {
-            elId = indexEntry.getKey();
-            elValue = indexEntry.getValue();
-            if (!elValue.isLocked()) {
-                // Check parent id is still in index
-                if (elements.get(elValue.getParentId()) == null || toRemove.contains(elValue.getParentId())) {
-                    toRemove.add(elId);
-                    LOGGER.debug("Remove entry {} from media index (invalid parent id)", elValue.toString());
-                }
-                // Check element is still on file system
-                if (!toRemove.contains(elId) && elValue.isLocalPath() && !new File(elValue.getPath()).exists()) {
-                    toRemove.add(elId);
-                    LOGGER.debug("Remove entry {} from media index (path does not exist)", elValue.toString());
+    public Set<String> clean(final int maxElements) {
+        synchronized (cleanLock) {
+            long start = System.nanoTime();
+            if (cleanIterator == null) {
+                cleanIterator = elements.values().iterator();
+            }
+            int scanned = 0;
+            int removed = 0;
+            Set<String> changedParentIds = new HashSet<>();
+            while (scanned < maxElements && cleanIterator.hasNext()) {
+                MediaIndexEntry entry = cleanIterator.next();
+                int entryRemoved = clean(entry);
+                if (entryRemoved > 0 && isIndexed(entry.getParentId())) {
+                    changedParentIds.add(entry.getParentId());
                 }
+                removed += entryRemoved;
+                scanned++;
+            }
+            boolean passCompleted = !cleanIterator.hasNext();
+            if (passCompleted) {
+                cleanIterator = null;
             }
+            statistics.recordCleanBatch(scanned, removed, passCompleted, System.nanoTime() - start);
+            LOGGER.debug("Media index clean batch: {} elements scanned, {} elements removed", scanned, removed);
+            return changedParentIds;
         }
+    }
 
-        // Remove elements
-        for (String id : toRemove) {
-            elements.remove(id);
-        }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MediaIndexStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addListener(final MediaIndexListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        // Nothing to save in memory
+    }
+
+    /**
+     * Get the number of elements in media index.
+     *
+     * @return number of elements
+     */
+    public int size() {
+        return elements.size();
+    }
+
+    /**
+     * Get media index entries.
+     * Returned view is weakly consistent and can be iterated while index is updated.
+     * Elements are built on iteration.
+     *
+     * @return media index entries
+     */
+    protected Iterable<Entry<String, MediaIndexElement>> entries() {
+        return transform(elements.values(), new Function<MediaIndexEntry, Entry<String, MediaIndexElement>>() {
+            @Override
+            public Entry<String, MediaIndexElement> apply(final MediaIndexEntry entry) {
+                return immutableEntry(entry.getId(), toElement(entry));
+            }
+        });
+    }
+
+    /**
+     * Called when an element is added to media index.
+     *
+     * @param uuid    element uuid
+     * @param element added element
+     */
+    protected void elementAdded(final String uuid, final MediaIndexElement element) {
+        // Nothing by default
+    }
+
+    /**
+     * Called when an element is removed from media index.
+     *
+     * @param uuid removed element uuid
+     */
+    protected void elementRemoved(final String uuid) {
+        // Nothing by default
     }
 
     /**
@@ -157,12 +354,12 @@ public class MediaIndexDaoImpl implements MediaIndexDao {
                 break;
             case UPDATE_FOLDER:
                 // Remove node and child nodes from mediaIndex and add node to mediaIndex
-                remove(configNode.getId(), rootNode, configNode);
+                remove(configNode.getId(), rootNode);
                 put(configNode.getId(), buildConfigMediaIndexElement(rootNode, configNode));
                 break;
             case DELETE_FOLDER:
                 // Remove node and child nodes from mediaIndex
-                remove(configNode.getId(), rootNode, configNode);
+                remove(configNode.getId(), rootNode);
                 break;
             default:
                 break;
@@ -172,17 +369,306 @@ public class MediaIndexDaoImpl implements MediaIndexDao {
     /**
      * Remove media index element.
      *
-     * @param uuid       element uuid
-     * @param rootNode   root node
-     * @param configNode configuration node
+     * @param uuid     element uuid
+     * @param rootNode root node
      */
-    private void remove(final String uuid, final RootNode rootNode, final ConfigurationNode configNode) {
-        if (elements.get(uuid) != null) {
-            elements.remove(uuid);
-        }
+    private void remove(final String uuid, final RootNode rootNode) {
+        removeElement(uuid);
         // Remove children for non Podcast elements
         if (rootNode != PODCAST) {
-            removeChildren(configNode.getId());
+            removeChildren(uuid);
+        }
+    }
+
+    /**
+     * Remove media index element and its children.
+     *
+     * @param uuid element uuid
+     * @return number of removed elements
+     */
+    private int removeTree(final String uuid) {
+        return removeElement(uuid) + removeDescendants(uuid);
+    }
+
+    /**
+     * Remove descendants of a media index element.
+     *
+     * @param uuid element uuid
+     * @return number of removed elements
+     */
+    private int removeDescendants(final String uuid) {
+        int removed = 0;
+        Deque<String> parentIds = new ArrayDeque<>();
+        parentIds.push(uuid);
+        while (!parentIds.isEmpty()) {
+            Set<String> children = childIds.remove(parentIds.pop());
+            if (children != null) {
+                for (String childId : children) {
+                    if (elements.remove(childId) != null || evictedParentIds.remove(childId) != null) {
+                        elementRemoved(childId);
+                        notifyRemoved(childId);
+                        removed++;
+                        LOGGER.debug("Remove child entry {} from media index", childId);
+                    }
+                    parentIds.push(childId);
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Check a media index entry and remove it with its descendants when it is no more valid.
+     *
+     * @param entry media index entry
+     * @return number of removed elements
+     */
+    private int clean(final MediaIndexEntry entry) {
+        if (!entry.isLocked()) {
+            if (!isIndexed(entry.getParentId())) {
+                // Parent id is no more in index
+                LOGGER.debug("Remove entry {} from media index (invalid parent id)", entry.getId());
+                return removeTree(entry.getId());
+            } else if (entry.isLocalPath() && !new File(buildPath(entry)).exists()) {
+                // Element is no more on file system
+                LOGGER.debug("Remove entry {} from media index (path does not exist)", entry.getId());
+                return removeTree(entry.getId());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Remove a single media index element.
+     *
+     * @param uuid element uuid
+     * @return 1 if element was removed, 0 otherwise
+     */
+    private int removeElement(final String uuid) {
+        MediaIndexEntry entry = elements.remove(uuid);
+        String parentId = entry != null ? entry.getParentId() : evictedParentIds.remove(uuid);
+        if (parentId != null) {
+            elementRemoved(uuid);
+            notifyRemoved(uuid);
+            Set<String> siblings = childIds.get(parentId);
+            if (siblings != null) {
+                siblings.remove(uuid);
+            }
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Notify listeners that an element left media index.
+     *
+     * @param uuid element uuid
+     */
+    private void notifyRemoved(final String uuid) {
+        for (MediaIndexListener listener : listeners) {
+            listener.elementRemoved(uuid);
+        }
+    }
+
+    /**
+     * Checks whether an element is in media index, or has been evicted from a parent still in media index.
+     *
+     * @param uuid element uuid
+     * @return true if element is indexed
+     */
+    private boolean isIndexed(final String uuid) {
+        return elements.containsKey(uuid) || getEvictedParentId(uuid) != null;
+    }
+
+    /**
+     * Element has been put in media index.
+     *
+     * @param uuid    element uuid
+     * @param entry   media index entry
+     * @param element media index element
+     */
+    private void added(final String uuid, final MediaIndexEntry entry, final MediaIndexElement element) {
+        evictedParentIds.remove(uuid);
+        addChildId(entry.getParentId(), uuid);
+        elementAdded(uuid, element);
+        if (maxElements > 0 && elements.size() > maxElements) {
+            evict();
+        }
+    }
+
+    /**
+     * Element has been replaced in media index.
+     *
+     * @param uuid     element uuid
+     * @param oldEntry replaced media index entry
+     * @param entry    new media index entry
+     * @param element  new media index element
+     */
+    private void replaced(final String uuid, final MediaIndexEntry oldEntry, final MediaIndexEntry entry, final MediaIndexElement element) {
+        if (!Objects.equals(oldEntry.getParentId(), entry.getParentId())) {
+            Set<String> siblings = childIds.get(oldEntry.getParentId());
+            if (siblings != null) {
+                siblings.remove(uuid);
+            }
+            addChildId(entry.getParentId(), uuid);
+        }
+        elementAdded(uuid, element);
+    }
+
+    /**
+     * Checks whether a media index entry stores the element identified by a parent id and a path.
+     *
+     * @param entry    media index entry
+     * @param parentId element parent id
+     * @param path     element path
+     * @return true if entry stores this element
+     */
+    private boolean hasKey(final MediaIndexEntry entry, final String parentId, final String path) {
+        return Objects.equals(parentId, entry.getParentId()) && Objects.equals(path, buildPath(entry));
+    }
+
+    /**
+     * Evict elements until media index size is back under max number of elements.
+     * Elements are evicted with a CLOCK algorithm: the clock hand moves over media index entries,
+     * a referenced entry is given a second chance, an entry that was not referenced since the last visit is evicted.
+     */
+    private void evict() {
+        // A single thread evicts elements, other threads do not wait
+        if (evictionLock.tryLock()) {
+            try {
+                // Every entry is visited at most twice: stop if entries cannot be evicted
+                int maxVisits = 2 * elements.size();
+                for (int visits = 0; visits < maxVisits && elements.size() > maxElements; visits++) {
+                    if (clockHand == null || !clockHand.hasNext()) {
+                        clockHand = elements.values().iterator();
+                        if (!clockHand.hasNext()) {
+                            break;
+                        }
+                    }
+                    MediaIndexEntry entry = clockHand.next();
+                    if (entry.isEvictable() && !entry.clearReferenced()) {
+                        evict(entry);
+                    }
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Evict a media index entry, only its parent id is kept.
+     * Called with eviction lock held.
+     *
+     * @param entry media index entry
+     */
+    private void evict(final MediaIndexEntry entry) {
+        String uuid = entry.getId();
+        String parentId = entry.getParentId();
+        evictedParentIds.put(uuid, parentId);
+        if (elements.remove(uuid, entry)) {
+            Set<String> siblings = childIds.get(parentId);
+            if (siblings != null) {
+                siblings.remove(uuid);
+            }
+            statistics.recordEviction();
+            LOGGER.debug("Evict entry {} from media index", uuid);
+            notifyRemoved(uuid);
+
+            // Drop oldest evicted parent ids
+            evictedIds.addLast(uuid);
+            while (evictedIds.size() > maxElements) {
+                String evictedId = evictedIds.removeFirst();
+                if (!elements.containsKey(evictedId)) {
+                    evictedParentIds.remove(evictedId);
+                }
+            }
+        } else {
+            // Entry was removed or replaced meanwhile
+            evictedParentIds.remove(uuid, parentId);
+        }
+    }
+
+    /**
+     * Build compact media index entry from a media index element.
+     *
+     * @param uuid    element uuid
+     * @param element media index element
+     * @return media index entry
+     */
+    private MediaIndexEntry toEntry(final String uuid, final MediaIndexElement element) {
+        // Share parent id instance with parent entry
+        String parentId = element.getParentId();
+        MediaIndexEntry parentEntry = parentId != null ? elements.get(parentId) : null;
+        if (parentEntry != null) {
+            parentId = parentEntry.getId();
+        }
+
+        // Split path into a shared directory segment and a file name
+        String path = element.getPath();
+        MediaIndexPathTrie paths = element.isLocalPath() ? localPaths : urlPaths;
+        int index = path != null ? path.lastIndexOf(paths.getSeparator()) : -1;
+        Segment directory = index >= 0 ? paths.intern(path.substring(0, index)) : null;
+        String fileName = index >= 0 ? path.substring(index + 1) : path;
+
+        return new MediaIndexEntry(uuid, parentId, directory, fileName, element.getName(),
+                symbols.getOrdinal(element.getMediaType()), symbols.getOrdinal(element.getMimeType()),
+                element.isLocalPath(), element.isLocked());
+    }
+
+    /**
+     * Build media index element from a compact media index entry.
+     *
+     * @param entry media index entry
+     * @return media index element
+     */
+    private MediaIndexElement toElement(final MediaIndexEntry entry) {
+        return new MediaIndexElement(entry.getParentId(), symbols.getSymbol(entry.getMediaType()), symbols.getSymbol(entry.getMimeType()),
+                buildPath(entry), entry.getName(), entry.isLocalPath(), entry.isLocked());
+    }
+
+    /**
+     * Build full path of a media index entry.
+     *
+     * @param entry media index entry
+     * @return full path
+     */
+    private String buildPath(final MediaIndexEntry entry) {
+        return (entry.isLocalPath() ? localPaths : urlPaths).buildPath(entry.getDirectory(), entry.getFileName());
+    }
+
+    /**
+     * Build element id from its parent id and path.
+     * Id is the full 128 bits hash: ids never depend on the order elements are added in.
+     * Its hexadecimal form cannot be mistaken for a configuration node id.
+     *
+     * @param parentId element parent id
+     * @param path     element path
+     * @return element id
+     */
+    private static String buildId(final String parentId, final String path) {
+        return ID_HASH_FUNCTION.newHasher()
+                .putString(String.valueOf(parentId), UTF_8)
+                .putChar(ID_SEPARATOR)
+                .putString(String.valueOf(path), UTF_8)
+                .hash().toString();
+    }
+
+    /**
+     * Add a child id to parent id index.
+     *
+     * @param parentId parent id
+     * @param childId  child id
+     */
+    private void addChildId(final String parentId, final String childId) {
+        Set<String> children = childIds.get(parentId);
+        if (children == null) {
+            Set<String> newChildren = Sets.newConcurrentHashSet();
+            children = childIds.putIfAbsent(parentId, newChildren);
+            if (children == null) {
+                children = newChildren;
+            }
         }
+        children.add(childId);
     }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao.index;
+
+import net.holmes.core.business.media.dao.index.MediaIndexPathTrie.Segment;
+
+import java.util.Objects;
+
+/**
+ * Compact media index entry: stored form of a {@link MediaIndexElement}.
+ * <p>
+ * Path is split into a directory segment, shared with other entries of the same directory, and a file name.
+ * Media type and mime type are stored as symbol ordinals.
+ * </p>
+ */
+final class MediaIndexEntry {
+    private static final byte LOCAL_PATH = 0x01;
+    private static final byte LOCKED = 0x02;
+
+    private final String id;
+    private final String parentId;
+    private final Segment directory;
+    private final String fileName;
+    private final String name;
+    private final short mediaType;
+    private final short mimeType;
+    private final byte flags;
+    private volatile boolean referenced;
+
+    /**
+     * Instantiates a new media index entry.
+     *
+     * @param id        entry id
+     * @param parentId  parent id
+     * @param directory directory segment, may be null
+     * @param fileName  file name
+     * @param name      name, may be null
+     * @param mediaType media type ordinal
+     * @param mimeType  mime type ordinal
+     * @param localPath whether path is a local path
+     * @param locked    whether entry is locked
+     */
+    MediaIndexEntry(final String id, final String parentId, final Segment directory, final String fileName, final String name,
+                    final short mediaType, final short mimeType, final boolean localPath, final boolean locked) {
+        this.id = id;
+        this.parentId = parentId;
+        this.directory = directory;
+        this.fileName = fileName;
+        this.name = name;
+        this.mediaType = mediaType;
+        this.mimeType = mimeType;
+        this.flags = (byte) ((localPath ? LOCAL_PATH : 0) | (locked ? LOCKED : 0));
+        this.referenced = true;
+    }
+
+    /**
+     * Get entry id.
+     *
+     * @return entry id
+     */
+    String getId() {
+        return id;
+    }
+
+    /**
+     * Get parent id.
+     *
+     * @return parent id
+     */
+    String getParentId() {
+        return parentId;
+    }
+
+    /**
+     * Get directory segment.
+     *
+     * @return directory segment, null if path has no directory
+     */
+    Segment getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get file name.
+     *
+     * @return file name
+     */
+    String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Get name.
+     *
+     * @return name
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Get media type ordinal.
+     *
+     * @return media type ordinal
+     */
+    short getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Get mime type ordinal.
+     *
+     * @return mime type ordinal
+     */
+    short getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * Checks whether path is a local path.
+     *
+     * @return true for local path
+     */
+    boolean isLocalPath() {
+        return (flags & LOCAL_PATH) != 0;
+    }
+
+    /**
+     * Checks whether entry is locked.
+     *
+     * @return true for locked entry
+     */
+    boolean isLocked() {
+        return (flags & LOCKED) != 0;
+    }
+
+    /**
+     * Checks whether entry can be evicted from media index.
+     * Locked entries are never evicted. Non local entries (podcast entries) cannot be rebuilt from file system and are not evicted.
+     *
+     * @return true if entry can be evicted
+     */
+    boolean isEvictable() {
+        return flags == LOCAL_PATH;
+    }
+
+    /**
+     * Mark entry as recently referenced.
+     */
+    void markReferenced() {
+        if (!referenced) {
+            referenced = true;
+        }
+    }
+
+    /**
+     * Clear referenced mark.
+     *
+     * @return true if entry was referenced since previous call
+     */
+    boolean clearReferenced() {
+        if (referenced) {
+            referenced = false;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether this entry stores the same element as another entry.
+     * Entry ids are not compared.
+     *
+     * @param other other entry
+     * @return true if both entries store the same element
+     */
+    boolean sameElement(final MediaIndexEntry other) {
+        // Directory segments are canonical: compare them by identity
+        return this.directory == other.directory
+                && this.mediaType == other.mediaType
+                && this.mimeType == other.mimeType
+                && this.flags == other.flags
+                && Objects.equals(this.parentId, other.parentId)
+                && Objects.equals(this.fileName, other.fileName)
+                && Objects.equals(this.name, other.name);
+    }
+}
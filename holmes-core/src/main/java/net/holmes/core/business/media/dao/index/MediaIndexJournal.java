@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao.index;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Media index journal.
+ * <p>
+ * Media index is stored on disk as a compacted snapshot and an append-only journal of changes applied since this snapshot.
+ * Both files share the same record format, so loading the index is a sequential read of the snapshot then of the journal.
+ * Appended records are buffered until journal is flushed.
+ * </p>
+ */
+final class MediaIndexJournal {
+    private static final int MAGIC = 0x484d4958;
+    private static final int VERSION = 2;
+    private static final byte RECORD_ADD = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final int BUFFER_SIZE = 65536;
+    private static final int HEADER_LENGTH = 8;
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private DataOutputStream journalStream;
+    private int recordCount;
+
+    /**
+     * Instantiates a new media index journal.
+     *
+     * @param snapshotFile snapshot file
+     * @param journalFile  journal file
+     */
+    MediaIndexJournal(final File snapshotFile, final File journalFile) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = journalFile;
+        this.journalStream = null;
+        this.recordCount = 0;
+    }
+
+    /**
+     * Load media index elements from snapshot and journal.
+     * A truncated trailing record (i.e. Holmes was killed while writing it) is ignored.
+     *
+     * @return media index elements, in insertion order
+     * @throws IOException if snapshot or journal cannot be read
+     */
+    synchronized Map<String, MediaIndexElement> load() throws IOException {
+        Map<String, MediaIndexElement> elements = new LinkedHashMap<>();
+        Map<String, String> strings = new HashMap<>();
+        readFile(snapshotFile, elements, strings);
+        recordCount = readFile(journalFile, elements, strings);
+        return elements;
+    }
+
+    /**
+     * Append an added element to journal.
+     *
+     * @param uuid    element uuid
+     * @param element element
+     * @throws IOException if journal cannot be written
+     */
+    synchronized void appendAdd(final String uuid, final MediaIndexElement element) throws IOException {
+        DataOutputStream out = getJournalStream();
+        writeAddRecord(out, uuid, element);
+        recordCount++;
+    }
+
+    /**
+     * Append a removed element to journal.
+     *
+     * @param uuid element uuid
+     * @throws IOException if journal cannot be written
+     */
+    synchronized void appendRemove(final String uuid) throws IOException {
+        DataOutputStream out = getJournalStream();
+        out.writeByte(RECORD_REMOVE);
+        out.writeUTF(uuid);
+        recordCount++;
+    }
+
+    /**
+     * Flush records appended to journal.
+     *
+     * @throws IOException if journal cannot be written
+     */
+    synchronized void flush() throws IOException {
+        if (journalStream != null) {
+            journalStream.flush();
+        }
+    }
+
+    /**
+     * Write a new snapshot with media index elements and truncate journal.
+     *
+     * @param entries media index elements
+     * @throws IOException if snapshot or journal cannot be written
+     */
+    synchronized void compact(final Iterable<Entry<String, MediaIndexElement>> entries) throws IOException {
+        // Write new snapshot in a temporary file then replace current snapshot
+        File tempFile = new File(snapshotFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE))) {
+            writeHeader(out);
+            for (Entry<String, MediaIndexElement> entry : entries) {
+                writeAddRecord(out, entry.getKey(), entry.getValue());
+            }
+        }
+        Files.move(tempFile.toPath(), snapshotFile.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+
+        // Start a new journal
+        close();
+        journalStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, false)));
+        writeHeader(journalStream);
+        journalStream.flush();
+        recordCount = 0;
+    }
+
+    /**
+     * Close journal.
+     *
+     * @throws IOException if journal cannot be closed
+     */
+    synchronized void close() throws IOException {
+        if (journalStream != null) {
+            journalStream.close();
+            journalStream = null;
+        }
+    }
+
+    /**
+     * Get number of records in journal since last compaction.
+     *
+     * @return record count
+     */
+    synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Check whether journal holds data after its header.
+     *
+     * @return true if journal is empty
+     */
+    synchronized boolean isJournalEmpty() {
+        return journalFile.length() <= HEADER_LENGTH;
+    }
+
+    /**
+     * Get snapshot file.
+     *
+     * @return snapshot file
+     */
+    File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Get journal output stream, open it in append mode if needed.
+     *
+     * @return journal output stream
+     * @throws IOException if journal cannot be opened
+     */
+    private DataOutputStream getJournalStream() throws IOException {
+        if (journalStream == null) {
+            boolean newFile = !journalFile.exists() || journalFile.length() == 0;
+            journalStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+            if (newFile) {
+                writeHeader(journalStream);
+            }
+        }
+        return journalStream;
+    }
+
+    /**
+     * Read records from a snapshot or journal file.
+     *
+     * @param file     file to read
+     * @param elements elements map to update
+     * @param strings  canonical strings, used to share ids and types between elements
+     * @return number of records read
+     * @throws IOException if file cannot be read
+     */
+    private static int readFile(final File file, final Map<String, MediaIndexElement> elements, final Map<String, String> strings) throws IOException {
+        int count = 0;
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("Invalid media index file: " + file);
+                }
+                while (true) {
+                    byte recordType = in.readByte();
+                    String uuid = canonical(in.readUTF(), strings);
+                    if (recordType == RECORD_ADD) {
+                        elements.put(uuid, readElement(in, strings));
+                    } else if (recordType == RECORD_REMOVE) {
+                        elements.remove(uuid);
+                    } else {
+                        throw new IOException("Invalid media index record type " + recordType + " in " + file);
+                    }
+                    count++;
+                }
+            } catch (EOFException e) {
+                // End of file or truncated trailing record
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Write file header.
+     *
+     * @param out output stream
+     * @throws IOException if header cannot be written
+     */
+    private static void writeHeader(final DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Write an add record.
+     *
+     * @param out     output stream
+     * @param uuid    element uuid
+     * @param element element
+     * @throws IOException if record cannot be written
+     */
+    private static void writeAddRecord(final DataOutputStream out, final String uuid, final MediaIndexElement element) throws IOException {
+        out.writeByte(RECORD_ADD);
+        out.writeUTF(uuid);
+        writeString(out, element.getParentId());
+        writeString(out, element.getMediaType());
+        writeString(out, element.getMimeType());
+        writeString(out, element.getPath());
+        writeString(out, element.getName());
+        out.writeBoolean(element.isLocalPath());
+        out.writeBoolean(element.isLocked());
+    }
+
+    /**
+     * Read a media index element.
+     *
+     * @param in      input stream
+     * @param strings canonical strings
+     * @return media index element
+     * @throws IOException if element cannot be read
+     */
+    private static MediaIndexElement readElement(final DataInputStream in, final Map<String, String> strings) throws IOException {
+        String parentId = canonical(readString(in), strings);
+        String mediaType = canonical(readString(in), strings);
+        String mimeType = canonical(readString(in), strings);
+        String path = readString(in);
+        String name = readString(in);
+        boolean localPath = in.readBoolean();
+        boolean locked = in.readBoolean();
+        return new MediaIndexElement(parentId, mediaType, mimeType, path, name, localPath, locked);
+    }
+
+    /**
+     * Get canonical instance of a string.
+     *
+     * @param value   string value
+     * @param strings canonical strings
+     * @return canonical string
+     */
+    private static String canonical(final String value, final Map<String, String> strings) {
+        if (value == null) {
+            return null;
+        }
+        String canonicalValue = strings.get(value);
+        if (canonicalValue == null) {
+            strings.put(value, value);
+            canonicalValue = value;
+        }
+        return canonicalValue;
+    }
+
+    /**
+     * Write a nullable string.
+     *
+     * @param out   output stream
+     * @param value string value
+     * @throws IOException if string cannot be written
+     */
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Read a nullable string.
+     *
+     * @param in input stream
+     * @return string value
+     * @throws IOException if string cannot be read
+     */
+    private static String readString(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.holmes.core.business.media.dao.index;
+
+/**
+ * Media index listener, notified when elements leave media index.
+ */
+public interface MediaIndexListener {
+
+    /**
+     * Called when an element is removed or evicted from media index.
+     *
+     * @param uuid element uuid
+     */
+    void elementRemoved(String uuid);
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao.index;
+
+import com.google.common.collect.Interner;
+
+import java.util.Objects;
+
+import static com.google.common.collect.Interners.newWeakInterner;
+
+/**
+ * Media index path trie.
+ * <p>
+ * Directory paths are stored as a chain of interned segments: a directory shared by many media index entries
+ * (and all its parent directories) is stored only once.
+ * Segments are weakly referenced and released when no entry refers to them.
+ * </p>
+ */
+final class MediaIndexPathTrie {
+    private final char separator;
+    private final Interner<Segment> segments;
+    private volatile Segment lastSegment;
+
+    /**
+     * Instantiates a new media index path trie.
+     *
+     * @param separator path separator
+     */
+    MediaIndexPathTrie(final char separator) {
+        this.separator = separator;
+        this.segments = newWeakInterner();
+        this.lastSegment = null;
+    }
+
+    /**
+     * Get path separator.
+     *
+     * @return path separator
+     */
+    char getSeparator() {
+        return separator;
+    }
+
+    /**
+     * Get canonical segment of a directory path.
+     *
+     * @param directoryPath directory path
+     * @return directory segment
+     */
+    Segment intern(final String directoryPath) {
+        // Entries are usually added folder by folder: first check last interned directory
+        Segment segment = lastSegment;
+        if (segment == null || !segment.matches(directoryPath, separator)) {
+            int index = directoryPath.lastIndexOf(separator);
+            if (index < 0) {
+                segment = segments.intern(new Segment(null, directoryPath));
+            } else {
+                segment = segments.intern(new Segment(intern(directoryPath.substring(0, index)), directoryPath.substring(index + 1)));
+            }
+            lastSegment = segment;
+        }
+        return segment;
+    }
+
+    /**
+     * Build full path.
+     *
+     * @param directory directory segment, may be null
+     * @param fileName  file name
+     * @return full path
+     */
+    String buildPath(final Segment directory, final String fileName) {
+        if (directory == null) {
+            return fileName;
+        }
+        StringBuilder path = new StringBuilder(128);
+        directory.appendTo(path, separator);
+        return path.append(separator).append(fileName).toString();
+    }
+
+    /**
+     * Directory segment.
+     */
+    static final class Segment {
+        private final Segment parent;
+        private final String name;
+        private final int hash;
+
+        /**
+         * Instantiates a new segment.
+         *
+         * @param parent parent segment, null for first segment
+         * @param name   segment name
+         */
+        Segment(final Segment parent, final String name) {
+            this.parent = parent;
+            this.name = name;
+            this.hash = 31 * System.identityHashCode(parent) + name.hashCode();
+        }
+
+        /**
+         * Append segment path.
+         *
+         * @param path      path to append to
+         * @param separator path separator
+         */
+        void appendTo(final StringBuilder path, final char separator) {
+            if (parent != null) {
+                parent.appendTo(path, separator);
+                path.append(separator);
+            }
+            path.append(name);
+        }
+
+        /**
+         * Check whether this segment is the given directory path, without building segment path.
+         *
+         * @param directoryPath directory path
+         * @param separator     path separator
+         * @return true if segment path is directory path
+         */
+        boolean matches(final String directoryPath, final char separator) {
+            int end = directoryPath.length();
+            Segment segment = this;
+            while (segment != null) {
+                int start = end - segment.name.length();
+                if (start < 0 || !directoryPath.startsWith(segment.name, start)) {
+                    return false;
+                }
+                if (segment.parent != null) {
+                    if (start == 0 || directoryPath.charAt(start - 1) != separator) {
+                        return false;
+                    }
+                    start--;
+                } else if (start != 0) {
+                    return false;
+                }
+                end = start;
+                segment = segment.parent;
+            }
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            // Parent segments are canonical: compare them by identity
+            Segment other = (Segment) obj;
+            return this.parent == other.parent && Objects.equals(this.name, other.name);
+        }
+    }
+}
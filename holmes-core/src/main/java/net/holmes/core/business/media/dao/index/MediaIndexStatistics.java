@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao.index;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Media index statistics.
+ */
+public final class MediaIndexStatistics {
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong cleanBatches = new AtomicLong();
+    private final AtomicLong cleanPasses = new AtomicLong();
+    private final AtomicLong scannedElements = new AtomicLong();
+    private final AtomicLong removedElements = new AtomicLong();
+    private final AtomicLong cleanDurationNanos = new AtomicLong();
+    private volatile long lastBatchScannedElements = 0;
+    private volatile long lastBatchRemovedElements = 0;
+    private volatile long lastBatchDurationNanos = 0;
+
+    /**
+     * Record a media index hit.
+     */
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    /**
+     * Record a media index miss.
+     */
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Record a media index eviction.
+     */
+    void recordEviction() {
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * Record a clean batch.
+     *
+     * @param scanned       number of scanned elements
+     * @param removed       number of removed elements
+     * @param passCompleted whether batch completed a pass over the whole media index
+     * @param durationNanos batch duration (in nanoseconds)
+     */
+    void recordCleanBatch(final int scanned, final int removed, final boolean passCompleted, final long durationNanos) {
+        cleanBatches.incrementAndGet();
+        if (passCompleted) {
+            cleanPasses.incrementAndGet();
+        }
+        scannedElements.addAndGet(scanned);
+        removedElements.addAndGet(removed);
+        cleanDurationNanos.addAndGet(durationNanos);
+        lastBatchScannedElements = scanned;
+        lastBatchRemovedElements = removed;
+        lastBatchDurationNanos = durationNanos;
+    }
+
+    /**
+     * Get number of media index hits.
+     *
+     * @return number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get number of media index misses.
+     *
+     * @return number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get number of elements evicted from media index.
+     *
+     * @return number of evictions
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Get number of clean batches.
+     *
+     * @return number of clean batches
+     */
+    public long getCleanBatches() {
+        return cleanBatches.get();
+    }
+
+    /**
+     * Get number of complete clean passes over media index.
+     *
+     * @return number of clean passes
+     */
+    public long getCleanPasses() {
+        return cleanPasses.get();
+    }
+
+    /**
+     * Get total number of elements scanned by clean batches.
+     *
+     * @return number of scanned elements
+     */
+    public long getScannedElements() {
+        return scannedElements.get();
+    }
+
+    /**
+     * Get total number of elements removed by clean batches.
+     *
+     * @return number of removed elements
+     */
+    public long getRemovedElements() {
+        return removedElements.get();
+    }
+
+    /**
+     * Get number of elements scanned by last clean batch.
+     *
+     * @return number of scanned elements
+     */
+    public long getLastBatchScannedElements() {
+        return lastBatchScannedElements;
+    }
+
+    /**
+     * Get number of elements removed by last clean batch.
+     *
+     * @return number of removed elements
+     */
+    public long getLastBatchRemovedElements() {
+        return lastBatchRemovedElements;
+    }
+
+    /**
+     * Get duration of last clean batch.
+     *
+     * @return duration (in milliseconds)
+     */
+    public double getLastBatchDurationMillis() {
+        return toMillis(lastBatchDurationNanos);
+    }
+
+    /**
+     * Get average duration of clean batches.
+     *
+     * @return average duration (in milliseconds)
+     */
+    public double getAverageBatchDurationMillis() {
+        long batches = cleanBatches.get();
+        return batches > 0 ? toMillis(cleanDurationNanos.get()) / batches : 0;
+    }
+
+    /**
+     * Convert nanoseconds to fractional milliseconds.
+     *
+     * @param nanos duration in nanoseconds
+     * @return duration in milliseconds
+     */
+    private static double toMillis(final long nanos) {
+        return (double) nanos / MILLISECONDS.toNanos(1);
+    }
+}
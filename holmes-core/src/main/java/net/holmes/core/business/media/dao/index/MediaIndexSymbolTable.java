@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao.index;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Media index symbol table.
+ * Stores a small set of repeated strings (media types, mime types) and maps them to short ordinals.
+ */
+final class MediaIndexSymbolTable {
+    /**
+     * Ordinal of null symbol.
+     */
+    static final short NULL_ORDINAL = -1;
+
+    private final ConcurrentMap<String, Short> ordinals;
+    private volatile String[] symbols;
+
+    /**
+     * Instantiates a new media index symbol table.
+     */
+    MediaIndexSymbolTable() {
+        this.ordinals = new ConcurrentHashMap<>();
+        this.symbols = new String[0];
+    }
+
+    /**
+     * Get symbol ordinal, register symbol if needed.
+     *
+     * @param symbol symbol, may be null
+     * @return symbol ordinal
+     */
+    short getOrdinal(final String symbol) {
+        if (symbol == null) {
+            return NULL_ORDINAL;
+        }
+        Short ordinal = ordinals.get(symbol);
+        return ordinal != null ? ordinal : register(symbol);
+    }
+
+    /**
+     * Get symbol.
+     *
+     * @param ordinal symbol ordinal
+     * @return symbol, null for {@link #NULL_ORDINAL}
+     */
+    String getSymbol(final short ordinal) {
+        return ordinal == NULL_ORDINAL ? null : symbols[ordinal];
+    }
+
+    /**
+     * Register a new symbol.
+     *
+     * @param symbol symbol
+     * @return symbol ordinal
+     */
+    private synchronized short register(final String symbol) {
+        Short ordinal = ordinals.get(symbol);
+        if (ordinal == null) {
+            if (symbols.length == Short.MAX_VALUE) {
+                throw new IllegalStateException("Too many symbols in media index");
+            }
+            // Publish symbol before its ordinal
+            String[] newSymbols = Arrays.copyOf(symbols, symbols.length + 1);
+            newSymbols[symbols.length] = symbol;
+            symbols = newSymbols;
+            ordinal = (short) (newSymbols.length - 1);
+            ordinals.put(symbol, ordinal);
+        }
+        return ordinal;
+    }
+}
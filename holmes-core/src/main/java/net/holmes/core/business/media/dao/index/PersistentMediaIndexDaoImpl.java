@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao.index;
+
+import com.google.common.base.Stopwatch;
+import net.holmes.core.business.configuration.ConfigurationManager;
+import net.holmes.core.business.configuration.model.ConfigurationNode;
+import net.holmes.core.business.media.model.RootNode;
+import org.slf4j.Logger;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static net.holmes.core.business.media.dao.index.MediaIndexElementFactory.buildConfigMediaIndexElement;
+import static net.holmes.core.business.media.model.RootNode.ROOT;
+import static net.holmes.core.common.ConfigurationParameter.MEDIA_INDEX_MAX_ELEMENTS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Persistent media index dao implementation.
+ * <p>
+ * Media index is restored from local Holmes data directory at startup, so node ids are stable across restarts.
+ * Changes are appended to a journal that is compacted into a new snapshot when it grows larger than the index.
+ * </p>
+ * <p>
+ * Journal is written by a single background thread: threads updating the index only queue changes.
+ * Queued changes are written and flushed by batches. When the queue is full, changes are not queued:
+ * a new snapshot of the whole index is written instead, so that threads updating the index never wait for disk.
+ * </p>
+ */
+@Singleton
+public class PersistentMediaIndexDaoImpl extends MediaIndexDaoImpl {
+    private static final Logger LOGGER = getLogger(PersistentMediaIndexDaoImpl.class);
+    private static final String SNAPSHOT_FILE_NAME = "media-index.dat";
+    private static final String JOURNAL_FILE_NAME = "media-index.log";
+    private static final int MIN_COMPACTION_RECORDS = 10000;
+    private static final int MAX_PENDING_RECORDS = 10000;
+    private static final int MAX_BATCH_RECORDS = 1000;
+    private static final long FLUSH_DELAY_MILLISECONDS = 200;
+
+    private final MediaIndexJournal journal;
+    private final BlockingQueue<JournalRecord> pendingRecords;
+    private final AtomicBoolean compactionRequested;
+    private final Thread journalWriter;
+    private final long loadDuration;
+    private volatile boolean journalEnabled;
+
+    /**
+     * Instantiates a new persistent media index dao implementation.
+     *
+     * @param configurationManager configuration manager
+     * @param localHolmesDataDir   local Holmes data directory
+     */
+    @Inject
+    public PersistentMediaIndexDaoImpl(final ConfigurationManager configurationManager, @Named("localHolmesDataDir") final String localHolmesDataDir) {
+        super(configurationManager.getParameter(MEDIA_INDEX_MAX_ELEMENTS));
+        this.journal = new MediaIndexJournal(new File(localHolmesDataDir, SNAPSHOT_FILE_NAME), new File(localHolmesDataDir, JOURNAL_FILE_NAME));
+        this.pendingRecords = new ArrayBlockingQueue<>(MAX_PENDING_RECORDS);
+        this.compactionRequested = new AtomicBoolean(false);
+        this.journalEnabled = false;
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        load(configurationManager);
+        this.loadDuration = stopwatch.elapsed(MILLISECONDS);
+        LOGGER.info("Media index loaded from {} in {} ms: {} elements", journal.getSnapshotFile(), loadDuration, size());
+
+        // Start journaling
+        this.journalEnabled = true;
+        this.journalWriter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeJournal();
+            }
+        }, "media-index-journal");
+        this.journalWriter.setDaemon(true);
+        this.journalWriter.start();
+    }
+
+    /**
+     * Get duration of media index load at startup.
+     *
+     * @return load duration in milliseconds
+     */
+    public long getLoadDuration() {
+        return loadDuration;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void elementAdded(final String uuid, final MediaIndexElement element) {
+        if (journalEnabled) {
+            queue(new JournalRecord(uuid, element));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void elementRemoved(final String uuid) {
+        if (journalEnabled) {
+            queue(new JournalRecord(uuid, null));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        if (journalEnabled) {
+            // Stop journaling, journal writer saves pending records then ends
+            journalEnabled = false;
+            try {
+                journalWriter.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                journal.close();
+            } catch (IOException e) {
+                LOGGER.error("Failed to close media index journal: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Queue a journal record.
+     * When queue is full, record is dropped and a new snapshot is requested: it holds the change.
+     *
+     * @param record journal record
+     */
+    private void queue(final JournalRecord record) {
+        if (!pendingRecords.offer(record)) {
+            compactionRequested.set(true);
+        }
+    }
+
+    /**
+     * Journal writer loop: write queued records by batches, flush them and compact journal when needed.
+     */
+    private void writeJournal() {
+        List<JournalRecord> batch = new ArrayList<>(MAX_BATCH_RECORDS);
+        while (journalEnabled || !pendingRecords.isEmpty()) {
+            try {
+                JournalRecord record = pendingRecords.poll(FLUSH_DELAY_MILLISECONDS, MILLISECONDS);
+                if (record != null) {
+                    batch.add(record);
+                    pendingRecords.drainTo(batch, MAX_BATCH_RECORDS - 1);
+                    write(batch);
+                    batch.clear();
+                }
+                if (compactionRequested.getAndSet(false) || journal.getRecordCount() > Math.max(MIN_COMPACTION_RECORDS, size())) {
+                    compact();
+                }
+            } catch (InterruptedException e) {
+                LOGGER.warn("Media index journal writer interrupted");
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write a batch of records to journal and flush it.
+     *
+     * @param records journal records
+     */
+    private void write(final List<JournalRecord> records) {
+        try {
+            for (JournalRecord record : records) {
+                if (record.element != null) {
+                    journal.appendAdd(record.uuid, record.element);
+                } else {
+                    journal.appendRemove(record.uuid);
+                }
+            }
+            journal.flush();
+        } catch (IOException e) {
+            LOGGER.error("Failed to write media index journal: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Load media index from snapshot and journal.
+     * Configuration elements are not restored: they are added from current configuration.
+     *
+     * @param configurationManager configuration manager
+     */
+    private void load(final ConfigurationManager configurationManager) {
+        // Restore elements
+        boolean compactionNeeded = true;
+        try {
+            Map<String, MediaIndexElement> elements = journal.load();
+            for (Entry<String, MediaIndexElement> entry : elements.entrySet()) {
+                if (!entry.getValue().isLocked()) {
+                    put(entry.getKey(), entry.getValue());
+                }
+            }
+            compactionNeeded = !journal.isJournalEmpty();
+        } catch (IOException e) {
+            LOGGER.error("Failed to load media index: " + e.getMessage(), e);
+        }
+
+        // Add configuration elements
+        for (RootNode rootNode : RootNode.values()) {
+            if (rootNode.getParentId().equals(ROOT.getId())) {
+                for (ConfigurationNode configNode : configurationManager.getNodes(rootNode)) {
+                    put(configNode.getId(), buildConfigMediaIndexElement(rootNode, configNode));
+                }
+            }
+        }
+
+        // Write a clean snapshot if journal is not empty
+        if (compactionNeeded) {
+            compact();
+        }
+    }
+
+    /**
+     * Write a new snapshot and truncate journal.
+     */
+    private void compact() {
+        try {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            journal.compact(entries());
+            LOGGER.debug("Media index snapshot written in {} ms", stopwatch.elapsed(MILLISECONDS));
+        } catch (IOException e) {
+            LOGGER.error("Failed to write media index snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Journal record: an added element, or a removed element when element is null.
+     */
+    private static final class JournalRecord {
+        private final String uuid;
+        private final MediaIndexElement element;
+
+        /**
+         * Instantiates a new journal record.
+         *
+         * @param uuid    element uuid
+         * @param element added element, null for a removed element
+         */
+        JournalRecord(final String uuid, final MediaIndexElement element) {
+            this.uuid = uuid;
+            this.element = element;
+        }
+    }
+}
@@ -20,6 +20,8 @@ package net.holmes.core.business.media.model;
 import net.holmes.core.business.mimetype.model.MimeType;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Objects;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -48,6 +50,23 @@ public final class ContentNode extends MimeTypeNode {
         this.modifiedDate = file.lastModified();
     }
 
+    /**
+     * Instantiates a new content node from file attributes.
+     *
+     * @param id         node id
+     * @param parentId   parent node id
+     * @param name       node name
+     * @param file       node file
+     * @param attributes node file attributes
+     * @param mimeType   mime type
+     */
+    public ContentNode(final String id, final String parentId, final String name, final Path file, final BasicFileAttributes attributes, final MimeType mimeType) {
+        super(NodeType.TYPE_CONTENT, id, parentId, name, mimeType);
+        this.path = file.toAbsolutePath().toString();
+        this.size = attributes.size();
+        this.modifiedDate = attributes.lastModifiedTime().toMillis();
+    }
+
     /**
      * Gets the content node size.
      *
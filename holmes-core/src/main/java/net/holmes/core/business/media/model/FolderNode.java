@@ -18,6 +18,8 @@
 package net.holmes.core.business.media.model;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Objects;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -47,6 +49,21 @@ public final class FolderNode extends AbstractNode {
         }
     }
 
+    /**
+     * Instantiates a new folder node from folder attributes.
+     *
+     * @param id         node id
+     * @param parentId   parent node id
+     * @param name       node name
+     * @param folder     node folder
+     * @param attributes node folder attributes
+     */
+    public FolderNode(final String id, final String parentId, final String name, final Path folder, final BasicFileAttributes attributes) {
+        super(NodeType.TYPE_FOLDER, id, parentId, name);
+        this.path = folder.toAbsolutePath().toString();
+        this.modifiedDate = attributes.lastModifiedTime().toMillis();
+    }
+
     /**
      * Instantiates a new folder node.
      *
@@ -58,6 +75,15 @@ public final class FolderNode extends AbstractNode {
         this(id, parentId, name, null);
     }
 
+    /**
+     * Gets the folder path.
+     *
+     * @return the folder path
+     */
+    public String getPath() {
+        return path;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.scan;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Media scan statistics.
+ * Counters are reset when a scan starts while no other scan is running.
+ */
+public final class MediaScanStatistics {
+    private final AtomicInteger runningScans = new AtomicInteger();
+    private final AtomicLong scans = new AtomicLong();
+    private final AtomicLong visitedFolders = new AtomicLong();
+    private final AtomicLong visitedFiles = new AtomicLong();
+    private final AtomicLong cycles = new AtomicLong();
+    private volatile long startTime = 0;
+    private volatile long endTime = 0;
+
+    /**
+     * Record a scan start.
+     */
+    void recordScanStarted() {
+        scans.incrementAndGet();
+        if (runningScans.getAndIncrement() == 0) {
+            visitedFolders.set(0);
+            visitedFiles.set(0);
+            cycles.set(0);
+            startTime = System.currentTimeMillis();
+            endTime = 0;
+        }
+    }
+
+    /**
+     * Record a scan end.
+     */
+    void recordScanFinished() {
+        if (runningScans.decrementAndGet() == 0) {
+            endTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Record a visited folder.
+     *
+     * @param files number of files in folder
+     */
+    void recordFolder(final int files) {
+        visitedFolders.incrementAndGet();
+        visitedFiles.addAndGet(files);
+    }
+
+    /**
+     * Record a symbolic link cycle.
+     */
+    void recordCycle() {
+        cycles.incrementAndGet();
+    }
+
+    /**
+     * Whether a scan is running.
+     *
+     * @return true if a scan is running
+     */
+    public boolean isRunning() {
+        return runningScans.get() > 0;
+    }
+
+    /**
+     * Get number of scans started.
+     *
+     * @return number of scans
+     */
+    public long getScans() {
+        return scans.get();
+    }
+
+    /**
+     * Get number of folders visited by current or last scan.
+     *
+     * @return number of visited folders
+     */
+    public long getVisitedFolders() {
+        return visitedFolders.get();
+    }
+
+    /**
+     * Get number of files visited by current or last scan.
+     *
+     * @return number of visited files
+     */
+    public long getVisitedFiles() {
+        return visitedFiles.get();
+    }
+
+    /**
+     * Get number of symbolic link cycles detected by current or last scan.
+     *
+     * @return number of cycles
+     */
+    public long getCycles() {
+        return cycles.get();
+    }
+
+    /**
+     * Get duration of current or last scan.
+     *
+     * @return duration (in milliseconds)
+     */
+    public long getDurationMillis() {
+        long start = startTime;
+        if (start == 0) {
+            return 0;
+        }
+        long end = endTime;
+        return (end > 0 ? end : System.currentTimeMillis()) - start;
+    }
+
+    /**
+     * Get scan throughput.
+     *
+     * @return number of visited folders and files per second
+     */
+    public double getThroughput() {
+        long duration = getDurationMillis();
+        return duration > 0 ? (visitedFolders.get() + visitedFiles.get()) * 1000d / duration : 0;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.scan;
+
+/**
+ * Media scanner: walks configured folders in background so that media index is warm when folders are browsed.
+ */
+public interface MediaScanner {
+
+    /**
+     * Scan all configured folders.
+     */
+    void scanAll();
+
+    /**
+     * Scan a configured folder.
+     *
+     * @param nodeId configuration node id
+     */
+    void scan(String nodeId);
+
+    /**
+     * Get media scan statistics.
+     *
+     * @return media scan statistics
+     */
+    MediaScanStatistics getStatistics();
+
+    /**
+     * Stop running scans.
+     */
+    void shutdown();
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.scan;
+
+import net.holmes.core.business.configuration.ConfigurationManager;
+import net.holmes.core.business.media.dao.MediaDao;
+import net.holmes.core.business.media.model.AbstractNode;
+import net.holmes.core.business.media.model.FolderNode;
+import net.holmes.core.business.media.model.RootNode;
+import org.slf4j.Logger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+import static net.holmes.core.common.ConfigurationParameter.*;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Media scanner implementation.
+ * Each disk (file store) has its own fork/join pool, so that parallelism is bounded per disk
+ * while folders on different disks are scanned concurrently.
+ */
+@Singleton
+public final class MediaScannerImpl implements MediaScanner {
+    private static final Logger LOGGER = getLogger(MediaScannerImpl.class);
+
+    private final ConfigurationManager configurationManager;
+    private final MediaDao mediaDao;
+    private final MediaScanStatistics statistics = new MediaScanStatistics();
+    private final ConcurrentMap<FileStore, ForkJoinPool> pools = new ConcurrentHashMap<>();
+    private final int threadsPerDisk;
+    private final int maxDepth;
+    private volatile boolean shutdown = false;
+
+    /**
+     * Instantiates a new media scanner implementation.
+     *
+     * @param configurationManager configuration manager
+     * @param mediaDao             media dao
+     */
+    @Inject
+    public MediaScannerImpl(final ConfigurationManager configurationManager, final MediaDao mediaDao) {
+        this.configurationManager = configurationManager;
+        this.mediaDao = mediaDao;
+        this.threadsPerDisk = Math.max(1, configurationManager.getParameter(MEDIA_SCAN_THREADS_PER_DISK));
+        this.maxDepth = configurationManager.getParameter(MEDIA_SCAN_MAX_DEPTH);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void scanAll() {
+        scanConfiguredFolders(null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void scan(final String nodeId) {
+        if (nodeId != null) {
+            scanConfiguredFolders(nodeId);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MediaScanStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (ForkJoinPool pool : pools.values()) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Scan configured folders.
+     *
+     * @param nodeId configuration node id, or null to scan all configured folders
+     */
+    private void scanConfiguredFolders(final String nodeId) {
+        if (shutdown || !configurationManager.getParameter(MEDIA_SCAN_ENABLE)) {
+            return;
+        }
+        for (RootNode rootNode : RootNode.values()) {
+            if (rootNode.isLocalPath()) {
+                // Root node children are configured folders, they are added to media index
+                for (AbstractNode node : mediaDao.getRootNodeChildren(rootNode)) {
+                    if (node instanceof FolderNode && (nodeId == null || nodeId.equals(node.getId()))) {
+                        submit((FolderNode) node);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Submit scan of a configured folder to the pool of its disk.
+     *
+     * @param folder configured folder
+     */
+    private void submit(final FolderNode folder) {
+        try {
+            Path realPath = Paths.get(folder.getPath()).toRealPath();
+            ForkJoinPool pool = getPool(Files.getFileStore(realPath));
+            LOGGER.info("[submit] scan {}", realPath);
+            statistics.recordScanStarted();
+            try {
+                pool.execute(new ScanTask(folder.getId(), realPath, null, 0));
+            } catch (RejectedExecutionException e) {
+                // Scanner is shut down
+                statistics.recordScanFinished();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("[submit] cannot scan {}: {}", folder.getPath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Get fork/join pool of a disk.
+     *
+     * @param fileStore disk file store
+     * @return fork/join pool
+     */
+    private ForkJoinPool getPool(final FileStore fileStore) {
+        ForkJoinPool pool = pools.get(fileStore);
+        if (pool == null) {
+            ForkJoinPool newPool = new ForkJoinPool(threadsPerDisk);
+            pool = pools.putIfAbsent(fileStore, newPool);
+            if (pool == null) {
+                pool = newPool;
+            } else {
+                newPool.shutdown();
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Folder scan task: lists a folder (which adds its children to media index) then scans its sub-folders.
+     */
+    private final class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String folderId;
+        private final Path realPath;
+        private final ScanTask parent;
+        private final int depth;
+
+        /**
+         * Instantiates a new scan task.
+         *
+         * @param folderId folder node id
+         * @param realPath folder real path, used to detect symbolic link cycles
+         * @param parent   parent folder task, null for a configured folder
+         * @param depth    folder depth relative to configured folder
+         */
+        ScanTask(final String folderId, final Path realPath, final ScanTask parent, final int depth) {
+            this.folderId = folderId;
+            this.realPath = realPath;
+            this.parent = parent;
+            this.depth = depth;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void compute() {
+            try {
+                if (!shutdown) {
+                    scanFolder();
+                }
+            } finally {
+                if (parent == null) {
+                    statistics.recordScanFinished();
+                }
+            }
+        }
+
+        /**
+         * Scan folder.
+         */
+        private void scanFolder() {
+            List<AbstractNode> children = mediaDao.getChildNodes(folderId);
+            List<ScanTask> subTasks = new ArrayList<>();
+            int files = 0;
+            for (AbstractNode child : children) {
+                if (child instanceof FolderNode) {
+                    ScanTask subTask = newSubTask((FolderNode) child);
+                    if (subTask != null) {
+                        subTasks.add(subTask);
+                    }
+                } else {
+                    files++;
+                }
+            }
+            statistics.recordFolder(files);
+            invokeAll(subTasks);
+        }
+
+        /**
+         * Build sub-folder scan task.
+         *
+         * @param folder sub-folder
+         * @return sub-folder scan task, or null if sub-folder should not be scanned
+         */
+        private ScanTask newSubTask(final FolderNode folder) {
+            if (depth >= maxDepth) {
+                LOGGER.warn("[newSubTask] {} is deeper than {} folders, not scanned", folder.getPath(), maxDepth);
+                return null;
+            }
+            Path path = Paths.get(folder.getPath());
+            Path childRealPath;
+            if (Files.isSymbolicLink(path)) {
+                // Only symbolic links may point to an ancestor
+                try {
+                    childRealPath = path.toRealPath();
+                } catch (IOException e) {
+                    return null;
+                }
+                if (isAncestor(childRealPath)) {
+                    LOGGER.warn("[newSubTask] {} links to its ancestor {}, not scanned", path, childRealPath);
+                    statistics.recordCycle();
+                    return null;
+                }
+            } else {
+                childRealPath = realPath.resolve(path.getFileName());
+            }
+            return new ScanTask(folder.getId(), childRealPath, this, depth + 1);
+        }
+
+        /**
+         * Check whether a path is the real path of this folder or one of its ancestors.
+         *
+         * @param path real path
+         * @return true if path is an ancestor
+         */
+        private boolean isAncestor(final Path path) {
+            for (ScanTask task = this; task != null; task = task.parent) {
+                if (task.realPath.equals(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.search;
+
+import java.util.Locale;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Search criteria, as defined by UPnP ContentDirectory:1 search criteria grammar.
+ * Criteria is a tree: logical operators combine two criteria, relational operators compare a property with a value.
+ * String comparisons are case insensitive.
+ */
+public final class SearchCriteria {
+    public static final String PROPERTY_TITLE = "dc:title";
+    public static final String PROPERTY_CLASS = "upnp:class";
+    private static final SearchCriteria ALL = new SearchCriteria(Operator.ALL, null, null, null, null);
+
+    private final Operator operator;
+    private final String property;
+    private final String value;
+    private final SearchCriteria left;
+    private final SearchCriteria right;
+
+    /**
+     * Instantiates a new search criteria.
+     *
+     * @param operator operator
+     * @param property property (relational operators)
+     * @param value    lower case value (relational operators)
+     * @param left     left criteria (logical operators)
+     * @param right    right criteria (logical operators)
+     */
+    private SearchCriteria(final Operator operator, final String property, final String value, final SearchCriteria left, final SearchCriteria right) {
+        this.operator = operator;
+        this.property = property;
+        this.value = value;
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * Get criteria matching all nodes.
+     *
+     * @return search criteria
+     */
+    public static SearchCriteria all() {
+        return ALL;
+    }
+
+    /**
+     * Get criteria matching nodes matching both criteria.
+     *
+     * @param left  left criteria
+     * @param right right criteria
+     * @return search criteria
+     */
+    public static SearchCriteria and(final SearchCriteria left, final SearchCriteria right) {
+        return new SearchCriteria(Operator.AND, null, null, left, right);
+    }
+
+    /**
+     * Get criteria matching nodes matching any criteria.
+     *
+     * @param left  left criteria
+     * @param right right criteria
+     * @return search criteria
+     */
+    public static SearchCriteria or(final SearchCriteria left, final SearchCriteria right) {
+        return new SearchCriteria(Operator.OR, null, null, left, right);
+    }
+
+    /**
+     * Get criteria comparing a property with a value.
+     *
+     * @param property property
+     * @param operator relational operator
+     * @param value    value, "true" or "false" for exists operator
+     * @return search criteria
+     */
+    public static SearchCriteria relation(final String property, final Operator operator, final String value) {
+        return new SearchCriteria(operator, property, toLowerCase(value), null, null);
+    }
+
+    /**
+     * Lower case a string value, for case insensitive comparisons.
+     *
+     * @param value value
+     * @return lower case value
+     */
+    public static String toLowerCase(final String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * Get operator.
+     *
+     * @return operator
+     */
+    public Operator getOperator() {
+        return operator;
+    }
+
+    /**
+     * Get compared property.
+     *
+     * @return property or null for logical operators
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Get compared value, in lower case.
+     *
+     * @return value or null for logical operators
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Get left criteria.
+     *
+     * @return left criteria or null for relational operators
+     */
+    public SearchCriteria getLeft() {
+        return left;
+    }
+
+    /**
+     * Get right criteria.
+     *
+     * @return right criteria or null for relational operators
+     */
+    public SearchCriteria getRight() {
+        return right;
+    }
+
+    /**
+     * Check whether a node matches criteria.
+     *
+     * @param title     lower case node title
+     * @param upnpClass node UPnP class
+     * @return true if node matches criteria
+     */
+    public boolean matches(final String title, final String upnpClass) {
+        switch (operator) {
+            case ALL:
+                return true;
+            case AND:
+                return left.matches(title, upnpClass) && right.matches(title, upnpClass);
+            case OR:
+                return left.matches(title, upnpClass) || right.matches(title, upnpClass);
+            default:
+                return matches(getPropertyValue(title, upnpClass));
+        }
+    }
+
+    /**
+     * Check whether a property value matches relational criteria.
+     * Unsupported properties do not exist: they only match "exists false" criteria.
+     *
+     * @param propertyValue lower case property value or null if property is not supported
+     * @return true if property value matches criteria
+     */
+    private boolean matches(final String propertyValue) {
+        if (operator == Operator.EXISTS) {
+            return Boolean.parseBoolean(value) == (propertyValue != null);
+        } else if (propertyValue == null) {
+            return false;
+        }
+        switch (operator) {
+            case EQUAL:
+                return propertyValue.equals(value);
+            case NOT_EQUAL:
+                return !propertyValue.equals(value);
+            case LESS:
+                return propertyValue.compareTo(value) < 0;
+            case LESS_OR_EQUAL:
+                return propertyValue.compareTo(value) <= 0;
+            case GREATER:
+                return propertyValue.compareTo(value) > 0;
+            case GREATER_OR_EQUAL:
+                return propertyValue.compareTo(value) >= 0;
+            case CONTAINS:
+                return propertyValue.contains(value);
+            case DOES_NOT_CONTAIN:
+                return !propertyValue.contains(value);
+            case DERIVED_FROM:
+                return propertyValue.equals(value) || propertyValue.startsWith(value + ".");
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Get value of compared property.
+     *
+     * @param title     lower case node title
+     * @param upnpClass node UPnP class
+     * @return lower case property value or null if property is not supported
+     */
+    private String getPropertyValue(final String title, final String upnpClass) {
+        if (PROPERTY_TITLE.equals(property)) {
+            return title;
+        } else if (PROPERTY_CLASS.equals(property)) {
+            return toLowerCase(upnpClass);
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .omitNullValues()
+                .add("operator", operator)
+                .add("property", property)
+                .add("value", value)
+                .add("left", left)
+                .add("right", right)
+                .toString();
+    }
+
+    /**
+     * Search criteria operator.
+     */
+    public enum Operator {
+        ALL("*"),
+        AND("and"),
+        OR("or"),
+        EQUAL("="),
+        NOT_EQUAL("!="),
+        LESS("<"),
+        LESS_OR_EQUAL("<="),
+        GREATER(">"),
+        GREATER_OR_EQUAL(">="),
+        CONTAINS("contains"),
+        DOES_NOT_CONTAIN("doesNotContain"),
+        DERIVED_FROM("derivedfrom"),
+        EXISTS("exists");
+
+        private final String symbol;
+
+        /**
+         * Instantiates a new operator.
+         *
+         * @param symbol operator symbol in search criteria
+         */
+        Operator(final String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * Get relational operator by symbol.
+         *
+         * @param symbol operator symbol, case insensitive
+         * @return relational operator or null if symbol is not a relational operator
+         */
+        public static Operator getRelationalOperator(final String symbol) {
+            for (Operator op : values()) {
+                if (op.ordinal() > OR.ordinal() && op.symbol.equalsIgnoreCase(symbol)) {
+                    return op;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Get operator symbol.
+         *
+         * @return operator symbol
+         */
+        public String getSymbol() {
+            return symbol;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.search;
+
+import net.holmes.core.business.media.search.SearchCriteria.Operator;
+
+/**
+ * Parser for UPnP ContentDirectory:1 search criteria.
+ * <pre>
+ * searchCrit ::= searchExp | '*'
+ * searchExp  ::= relExp | searchExp logOp searchExp | '(' searchExp ')'
+ * logOp      ::= 'and' | 'or'
+ * relExp     ::= property binOp quotedVal | property 'exists' boolVal
+ * binOp      ::= '=' | '!=' | '&lt;' | '&lt;=' | '&gt;' | '&gt;=' | 'contains' | 'doesNotContain' | 'derivedfrom'
+ * </pre>
+ * 'and' has precedence over 'or'. Empty criteria is accepted as '*'.
+ */
+public final class SearchCriteriaParser {
+    private final String criteria;
+    private int position;
+
+    /**
+     * Instantiates a new search criteria parser.
+     *
+     * @param criteria search criteria
+     */
+    private SearchCriteriaParser(final String criteria) {
+        this.criteria = criteria;
+        this.position = 0;
+    }
+
+    /**
+     * Parse search criteria.
+     *
+     * @param criteria search criteria
+     * @return parsed search criteria
+     * @throws InvalidSearchCriteriaException
+     */
+    public static SearchCriteria parse(final String criteria) throws InvalidSearchCriteriaException {
+        if (criteria == null || criteria.trim().isEmpty() || "*".equals(criteria.trim())) {
+            return SearchCriteria.all();
+        }
+
+        SearchCriteriaParser parser = new SearchCriteriaParser(criteria);
+        SearchCriteria searchCriteria = parser.parseOr();
+        String token = parser.nextToken();
+        if (token != null) {
+            throw new InvalidSearchCriteriaException(criteria, "unexpected " + token);
+        }
+        return searchCriteria;
+    }
+
+    /**
+     * Parse criteria combined with 'or' operator.
+     *
+     * @return search criteria
+     * @throws InvalidSearchCriteriaException
+     */
+    private SearchCriteria parseOr() throws InvalidSearchCriteriaException {
+        SearchCriteria searchCriteria = parseAnd();
+        while (Operator.OR.getSymbol().equalsIgnoreCase(peekToken())) {
+            nextToken();
+            searchCriteria = SearchCriteria.or(searchCriteria, parseAnd());
+        }
+        return searchCriteria;
+    }
+
+    /**
+     * Parse criteria combined with 'and' operator.
+     *
+     * @return search criteria
+     * @throws InvalidSearchCriteriaException
+     */
+    private SearchCriteria parseAnd() throws InvalidSearchCriteriaException {
+        SearchCriteria searchCriteria = parsePrimary();
+        while (Operator.AND.getSymbol().equalsIgnoreCase(peekToken())) {
+            nextToken();
+            searchCriteria = SearchCriteria.and(searchCriteria, parsePrimary());
+        }
+        return searchCriteria;
+    }
+
+    /**
+     * Parse a relational expression or a parenthesized expression.
+     *
+     * @return search criteria
+     * @throws InvalidSearchCriteriaException
+     */
+    private SearchCriteria parsePrimary() throws InvalidSearchCriteriaException {
+        String token = nextToken();
+        if ("(".equals(token)) {
+            SearchCriteria searchCriteria = parseOr();
+            if (!")".equals(nextToken())) {
+                throw new InvalidSearchCriteriaException(criteria, "missing )");
+            }
+            return searchCriteria;
+        } else if (token == null || ")".equals(token) || token.startsWith("\"")) {
+            throw new InvalidSearchCriteriaException(criteria, "property expected at " + position);
+        }
+
+        // Relational expression
+        Operator operator = Operator.getRelationalOperator(nextToken());
+        if (operator == null) {
+            throw new InvalidSearchCriteriaException(criteria, "operator expected after " + token);
+        }
+        String value = nextToken();
+        if (operator == Operator.EXISTS) {
+            if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+                throw new InvalidSearchCriteriaException(criteria, "boolean expected after exists");
+            }
+            return SearchCriteria.relation(token, operator, value);
+        } else if (value == null || !value.startsWith("\"")) {
+            throw new InvalidSearchCriteriaException(criteria, "quoted value expected after " + operator.getSymbol());
+        }
+        return SearchCriteria.relation(token, operator, unquote(value));
+    }
+
+    /**
+     * Get next token without consuming it.
+     *
+     * @return next token or null at end of criteria
+     * @throws InvalidSearchCriteriaException
+     */
+    private String peekToken() throws InvalidSearchCriteriaException {
+        int start = position;
+        String token = nextToken();
+        position = start;
+        return token;
+    }
+
+    /**
+     * Consume next token: parenthesis, quoted value (quotes included), operator symbol or word.
+     *
+     * @return next token or null at end of criteria
+     * @throws InvalidSearchCriteriaException
+     */
+    private String nextToken() throws InvalidSearchCriteriaException {
+        while (position < criteria.length() && Character.isWhitespace(criteria.charAt(position))) {
+            position++;
+        }
+        if (position >= criteria.length()) {
+            return null;
+        }
+
+        int start = position;
+        char c = criteria.charAt(position);
+        if (c == '(' || c == ')') {
+            position++;
+        } else if (c == '"') {
+            // Quoted value, with \" and \\ escapes
+            position++;
+            while (position < criteria.length() && criteria.charAt(position) != '"') {
+                position += criteria.charAt(position) == '\\' ? 2 : 1;
+            }
+            if (position >= criteria.length()) {
+                throw new InvalidSearchCriteriaException(criteria, "unterminated quoted value");
+            }
+            position++;
+        } else if (isOperatorChar(c)) {
+            while (position < criteria.length() && isOperatorChar(criteria.charAt(position))) {
+                position++;
+            }
+        } else {
+            while (position < criteria.length() && isWordChar(criteria.charAt(position))) {
+                position++;
+            }
+        }
+        return criteria.substring(start, position);
+    }
+
+    /**
+     * Remove quotes and escapes from a quoted value.
+     *
+     * @param quotedValue quoted value
+     * @return value
+     */
+    private static String unquote(final String quotedValue) {
+        StringBuilder value = new StringBuilder(quotedValue.length());
+        for (int i = 1; i < quotedValue.length() - 1; i++) {
+            char c = quotedValue.charAt(i);
+            if (c == '\\' && i + 1 < quotedValue.length() - 1) {
+                c = quotedValue.charAt(++i);
+            }
+            value.append(c);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Whether a character belongs to a relational operator symbol.
+     *
+     * @param c character
+     * @return true for operator character
+     */
+    private static boolean isOperatorChar(final char c) {
+        return c == '=' || c == '!' || c == '<' || c == '>';
+    }
+
+    /**
+     * Whether a character belongs to a word: property, word operator or boolean value.
+     *
+     * @param c character
+     * @return true for word character
+     */
+    private static boolean isWordChar(final char c) {
+        return !Character.isWhitespace(c) && c != '(' && c != ')' && c != '"' && !isOperatorChar(c);
+    }
+}
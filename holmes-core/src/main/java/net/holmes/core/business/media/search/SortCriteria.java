@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.search;
+
+import com.google.common.collect.ImmutableList;
+import net.holmes.core.business.media.model.AbstractNode;
+import net.holmes.core.common.FileEntry;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static net.holmes.core.business.media.model.AbstractNode.NodeType.TYPE_FOLDER;
+import static net.holmes.core.business.media.search.SearchCriteria.PROPERTY_TITLE;
+import static net.holmes.core.common.NaturalOrderComparator.NATURAL_ORDER;
+
+/**
+ * Sort criteria, as defined by UPnP ContentDirectory:1: comma separated properties, each one prefixed by + (ascending) or - (descending).
+ * Supported properties are dc:title, compared in natural order, and dc:date.
+ * Folders are always sorted before other nodes, like {@link AbstractNode#compareTo(AbstractNode)} does.
+ */
+public final class SortCriteria {
+    public static final String PROPERTY_DATE = "dc:date";
+    public static final SortCriteria NONE = new SortCriteria(ImmutableList.<SortKey>of());
+
+    private final List<SortKey> sortKeys;
+
+    /**
+     * Instantiates a new sort criteria.
+     *
+     * @param sortKeys sort keys
+     */
+    private SortCriteria(final List<SortKey> sortKeys) {
+        this.sortKeys = sortKeys;
+    }
+
+    /**
+     * Parse sort criteria.
+     *
+     * @param criteria sort criteria
+     * @return parsed sort criteria, {@link #NONE} for empty criteria
+     * @throws InvalidSortCriteriaException
+     */
+    public static SortCriteria parse(final String criteria) throws InvalidSortCriteriaException {
+        if (criteria == null || criteria.trim().isEmpty()) {
+            return NONE;
+        }
+
+        ImmutableList.Builder<SortKey> sortKeys = ImmutableList.builder();
+        for (String criterion : criteria.split(",")) {
+            String property = criterion.trim();
+            boolean ascending = true;
+            if (property.startsWith("+") || property.startsWith("-")) {
+                ascending = property.charAt(0) == '+';
+                property = property.substring(1).trim();
+            }
+            if (!PROPERTY_TITLE.equals(property) && !PROPERTY_DATE.equals(property)) {
+                throw new InvalidSortCriteriaException(criteria, "unsupported property " + property);
+            }
+            sortKeys.add(new SortKey(property, ascending));
+        }
+        return new SortCriteria(sortKeys.build());
+    }
+
+    /**
+     * Whether nodes are kept in their original order.
+     *
+     * @return true if no sort is requested
+     */
+    public boolean isNone() {
+        return sortKeys.isEmpty();
+    }
+
+    /**
+     * Get node comparator.
+     *
+     * @return node comparator
+     */
+    public Comparator<AbstractNode> getNodeComparator() {
+        return new Comparator<AbstractNode>() {
+            @Override
+            public int compare(final AbstractNode node1, final AbstractNode node2) {
+                return SortCriteria.this.compare(node1.getType() == TYPE_FOLDER, node1.getName(), node1.getModifiedDate(),
+                        node2.getType() == TYPE_FOLDER, node2.getName(), node2.getModifiedDate());
+            }
+        };
+    }
+
+    /**
+     * Get file entry comparator. File entries are sorted like the nodes built from them.
+     *
+     * @return file entry comparator
+     */
+    public Comparator<FileEntry> getFileEntryComparator() {
+        return new Comparator<FileEntry>() {
+            @Override
+            public int compare(final FileEntry entry1, final FileEntry entry2) {
+                return SortCriteria.this.compare(entry1.isDirectory(), entry1.getName(), entry1.getAttributes().lastModifiedTime().toMillis(),
+                        entry2.isDirectory(), entry2.getName(), entry2.getAttributes().lastModifiedTime().toMillis());
+            }
+        };
+    }
+
+    /**
+     * Compare two nodes.
+     *
+     * @param folder1 whether first node is a folder
+     * @param name1   first node name
+     * @param date1   first node date, may be null
+     * @param folder2 whether second node is a folder
+     * @param name2   second node name
+     * @param date2   second node date, may be null
+     * @return comparison result
+     */
+    private int compare(final boolean folder1, final String name1, final Long date1, final boolean folder2, final String name2, final Long date2) {
+        if (folder1 != folder2) {
+            return folder1 ? -1 : 1;
+        }
+        for (SortKey sortKey : sortKeys) {
+            int result;
+            if (PROPERTY_TITLE.equals(sortKey.property)) {
+                result = NATURAL_ORDER.compare(String.valueOf(name1), String.valueOf(name2));
+            } else {
+                // Nodes without date are sorted first
+                result = Long.compare(date1 != null ? date1 : Long.MIN_VALUE, date2 != null ? date2 : Long.MIN_VALUE);
+            }
+            if (result != 0) {
+                return sortKey.ascending ? result : -result;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return sortKeys.hashCode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return sortKeys.equals(((SortCriteria) obj).sortKeys);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("sortKeys", sortKeys)
+                .toString();
+    }
+
+    /**
+     * Sort key: property and direction.
+     */
+    private static final class SortKey {
+        private final String property;
+        private final boolean ascending;
+
+        /**
+         * Instantiates a new sort key.
+         *
+         * @param property  sorted property
+         * @param ascending true for ascending order
+         */
+        SortKey(final String property, final boolean ascending) {
+            this.property = property;
+            this.ascending = ascending;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(property, ascending);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            SortKey other = (SortKey) obj;
+            return property.equals(other.property) && ascending == other.ascending;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return (ascending ? "+" : "-") + property;
+        }
+    }
+}
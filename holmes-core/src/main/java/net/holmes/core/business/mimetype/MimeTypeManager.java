@@ -18,6 +18,7 @@
 package net.holmes.core.business.mimetype;
 
 import net.holmes.core.business.mimetype.model.MimeType;
+import net.holmes.core.business.mimetype.model.MimeTypeProfile;
 
 import java.util.Collection;
 
@@ -42,4 +43,13 @@ public interface MimeTypeManager {
      * @return true if mime type is compliant with available mimeTypes
      */
     boolean isMimeTypeCompliant(MimeType mimeType, Collection<String> availableMimeTypes);
+
+    /**
+     * Get compiled mime type profile of available mime types.
+     * Profiles are cached: checking a mime type against a profile does not scan available mime types.
+     *
+     * @param availableMimeTypes list of available mime types
+     * @return mime type profile
+     */
+    MimeTypeProfile getProfile(Collection<String> availableMimeTypes);
 }
@@ -17,21 +17,31 @@
 
 package net.holmes.core.business.mimetype;
 
+import com.google.common.cache.Cache;
 import net.holmes.core.business.mimetype.dao.MimeTypeDao;
 import net.holmes.core.business.mimetype.model.MimeType;
+import net.holmes.core.business.mimetype.model.MimeTypeProfile;
+import net.holmes.core.common.exception.HolmesRuntimeException;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.Collection;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static com.google.common.cache.CacheBuilder.newBuilder;
 
 /**
  * Mime type manager implementation.
  */
 @Singleton
 public final class MimeTypeManagerImpl implements MimeTypeManager {
+    private static final int PROFILE_CACHE_MAX_ELEMENTS = 64;
+
     private final MimeTypeDao mimeTypeDao;
+    private final MimeTypeProfile anyMimeTypeProfile;
+    private final Cache<List<String>, MimeTypeProfile> profileCache;
 
     /**
      * Instantiates a new mime type manager implementation.
@@ -41,6 +51,10 @@ public final class MimeTypeManagerImpl implements MimeTypeManager {
     @Inject
     public MimeTypeManagerImpl(final MimeTypeDao mimeTypeDao) {
         this.mimeTypeDao = mimeTypeDao;
+        this.anyMimeTypeProfile = compileProfile(null);
+        this.profileCache = newBuilder()
+                .maximumSize(PROFILE_CACHE_MAX_ELEMENTS)
+                .build();
     }
 
     /**
@@ -61,6 +75,46 @@ public final class MimeTypeManagerImpl implements MimeTypeManager {
                 || isAliasMimeTypeCompliant(mimeType, availableMimeTypes);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MimeTypeProfile getProfile(final Collection<String> availableMimeTypes) {
+        if (availableMimeTypes == null || availableMimeTypes.isEmpty()) {
+            return anyMimeTypeProfile;
+        }
+
+        // Renderers sharing the same available mime types share the same profile
+        final List<String> profileKey = new ArrayList<>(availableMimeTypes);
+        try {
+            return profileCache.get(profileKey, new Callable<MimeTypeProfile>() {
+                @Override
+                public MimeTypeProfile call() {
+                    return compileProfile(profileKey);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new HolmesRuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Compile mime type profile: check once every registered mime type against available mime types.
+     *
+     * @param availableMimeTypes available mime types
+     * @return mime type profile
+     */
+    private MimeTypeProfile compileProfile(final Collection<String> availableMimeTypes) {
+        Map<String, MimeType> registry = mimeTypeDao.getMimeTypes();
+        BitSet compliantOrdinals = new BitSet(registry.size());
+        for (MimeType mimeType : registry.values()) {
+            if (isMimeTypeCompliant(mimeType, availableMimeTypes)) {
+                compliantOrdinals.set(mimeType.getOrdinal());
+            }
+        }
+        return new MimeTypeProfile(availableMimeTypes, registry, compliantOrdinals);
+    }
+
     /**
      * Check if alias mime type is compliant with available mime types
      *
@@ -92,6 +146,4 @@ public final class MimeTypeManagerImpl implements MimeTypeManager {
         }
         return false;
     }
-
-
 }
@@ -19,6 +19,8 @@ package net.holmes.core.business.mimetype.dao;
 
 import net.holmes.core.business.mimetype.model.MimeType;
 
+import java.util.Map;
+
 /**
  * Mime type dao.
  */
@@ -38,4 +40,11 @@ public interface MimeTypeDao {
      * @return alias mime type or null
      */
     MimeType getAliasMimeType(MimeType mimeType);
+
+    /**
+     * Gets registered mime types: mime types of file extensions and aliases, with their ordinals.
+     *
+     * @return registered mime types by mime type string
+     */
+    Map<String, MimeType> getMimeTypes();
 }
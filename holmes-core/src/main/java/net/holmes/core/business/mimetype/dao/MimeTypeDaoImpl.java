@@ -17,6 +17,7 @@
 
 package net.holmes.core.business.mimetype.dao;
 
+import com.google.common.collect.ImmutableMap;
 import net.holmes.core.business.mimetype.model.MimeType;
 import net.holmes.core.common.exception.HolmesRuntimeException;
 
@@ -25,7 +26,7 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Properties;
+import java.util.*;
 
 import static com.google.common.io.Files.getFileExtension;
 
@@ -35,6 +36,7 @@ import static com.google.common.io.Files.getFileExtension;
 @Singleton
 public final class MimeTypeDaoImpl implements MimeTypeDao {
     private final Properties properties;
+    private final Map<String, MimeType> registeredMimeTypes;
 
     /**
      * Instantiates a new mime type dao implementation.
@@ -54,6 +56,27 @@ public final class MimeTypeDaoImpl implements MimeTypeDao {
             throw new HolmesRuntimeException(e);
         }
 
+        // Register mime types of file extensions and aliases once, with their ordinals
+        Map<String, MimeType> registry = new LinkedHashMap<>();
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            register(registry, properties.getProperty(key));
+            if (key.indexOf('/') >= 0) {
+                register(registry, key);
+            }
+        }
+        registeredMimeTypes = ImmutableMap.copyOf(registry);
+    }
+
+    /**
+     * Register a mime type.
+     *
+     * @param registry mime type registry
+     * @param mimeType mime type string
+     */
+    private static void register(final Map<String, MimeType> registry, final String mimeType) {
+        if (!registry.containsKey(mimeType)) {
+            registry.put(mimeType, MimeType.registered(mimeType, registry.size()));
+        }
     }
 
     /**
@@ -62,7 +85,7 @@ public final class MimeTypeDaoImpl implements MimeTypeDao {
     @Override
     public MimeType getMimeType(final String fileName) {
         // Get mime type from fileName extension
-        return MimeType.valueOf(properties.getProperty(getFileExtension(fileName).toLowerCase()));
+        return getRegisteredMimeType(properties.getProperty(getFileExtension(fileName).toLowerCase()));
     }
 
     /**
@@ -70,6 +93,24 @@ public final class MimeTypeDaoImpl implements MimeTypeDao {
      */
     @Override
     public MimeType getAliasMimeType(final MimeType mimeType) {
-        return MimeType.valueOf(properties.getProperty(mimeType.getMimeType()));
+        return getRegisteredMimeType(properties.getProperty(mimeType.getMimeType()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, MimeType> getMimeTypes() {
+        return registeredMimeTypes;
+    }
+
+    /**
+     * Get registered mime type.
+     *
+     * @param mimeType mime type string
+     * @return registered mime type or null
+     */
+    private MimeType getRegisteredMimeType(final String mimeType) {
+        return mimeType != null ? registeredMimeTypes.get(mimeType) : null;
     }
 }
@@ -30,20 +30,23 @@ import static net.holmes.core.common.MediaType.*;
  * Mime type.
  */
 public final class MimeType {
-    public static final MimeType MIME_TYPE_SUBTITLE = new MimeType("application/x-subrip");
-    public static final MimeType MIME_TYPE_OGG = new MimeType("application/ogg");
+    public static final MimeType MIME_TYPE_SUBTITLE = valueOf("application/x-subrip");
+    public static final MimeType MIME_TYPE_OGG = valueOf("application/ogg");
 
     private final MediaType type;
     private final String subType;
     private final String mimeType;
+    private final int ordinal;
 
     /**
      * Instantiates a new mime type.
      *
      * @param mimeType mime type
+     * @param ordinal  ordinal in mime type registry, -1 for an unregistered mime type
      */
-    private MimeType(final String mimeType) {
+    private MimeType(final String mimeType, final int ordinal) {
         this.mimeType = mimeType;
+        this.ordinal = ordinal;
         Iterable<String> mimeTypePart = Splitter.on('/').split(mimeType);
         this.type = MediaType.getByValue(getFirst(mimeTypePart, ""));
         this.subType = getLast(mimeTypePart, "");
@@ -56,7 +59,18 @@ public final class MimeType {
      * @return mime type or null
      */
     public static MimeType valueOf(final String mimeType) {
-        return mimeType == null ? null : new MimeType(mimeType);
+        return mimeType == null ? null : new MimeType(mimeType, -1);
+    }
+
+    /**
+     * Get a registered mime type, with its ordinal in mime type registry.
+     *
+     * @param mimeType mime type string
+     * @param ordinal  ordinal in mime type registry
+     * @return registered mime type
+     */
+    public static MimeType registered(final String mimeType, final int ordinal) {
+        return new MimeType(mimeType, ordinal);
     }
 
     /**
@@ -77,6 +91,15 @@ public final class MimeType {
         return this.subType;
     }
 
+    /**
+     * Gets ordinal in mime type registry.
+     *
+     * @return ordinal or -1 for an unregistered mime type
+     */
+    public int getOrdinal() {
+        return this.ordinal;
+    }
+
     /**
      * Gets the type.
      *
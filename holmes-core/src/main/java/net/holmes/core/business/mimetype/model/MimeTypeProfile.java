@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.mimetype.model;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+/**
+ * Mime type profile of a renderer: compliance of registered mime types with renderer available mime types.
+ * <p>
+ * Profile is compiled once: wildcards and aliases are resolved for each registered mime type,
+ * so that checking a registered mime type is a bit test.
+ * Mime types built out of registry are resolved through registry by mime type string.
+ * Unknown mime types, which have no alias, are checked against available mime types and wildcards.
+ * </p>
+ */
+public final class MimeTypeProfile {
+    private static final String ANY_MIME_TYPE = "*/*";
+    private static final String WILDCARD_SUFFIX = "/*";
+
+    private final boolean acceptAll;
+    private final Map<String, MimeType> registry;
+    private final BitSet compliantOrdinals;
+    private final Set<String> mimeTypes;
+    private final Set<String> wildcardTypes;
+
+    /**
+     * Instantiates a new mime type profile.
+     *
+     * @param availableMimeTypes available mime types (mime types may contain wildcard), null or empty for any mime type
+     * @param registry           registered mime types by mime type string
+     * @param compliantOrdinals  ordinals of registered mime types compliant with available mime types
+     */
+    public MimeTypeProfile(final Collection<String> availableMimeTypes, final Map<String, MimeType> registry, final BitSet compliantOrdinals) {
+        this.registry = registry;
+        this.compliantOrdinals = (BitSet) compliantOrdinals.clone();
+        Set<String> wildcards = new HashSet<>();
+        boolean any = availableMimeTypes == null || availableMimeTypes.isEmpty();
+        if (availableMimeTypes != null) {
+            for (String availableMimeType : availableMimeTypes) {
+                if (ANY_MIME_TYPE.equals(availableMimeType)) {
+                    any = true;
+                } else if (availableMimeType != null && availableMimeType.endsWith(WILDCARD_SUFFIX)) {
+                    wildcards.add(availableMimeType.substring(0, availableMimeType.length() - WILDCARD_SUFFIX.length()));
+                }
+            }
+            this.mimeTypes = ImmutableSet.copyOf(availableMimeTypesWithoutNull(availableMimeTypes));
+        } else {
+            this.mimeTypes = ImmutableSet.of();
+        }
+        this.acceptAll = any;
+        this.wildcardTypes = ImmutableSet.copyOf(wildcards);
+    }
+
+    /**
+     * Check mime type is compliant with profile.
+     *
+     * @param mimeType mime type to check
+     * @return true if mime type is compliant
+     */
+    public boolean isCompliant(final MimeType mimeType) {
+        if (acceptAll || mimeType == null || isNullOrEmpty(mimeType.getMimeType())) {
+            return true;
+        }
+        MimeType registeredMimeType = mimeType.getOrdinal() >= 0 ? mimeType : registry.get(mimeType.getMimeType());
+        if (registeredMimeType != null) {
+            return compliantOrdinals.get(registeredMimeType.getOrdinal());
+        }
+        return mimeTypes.contains(mimeType.getMimeType()) || wildcardTypes.contains(mimeType.getType().getValue());
+    }
+
+    /**
+     * Remove null values from available mime types.
+     *
+     * @param availableMimeTypes available mime types
+     * @return available mime types without null values
+     */
+    private static Set<String> availableMimeTypesWithoutNull(final Collection<String> availableMimeTypes) {
+        Set<String> result = new HashSet<>(availableMimeTypes);
+        result.remove(null);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("acceptAll", acceptAll)
+                .add("compliantOrdinals", compliantOrdinals)
+                .add("mimeTypes", mimeTypes)
+                .add("wildcardTypes", wildcardTypes)
+                .toString();
+    }
+}
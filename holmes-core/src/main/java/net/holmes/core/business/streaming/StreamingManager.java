@@ -45,6 +45,14 @@ public interface StreamingManager {
      */
     void removeDevice(String deviceId);
 
+    /**
+     * Get device update id: changes each time a device is added or removed.
+     * It allows callers to cache data computed from devices until devices change.
+     *
+     * @return device update id
+     */
+    long getDeviceUpdateId();
+
     /**
      * Find devices.
      *
@@ -38,6 +38,7 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static net.holmes.core.business.streaming.session.SessionStatus.*;
@@ -55,6 +56,7 @@ public final class StreamingManagerImpl implements StreamingManager {
     private final SessionDao sessionDao;
     private final DeviceStreamer upnpStreamer;
     private final DeviceStreamer airplayStreamer;
+    private final AtomicLong deviceUpdateId = new AtomicLong();
 
     /**
      * Instantiates a new streaming manager implementation.
@@ -85,6 +87,7 @@ public final class StreamingManagerImpl implements StreamingManager {
     public void addDevice(final Device device) {
         LOGGER.info("Add device {}", device);
         deviceDao.addDevice(device);
+        deviceUpdateId.incrementAndGet();
     }
 
     /**
@@ -95,9 +98,18 @@ public final class StreamingManagerImpl implements StreamingManager {
         if (deviceDao.removeDevice(deviceId)) {
             LOGGER.info("Remove device {}", deviceId);
             sessionDao.removeDevice(deviceId);
+            deviceUpdateId.incrementAndGet();
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getDeviceUpdateId() {
+        return deviceUpdateId.get();
+    }
+
     /**
      * {@inheritDoc}
      */
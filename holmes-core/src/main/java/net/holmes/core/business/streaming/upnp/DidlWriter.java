@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.streaming.upnp;
+
+import net.holmes.core.business.media.model.AbstractNode;
+import net.holmes.core.business.mimetype.model.MimeType;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.text.SimpleDateFormat;
+
+import static net.holmes.core.business.mimetype.model.MimeType.MIME_TYPE_OGG;
+import static net.holmes.core.business.mimetype.model.MimeType.MIME_TYPE_SUBTITLE;
+
+/**
+ * Streaming DIDL-Lite writer.
+ * <p>
+ * Items and containers are written straight into a character buffer, instead of building a DIDL object graph
+ * serialized through a DOM. Each node is written like Cling DIDLParser writes it: same namespace declarations,
+ * elements and attributes order, escaping and empty elements.
+ * </p>
+ * <p>
+ * Nodes are written in the order they are added, whereas DIDLParser writes all containers before items:
+ * output only equals DIDLParser output when containers are added first.
+ * </p>
+ * A writer is not thread safe. It can be reused for another document after {@link #reset()}.
+ */
+public final class DidlWriter {
+    public static final String MOVIE_CLASS = "object.item.videoItem.movie";
+    public static final String MUSIC_TRACK_CLASS = "object.item.audioItem.musicTrack";
+    public static final String PHOTO_CLASS = "object.item.imageItem.photo";
+    public static final String TEXT_ITEM_CLASS = "object.item.textItem";
+    public static final String CONTAINER_CLASS = "object.container";
+
+    private static final String UPNP_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ssZ";
+    private static final String DIDL_LITE_START = "<DIDL-Lite xmlns=\"urn:schemas-upnp-org:metadata-1-0/DIDL-Lite/\""
+            + " xmlns:dc=\"http://purl.org/dc/elements/1.1/\" xmlns:sec=\"http://www.sec.co.kr/\""
+            + " xmlns:upnp=\"urn:schemas-upnp-org:metadata-1-0/upnp/\"";
+    private static final String DIDL_LITE_END = "</DIDL-Lite>";
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    private final StringBuilder buffer;
+    private SimpleDateFormat dateFormat;
+    private int nodeCount;
+
+    /**
+     * Instantiates a new DIDL-Lite writer.
+     */
+    public DidlWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instantiates a new DIDL-Lite writer.
+     *
+     * @param capacity initial buffer capacity
+     */
+    public DidlWriter(final int capacity) {
+        this.buffer = new StringBuilder(capacity);
+        reset();
+    }
+
+    /**
+     * Get UPnP class of an item.
+     *
+     * @param mimeType item mime type
+     * @return UPnP class or null if mime type cannot be published as an item
+     */
+    public static String getItemClass(final MimeType mimeType) {
+        switch (mimeType.getType()) {
+            case TYPE_VIDEO:
+                return MOVIE_CLASS;
+            case TYPE_AUDIO:
+                return MUSIC_TRACK_CLASS;
+            case TYPE_IMAGE:
+                return PHOTO_CLASS;
+            default:
+                if (mimeType.equals(MIME_TYPE_SUBTITLE)) {
+                    return TEXT_ITEM_CLASS;
+                } else if (mimeType.equals(MIME_TYPE_OGG)) {
+                    return MUSIC_TRACK_CLASS;
+                }
+                return null;
+        }
+    }
+
+    /**
+     * Get protocol info of an HTTP resource.
+     *
+     * @param mimeType resource mime type
+     * @return protocol info
+     */
+    public static String getProtocolInfo(final MimeType mimeType) {
+        return "http-get:*:" + mimeType.getType().getValue() + "/" + mimeType.getSubType() + ":*";
+    }
+
+    /**
+     * Clear writer, to write a new document into the same buffer.
+     */
+    public void reset() {
+        buffer.setLength(0);
+        buffer.append(DIDL_LITE_START);
+        nodeCount = 0;
+    }
+
+    /**
+     * Get number of written items and containers.
+     *
+     * @return node count
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Write an item.
+     *
+     * @param parentNodeId parent node id
+     * @param node         node
+     * @param title        item title
+     * @param upnpClass    item UPnP class
+     * @param mimeType     resource mime type
+     * @param size         resource size, may be null
+     * @param duration     resource duration, may be null
+     * @param url          resource url
+     * @throws URISyntaxException when node icon url is not valid
+     */
+    public void writeItem(final String parentNodeId, final AbstractNode node, final String title, final String upnpClass, final MimeType mimeType,
+                          final Long size, final String duration, final String url) throws URISyntaxException {
+        String iconUrl = getIconUrl(node);
+        startNode();
+        buffer.append("<item id=\"");
+        appendEscaped(node.getId(), true);
+        buffer.append("\" parentID=\"");
+        appendEscaped(parentNodeId, true);
+        buffer.append("\" restricted=\"1\">");
+        appendElement("dc:title", title);
+        appendElement("upnp:class", upnpClass);
+        appendMetadata(node, iconUrl);
+
+        // Resource, attributes in lexical order
+        buffer.append("<res");
+        if (duration != null) {
+            buffer.append(" duration=\"");
+            appendEscaped(duration, true);
+            buffer.append('"');
+        }
+        buffer.append(" protocolInfo=\"");
+        appendEscaped(getProtocolInfo(mimeType), true);
+        buffer.append('"');
+        if (size != null) {
+            buffer.append(" size=\"").append(size).append('"');
+        }
+        appendContent("res", url);
+        buffer.append("</item>");
+    }
+
+    /**
+     * Write a searchable container.
+     *
+     * @param parentNodeId parent node id
+     * @param node         container node
+     * @param childCount   child count
+     * @throws URISyntaxException when node icon url is not valid
+     */
+    public void writeContainer(final String parentNodeId, final AbstractNode node, final int childCount) throws URISyntaxException {
+        String iconUrl = getIconUrl(node);
+        startNode();
+        buffer.append("<container childCount=\"").append(childCount).append("\" id=\"");
+        appendEscaped(node.getId(), true);
+        buffer.append("\" parentID=\"");
+        appendEscaped(parentNodeId, true);
+        buffer.append("\" restricted=\"1\" searchable=\"1\">");
+        appendElement("dc:title", node.getName());
+        appendElement("upnp:class", CONTAINER_CLASS);
+        appendMetadata(node, iconUrl);
+        buffer.append("</container>");
+    }
+
+    /**
+     * Get DIDL-Lite document.
+     *
+     * @return DIDL-Lite document
+     */
+    public String toDidl() {
+        int length = buffer.length();
+        String didl = buffer.append(nodeCount > 0 ? DIDL_LITE_END : "/>").toString();
+        buffer.setLength(length);
+        return didl;
+    }
+
+    /**
+     * Close DIDL-Lite start tag before first node.
+     */
+    private void startNode() {
+        if (nodeCount == 0) {
+            buffer.append('>');
+        }
+        nodeCount++;
+    }
+
+    /**
+     * Get icon url of a node, checking it is a valid URI.
+     *
+     * @param node node
+     * @return icon url or null
+     * @throws URISyntaxException when icon url is not valid
+     */
+    private static String getIconUrl(final AbstractNode node) throws URISyntaxException {
+        return node.getIconUrl() != null ? new URI(node.getIconUrl()).toString() : null;
+    }
+
+    /**
+     * Append node metadata: upnp properties first, then dc properties.
+     *
+     * @param node    node
+     * @param iconUrl node icon url, may be null
+     */
+    private void appendMetadata(final AbstractNode node, final String iconUrl) {
+        if (iconUrl != null) {
+            appendElement("upnp:icon", iconUrl);
+        }
+        if (node.getModifiedDate() != null) {
+            if (dateFormat == null) {
+                dateFormat = new SimpleDateFormat(UPNP_DATE_FORMAT);
+            }
+            appendElement("dc:date", dateFormat.format(node.getModifiedDate()));
+        }
+    }
+
+    /**
+     * Append an element with text content.
+     *
+     * @param name    element name
+     * @param content element content
+     */
+    private void appendElement(final String name, final String content) {
+        if (content != null) {
+            buffer.append('<').append(name);
+            appendContent(name, content);
+        }
+    }
+
+    /**
+     * Append element content and end tag to an open start tag. Empty elements are closed at once.
+     *
+     * @param name    element name
+     * @param content element content
+     */
+    private void appendContent(final String name, final String content) {
+        if (content == null || content.isEmpty()) {
+            buffer.append("/>");
+        } else {
+            buffer.append('>');
+            appendEscaped(content, false);
+            buffer.append("</").append(name).append('>');
+        }
+    }
+
+    /**
+     * Append escaped text or attribute value.
+     *
+     * @param value     value
+     * @param attribute whether value is an attribute value
+     */
+    private void appendEscaped(final String value, final boolean attribute) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    buffer.append("&amp;");
+                    break;
+                case '<':
+                    buffer.append("&lt;");
+                    break;
+                case '>':
+                    buffer.append("&gt;");
+                    break;
+                case '"':
+                    buffer.append(attribute ? "&quot;" : "\"");
+                    break;
+                case '\n':
+                case '\t':
+                    if (attribute) {
+                        buffer.append("&#").append((int) c).append(';');
+                    } else {
+                        buffer.append(c);
+                    }
+                    break;
+                default:
+                    if (c < 0x20) {
+                        buffer.append("&#").append((int) c).append(';');
+                    } else {
+                        buffer.append(c);
+                    }
+                    break;
+            }
+        }
+    }
+}
@@ -21,25 +21,22 @@ import com.google.common.eventbus.EventBus;
 import com.google.inject.Inject;
 import net.holmes.core.business.media.model.AbstractNode;
 import net.holmes.core.business.media.model.ContentNode;
+import net.holmes.core.business.mimetype.model.MimeType;
 import net.holmes.core.business.streaming.device.DeviceStreamer;
 import net.holmes.core.business.streaming.upnp.command.*;
 import net.holmes.core.business.streaming.upnp.device.UpnpDevice;
 import net.holmes.core.common.exception.HolmesException;
 import org.fourthline.cling.UpnpService;
 import org.fourthline.cling.controlpoint.ControlPoint;
-import org.fourthline.cling.support.contentdirectory.DIDLParser;
 import org.fourthline.cling.support.model.*;
-import org.fourthline.cling.support.model.item.Item;
-import org.fourthline.cling.support.model.item.Movie;
-import org.fourthline.cling.support.model.item.MusicTrack;
-import org.fourthline.cling.support.model.item.Photo;
 import org.slf4j.Logger;
 
 import javax.inject.Singleton;
+import java.net.URISyntaxException;
 
 import static net.holmes.core.business.streaming.event.StreamingEvent.StreamingEventType;
 import static net.holmes.core.business.streaming.event.StreamingEvent.StreamingEventType.*;
-import static net.holmes.core.business.streaming.upnp.UpnpUtils.getUpnpMimeType;
+import static net.holmes.core.business.streaming.upnp.DidlWriter.getItemClass;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -273,27 +270,18 @@ public final class UpnpStreamerImpl extends DeviceStreamer<UpnpDevice> {
      * @throws HolmesException
      */
     private String getContentNodeMetadata(final ContentNode contentNode, final String contentUrl) throws HolmesException {
-        Res res = new Res(getUpnpMimeType(contentNode.getMimeType()), contentNode.getSize(), contentUrl);
-        Item item = null;
-        switch (contentNode.getMimeType().getType()) {
-            case TYPE_VIDEO:
-                // Add video item
-                item = new Movie(contentNode.getId(), contentNode.getParentId(), contentNode.getName(), null, res);
-                break;
-            case TYPE_AUDIO:
-                // Add audio track item
-                item = new MusicTrack(contentNode.getId(), contentNode.getParentId(), contentNode.getName(), null, null, (String) null, res);
-                break;
-            case TYPE_IMAGE:
-                // Add image item
-                item = new Photo(contentNode.getId(), contentNode.getParentId(), contentNode.getName(), null, null, res);
-                break;
-            default:
-                break;
+        // Only video, audio track and image items are streamed
+        MimeType mimeType = contentNode.getMimeType();
+        String upnpClass = mimeType.isMedia() ? getItemClass(mimeType) : null;
+        if (upnpClass == null) {
+            return NOT_IMPLEMENTED;
         }
         try {
-            return item != null ? new DIDLParser().generate(new DIDLContent().addItem(item)) : NOT_IMPLEMENTED;
-        } catch (Exception e) {
+            DidlWriter didlWriter = new DidlWriter(512);
+            didlWriter.writeItem(contentNode.getParentId(), contentNode, contentNode.getName(), upnpClass, mimeType,
+                    contentNode.getSize(), null, contentUrl);
+            return didlWriter.toDidl();
+        } catch (URISyntaxException e) {
             throw new HolmesException(e);
         }
     }
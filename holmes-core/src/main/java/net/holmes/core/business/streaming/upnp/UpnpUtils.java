@@ -17,7 +17,6 @@
 
 package net.holmes.core.business.streaming.upnp;
 
-import net.holmes.core.business.mimetype.model.MimeType;
 import org.fourthline.cling.DefaultUpnpServiceConfiguration;
 import org.fourthline.cling.UpnpService;
 import org.fourthline.cling.UpnpServiceImpl;
@@ -49,17 +48,6 @@ public final class UpnpUtils {
         // Nothing
     }
 
-    /**
-     * Get Upnp mime type.
-     *
-     * @param mimeType mime type
-     * @return Upnp mime type
-     */
-    public static org.seamless.util.MimeType getUpnpMimeType(final MimeType mimeType) {
-        return new org.seamless.util.MimeType(mimeType.getType().getValue(), mimeType.getSubType());
-    }
-
-
     /**
      * Get Upnp device name associated to RemoteDevice
      *
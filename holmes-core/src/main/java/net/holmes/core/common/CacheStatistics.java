@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.common;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Cache statistics.
+ */
+public final class CacheStatistics {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long size;
+
+    /**
+     * Instantiates new cache statistics.
+     *
+     * @param hits      number of cache hits
+     * @param misses    number of cache misses
+     * @param evictions number of cache evictions
+     * @param size      number of elements in cache
+     */
+    public CacheStatistics(final long hits, final long misses, final long evictions, final long size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    /**
+     * Get number of cache hits.
+     *
+     * @return number of cache hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get number of cache misses.
+     *
+     * @return number of cache misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get cache hit rate.
+     *
+     * @return hit rate, between 0 and 1
+     */
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests > 0 ? (double) hits / requests : 0;
+    }
+
+    /**
+     * Get number of cache evictions.
+     *
+     * @return number of cache evictions
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get number of elements in cache.
+     *
+     * @return number of elements in cache
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("hits", hits)
+                .add("misses", misses)
+                .add("evictions", evictions)
+                .add("size", size)
+                .toString();
+    }
+}
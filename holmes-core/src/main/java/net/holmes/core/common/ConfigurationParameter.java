@@ -61,6 +61,91 @@ public abstract class ConfigurationParameter<T> {
      * Number of threads used by Netty NIO worker event loop group (O means that Netty uses a default value)
      */
     public static final ConfigurationIntParameter HTTP_SERVER_WORKER_THREADS = new ConfigurationIntParameter("http_server_worker_threads", 0);
+    /**
+     * Enable zero-copy transfer of streamed files (file region) on connections without TLS
+     */
+    public static final ConfigurationBooleanParameter HTTP_SERVER_ZERO_COPY_ENABLE = new ConfigurationBooleanParameter("enable_http_server_zero_copy", true);
+    /**
+     * Size of chunks read from streamed files when zero-copy transfer is not used (in bytes)
+     */
+    public static final ConfigurationIntParameter HTTP_SERVER_CHUNK_SIZE = new ConfigurationIntParameter("http_server_chunk_size", 8192);
+    /**
+     * Netty transport used by Http server: nio, epoll (Linux native transport) or auto (epoll when available)
+     */
+    public static final ConfigurationStringParameter HTTP_SERVER_TRANSPORT = new ConfigurationStringParameter("http_server_transport", "auto");
+    /**
+     * Enable one acceptor socket per boss thread bound with SO_REUSEPORT (epoll transport only).
+     * Disabled by default: with SO_REUSEPORT, a second Holmes instance silently binds the same port instead of failing
+     */
+    public static final ConfigurationBooleanParameter HTTP_SERVER_REUSE_PORT_ENABLE = new ConfigurationBooleanParameter("enable_http_server_reuse_port", false);
+    /**
+     * Enable TCP_NODELAY on Http connections
+     */
+    public static final ConfigurationBooleanParameter HTTP_SERVER_TCP_NO_DELAY_ENABLE = new ConfigurationBooleanParameter("enable_http_server_tcp_no_delay", true);
+    /**
+     * Socket send buffer size of Http connections (in bytes, 0 means that system default is used)
+     */
+    public static final ConfigurationIntParameter HTTP_SERVER_SEND_BUFFER_SIZE = new ConfigurationIntParameter("http_server_send_buffer_size", 0);
+    /**
+     * Pending outbound bytes above which an Http connection stops being writable (in bytes)
+     */
+    public static final ConfigurationIntParameter HTTP_SERVER_WRITE_BUFFER_HIGH_WATER_MARK = new ConfigurationIntParameter("http_server_write_buffer_high_water_mark", 65536);
+    /**
+     * Pending outbound bytes below which an Http connection becomes writable again (in bytes)
+     */
+    public static final ConfigurationIntParameter HTTP_SERVER_WRITE_BUFFER_LOW_WATER_MARK = new ConfigurationIntParameter("http_server_write_buffer_low_water_mark", 32768);
+
+    /**
+     * Media index parameters
+     */
+    /**
+     * Max number of media index elements before least recently used elements are evicted (0 for an unbounded media index)
+     */
+    public static final ConfigurationIntParameter MEDIA_INDEX_MAX_ELEMENTS = new ConfigurationIntParameter("media_index_max_elements", 0);
+    /**
+     * Delay between media index clean batches (in seconds, 0 disables media index clean)
+     */
+    public static final ConfigurationIntParameter MEDIA_INDEX_CLEAN_DELAY_SECONDS = new ConfigurationIntParameter("media_index_clean_delay_seconds", 1);
+    /**
+     * Max number of media index elements checked by a clean batch
+     */
+    public static final ConfigurationIntParameter MEDIA_INDEX_CLEAN_BATCH_SIZE = new ConfigurationIntParameter("media_index_clean_batch_size", 200);
+
+    /**
+     * Media scan parameters
+     */
+    /**
+     * Enable media scan: configured folders are scanned at startup and when added, so that media index is warm
+     */
+    public static final ConfigurationBooleanParameter MEDIA_SCAN_ENABLE = new ConfigurationBooleanParameter("enable_media_scan", true);
+    /**
+     * Number of threads scanning a same disk
+     */
+    public static final ConfigurationIntParameter MEDIA_SCAN_THREADS_PER_DISK = new ConfigurationIntParameter("media_scan_threads_per_disk", 2);
+    /**
+     * Max depth of scanned folders, relative to configured folder
+     */
+    public static final ConfigurationIntParameter MEDIA_SCAN_MAX_DEPTH = new ConfigurationIntParameter("media_scan_max_depth", 64);
+
+    /**
+     * Folder cache parameters
+     */
+    /**
+     * Max number of folder children kept in folder listing cache (0 disables folder listing cache)
+     */
+    public static final ConfigurationIntParameter FOLDER_CACHE_MAX_ENTRIES = new ConfigurationIntParameter("folder_cache_max_entries", 20000);
+
+    /**
+     * File watcher parameters
+     */
+    /**
+     * Enable file watcher: media index is updated when files are added or removed in configured folders
+     */
+    public static final ConfigurationBooleanParameter FILE_WATCHER_ENABLE = new ConfigurationBooleanParameter("enable_file_watcher", true);
+    /**
+     * Delay without file system event before changes are applied (in milliseconds)
+     */
+    public static final ConfigurationIntParameter FILE_WATCHER_BATCH_DELAY_MILLISECONDS = new ConfigurationIntParameter("file_watcher_batch_delay_milliseconds", 500);
 
     /**
      * Podcast management parameters
@@ -105,13 +190,38 @@ public abstract class ConfigurationParameter<T> {
      * UPnP service port
      */
     public static final ConfigurationIntParameter UPNP_SERVICE_PORT = new ConfigurationIntParameter("upnp_service_port", 5002);
+    /**
+     * Max number of browse results kept in UPnP browse cache (0 disables browse cache)
+     */
+    public static final ConfigurationIntParameter UPNP_BROWSE_CACHE_MAX_ELEMENTS = new ConfigurationIntParameter("upnp_browse_cache_max_elements", 500);
+    /**
+     * TTL for browse results in UPnP browse cache (in seconds)
+     */
+    public static final ConfigurationIntParameter UPNP_BROWSE_CACHE_EXPIRE_SECONDS = new ConfigurationIntParameter("upnp_browse_cache_expire_seconds", 60);
 
     public static final ImmutableList<ConfigurationParameter> PARAMETERS = ImmutableList.<ConfigurationParameter>of(
             AIRPLAY_STREAMING_ENABLE,
+            FILE_WATCHER_BATCH_DELAY_MILLISECONDS,
+            FILE_WATCHER_ENABLE,
+            FOLDER_CACHE_MAX_ENTRIES,
             HTTP_SERVER_PORT,
             HTTP_SERVER_CACHE_SECOND,
             HTTP_SERVER_BOSS_THREADS,
             HTTP_SERVER_WORKER_THREADS,
+            HTTP_SERVER_ZERO_COPY_ENABLE,
+            HTTP_SERVER_CHUNK_SIZE,
+            HTTP_SERVER_TRANSPORT,
+            HTTP_SERVER_REUSE_PORT_ENABLE,
+            HTTP_SERVER_TCP_NO_DELAY_ENABLE,
+            HTTP_SERVER_SEND_BUFFER_SIZE,
+            HTTP_SERVER_WRITE_BUFFER_HIGH_WATER_MARK,
+            HTTP_SERVER_WRITE_BUFFER_LOW_WATER_MARK,
+            MEDIA_INDEX_CLEAN_BATCH_SIZE,
+            MEDIA_INDEX_CLEAN_DELAY_SECONDS,
+            MEDIA_INDEX_MAX_ELEMENTS,
+            MEDIA_SCAN_ENABLE,
+            MEDIA_SCAN_MAX_DEPTH,
+            MEDIA_SCAN_THREADS_PER_DISK,
             PODCAST_CACHE_EXPIRE_HOURS,
             PODCAST_CACHE_MAX_ELEMENTS,
             PODCAST_PREPEND_ENTRY_NAME,
@@ -119,6 +229,8 @@ public abstract class ConfigurationParameter<T> {
             STREAMING_STATUS_UPDATE_DELAY_SECONDS,
             SYSTRAY_ENABLE,
             UPNP_ADD_SUBTITLE,
+            UPNP_BROWSE_CACHE_EXPIRE_SECONDS,
+            UPNP_BROWSE_CACHE_MAX_ELEMENTS,
             UPNP_SERVER_ENABLE,
             UPNP_SERVER_NAME,
             UPNP_SERVICE_PORT);
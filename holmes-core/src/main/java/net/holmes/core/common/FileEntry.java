@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.common;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * File system entry: path and attributes read when entry was listed.
+ */
+public final class FileEntry {
+    private final Path path;
+    private final BasicFileAttributes attributes;
+
+    /**
+     * Instantiates a new file entry.
+     *
+     * @param path       entry path
+     * @param attributes entry attributes
+     */
+    public FileEntry(final Path path, final BasicFileAttributes attributes) {
+        this.path = path;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Get entry path.
+     *
+     * @return entry path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Get entry name.
+     *
+     * @return entry name
+     */
+    public String getName() {
+        return path.getFileName().toString();
+    }
+
+    /**
+     * Get entry attributes.
+     *
+     * @return entry attributes
+     */
+    public BasicFileAttributes getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Whether entry is a directory.
+     *
+     * @return true if entry is a directory
+     */
+    public boolean isDirectory() {
+        return attributes.isDirectory();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("path", path)
+                .add("directory", attributes.isDirectory())
+                .add("size", attributes.size())
+                .toString();
+    }
+}
@@ -17,14 +17,26 @@
 
 package net.holmes.core.common;
 
+import org.slf4j.Logger;
+
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 
+import static java.nio.file.FileVisitOption.FOLLOW_LINKS;
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static org.slf4j.LoggerFactory.getLogger;
+
 /**
  * File utility class.
  */
 public final class FileUtils {
+    private static final Logger LOGGER = getLogger(FileUtils.class);
 
     /**
      * Private constructor
@@ -77,4 +89,80 @@ public final class FileUtils {
         }
         return fileList;
     }
+
+    /**
+     * List readable child folders and files with their attributes.
+     * Attributes of each child are read once, while walking parent directory.
+     *
+     * @param parentPath parent directory path
+     * @return child entries or empty list
+     */
+    public static List<FileEntry> listChildEntries(final Path parentPath) {
+        final List<FileEntry> entries = new ArrayList<>();
+        try {
+            Files.walkFileTree(parentPath, EnumSet.of(FOLLOW_LINKS), 1, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+                    if (!file.equals(parentPath) && isValidEntry(file, attributes)) {
+                        entries.add(new FileEntry(file, attributes));
+                    }
+                    return CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+                    // Broken link, or file removed while walking parent directory
+                    return CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.warn("[listChildEntries] failed to list {}: {}", parentPath, e.getMessage());
+        }
+        return entries;
+    }
+
+    /**
+     * Read file attributes.
+     *
+     * @param path file path
+     * @return file attributes or null if file is not a readable folder or file
+     */
+    public static BasicFileAttributes readValidAttributes(final Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return isValidEntry(path, attributes) ? attributes : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check if a file system entry is a file or a readable directory, and is not hidden.
+     * Files are not checked for readability as this costs a system call for each file.
+     *
+     * @param path       entry path
+     * @param attributes entry attributes
+     * @return true if entry is valid
+     */
+    private static boolean isValidEntry(final Path path, final BasicFileAttributes attributes) {
+        if (isHidden(path, attributes)) {
+            return false;
+        }
+        return attributes.isRegularFile() || attributes.isDirectory() && Files.isReadable(path);
+    }
+
+    /**
+     * Check if a file system entry is hidden, without reading its attributes again.
+     *
+     * @param path       entry path
+     * @param attributes entry attributes
+     * @return true if entry is hidden
+     */
+    private static boolean isHidden(final Path path, final BasicFileAttributes attributes) {
+        if (attributes instanceof DosFileAttributes) {
+            return ((DosFileAttributes) attributes).isHidden();
+        }
+        Path fileName = path.getFileName();
+        return fileName != null && fileName.toString().startsWith(".");
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.common;
+
+import java.util.Comparator;
+
+/**
+ * Natural order string comparator: digit sequences are compared by numeric value, other characters are compared case insensitively.
+ * "Episode 2" is sorted before "Episode 10".
+ */
+public final class NaturalOrderComparator implements Comparator<String> {
+    public static final NaturalOrderComparator NATURAL_ORDER = new NaturalOrderComparator();
+
+    /**
+     * Private constructor, use {@link #NATURAL_ORDER}.
+     */
+    private NaturalOrderComparator() {
+        // Nothing
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int compare(final String s1, final String s2) {
+        int i1 = 0;
+        int i2 = 0;
+        while (i1 < s1.length() && i2 < s2.length()) {
+            char c1 = s1.charAt(i1);
+            char c2 = s2.charAt(i2);
+            if (isDigit(c1) && isDigit(c2)) {
+                // Skip leading zeros, then compare numbers by length and digits
+                int start1 = skipZeros(s1, i1);
+                int start2 = skipZeros(s2, i2);
+                int end1 = skipDigits(s1, start1);
+                int end2 = skipDigits(s2, start2);
+                int result = Integer.compare(end1 - start1, end2 - start2);
+                for (int k = 0; result == 0 && k < end1 - start1; k++) {
+                    result = Character.compare(s1.charAt(start1 + k), s2.charAt(start2 + k));
+                }
+                if (result != 0) {
+                    return result;
+                }
+                i1 = end1;
+                i2 = end2;
+            } else {
+                int result = Character.compare(Character.toLowerCase(c1), Character.toLowerCase(c2));
+                if (result != 0) {
+                    return result;
+                }
+                i1++;
+                i2++;
+            }
+        }
+        int result = Integer.compare(s1.length() - i1, s2.length() - i2);
+        // Strings only differing by case or leading zeros are still ordered
+        return result != 0 ? result : s1.compareTo(s2);
+    }
+
+    /**
+     * Whether a character is an ASCII digit.
+     *
+     * @param c character
+     * @return true for a digit
+     */
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Skip leading zeros of a digit sequence, keeping the last digit.
+     *
+     * @param s     string
+     * @param start digit sequence start
+     * @return index of first significant digit
+     */
+    private static int skipZeros(final String s, final int start) {
+        int index = start;
+        while (index + 1 < s.length() && s.charAt(index) == '0' && isDigit(s.charAt(index + 1))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Skip a digit sequence.
+     *
+     * @param s     string
+     * @param start digit sequence start
+     * @return index following digit sequence
+     */
+    private static int skipDigits(final String s, final int start) {
+        int index = start;
+        while (index < s.length() && isDigit(s.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.common;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Throwables.propagateIfPossible;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+
+/**
+ * Single flight: concurrent computations of a same key are coalesced.
+ * <p>
+ * First caller runs computation, callers arriving while computation is in flight wait for it and share its result.
+ * Results are not kept once computation is done: caching is up to callers.
+ * </p>
+ *
+ * @param <K> key type
+ * @param <V> result type
+ */
+public final class SingleFlight<K, V> {
+    private final ConcurrentMap<K, FutureTask<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Run a computation, or wait for the in flight computation of the same key.
+     * Unchecked exceptions thrown by computation are thrown to every caller.
+     *
+     * @param key      computation key
+     * @param callable computation
+     * @return computation result
+     * @throws ExecutionException if computation throws a checked exception
+     */
+    public V execute(final K key, final Callable<V> callable) throws ExecutionException {
+        FutureTask<V> task = new FutureTask<>(callable);
+        FutureTask<V> runningTask = inFlight.putIfAbsent(key, task);
+        if (runningTask == null) {
+            // Run computation in caller thread
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+            runningTask = task;
+        } else {
+            coalesced.incrementAndGet();
+        }
+
+        try {
+            return getUninterruptibly(runningTask);
+        } catch (ExecutionException e) {
+            propagateIfPossible(e.getCause());
+            throw e;
+        }
+    }
+
+    /**
+     * Get number of calls which waited for an in flight computation instead of running it.
+     *
+     * @return number of coalesced calls
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+}
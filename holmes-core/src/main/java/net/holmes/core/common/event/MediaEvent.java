@@ -71,6 +71,6 @@ public class MediaEvent {
      * Media event type.
      */
     public enum MediaEventType {
-        SCAN_NODE, UNKNOWN
+        SCAN_NODE, FOLDER_CHANGED, CONTAINER_UPDATED, UNKNOWN
     }
 }
@@ -19,6 +19,7 @@ package net.holmes.core.service;
 
 import com.google.common.eventbus.DeadEvent;
 import com.google.common.eventbus.Subscribe;
+import net.holmes.core.business.media.dao.index.MediaIndexDao;
 import net.holmes.core.common.exception.HolmesRuntimeException;
 import org.slf4j.Logger;
 
@@ -43,6 +44,10 @@ public final class HolmesService implements Service {
     private final Service airplayService;
     private final Service systrayService;
     private final Service releaseCheckService;
+    private final Service mediaIndexCleanService;
+    private final Service fileWatcherService;
+    private final Service mediaScanService;
+    private final MediaIndexDao mediaIndexDao;
     private final String localHolmesDataDir;
 
     private RandomAccessFile randomAccessFile = null;
@@ -51,22 +56,32 @@ public final class HolmesService implements Service {
     /**
      * Instantiates a new holmes service.
      *
-     * @param httpService         Http service
-     * @param upnpService         UPnP service
-     * @param airplayService      Airplay service
-     * @param systrayService      Systray service
-     * @param releaseCheckService Check for new release service
-     * @param localHolmesDataDir  local Holmes data directory
+     * @param httpService            Http service
+     * @param upnpService            UPnP service
+     * @param airplayService         Airplay service
+     * @param systrayService         Systray service
+     * @param releaseCheckService    Check for new release service
+     * @param mediaIndexCleanService Media index clean service
+     * @param fileWatcherService     File watcher service
+     * @param mediaScanService       Media scan service
+     * @param mediaIndexDao          Media index dao, closed when every service is stopped
+     * @param localHolmesDataDir     local Holmes data directory
      */
     @Inject
     public HolmesService(@Named("http") final Service httpService, @Named("upnp") final Service upnpService, @Named("airplay") final Service airplayService,
                          @Named("systray") final Service systrayService, @Named("release") final Service releaseCheckService,
+                         @Named("mediaIndexClean") final Service mediaIndexCleanService, @Named("fileWatcher") final Service fileWatcherService,
+                         @Named("mediaScan") final Service mediaScanService, final MediaIndexDao mediaIndexDao,
                          @Named("localHolmesDataDir") final String localHolmesDataDir) {
         this.httpService = httpService;
         this.upnpService = upnpService;
         this.airplayService = airplayService;
         this.systrayService = systrayService;
         this.releaseCheckService = releaseCheckService;
+        this.mediaIndexCleanService = mediaIndexCleanService;
+        this.fileWatcherService = fileWatcherService;
+        this.mediaScanService = mediaScanService;
+        this.mediaIndexDao = mediaIndexDao;
         this.localHolmesDataDir = localHolmesDataDir;
     }
 
@@ -84,6 +99,9 @@ public final class HolmesService implements Service {
             airplayService.start();
             systrayService.start();
             releaseCheckService.start();
+            mediaIndexCleanService.start();
+            fileWatcherService.start();
+            mediaScanService.start();
 
             LOGGER.info("Holmes service started");
         }
@@ -100,12 +118,18 @@ public final class HolmesService implements Service {
         unlockInstance();
 
         // Stop Holmes service
+        mediaScanService.stop();
+        fileWatcherService.stop();
+        mediaIndexCleanService.stop();
         releaseCheckService.stop();
         systrayService.stop();
         airplayService.stop();
         upnpService.stop();
         httpService.stop();
 
+        // Save media index once no service can change it anymore
+        mediaIndexDao.close();
+
         LOGGER.info("Holmes service stopped");
     }
 
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.service;
+
+import com.google.common.util.concurrent.AbstractScheduledService;
+import net.holmes.core.business.configuration.ConfigurationManager;
+import net.holmes.core.business.media.MediaManager;
+import org.slf4j.Logger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static net.holmes.core.common.ConfigurationParameter.MEDIA_INDEX_CLEAN_BATCH_SIZE;
+import static net.holmes.core.common.ConfigurationParameter.MEDIA_INDEX_CLEAN_DELAY_SECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Scheduled service used to clean media index.
+ * Media index is cleaned incrementally: each iteration only checks a small batch of elements,
+ * so that file system is not flooded and media index is never blocked for long.
+ * Stopping the service waits for a running clean batch, so that media index can then be closed.
+ */
+@Singleton
+public class MediaIndexCleanService extends AbstractScheduledService implements Service {
+    private static final Logger LOGGER = getLogger(MediaIndexCleanService.class);
+
+    private final MediaManager mediaManager;
+    private final Integer cleanDelaySeconds;
+    private final Integer cleanBatchSize;
+
+    /**
+     * Instantiates a new media index clean service.
+     *
+     * @param mediaManager         media manager
+     * @param configurationManager configuration manager
+     */
+    @Inject
+    public MediaIndexCleanService(final MediaManager mediaManager, final ConfigurationManager configurationManager) {
+        this.mediaManager = mediaManager;
+        this.cleanDelaySeconds = configurationManager.getParameter(MEDIA_INDEX_CLEAN_DELAY_SECONDS);
+        this.cleanBatchSize = configurationManager.getParameter(MEDIA_INDEX_CLEAN_BATCH_SIZE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void runOneIteration() {
+        mediaManager.cleanUpCache(cleanBatchSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Scheduler scheduler() {
+        return cleanDelaySeconds > 0 ? Scheduler.newFixedDelaySchedule(cleanDelaySeconds, cleanDelaySeconds, SECONDS) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void start() {
+        startAsync();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop() {
+        stopAsync();
+        try {
+            awaitTerminated();
+        } catch (IllegalStateException e) {
+            LOGGER.warn("Media index clean service failed: {}", e.getMessage());
+        }
+    }
+}
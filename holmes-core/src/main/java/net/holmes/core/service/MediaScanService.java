@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.service;
+
+import net.holmes.core.business.media.scan.MediaScanner;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Media scan service: scans configured folders in background at startup, so that first browse is served from a warm media index.
+ */
+@Singleton
+public class MediaScanService implements Service {
+
+    private final MediaScanner mediaScanner;
+
+    /**
+     * Instantiates a new media scan service.
+     *
+     * @param mediaScanner media scanner
+     */
+    @Inject
+    public MediaScanService(final MediaScanner mediaScanner) {
+        this.mediaScanner = mediaScanner;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void start() {
+        mediaScanner.scanAll();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop() {
+        mediaScanner.shutdown();
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.service.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static io.netty.handler.codec.http.HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
+
+/**
+ * Satisfiable HTTP byte range (RFC 7233): first and last byte positions, both included, within a representation.
+ */
+final class HttpByteRange {
+    private static final String BYTES_UNIT = "bytes";
+
+    private final long first;
+    private final long last;
+
+    /**
+     * Instantiates a new HTTP byte range.
+     *
+     * @param first first byte position
+     * @param last  last byte position, included
+     */
+    HttpByteRange(final long first, final long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * Parse Range header value.
+     * <p>
+     * Closed ranges (bytes=0-499), open ranges (bytes=500-) and suffix ranges (bytes=-500) are supported,
+     * as well as several ranges separated by commas. Unsatisfiable ranges are skipped, last byte positions beyond
+     * representation are reduced to representation length. Overlapping and adjacent ranges are coalesced.
+     * </p>
+     *
+     * @param range          Range header value
+     * @param completeLength representation length
+     * @return sorted satisfiable ranges, or null when range unit is not bytes: Range header is then ignored
+     * @throws HttpFileRequestException indicates that range is invalid or that no range is satisfiable
+     */
+    static List<HttpByteRange> parse(final String range, final long completeLength) throws HttpFileRequestException {
+        int unitEnd = range.indexOf('=');
+        String unit = unitEnd > 0 ? range.substring(0, unitEnd).trim() : "";
+        if (unit.isEmpty()) {
+            throw new HttpFileRequestException("Invalid range: " + range, REQUESTED_RANGE_NOT_SATISFIABLE, getUnsatisfiedContentRange(completeLength));
+        } else if (!BYTES_UNIT.equalsIgnoreCase(unit)) {
+            // Other range units are not supported
+            return null;
+        }
+
+        List<HttpByteRange> ranges = new ArrayList<>();
+        boolean rangeSpecFound = false;
+        for (String rangeSpec : range.substring(unitEnd + 1).split(",")) {
+            rangeSpec = rangeSpec.trim();
+            if (rangeSpec.isEmpty()) {
+                // Empty list elements are allowed
+                continue;
+            }
+            rangeSpecFound = true;
+            HttpByteRange byteRange = parseRangeSpec(rangeSpec, range, completeLength);
+            if (byteRange != null) {
+                ranges.add(byteRange);
+            }
+        }
+
+        if (!rangeSpecFound) {
+            throw new HttpFileRequestException("Invalid range: " + range, REQUESTED_RANGE_NOT_SATISFIABLE, getUnsatisfiedContentRange(completeLength));
+        } else if (ranges.isEmpty()) {
+            throw new HttpFileRequestException("Unsatisfiable range: " + range, REQUESTED_RANGE_NOT_SATISFIABLE, getUnsatisfiedContentRange(completeLength));
+        }
+        return coalesce(ranges);
+    }
+
+    /**
+     * Get Content-Range header value of a 416 response.
+     *
+     * @param completeLength representation length
+     * @return Content-Range header value
+     */
+    static String getUnsatisfiedContentRange(final long completeLength) {
+        return BYTES_UNIT + " */" + completeLength;
+    }
+
+    /**
+     * Parse a byte range spec.
+     *
+     * @param rangeSpec      byte range spec
+     * @param range          Range header value
+     * @param completeLength representation length
+     * @return satisfiable byte range or null if range is not satisfiable
+     * @throws HttpFileRequestException indicates that range spec is invalid
+     */
+    private static HttpByteRange parseRangeSpec(final String rangeSpec, final String range, final long completeLength) throws HttpFileRequestException {
+        int separator = rangeSpec.indexOf('-');
+        if (separator < 0) {
+            throw new HttpFileRequestException("Invalid range: " + range, REQUESTED_RANGE_NOT_SATISFIABLE, getUnsatisfiedContentRange(completeLength));
+        }
+        String firstPosition = rangeSpec.substring(0, separator).trim();
+        String lastPosition = rangeSpec.substring(separator + 1).trim();
+
+        if (firstPosition.isEmpty()) {
+            // Suffix range: last bytes of representation
+            long suffixLength = parsePosition(lastPosition, range, completeLength);
+            if (suffixLength == 0 || completeLength == 0) {
+                return null;
+            }
+            return new HttpByteRange(Math.max(0, completeLength - suffixLength), completeLength - 1);
+        }
+
+        long first = parsePosition(firstPosition, range, completeLength);
+        long last = lastPosition.isEmpty() ? Long.MAX_VALUE : parsePosition(lastPosition, range, completeLength);
+        if (last < first) {
+            throw new HttpFileRequestException("Invalid range: " + range, REQUESTED_RANGE_NOT_SATISFIABLE, getUnsatisfiedContentRange(completeLength));
+        } else if (first >= completeLength) {
+            return null;
+        }
+        return new HttpByteRange(first, Math.min(last, completeLength - 1));
+    }
+
+    /**
+     * Parse a byte position: a sequence of digits.
+     *
+     * @param position       byte position
+     * @param range          Range header value
+     * @param completeLength representation length
+     * @return byte position
+     * @throws HttpFileRequestException indicates that byte position is invalid
+     */
+    private static long parsePosition(final String position, final String range, final long completeLength) throws HttpFileRequestException {
+        boolean valid = !position.isEmpty();
+        for (int i = 0; valid && i < position.length(); i++) {
+            valid = Character.isDigit(position.charAt(i));
+        }
+        if (valid) {
+            try {
+                return Long.parseLong(position);
+            } catch (NumberFormatException e) {
+                // Too many digits: position is invalid
+            }
+        }
+        throw new HttpFileRequestException("Invalid range: " + range, REQUESTED_RANGE_NOT_SATISFIABLE, getUnsatisfiedContentRange(completeLength));
+    }
+
+    /**
+     * Sort ranges and coalesce overlapping or adjacent ranges.
+     *
+     * @param ranges ranges
+     * @return sorted disjoint ranges
+     */
+    private static List<HttpByteRange> coalesce(final List<HttpByteRange> ranges) {
+        Collections.sort(ranges, new Comparator<HttpByteRange>() {
+            @Override
+            public int compare(final HttpByteRange range1, final HttpByteRange range2) {
+                return Long.compare(range1.first, range2.first);
+            }
+        });
+
+        List<HttpByteRange> result = new ArrayList<>(ranges.size());
+        HttpByteRange current = ranges.get(0);
+        for (HttpByteRange byteRange : ranges.subList(1, ranges.size())) {
+            if (byteRange.first <= current.last + 1) {
+                current = new HttpByteRange(current.first, Math.max(current.last, byteRange.last));
+            } else {
+                result.add(current);
+                current = byteRange;
+            }
+        }
+        result.add(current);
+        return result;
+    }
+
+    /**
+     * Get first byte position.
+     *
+     * @return first byte position
+     */
+    long getFirst() {
+        return first;
+    }
+
+    /**
+     * Get last byte position, included.
+     *
+     * @return last byte position
+     */
+    long getLast() {
+        return last;
+    }
+
+    /**
+     * Get number of bytes in range.
+     *
+     * @return range length
+     */
+    long getLength() {
+        return last - first + 1;
+    }
+
+    /**
+     * Get Content-Range header value of this range.
+     *
+     * @param completeLength representation length
+     * @return Content-Range header value
+     */
+    String getContentRange(final long completeLength) {
+        return BYTES_UNIT + " " + first + "-" + last + "/" + completeLength;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("first", first)
+                .add("last", last)
+                .toString();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.service.http;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import static java.util.Locale.US;
+import static java.util.TimeZone.getTimeZone;
+
+/**
+ * HTTP date formatter (RFC 7231 IMF-fixdate), thread safe.
+ * <p>
+ * HTTP dates have a one second resolution: the last formatted date is cached and reused for any date within the
+ * same second, so that a formatter shared by all channels formats the current date about once per second.
+ * </p>
+ */
+final class HttpDateFormatter {
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat dateFormat = new SimpleDateFormat(HTTP_DATE_FORMAT, US);
+            dateFormat.setTimeZone(getTimeZone("GMT"));
+            return dateFormat;
+        }
+    };
+
+    private volatile FormattedDate lastDate;
+
+    /**
+     * Format a date.
+     *
+     * @param time date in milliseconds
+     * @return HTTP date
+     */
+    String format(final long time) {
+        long second = time / 1000L;
+        FormattedDate formattedDate = lastDate;
+        if (formattedDate == null || formattedDate.second != second) {
+            formattedDate = new FormattedDate(second, DATE_FORMAT.get().format(new Date(second * 1000L)));
+            lastDate = formattedDate;
+        }
+        return formattedDate.value;
+    }
+
+    /**
+     * Parse an HTTP date.
+     *
+     * @param date HTTP date
+     * @return date in milliseconds, or -1 if date is invalid
+     */
+    static long parse(final String date) {
+        try {
+            return DATE_FORMAT.get().parse(date).getTime();
+        } catch (ParseException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Formatted date, immutable so that it is safely published to other threads.
+     */
+    private static final class FormattedDate {
+        private final long second;
+        private final String value;
+
+        /**
+         * Instantiates a new formatted date.
+         *
+         * @param second date in seconds
+         * @param value  HTTP date
+         */
+        FormattedDate(final long second, final String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+}
@@ -30,9 +30,10 @@ public final class HttpFileRequest {
     private final File file;
     private final MimeType mimeType;
     private final boolean staticResource;
+    private final boolean headRequest;
 
     /**
-     * Instantiates a new HttpFileRequest.
+     * Instantiates a new HttpFileRequest for a GET request.
      *
      * @param httpMessage    original HTTP message
      * @param file           file
@@ -40,10 +41,25 @@ public final class HttpFileRequest {
      * @param staticResource request for a static resource
      */
     public HttpFileRequest(final HttpMessage httpMessage, final File file, final MimeType mimeType, final boolean staticResource) {
+        this(httpMessage, file, mimeType, staticResource, false);
+    }
+
+    /**
+     * Instantiates a new HttpFileRequest.
+     *
+     * @param httpMessage    original HTTP message
+     * @param file           file
+     * @param mimeType       mime type
+     * @param staticResource request for a static resource
+     * @param headRequest    HEAD request: only response headers are sent
+     */
+    public HttpFileRequest(final HttpMessage httpMessage, final File file, final MimeType mimeType, final boolean staticResource,
+                           final boolean headRequest) {
         this.httpMessage = httpMessage;
         this.file = file;
         this.mimeType = mimeType;
         this.staticResource = staticResource;
+        this.headRequest = headRequest;
     }
 
     /**
@@ -81,4 +97,13 @@ public final class HttpFileRequest {
     public boolean isStaticResource() {
         return staticResource;
     }
+
+    /**
+     * Check if request is a HEAD request.
+     *
+     * @return true if only response headers are requested
+     */
+    public boolean isHeadRequest() {
+        return headRequest;
+    }
 }
\ No newline at end of file
@@ -34,6 +34,7 @@ import java.io.File;
 import java.util.List;
 
 import static io.netty.handler.codec.http.HttpMethod.GET;
+import static io.netty.handler.codec.http.HttpMethod.HEAD;
 import static net.holmes.core.common.Constants.*;
 
 /**
@@ -43,7 +44,7 @@ import static net.holmes.core.common.Constants.*;
  * <li>static files for messages with requested file name having a valid mime type.</li>
  * <li>content files for messages with request parameter "id" matching content in media index.</li>
  * </ul>
- * If message does not fit previous criteria, message is forwarded to the Netty pipeline.
+ * GET and HEAD requests are handled. If message does not fit previous criteria, message is forwarded to the Netty pipeline.
  */
 public final class HttpFileRequestDecoder extends MessageToMessageDecoder<FullHttpRequest> {
     private final MediaManager mediaManager;
@@ -71,8 +72,9 @@ public final class HttpFileRequestDecoder extends MessageToMessageDecoder<FullHt
     protected void decode(final ChannelHandlerContext context, final FullHttpRequest request, final List<Object> out) {
         HttpFileRequest fileRequest = null;
 
-        // only GET requests are handled
-        if (request.getMethod().equals(GET)) {
+        // only GET and HEAD requests are handled
+        boolean headRequest = request.getMethod().equals(HEAD);
+        if (headRequest || request.getMethod().equals(GET)) {
             QueryStringDecoder requestDecoder = new QueryStringDecoder(request.getUri());
             if (requestDecoder.path().startsWith(HTTP_CONTENT_REQUEST_PATH.toString()) && requestDecoder.parameters().get(HTTP_CONTENT_ID.toString()) != null) {
                 // Content file request is valid if content is found in media index
@@ -80,7 +82,7 @@ public final class HttpFileRequestDecoder extends MessageToMessageDecoder<FullHt
                 if (node instanceof ContentNode) {
                     // Content found in media index, build a file request based on this content
                     ContentNode contentNode = (ContentNode) node;
-                    fileRequest = new HttpFileRequest(request, new File(contentNode.getPath()), contentNode.getMimeType(), false);
+                    fileRequest = new HttpFileRequest(request, new File(contentNode.getPath()), contentNode.getMimeType(), false, headRequest);
                 }
             } else {
                 // Static file request is valid if requested file name has a valid mime type
@@ -88,7 +90,7 @@ public final class HttpFileRequestDecoder extends MessageToMessageDecoder<FullHt
                 MimeType mimeType = mimeTypeManager.getMimeType(requestedFileName);
                 if (mimeType != null) {
                     // Found valid mime type, build a static file request
-                    fileRequest = new HttpFileRequest(request, new File(uiDirectory, requestedFileName), mimeType, true);
+                    fileRequest = new HttpFileRequest(request, new File(uiDirectory, requestedFileName), mimeType, true, headRequest);
                 }
             }
         }
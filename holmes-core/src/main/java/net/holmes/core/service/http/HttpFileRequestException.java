@@ -25,6 +25,8 @@ import net.holmes.core.common.exception.HolmesException;
  */
 public final class HttpFileRequestException extends HolmesException {
     private final transient HttpResponseStatus status;
+    private final String contentRange;
+    private final boolean headRequest;
 
     /**
      * Instantiates a new http file request exception.
@@ -33,8 +35,34 @@ public final class HttpFileRequestException extends HolmesException {
      * @param status  status
      */
     public HttpFileRequestException(final String message, final HttpResponseStatus status) {
+        this(message, status, null);
+    }
+
+    /**
+     * Instantiates a new http file request exception with a Content-Range header.
+     *
+     * @param message      message
+     * @param status       status
+     * @param contentRange Content-Range header value of error response
+     */
+    public HttpFileRequestException(final String message, final HttpResponseStatus status, final String contentRange) {
         super(message);
         this.status = status;
+        this.contentRange = contentRange;
+        this.headRequest = false;
+    }
+
+    /**
+     * Instantiates a new http file request exception raised by a request.
+     *
+     * @param cause       http file request exception
+     * @param headRequest HEAD request: error response has no body
+     */
+    public HttpFileRequestException(final HttpFileRequestException cause, final boolean headRequest) {
+        super(cause.getMessage(), cause);
+        this.status = cause.status;
+        this.contentRange = cause.contentRange;
+        this.headRequest = headRequest;
     }
 
     /**
@@ -45,4 +73,22 @@ public final class HttpFileRequestException extends HolmesException {
     public HttpResponseStatus getStatus() {
         return status;
     }
+
+    /**
+     * Get Content-Range header value of error response.
+     *
+     * @return Content-Range header value or null
+     */
+    public String getContentRange() {
+        return contentRange;
+    }
+
+    /**
+     * Whether exception was raised by a HEAD request.
+     *
+     * @return true if error response has no body
+     */
+    public boolean isHeadRequest() {
+        return headRequest;
+    }
 }
@@ -20,22 +20,23 @@ package net.holmes.core.service.http;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.stream.ChunkedFile;
+import io.netty.util.ReferenceCountUtil;
 import net.holmes.core.business.configuration.ConfigurationManager;
+import net.holmes.core.business.mimetype.model.MimeType;
 
 import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
 
+import static io.netty.buffer.Unpooled.EMPTY_BUFFER;
 import static io.netty.buffer.Unpooled.copiedBuffer;
 import static io.netty.channel.ChannelFutureListener.CLOSE;
 import static io.netty.handler.codec.http.HttpHeaders.Names.*;
@@ -44,20 +45,30 @@ import static io.netty.handler.codec.http.HttpHeaders.*;
 import static io.netty.handler.codec.http.HttpResponseStatus.*;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 import static io.netty.handler.codec.http.LastHttpContent.EMPTY_LAST_CONTENT;
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.util.TimeZone.getTimeZone;
-import static net.holmes.core.common.ConfigurationParameter.HTTP_SERVER_CACHE_SECOND;
+import static net.holmes.core.business.mimetype.model.MimeType.MIME_TYPE_OGG;
+import static net.holmes.core.common.ConfigurationParameter.*;
 import static net.holmes.core.common.Constants.HOLMES_HTTP_SERVER_NAME;
+import static net.holmes.core.common.MediaType.TYPE_AUDIO;
+import static net.holmes.core.common.MediaType.TYPE_VIDEO;
 import static net.holmes.core.common.FileUtils.isValidFile;
+import static net.holmes.core.common.UniqueIdGenerator.newUniqueId;
 
 /**
  * Http file request handler.
  */
 public final class HttpFileRequestHandler extends SimpleChannelInboundHandler<HttpFileRequest> {
-    private static final Pattern PATTERN_RANGE_START_OFFSET = Pattern.compile("^(?i)\\s*bytes\\s*=\\s*(\\d+)\\s*-.*$");
-    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
-    private static final int CHUNK_SIZE = 8192;
-    private static final TimeZone GMT_TIMEZONE = getTimeZone("GMT");
+    private static final String MULTIPART_BYTERANGES = "multipart/byteranges; boundary=";
+    private static final String CRLF = "\r\n";
+    private static final String WEAK_ENTITY_TAG_PREFIX = "W/";
+    /**
+     * Maximum number of parts of a multipart/byteranges response: beyond, the whole file is sent (RFC 7233 section 6.1)
+     */
+    private static final int MAX_BYTE_RANGES = 16;
+    private static final HttpDateFormatter DATE_FORMATTER = new HttpDateFormatter();
+    private static final HttpDateFormatter EXPIRES_FORMATTER = new HttpDateFormatter();
+    private static final HttpDateFormatter LAST_MODIFIED_FORMATTER = new HttpDateFormatter();
 
     private static final CharSequence X_SERVER = newEntity(SERVER);
     private static final CharSequence X_SERVER_NAME = newEntity(HOLMES_HTTP_SERVER_NAME.toString());
@@ -66,15 +77,23 @@ public final class HttpFileRequestHandler extends SimpleChannelInboundHandler<Ht
     private static final CharSequence X_BYTES = newEntity(BYTES);
     private static final CharSequence X_DATE = newEntity(DATE);
     private static final CharSequence X_LAST_MODIFIED = newEntity(LAST_MODIFIED);
+    private static final CharSequence X_ETAG = newEntity(ETAG);
     private static final CharSequence X_EXPIRES = newEntity(EXPIRES);
     private static final CharSequence X_CACHE_CONTROL = newEntity(CACHE_CONTROL);
     private static final CharSequence X_CONTENT_TYPE = newEntity(CONTENT_TYPE);
     private static final CharSequence X_CONTENT_TYPE_UTF8 = newEntity("text/plain; charset=" + UTF_8);
     private static final CharSequence X_CONNECTION = newEntity(CONNECTION);
     private static final CharSequence X_KEEP_ALIVE = newEntity(KEEP_ALIVE);
+    private static final CharSequence X_DLNA_TRANSFER_MODE = newEntity("transferMode.dlna.org");
+    private static final CharSequence X_DLNA_CONTENT_FEATURES = newEntity("contentFeatures.dlna.org");
+    private static final CharSequence X_DLNA_STREAMING = newEntity("Streaming");
+    private static final CharSequence X_DLNA_INTERACTIVE = newEntity("Interactive");
+    private static final CharSequence X_DLNA_STREAMING_FEATURES = newEntity("DLNA.ORG_OP=01;DLNA.ORG_CI=0;DLNA.ORG_FLAGS=01700000000000000000000000000000");
+    private static final CharSequence X_DLNA_INTERACTIVE_FEATURES = newEntity("DLNA.ORG_OP=01;DLNA.ORG_CI=0;DLNA.ORG_FLAGS=00f00000000000000000000000000000");
 
     private final int httpCacheSecond;
-    private final SimpleDateFormat httpDateFormatter;
+    private final boolean zeroCopy;
+    private final int chunkSize;
 
     /**
      * Instantiates a new Http file request handler.
@@ -84,8 +103,8 @@ public final class HttpFileRequestHandler extends SimpleChannelInboundHandler<Ht
     @Inject
     public HttpFileRequestHandler(final ConfigurationManager configurationManager) {
         httpCacheSecond = configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND);
-        httpDateFormatter = new SimpleDateFormat(HTTP_DATE_FORMAT);
-        httpDateFormatter.setTimeZone(GMT_TIMEZONE);
+        zeroCopy = configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE);
+        chunkSize = configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE);
     }
 
     /**
@@ -93,32 +112,86 @@ public final class HttpFileRequestHandler extends SimpleChannelInboundHandler<Ht
      */
     @Override
     protected void channelRead0(final ChannelHandlerContext context, final HttpFileRequest request) throws HttpFileRequestException, IOException {
+        try {
+            writeResponse(context, request);
+        } catch (HttpFileRequestException e) {
+            // Failure carries request method, an error response to a HEAD request has no body
+            throw new HttpFileRequestException(e, request.isHeadRequest());
+        }
+    }
+
+    /**
+     * Write file response.
+     *
+     * @param context channel context
+     * @param request file request
+     * @throws HttpFileRequestException indicates that file cannot be sent
+     * @throws IOException              indicates that file content cannot be opened
+     */
+    private void writeResponse(final ChannelHandlerContext context, final HttpFileRequest request) throws HttpFileRequestException, IOException {
         // Check file
         File file = request.getFile();
         if (!isValidFile(file)) {
             throw new HttpFileRequestException(file.getPath(), NOT_FOUND);
         }
-
-        // Get file descriptor
-        RandomAccessFile randomFile = new RandomAccessFile(file, "r");
-        long fileLength = randomFile.length();
-
-        // Get start offset
-        long startOffset = getStartOffset(request.getHttpMessage());
+        long fileLength = file.length();
+        long lastModified = file.lastModified();
+        String entityTag = getEntityTag(file, fileLength, lastModified);
 
         // Build HTTP response
-        HttpResponse response = buildHttpResponse(startOffset, fileLength);
+        HttpResponse response;
+        List<HttpByteRange> ranges = null;
+        String boundary = null;
+        boolean notModified = isNotModified(request, entityTag, lastModified);
+        if (notModified) {
+            // Client cached copy is still valid
+            response = buildHttpResponse(NOT_MODIFIED);
+        } else {
+            // Get requested byte ranges
+            ranges = getByteRanges(request, fileLength, entityTag, lastModified);
+            if (ranges == null) {
+                // Whole file
+                response = buildHttpResponse(OK);
+                addContentHeaders(response, fileLength, request.getMimeType().getMimeType());
+            } else if (ranges.size() == 1) {
+                // Single part
+                response = buildHttpResponse(PARTIAL_CONTENT);
+                response.headers().set(X_CONTENT_RANGE, ranges.get(0).getContentRange(fileLength));
+                addContentHeaders(response, ranges.get(0).getLength(), request.getMimeType().getMimeType());
+            } else {
+                // Multiple parts
+                boundary = newUniqueId();
+                response = buildHttpResponse(PARTIAL_CONTENT);
+                addContentHeaders(response, getMultipartLength(ranges, fileLength, boundary, request), MULTIPART_BYTERANGES + boundary);
+            }
+        }
+
+        // Open content before writing headers, so that a file which cannot be read is still reported with an error response
+        List<Object> contents = null;
+        if (!notModified && !request.isHeadRequest()) {
+            contents = openContents(context, file, ranges, fileLength);
+        }
 
         // Add HTTP headers to response
-        addContentHeaders(response, fileLength - startOffset, request);
-        addDateAndCacheHeaders(response, request);
+        addDateAndCacheHeaders(response, request, entityTag, lastModified);
+        addDlnaHeaders(response, request);
         boolean keepAlive = addKeepAliveHeader(response, request);
 
         // Write the response headers
         context.write(response);
 
-        // Write the content
-        context.write(new ChunkedFile(randomFile, startOffset, fileLength - startOffset, CHUNK_SIZE));
+        // Write the content, neither a not modified response nor a HEAD response has content
+        if (contents != null) {
+            if (boundary == null) {
+                context.write(contents.get(0));
+            } else {
+                for (int i = 0; i < ranges.size(); i++) {
+                    context.write(copiedBuffer(getPartHeader(ranges.get(i), fileLength, boundary, request), US_ASCII));
+                    context.write(contents.get(i));
+                }
+                context.write(copiedBuffer(getMultipartEnd(boundary), US_ASCII));
+            }
+        }
 
         // Write the end marker
         ChannelFuture lastContentFuture = context.writeAndFlush(EMPTY_LAST_CONTENT);
@@ -137,9 +210,12 @@ public final class HttpFileRequestHandler extends SimpleChannelInboundHandler<Ht
     public void exceptionCaught(final ChannelHandlerContext context, final Throwable cause) {
         if (context.channel().isActive()) {
             if (cause instanceof HttpFileRequestException) {
-                sendError(context, cause.getMessage(), ((HttpFileRequestException) cause).getStatus());
+                HttpFileRequestException requestException = (HttpFileRequestException) cause;
+                sendError(context, cause.getMessage(), requestException.getStatus(), requestException.getContentRange(),
+                        requestException.isHeadRequest());
             } else {
-                sendError(context, cause.getMessage(), INTERNAL_SERVER_ERROR);
+                // Contents are never opened for a HEAD request, other failures come from GET requests
+                sendError(context, cause.getMessage(), INTERNAL_SERVER_ERROR, null, false);
             }
         }
     }
@@ -147,25 +223,13 @@ public final class HttpFileRequestHandler extends SimpleChannelInboundHandler<Ht
     /**
      * Build HTTP response.
      *
-     * @param startOffset start offset
-     * @param fileLength  file length
+     * @param status response status
      * @return HTTP response
-     * @throws HttpFileRequestException indicates that start offset is invalid
      */
-    private HttpResponse buildHttpResponse(final long startOffset, final long fileLength) throws HttpFileRequestException {
-        HttpResponse response;
-        if (startOffset == 0) {
-            // Instantiates a new default HTTP response
-            response = new DefaultHttpResponse(HTTP_1_1, OK, false);
-            response.headers().set(X_ACCEPT_RANGES, X_BYTES);
-        } else if (startOffset < fileLength) {
-            // Instantiates a new default HTTP response with content range
-            response = new DefaultHttpResponse(HTTP_1_1, PARTIAL_CONTENT, false);
-            response.headers().set(X_CONTENT_RANGE, startOffset + "-" + (fileLength - 1) + "/" + fileLength);
-        } else {
-            // Invalid start offset
-            throw new HttpFileRequestException("Invalid start offset: " + startOffset, REQUESTED_RANGE_NOT_SATISFIABLE);
-        }
+    private HttpResponse buildHttpResponse(final HttpResponseStatus status) {
+        // Instantiates a new default HTTP response
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, status, false);
+        response.headers().set(X_ACCEPT_RANGES, X_BYTES);
 
         // Add server header
         response.headers().set(X_SERVER, X_SERVER_NAME);
@@ -174,59 +238,292 @@ public final class HttpFileRequestHandler extends SimpleChannelInboundHandler<Ht
     }
 
     /**
-     * Get start offset from Http message.
+     * Get entity tag of a file, derived from file path, length and last modification date.
+     * Entity tag is weak when file was modified less than one second ago: file may be modified again
+     * without changing its modification date.
+     *
+     * @param file         file
+     * @param fileLength   file length
+     * @param lastModified file last modification date
+     * @return entity tag
+     */
+    private static String getEntityTag(final File file, final long fileLength, final long lastModified) {
+        String entityTag = "\"" + Integer.toHexString(file.getPath().hashCode()) + "-" + Long.toHexString(fileLength)
+                + "-" + Long.toHexString(lastModified) + "\"";
+        return System.currentTimeMillis() - lastModified < 1000L ? WEAK_ENTITY_TAG_PREFIX + entityTag : entityTag;
+    }
+
+    /**
+     * Check If-None-Match and If-Modified-Since validators (RFC 7232).
+     * If-Modified-Since is ignored when If-None-Match is present.
+     *
+     * @param request      file request
+     * @param entityTag    file entity tag
+     * @param lastModified file last modification date
+     * @return true if client cached copy of file is still valid
+     */
+    private boolean isNotModified(final HttpFileRequest request, final String entityTag, final long lastModified) {
+        HttpHeaders headers = request.getHttpMessage().headers();
+        String ifNoneMatch = headers.get(IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchesEntityTag(ifNoneMatch, entityTag);
+        }
+        String ifModifiedSince = headers.get(IF_MODIFIED_SINCE);
+        if (ifModifiedSince != null) {
+            // HTTP dates have a one second resolution
+            long date = HttpDateFormatter.parse(ifModifiedSince);
+            return date >= 0 && lastModified / 1000L * 1000L <= date;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether an If-None-Match entity tag list matches file entity tag, using weak comparison.
+     *
+     * @param ifNoneMatch If-None-Match header value
+     * @param entityTag   file entity tag
+     * @return true if an entity tag of list matches file entity tag
+     */
+    private static boolean matchesEntityTag(final String ifNoneMatch, final String entityTag) {
+        if ("*".equals(ifNoneMatch.trim())) {
+            return true;
+        }
+        String opaqueTag = getOpaqueTag(entityTag);
+        for (String tag : ifNoneMatch.split(",")) {
+            if (opaqueTag.equals(getOpaqueTag(tag.trim()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get opaque tag of an entity tag: entity tag without weakness indicator.
+     *
+     * @param entityTag entity tag
+     * @return opaque tag
+     */
+    private static String getOpaqueTag(final String entityTag) {
+        return entityTag.startsWith(WEAK_ENTITY_TAG_PREFIX) ? entityTag.substring(WEAK_ENTITY_TAG_PREFIX.length()) : entityTag;
+    }
+
+    /**
+     * Get byte ranges requested by Range header.
+     * Range header is ignored when If-Range validator does not match file.
+     *
+     * @param request      file request
+     * @param fileLength   file length
+     * @param entityTag    file entity tag
+     * @param lastModified file last modification date
+     * @return sorted satisfiable byte ranges or null for the whole file
+     * @throws HttpFileRequestException indicates that range is invalid or not satisfiable
+     */
+    private List<HttpByteRange> getByteRanges(final HttpFileRequest request, final long fileLength, final String entityTag,
+                                              final long lastModified) throws HttpFileRequestException {
+        String range = request.getHttpMessage().headers().get(RANGE);
+        if (range == null || !isIfRangeValid(request, entityTag, lastModified)) {
+            return null;
+        }
+        List<HttpByteRange> ranges = HttpByteRange.parse(range, fileLength);
+        // Many small ranges cost more than the whole file: Range header is then ignored
+        return ranges != null && ranges.size() > MAX_BYTE_RANGES ? null : ranges;
+    }
+
+    /**
+     * Check If-Range validator: ranges are only sent if file has not changed.
+     *
+     * @param request      file request
+     * @param entityTag    file entity tag
+     * @param lastModified file last modification date
+     * @return true if there is no If-Range header or if If-Range validator matches file
+     */
+    private boolean isIfRangeValid(final HttpFileRequest request, final String entityTag, final long lastModified) {
+        String ifRange = request.getHttpMessage().headers().get(IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        } else if (ifRange.startsWith("\"") || ifRange.startsWith(WEAK_ENTITY_TAG_PREFIX)) {
+            // Entity tag validator requires a strong comparison: weak entity tags never match
+            return !entityTag.startsWith(WEAK_ENTITY_TAG_PREFIX) && entityTag.equals(ifRange.trim());
+        }
+        // Date validator must exactly match file last modification date, HTTP dates have a one second resolution
+        return HttpDateFormatter.parse(ifRange) == lastModified / 1000L * 1000L;
+    }
+
+    /**
+     * Open file content to write: the whole file or each requested byte range.
      *
-     * @param httpMessage Http message
-     * @return start offset
-     * @throws HttpFileRequestException indicates that start offset is invalid
+     * @param context    channel context
+     * @param file       file
+     * @param ranges     byte ranges, null for the whole file
+     * @param fileLength file length
+     * @return file contents, one per byte range
+     * @throws IOException
      */
-    private long getStartOffset(final HttpMessage httpMessage) throws HttpFileRequestException {
-        long startOffset = 0;
-        String range = httpMessage.headers().get(RANGE);
-        if (range != null) {
-            Matcher matcher = PATTERN_RANGE_START_OFFSET.matcher(range);
-            if (matcher.find()) {
-                startOffset = Long.parseLong(matcher.group(1));
+    private List<Object> openContents(final ChannelHandlerContext context, final File file, final List<HttpByteRange> ranges,
+                                      final long fileLength) throws IOException {
+        List<Object> contents = new ArrayList<>(ranges == null ? 1 : ranges.size());
+        try {
+            if (ranges == null) {
+                contents.add(openContent(context, file, 0, fileLength));
             } else {
-                throw new HttpFileRequestException(range, REQUESTED_RANGE_NOT_SATISFIABLE);
+                for (HttpByteRange range : ranges) {
+                    contents.add(openContent(context, file, range.getFirst(), range.getLength()));
+                }
+            }
+        } catch (IOException e) {
+            // Release contents already opened
+            for (Object content : contents) {
+                releaseContent(content, e);
             }
+            throw e;
         }
-        return startOffset;
+        return contents;
     }
 
     /**
-     * Add content length and type headers.
+     * Open file content to write.
+     *
+     * @param context channel context
+     * @param file    file
+     * @param offset  offset of first byte to write
+     * @param length  number of bytes to write
+     * @return file region or chunked file
+     * @throws IOException
+     */
+    private Object openContent(final ChannelHandlerContext context, final File file, final long offset, final long length) throws IOException {
+        // Each file region or chunked file closes its file descriptor once written
+        RandomAccessFile randomFile = new RandomAccessFile(file, "r");
+        if (zeroCopy && context.pipeline().get(SslHandler.class) == null) {
+            // File is transferred to socket by the kernel, without being copied through user space
+            return new DefaultFileRegion(randomFile.getChannel(), offset, length);
+        }
+        // File is read by chunks, encrypted content needs to go through user space
+        try {
+            return new ChunkedFile(randomFile, offset, length, chunkSize);
+        } catch (IOException e) {
+            randomFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Release file content which is not written, closing its file descriptor.
+     *
+     * @param content file region or chunked file
+     * @param cause   cause of release, release failures are added to it
+     */
+    private static void releaseContent(final Object content, final IOException cause) {
+        try {
+            if (content instanceof ChunkedFile) {
+                ((ChunkedFile) content).close();
+            } else {
+                ReferenceCountUtil.release(content);
+            }
+        } catch (Exception e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Get length of a multipart/byteranges body.
      *
-     * @param response   HTTP response
+     * @param ranges     byte ranges
      * @param fileLength file length
+     * @param boundary   multipart boundary
      * @param request    file request
+     * @return body length
      */
-    private void addContentHeaders(final HttpResponse response, final long fileLength, final HttpFileRequest request) {
-        setContentLength(response, fileLength);
-        response.headers().set(X_CONTENT_TYPE, request.getMimeType().getMimeType());
+    private long getMultipartLength(final List<HttpByteRange> ranges, final long fileLength, final String boundary, final HttpFileRequest request) {
+        long length = getMultipartEnd(boundary).length();
+        for (HttpByteRange range : ranges) {
+            length += getPartHeader(range, fileLength, boundary, request).length() + range.getLength();
+        }
+        return length;
     }
 
     /**
-     * Add date and cache headers to response.
+     * Get header of a multipart/byteranges body part: delimiter and part headers.
      *
-     * @param response HTTP response
-     * @param request  file request
+     * @param range      byte range
+     * @param fileLength file length
+     * @param boundary   multipart boundary
+     * @param request    file request
+     * @return part header
+     */
+    private String getPartHeader(final HttpByteRange range, final long fileLength, final String boundary, final HttpFileRequest request) {
+        return CRLF + "--" + boundary + CRLF
+                + CONTENT_TYPE + ": " + request.getMimeType().getMimeType() + CRLF
+                + CONTENT_RANGE + ": " + range.getContentRange(fileLength) + CRLF
+                + CRLF;
+    }
+
+    /**
+     * Get close delimiter of a multipart/byteranges body.
+     *
+     * @param boundary multipart boundary
+     * @return close delimiter
+     */
+    private String getMultipartEnd(final String boundary) {
+        return CRLF + "--" + boundary + "--" + CRLF;
+    }
+
+    /**
+     * Add content length and type headers.
+     *
+     * @param response      HTTP response
+     * @param contentLength content length
+     * @param contentType   content type
+     */
+    private void addContentHeaders(final HttpResponse response, final long contentLength, final String contentType) {
+        setContentLength(response, contentLength);
+        response.headers().set(X_CONTENT_TYPE, contentType);
+    }
+
+    /**
+     * Add date, validator and cache headers to response.
+     *
+     * @param response     HTTP response
+     * @param request      file request
+     * @param entityTag    file entity tag
+     * @param lastModified file last modification date
      */
-    private void addDateAndCacheHeaders(final HttpResponse response, final HttpFileRequest request) {
-        Calendar calendar = Calendar.getInstance();
+    private void addDateAndCacheHeaders(final HttpResponse response, final HttpFileRequest request, final String entityTag,
+                                        final long lastModified) {
+        long now = System.currentTimeMillis();
 
-        // Add date header
-        response.headers().set(X_DATE, httpDateFormatter.format(calendar.getTime()));
-        response.headers().set(X_LAST_MODIFIED, httpDateFormatter.format(new Date(request.getFile().lastModified())));
+        // Add date and validator headers
+        response.headers().set(X_DATE, DATE_FORMATTER.format(now));
+        response.headers().set(X_LAST_MODIFIED, LAST_MODIFIED_FORMATTER.format(lastModified));
+        response.headers().set(X_ETAG, entityTag);
 
         // Add cache header for static resources
         if (request.isStaticResource() && httpCacheSecond > 0) {
-            calendar.add(Calendar.SECOND, httpCacheSecond);
-            response.headers().set(X_EXPIRES, httpDateFormatter.format(calendar.getTime()));
+            response.headers().set(X_EXPIRES, EXPIRES_FORMATTER.format(now + httpCacheSecond * 1000L));
             response.headers().set(X_CACHE_CONTROL, "private, max-age=" + httpCacheSecond);
         }
     }
 
+    /**
+     * Add DLNA headers to content response: transfer mode and content features.
+     * Content features advertise byte range seek (DLNA.ORG_OP=01), so that renderers seek with Range requests
+     * instead of reconnecting from the start of content.
+     *
+     * @param response HTTP response
+     * @param request  file request
+     */
+    private void addDlnaHeaders(final HttpResponse response, final HttpFileRequest request) {
+        if (!request.isStaticResource()) {
+            MimeType mimeType = request.getMimeType();
+            if (mimeType.getType() == TYPE_VIDEO || mimeType.getType() == TYPE_AUDIO || mimeType.equals(MIME_TYPE_OGG)) {
+                response.headers().set(X_DLNA_TRANSFER_MODE, X_DLNA_STREAMING);
+                response.headers().set(X_DLNA_CONTENT_FEATURES, X_DLNA_STREAMING_FEATURES);
+            } else {
+                response.headers().set(X_DLNA_TRANSFER_MODE, X_DLNA_INTERACTIVE);
+                response.headers().set(X_DLNA_CONTENT_FEATURES, X_DLNA_INTERACTIVE_FEATURES);
+            }
+        }
+    }
+
     /**
      * Add keep alive header
      *
@@ -245,15 +542,21 @@ public final class HttpFileRequestHandler extends SimpleChannelInboundHandler<Ht
     /**
      * Send error.
      *
-     * @param context channel context                                                    z
-     * @param message message
-     * @param status  response status
+     * @param context      channel context
+     * @param message      message
+     * @param status       response status
+     * @param contentRange Content-Range header value, null if none
+     * @param headRequest  HEAD request: only response headers are sent
      */
-    private void sendError(final ChannelHandlerContext context, final String message, final HttpResponseStatus status) {
-        // Build error response
-        ByteBuf buffer = copiedBuffer("Failure: " + message + " " + status.toString() + "\r\n", UTF_8);
+    private void sendError(final ChannelHandlerContext context, final String message, final HttpResponseStatus status, final String contentRange,
+                           final boolean headRequest) {
+        // Build error response, without body for a HEAD request
+        ByteBuf buffer = headRequest ? EMPTY_BUFFER : copiedBuffer("Failure: " + message + " " + status.toString() + "\r\n", UTF_8);
         HttpMessage response = new DefaultFullHttpResponse(HTTP_1_1, status, buffer);
         response.headers().set(X_CONTENT_TYPE, X_CONTENT_TYPE_UTF8);
+        if (contentRange != null) {
+            response.headers().set(X_CONTENT_RANGE, contentRange);
+        }
 
         // Close the connection as soon as the error message is sent.
         context.channel().writeAndFlush(response).addListener(CLOSE);
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package net.holmes.core.service.http;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+
+/**
+ * Netty transport of HTTP server.
+ */
+enum HttpServerTransport {
+    /**
+     * Java NIO transport, available on every platform.
+     */
+    NIO("nio") {
+        @Override
+        boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        EventLoopGroup newEventLoopGroup(final int threads) {
+            return new NioEventLoopGroup(threads);
+        }
+
+        @Override
+        Class<? extends ServerChannel> getServerChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+    },
+    /**
+     * Linux native epoll transport: fewer system calls and SO_REUSEPORT support.
+     */
+    EPOLL("epoll") {
+        @Override
+        boolean isAvailable() {
+            return Epoll.isAvailable();
+        }
+
+        @Override
+        EventLoopGroup newEventLoopGroup(final int threads) {
+            return new EpollEventLoopGroup(threads);
+        }
+
+        @Override
+        Class<? extends ServerChannel> getServerChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+    };
+
+    /**
+     * Transport value selecting epoll transport when it is available, NIO transport otherwise.
+     */
+    static final String AUTO = "auto";
+
+    private final String value;
+
+    /**
+     * Instantiates a new HTTP server transport.
+     *
+     * @param value value
+     */
+    HttpServerTransport(final String value) {
+        this.value = value;
+    }
+
+    /**
+     * Get transport value.
+     *
+     * @return transport value
+     */
+    String getValue() {
+        return value;
+    }
+
+    /**
+     * Whether transport is available on current platform.
+     *
+     * @return true if transport is available
+     */
+    abstract boolean isAvailable();
+
+    /**
+     * Instantiates a new event loop group.
+     *
+     * @param threads number of threads (0 means that Netty uses a default value)
+     * @return event loop group
+     */
+    abstract EventLoopGroup newEventLoopGroup(int threads);
+
+    /**
+     * Get server channel class.
+     *
+     * @return server channel class
+     */
+    abstract Class<? extends ServerChannel> getServerChannelClass();
+
+    /**
+     * Check transport value is a known value: nio, epoll or auto.
+     *
+     * @param transportValue transport value
+     * @return true if transport value is known
+     */
+    static boolean isValid(final String transportValue) {
+        return NIO.value.equalsIgnoreCase(transportValue) || EPOLL.value.equalsIgnoreCase(transportValue) || AUTO.equalsIgnoreCase(transportValue);
+    }
+
+    /**
+     * Select transport by value: nio, epoll or auto.
+     * Epoll transport is selected when it is requested (epoll or auto) and available.
+     * NIO transport is selected for any unknown value.
+     *
+     * @param transportValue transport value
+     * @return selected transport, NIO when epoll is not available
+     */
+    static HttpServerTransport select(final String transportValue) {
+        if ((EPOLL.value.equalsIgnoreCase(transportValue) || AUTO.equalsIgnoreCase(transportValue)) && EPOLL.isAvailable()) {
+            return EPOLL;
+        }
+        return NIO;
+    }
+}
@@ -19,12 +19,11 @@ package net.holmes.core.service.http;
 
 import com.google.inject.Injector;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelConfig;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
@@ -47,7 +46,9 @@ import java.net.SocketAddress;
 
 import static io.netty.buffer.UnpooledByteBufAllocator.DEFAULT;
 import static io.netty.channel.ChannelOption.*;
+import static io.netty.channel.epoll.EpollChannelOption.SO_REUSEPORT;
 import static net.holmes.core.common.ConfigurationParameter.*;
+import static net.holmes.core.service.http.HttpServerTransport.EPOLL;
 import static org.jboss.resteasy.plugins.server.netty.RestEasyHttpRequestDecoder.Protocol.HTTP;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -66,6 +67,10 @@ public final class HttpService implements Service {
 
     private final Injector injector;
     private final ConfigurationManager configurationManager;
+    private final HttpServerTransport transport;
+    private final int acceptors;
+    private final int highWaterMark;
+    private final int lowWaterMark;
     private final EventLoopGroup nettyBossGroup;
     private final EventLoopGroup nettyWorkerGroup;
     private final ResteasyDeployment resteasy;
@@ -80,8 +85,33 @@ public final class HttpService implements Service {
     public HttpService(final Injector injector, final ConfigurationManager configurationManager) {
         this.injector = injector;
         this.configurationManager = configurationManager;
-        this.nettyBossGroup = new NioEventLoopGroup(configurationManager.getParameter(HTTP_SERVER_BOSS_THREADS));
-        this.nettyWorkerGroup = new NioEventLoopGroup(configurationManager.getParameter(HTTP_SERVER_WORKER_THREADS));
+        String transportValue = configurationManager.getParameter(HTTP_SERVER_TRANSPORT);
+        this.transport = HttpServerTransport.select(transportValue);
+        if (!HttpServerTransport.isValid(transportValue)) {
+            LOGGER.warn("Unknown HTTP server transport {} (nio, epoll or auto expected), NIO transport is used", transportValue);
+        } else if (EPOLL.getValue().equalsIgnoreCase(transportValue) && transport != EPOLL) {
+            LOGGER.warn("Epoll transport is not available, NIO transport is used");
+        }
+        int bossThreads = configurationManager.getParameter(HTTP_SERVER_BOSS_THREADS);
+        if (transport == EPOLL && configurationManager.getParameter(HTTP_SERVER_REUSE_PORT_ENABLE)) {
+            // One acceptor socket per boss thread, kernel balances incoming connections between them
+            this.acceptors = bossThreads > 0 ? bossThreads : Runtime.getRuntime().availableProcessors();
+        } else {
+            this.acceptors = 1;
+        }
+        int configuredHighWaterMark = configurationManager.getParameter(HTTP_SERVER_WRITE_BUFFER_HIGH_WATER_MARK);
+        int configuredLowWaterMark = configurationManager.getParameter(HTTP_SERVER_WRITE_BUFFER_LOW_WATER_MARK);
+        if (configuredLowWaterMark < 0 || configuredLowWaterMark > configuredHighWaterMark) {
+            // Netty rejects such water marks on each connection: use default ones
+            LOGGER.warn("Invalid write buffer water marks (low {}, high {}), default water marks are used", configuredLowWaterMark, configuredHighWaterMark);
+            this.highWaterMark = HTTP_SERVER_WRITE_BUFFER_HIGH_WATER_MARK.getDefaultValue();
+            this.lowWaterMark = HTTP_SERVER_WRITE_BUFFER_LOW_WATER_MARK.getDefaultValue();
+        } else {
+            this.highWaterMark = configuredHighWaterMark;
+            this.lowWaterMark = configuredLowWaterMark;
+        }
+        this.nettyBossGroup = transport.newEventLoopGroup(bossThreads);
+        this.nettyWorkerGroup = transport.newEventLoopGroup(configurationManager.getParameter(HTTP_SERVER_WORKER_THREADS));
         this.resteasy = new ResteasyDeployment();
     }
 
@@ -98,13 +128,19 @@ public final class HttpService implements Service {
         // Create a RestEasy request dispatcher
         final RequestDispatcher resteasyDispatcher = new RequestDispatcher((SynchronousDispatcher) resteasy.getDispatcher(), resteasy.getProviderFactory(), null);
 
+        // Get connection parameters
+        int sendBufferSize = configurationManager.getParameter(HTTP_SERVER_SEND_BUFFER_SIZE);
+
         // Configure the service.
         ServerBootstrap serverBootstrap = new ServerBootstrap();
         serverBootstrap.group(nettyBossGroup, nettyWorkerGroup)
-                .channel(NioServerSocketChannel.class)
+                .channel(transport.getServerChannelClass())
                 .childHandler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(final SocketChannel channel) {
+                        // Chunked writes pause while connection is not writable
+                        setWriteBufferWaterMarks(channel.config(), highWaterMark, lowWaterMark);
+
                         ChannelPipeline pipeline = channel.pipeline();
                         // Add default handlers
                         pipeline.addLast("decoder", new HttpRequestDecoder(MAX_INITIAL_LINE_LENGTH, MAX_HEADER_SIZE, MAX_CHUNK_SIZE, false))
@@ -124,7 +160,14 @@ public final class HttpService implements Service {
                 })
                 .option(SO_BACKLOG, BACKLOG)
                 .childOption(ALLOCATOR, DEFAULT)
-                .childOption(SO_KEEPALIVE, true);
+                .childOption(SO_KEEPALIVE, true)
+                .childOption(TCP_NODELAY, configurationManager.getParameter(HTTP_SERVER_TCP_NO_DELAY_ENABLE));
+        if (sendBufferSize > 0) {
+            serverBootstrap.childOption(SO_SNDBUF, sendBufferSize);
+        }
+        if (acceptors > 1) {
+            serverBootstrap.option(SO_REUSEPORT, true);
+        }
 
         // Register backend JAX-RS handlers (declared in Guice injector) to RestEasy
         ModuleProcessor guiceProcessor = new ModuleProcessor(resteasy.getRegistry(), resteasy.getProviderFactory());
@@ -132,9 +175,12 @@ public final class HttpService implements Service {
 
         // Bind and start service to accept incoming connections
         SocketAddress boundAddress = new InetSocketAddress(configurationManager.getParameter(HTTP_SERVER_PORT));
-        serverBootstrap.bind(boundAddress).syncUninterruptibly();
+        for (int i = 0; i < acceptors; i++) {
+            // Each acceptor socket is registered on next boss event loop
+            serverBootstrap.bind(boundAddress).syncUninterruptibly();
+        }
 
-        LOGGER.info("HTTP service bound on {}", boundAddress);
+        LOGGER.info("HTTP service bound on {} ({} transport, {} acceptor(s))", boundAddress, transport.getValue(), acceptors);
     }
 
     /**
@@ -154,4 +200,22 @@ public final class HttpService implements Service {
 
         LOGGER.info("HTTP service stopped");
     }
+
+    /**
+     * Set write buffer water marks of a connection.
+     * Water marks are set in an order that keeps low water mark below high water mark.
+     *
+     * @param config        connection configuration
+     * @param highWaterMark write buffer high water mark
+     * @param lowWaterMark  write buffer low water mark
+     */
+    private static void setWriteBufferWaterMarks(final ChannelConfig config, final int highWaterMark, final int lowWaterMark) {
+        if (highWaterMark < config.getWriteBufferLowWaterMark()) {
+            config.setWriteBufferLowWaterMark(lowWaterMark);
+            config.setWriteBufferHighWaterMark(highWaterMark);
+        } else {
+            config.setWriteBufferHighWaterMark(highWaterMark);
+            config.setWriteBufferLowWaterMark(lowWaterMark);
+        }
+    }
 }
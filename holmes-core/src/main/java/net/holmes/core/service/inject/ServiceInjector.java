@@ -19,6 +19,9 @@ package net.holmes.core.service.inject;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Singleton;
+import net.holmes.core.business.media.BrowseCache;
+import net.holmes.core.service.MediaIndexCleanService;
+import net.holmes.core.service.MediaScanService;
 import net.holmes.core.service.ReleaseCheckService;
 import net.holmes.core.service.Service;
 import net.holmes.core.service.airplay.AirplayService;
@@ -27,6 +30,8 @@ import net.holmes.core.service.http.HttpFileRequestHandler;
 import net.holmes.core.service.http.HttpService;
 import net.holmes.core.service.systray.SystrayService;
 import net.holmes.core.service.upnp.UpnpService;
+import net.holmes.core.service.upnp.directory.BrowseResultCache;
+import net.holmes.core.service.watcher.FileWatcherService;
 
 import javax.net.SocketFactory;
 
@@ -59,10 +64,16 @@ public class ServiceInjector extends AbstractModule {
         bind(Service.class).annotatedWith(named("airplay")).to(AirplayService.class);
         bind(Service.class).annotatedWith(named("systray")).to(SystrayService.class);
         bind(Service.class).annotatedWith(named("release")).to(ReleaseCheckService.class);
+        bind(Service.class).annotatedWith(named("mediaIndexClean")).to(MediaIndexCleanService.class);
+        bind(Service.class).annotatedWith(named("fileWatcher")).to(FileWatcherService.class);
+        bind(Service.class).annotatedWith(named("mediaScan")).to(MediaScanService.class);
 
         // Bind Upnp service
         bind(org.fourthline.cling.UpnpService.class).toProvider(UpnpServiceProvider.class).in(Singleton.class);
 
+        // Bind browse result cache, its statistics are read by back-end
+        bind(BrowseCache.class).to(BrowseResultCache.class);
+
         // Bind Http file request decoder and handler
         bind(HttpFileRequestDecoder.class);
         bind(HttpFileRequestHandler.class);
@@ -17,6 +17,7 @@
 
 package net.holmes.core.service.upnp.directory;
 
+import com.google.common.base.Joiner;
 import org.fourthline.cling.binding.annotations.*;
 import org.fourthline.cling.model.profile.RemoteClientInfo;
 import org.fourthline.cling.model.types.UnsignedIntegerFourBytes;
@@ -26,7 +27,10 @@ import org.fourthline.cling.support.contentdirectory.ContentDirectoryException;
 import org.fourthline.cling.support.model.BrowseFlag;
 import org.fourthline.cling.support.model.BrowseResult;
 
+import java.beans.PropertyChangeSupport;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Simple ContentDirectory service skeleton.
@@ -49,18 +53,35 @@ import java.util.List;
         @UpnpStateVariable(name = "A_ARG_TYPE_SearchCriteria", sendEvents = false, datatype = "string")})
 public abstract class AbstractContentDirectoryService {
 
+    private static final Joiner.MapJoiner CONTAINER_UPDATE_IDS_JOINER = Joiner.on(',').withKeyValueSeparator(",");
+
     @UpnpStateVariable(sendEvents = false)
     private final CSV<String> searchCapabilities;
     @UpnpStateVariable(sendEvents = false)
     private final CSV<String> sortCapabilities;
     @UpnpStateVariable(sendEvents = true, defaultValue = "0", eventMaximumRateMilliseconds = 200)
-    private final UnsignedIntegerFourBytes systemUpdateID = new UnsignedIntegerFourBytes(0);
+    private UnsignedIntegerFourBytes systemUpdateID = new UnsignedIntegerFourBytes(0);
+    @UpnpStateVariable(sendEvents = true, datatype = "string", defaultValue = "", eventMaximumRateMilliseconds = 200)
+    private String containerUpdateIDs = "";
+
+    private final Map<String, Long> pendingContainerUpdateIDs = new LinkedHashMap<>();
+    private final PropertyChangeSupport propertyChangeSupport;
 
     protected AbstractContentDirectoryService(final List<String> searchCapabilities, final List<String> sortCapabilities) {
         this.searchCapabilities = new CSVString();
         this.searchCapabilities.addAll(searchCapabilities);
         this.sortCapabilities = new CSVString();
         this.sortCapabilities.addAll(sortCapabilities);
+        this.propertyChangeSupport = new PropertyChangeSupport(this);
+    }
+
+    /**
+     * Get property change support, used by Cling to event state variables changes.
+     *
+     * @return property change support
+     */
+    public PropertyChangeSupport getPropertyChangeSupport() {
+        return propertyChangeSupport;
     }
 
     /**
@@ -93,6 +114,58 @@ public abstract class AbstractContentDirectoryService {
         return systemUpdateID;
     }
 
+    /**
+     * Get update ids of containers changed since last event: comma separated container id and update id pairs.
+     * Cling reads this state variable when it events it, so pending pairs are cleared once read.
+     * Last evented pairs are returned when no container changed since last read.
+     *
+     * @return container update ids
+     */
+    public synchronized String getContainerUpdateIDs() {
+        if (!pendingContainerUpdateIDs.isEmpty()) {
+            containerUpdateIDs = CONTAINER_UPDATE_IDS_JOINER.join(pendingContainerUpdateIDs);
+            pendingContainerUpdateIDs.clear();
+        }
+        return containerUpdateIDs;
+    }
+
+    /**
+     * Change system update id and container update id, then event them to subscribed control points.
+     * Cling moderates events: these state variables are evented at most every 200 ms,
+     * so container update ids are collected until next event.
+     * Media events are handled asynchronously, so an update id lower than current one is ignored.
+     *
+     * @param updateID          new system update id
+     * @param containerId       changed container id, null if no container update id changed
+     * @param containerUpdateID changed container update id
+     */
+    protected void changeSystemUpdateID(final long updateID, final String containerId, final long containerUpdateID) {
+        boolean systemUpdateIDChanged;
+        boolean containerUpdateIDsChanged = false;
+        synchronized (this) {
+            systemUpdateIDChanged = updateID > systemUpdateID.getValue();
+            if (systemUpdateIDChanged) {
+                systemUpdateID = new UnsignedIntegerFourBytes(updateID);
+            }
+            if (containerId != null) {
+                Long pendingUpdateID = pendingContainerUpdateIDs.get(containerId);
+                if (pendingUpdateID == null || containerUpdateID > pendingUpdateID) {
+                    // Re-insert container so that pairs are evented in change order
+                    pendingContainerUpdateIDs.remove(containerId);
+                    pendingContainerUpdateIDs.put(containerId, containerUpdateID);
+                    containerUpdateIDsChanged = true;
+                }
+            }
+        }
+        // Fire change without holding service lock: Cling reads state variables under its own lock.
+        // No old value, so that a new container update id is evented even when system update id is unchanged
+        if (containerUpdateIDsChanged) {
+            propertyChangeSupport.firePropertyChange("SystemUpdateID,ContainerUpdateIDs", null, updateID);
+        } else if (systemUpdateIDChanged) {
+            propertyChangeSupport.firePropertyChange("SystemUpdateID", null, updateID);
+        }
+    }
+
     /**
      * Browse for content.
      *
@@ -121,7 +194,38 @@ public abstract class AbstractContentDirectoryService {
             @UpnpInputArgument(name = "SortCriteria") String orderBy,
             RemoteClientInfo remoteClientInfo) throws ContentDirectoryException {
 
-        return browse(objectId, BrowseFlag.valueOrNullOf(browseFlag), firstResult.getValue(), maxResults.getValue(), remoteClientInfo);
+        return browse(objectId, BrowseFlag.valueOrNullOf(browseFlag), firstResult.getValue(), maxResults.getValue(), orderBy, remoteClientInfo);
+    }
+
+    /**
+     * Search for content.
+     *
+     * @param containerId      container id
+     * @param searchCriteria   search criteria
+     * @param filter           filter
+     * @param firstResult      first result
+     * @param maxResults       max results
+     * @param orderBy          order by
+     * @param remoteClientInfo remote client info
+     * @return search result
+     * @throws ContentDirectoryException
+     */
+    @SuppressWarnings("UnusedParameters")
+    @UpnpAction(out = {
+            @UpnpOutputArgument(name = "Result", stateVariable = "A_ARG_TYPE_Result", getterName = "getResult"),
+            @UpnpOutputArgument(name = "NumberReturned", stateVariable = "A_ARG_TYPE_Count", getterName = "getCount"),
+            @UpnpOutputArgument(name = "TotalMatches", stateVariable = "A_ARG_TYPE_Count", getterName = "getTotalMatches"),
+            @UpnpOutputArgument(name = "UpdateID", stateVariable = "A_ARG_TYPE_UpdateID", getterName = "getContainerUpdateID")})
+    public BrowseResult search(
+            @UpnpInputArgument(name = "ContainerID", stateVariable = "A_ARG_TYPE_ObjectID") String containerId,
+            @UpnpInputArgument(name = "SearchCriteria") String searchCriteria,
+            @UpnpInputArgument(name = "Filter") String filter,
+            @UpnpInputArgument(name = "StartingIndex", stateVariable = "A_ARG_TYPE_Index") UnsignedIntegerFourBytes firstResult,
+            @UpnpInputArgument(name = "RequestedCount", stateVariable = "A_ARG_TYPE_Count") UnsignedIntegerFourBytes maxResults,
+            @UpnpInputArgument(name = "SortCriteria") String orderBy,
+            RemoteClientInfo remoteClientInfo) throws ContentDirectoryException {
+
+        return search(containerId, searchCriteria, firstResult.getValue(), maxResults.getValue(), orderBy, remoteClientInfo);
     }
 
     /**
@@ -138,10 +242,29 @@ public abstract class AbstractContentDirectoryService {
      * @param browseFlag       browse flag
      * @param firstResult      first results
      * @param maxResults       max result
+     * @param orderBy          sort criteria
      * @param remoteClientInfo remote client info
      * @return browse result
      * @throws ContentDirectoryException
      */
-    protected abstract BrowseResult browse(String objectID, BrowseFlag browseFlag, long firstResult, long maxResults,
+    protected abstract BrowseResult browse(String objectID, BrowseFlag browseFlag, long firstResult, long maxResults, String orderBy,
+                                           RemoteClientInfo remoteClientInfo) throws ContentDirectoryException;
+
+    /**
+     * Implement this method to implement searching of your content.
+     * <p>
+     * This is an optional action defined by <em>ContentDirectory:1</em>.
+     * </p>
+     *
+     * @param containerId      container id
+     * @param searchCriteria   search criteria
+     * @param firstResult      first result
+     * @param maxResults       max results
+     * @param orderBy          sort criteria
+     * @param remoteClientInfo remote client info
+     * @return search result
+     * @throws ContentDirectoryException
+     */
+    protected abstract BrowseResult search(String containerId, String searchCriteria, long firstResult, long maxResults, String orderBy,
                                            RemoteClientInfo remoteClientInfo) throws ContentDirectoryException;
 }
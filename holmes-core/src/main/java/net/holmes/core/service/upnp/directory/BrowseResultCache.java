@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.service.upnp.directory;
+
+import com.google.common.cache.Cache;
+import com.google.common.collect.ImmutableList;
+import net.holmes.core.business.configuration.ConfigurationManager;
+import net.holmes.core.business.media.BrowseCache;
+import net.holmes.core.common.CacheStatistics;
+import org.fourthline.cling.support.model.BrowseFlag;
+import org.fourthline.cling.support.model.BrowseResult;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.cache.CacheBuilder.newBuilder;
+import static net.holmes.core.common.ConfigurationParameter.UPNP_BROWSE_CACHE_EXPIRE_SECONDS;
+import static net.holmes.core.common.ConfigurationParameter.UPNP_BROWSE_CACHE_MAX_ELEMENTS;
+
+/**
+ * Cache of browse results.
+ * <p>
+ * Renderers often repeat the same browse request, e.g. when going back in a menu.
+ * Browse results are cached by browse request and renderer available mime types.
+ * Cache key also holds system update id: results computed before any media change are never reused.
+ * Such stale results are not flushed on media changes, they leave cache by size or TTL.
+ * </p>
+ */
+@Singleton
+public class BrowseResultCache implements BrowseCache {
+    private final Cache<BrowseKey, BrowseResult> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Instantiates a new browse result cache.
+     *
+     * @param configurationManager configuration manager
+     */
+    @Inject
+    public BrowseResultCache(final ConfigurationManager configurationManager) {
+        this(configurationManager.getParameter(UPNP_BROWSE_CACHE_MAX_ELEMENTS), configurationManager.getParameter(UPNP_BROWSE_CACHE_EXPIRE_SECONDS));
+    }
+
+    /**
+     * Instantiates a new browse result cache.
+     *
+     * @param maxElements   max number of cached browse results
+     * @param expireSeconds TTL of cached browse results (in seconds)
+     */
+    BrowseResultCache(final int maxElements, final int expireSeconds) {
+        this.cache = newBuilder()
+                .maximumSize(maxElements)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get cached browse result.
+     *
+     * @param key browse key
+     * @return cached browse result or null
+     */
+    public BrowseResult get(final BrowseKey key) {
+        BrowseResult result = cache.getIfPresent(key);
+        if (result != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * Add browse result to cache.
+     *
+     * @param key    browse key
+     * @param result browse result
+     */
+    public void put(final BrowseKey key, final BrowseResult result) {
+        cache.put(key, result);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.get(), misses.get(), cache.stats().evictionCount(), cache.size());
+    }
+
+    /**
+     * Browse result cache key.
+     */
+    public static final class BrowseKey {
+        private final String objectId;
+        private final BrowseFlag browseFlag;
+        private final long firstResult;
+        private final long maxResults;
+        private final String orderBy;
+        private final List<String> availableMimeTypes;
+        private final long systemUpdateId;
+
+        /**
+         * Instantiates a new browse key.
+         *
+         * @param objectId           browsed object id
+         * @param browseFlag         browse flag
+         * @param firstResult        first result
+         * @param maxResults         max results
+         * @param orderBy            sort criteria
+         * @param availableMimeTypes renderer available mime types
+         * @param systemUpdateId     system update id
+         */
+        public BrowseKey(final String objectId, final BrowseFlag browseFlag, final long firstResult, final long maxResults, final String orderBy,
+                         final List<String> availableMimeTypes, final long systemUpdateId) {
+            this.objectId = objectId;
+            this.browseFlag = browseFlag;
+            this.firstResult = firstResult;
+            this.maxResults = maxResults;
+            this.orderBy = orderBy;
+            // Copied, so that key never changes once cached
+            this.availableMimeTypes = ImmutableList.copyOf(availableMimeTypes);
+            this.systemUpdateId = systemUpdateId;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(objectId, browseFlag, firstResult, maxResults, orderBy, availableMimeTypes, systemUpdateId);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final BrowseKey other = (BrowseKey) obj;
+            return Objects.equals(this.objectId, other.objectId)
+                    && Objects.equals(this.browseFlag, other.browseFlag)
+                    && this.firstResult == other.firstResult
+                    && this.maxResults == other.maxResults
+                    && Objects.equals(this.orderBy, other.orderBy)
+                    && Objects.equals(this.availableMimeTypes, other.availableMimeTypes)
+                    && this.systemUpdateId == other.systemUpdateId;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return toStringHelper(this)
+                    .add("objectId", objectId)
+                    .add("browseFlag", browseFlag)
+                    .add("firstResult", firstResult)
+                    .add("maxResults", maxResults)
+                    .add("orderBy", orderBy)
+                    .add("availableMimeTypes", availableMimeTypes)
+                    .add("systemUpdateId", systemUpdateId)
+                    .toString();
+        }
+    }
+}
@@ -18,29 +18,48 @@
 package net.holmes.core.service.upnp.directory;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.eventbus.Subscribe;
 import net.holmes.core.business.configuration.ConfigurationManager;
 import net.holmes.core.business.media.MediaManager;
 import net.holmes.core.business.media.MediaSearchRequest;
+import net.holmes.core.business.media.MediaSearchResult;
 import net.holmes.core.business.media.model.*;
+import net.holmes.core.business.media.search.InvalidSearchCriteriaException;
+import net.holmes.core.business.media.search.InvalidSortCriteriaException;
+import net.holmes.core.business.media.search.SearchCriteria;
+import net.holmes.core.business.media.search.SortCriteria;
+import net.holmes.core.business.mimetype.MimeTypeManager;
+import net.holmes.core.business.mimetype.model.MimeTypeProfile;
 import net.holmes.core.business.streaming.StreamingManager;
 import net.holmes.core.business.streaming.device.Device;
 import net.holmes.core.business.streaming.upnp.device.UpnpDevice;
+import net.holmes.core.common.event.ConfigurationEvent;
+import net.holmes.core.common.event.MediaEvent;
+import net.holmes.core.service.upnp.directory.BrowseResultCache.BrowseKey;
 import org.fourthline.cling.model.profile.RemoteClientInfo;
 import org.fourthline.cling.support.contentdirectory.ContentDirectoryException;
-import org.fourthline.cling.support.contentdirectory.DIDLParser;
 import org.fourthline.cling.support.model.BrowseFlag;
 import org.fourthline.cling.support.model.BrowseResult;
 
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import static com.google.common.primitives.Ints.saturatedCast;
 import static net.holmes.core.business.media.model.AbstractNode.NodeType.TYPE_PODCAST_ENTRY;
+import static net.holmes.core.business.media.search.SearchCriteria.PROPERTY_CLASS;
+import static net.holmes.core.business.media.search.SearchCriteria.PROPERTY_TITLE;
+import static net.holmes.core.business.media.search.SearchCriteriaParser.parse;
+import static net.holmes.core.business.media.search.SortCriteria.PROPERTY_DATE;
 import static net.holmes.core.business.mimetype.model.MimeType.MIME_TYPE_SUBTITLE;
 import static net.holmes.core.common.ConfigurationParameter.*;
-import static org.fourthline.cling.support.contentdirectory.ContentDirectoryErrorCode.NO_SUCH_OBJECT;
+import static net.holmes.core.common.event.ConfigurationEvent.EventType.SAVE_SETTINGS;
+import static net.holmes.core.common.event.MediaEvent.MediaEventType.CONTAINER_UPDATED;
+import static org.fourthline.cling.support.contentdirectory.ContentDirectoryErrorCode.*;
 import static org.fourthline.cling.support.model.BrowseFlag.*;
 
 /**
@@ -53,13 +72,19 @@ public final class ContentDirectoryService extends AbstractContentDirectoryServi
     private MediaManager mediaManager;
     @Inject
     private StreamingManager streamingManager;
+    @Inject
+    private BrowseResultCache browseResultCache;
+    @Inject
+    private MimeTypeManager mimeTypeManager;
+
+    private final ConcurrentMap<String, ClientMimeTypes> clientMimeTypes = new ConcurrentHashMap<>();
 
     /**
      * Instantiates a new content directory service.
      */
     public ContentDirectoryService() {
         // search caps, sort caps
-        super(Arrays.asList("dc:title"), Arrays.asList("dc:title", "dc:date"));
+        super(Arrays.asList(PROPERTY_TITLE, PROPERTY_CLASS), Arrays.asList(PROPERTY_TITLE, PROPERTY_DATE));
     }
 
     /**
@@ -67,7 +92,7 @@ public final class ContentDirectoryService extends AbstractContentDirectoryServi
      */
     @Override
     public BrowseResult browse(final String objectID, final BrowseFlag browseFlag, final long firstResult, final long maxResults,
-                               final RemoteClientInfo remoteClientInfo) throws ContentDirectoryException {
+                               final String orderBy, final RemoteClientInfo remoteClientInfo) throws ContentDirectoryException {
         // Get browse node
         AbstractNode browseNode = mediaManager.getNode(objectID);
         if (browseNode == null) {
@@ -75,42 +100,152 @@ public final class ContentDirectoryService extends AbstractContentDirectoryServi
         }
 
         // Get available mime types
-        List<String> availableMimeTypes = getAvailableMimeType(remoteClientInfo);
+        ClientMimeTypes mimeTypes = getClientMimeTypes(remoteClientInfo);
+
+        // Get cached browse result
+        BrowseKey browseKey = new BrowseKey(objectID, browseFlag, firstResult, maxResults, orderBy, mimeTypes.getAvailableMimeTypes(),
+                mediaManager.getSystemUpdateId());
+        BrowseResult browseResult = browseResultCache.get(browseKey);
+        if (browseResult != null) {
+            return browseResult;
+        }
 
         // Build browse result
         DirectoryBrowseResult result;
         if (DIRECT_CHILDREN == browseFlag) {
-            result = new DirectoryBrowseResult(firstResult, maxResults);
+            // Parse sort criteria
+            SortCriteria sortCriteria;
+            try {
+                sortCriteria = SortCriteria.parse(orderBy);
+            } catch (InvalidSortCriteriaException e) {
+                throw new ContentDirectoryException(UNSUPPORTED_SORT_CRITERIA, e.getMessage());
+            }
+
+            // Search requested page of sorted child nodes
+            MediaSearchResult searchResult = mediaManager.searchChildNodes(new MediaSearchRequest(browseNode, mimeTypes.getProfile(),
+                    saturatedCast(firstResult), saturatedCast(maxResults), sortCriteria));
+            result = new DirectoryBrowseResult(firstResult, searchResult.getTotalCount());
             // Add child nodes
-            Collection<AbstractNode> searchResult = mediaManager.searchChildNodes(new MediaSearchRequest(browseNode, availableMimeTypes));
-            for (AbstractNode childNode : searchResult) {
-                addNode(objectID, childNode, result, searchResult.size(), availableMimeTypes);
+            for (AbstractNode childNode : searchResult.getNodes()) {
+                addNode(objectID, childNode, result, searchResult.getTotalCount(), mimeTypes.getProfile());
             }
         } else if (METADATA == browseFlag) {
             result = new DirectoryBrowseResult(0, 1);
             // Get node
-            addNode(browseNode.getParentId(), browseNode, result, 0, availableMimeTypes);
+            addNode(browseNode.getParentId(), browseNode, result, 0, mimeTypes.getProfile());
         } else {
-            result = new DirectoryBrowseResult(0, 1);
+            result = new DirectoryBrowseResult(0, 0);
         }
 
-        return result.buildBrowseResult(new DIDLParser());
+        browseResult = result.buildBrowseResult(mediaManager.getContainerUpdateId(objectID));
+        browseResultCache.put(browseKey, browseResult);
+        return browseResult;
     }
 
     /**
-     * Get available mime types
+     * {@inheritDoc}
+     */
+    @Override
+    public BrowseResult search(final String containerId, final String searchCriteria, final long firstResult, final long maxResults,
+                               final String orderBy, final RemoteClientInfo remoteClientInfo) throws ContentDirectoryException {
+        // Get search container
+        AbstractNode containerNode = mediaManager.getNode(containerId);
+        if (containerNode == null) {
+            throw new ContentDirectoryException(NO_SUCH_CONTAINER, containerId);
+        }
+
+        // Parse search criteria
+        SearchCriteria criteria;
+        try {
+            criteria = parse(searchCriteria);
+        } catch (InvalidSearchCriteriaException e) {
+            throw new ContentDirectoryException(UNSUPPORTED_SEARCH_CRITERIA, e.getMessage());
+        }
+
+        // Parse sort criteria
+        SortCriteria sortCriteria;
+        try {
+            sortCriteria = SortCriteria.parse(orderBy);
+        } catch (InvalidSortCriteriaException e) {
+            throw new ContentDirectoryException(UNSUPPORTED_SORT_CRITERIA, e.getMessage());
+        }
+
+        // Search requested page of sorted matching nodes
+        MimeTypeProfile profile = getClientMimeTypes(remoteClientInfo).getProfile();
+        MediaSearchResult searchResult = mediaManager.searchNodes(new MediaSearchRequest(containerNode, profile,
+                saturatedCast(firstResult), saturatedCast(maxResults), sortCriteria), criteria);
+        DirectoryBrowseResult result = new DirectoryBrowseResult(firstResult, searchResult.getTotalCount());
+        for (AbstractNode node : searchResult.getNodes()) {
+            addNode(node.getParentId(), node, result, searchResult.getTotalCount(), profile);
+        }
+
+        return result.buildBrowseResult(mediaManager.getContainerUpdateId(containerId));
+    }
+
+    /**
+     * Handle media event: publish new update ids of updated container.
+     * Cached browse results are keyed by system update id, results cached before this change are never reused.
+     *
+     * @param mediaEvent media event
+     */
+    @Subscribe
+    public void handleMediaEvent(final MediaEvent mediaEvent) {
+        if (mediaEvent.getType() == CONTAINER_UPDATED) {
+            String containerId = mediaEvent.getParameter();
+            changeSystemUpdateID(mediaManager.getSystemUpdateId(), containerId,
+                    containerId != null ? mediaManager.getContainerUpdateId(containerId) : 0L);
+        }
+    }
+
+    /**
+     * Handle configuration event: drop resolved client mime types, as settings may change them.
+     *
+     * @param configurationEvent configuration event
+     */
+    @Subscribe
+    public void handleConfigurationEvent(final ConfigurationEvent configurationEvent) {
+        if (configurationEvent.getType() == SAVE_SETTINGS) {
+            clientMimeTypes.clear();
+        }
+    }
+
+    /**
+     * Get available mime types of a remote client and their mime type profile.
+     * They are resolved once per client host, until a device is added or removed.
      *
      * @param remoteClientInfo remote client info
+     * @return client mime types
+     */
+    private ClientMimeTypes getClientMimeTypes(final RemoteClientInfo remoteClientInfo) {
+        if (remoteClientInfo.getConnection() == null) {
+            // Unknown client: any mime type is available
+            return new ClientMimeTypes(ImmutableList.<String>of(), mimeTypeManager.getProfile(null), 0L);
+        }
+
+        String hostAddress = remoteClientInfo.getRemoteAddress().getHostAddress();
+        long deviceUpdateId = streamingManager.getDeviceUpdateId();
+        ClientMimeTypes mimeTypes = clientMimeTypes.get(hostAddress);
+        if (mimeTypes == null || mimeTypes.getDeviceUpdateId() != deviceUpdateId) {
+            // Devices changed since client mime types were resolved
+            List<String> availableMimeTypes = getAvailableMimeTypes(hostAddress);
+            mimeTypes = new ClientMimeTypes(ImmutableList.copyOf(availableMimeTypes), mimeTypeManager.getProfile(availableMimeTypes), deviceUpdateId);
+            clientMimeTypes.put(hostAddress, mimeTypes);
+        }
+        return mimeTypes;
+    }
+
+    /**
+     * Get available mime types of UPnP renderers on a host.
+     *
+     * @param hostAddress host address
      * @return available mime types
      */
-    private List<String> getAvailableMimeType(final RemoteClientInfo remoteClientInfo) {
+    private List<String> getAvailableMimeTypes(final String hostAddress) {
         // Get available mime types
         List<String> availableMimeTypes = new ArrayList<>();
-        if (remoteClientInfo.getConnection() != null) {
-            for (Device device : streamingManager.findDevices(remoteClientInfo.getRemoteAddress().getHostAddress())) {
-                if (device instanceof UpnpDevice) {
-                    availableMimeTypes.addAll(device.getSupportedMimeTypes());
-                }
+        for (Device device : streamingManager.findDevices(hostAddress)) {
+            if (device instanceof UpnpDevice) {
+                availableMimeTypes.addAll(device.getSupportedMimeTypes());
             }
         }
 
@@ -128,33 +263,31 @@ public final class ContentDirectoryService extends AbstractContentDirectoryServi
      * @param node               node
      * @param result             result
      * @param totalCount         total count
-     * @param availableMimeTypes availableMimeTypes
+     * @param profile            mime type profile
      * @throws ContentDirectoryException
      */
-    private void addNode(final String nodeId, final AbstractNode node, final DirectoryBrowseResult result, final long totalCount, final List<String> availableMimeTypes) throws ContentDirectoryException {
-        if (result.acceptNode()) {
-            if (node instanceof ContentNode) {
-                // Add item to result
-                result.addItem(nodeId, (ContentNode) node, mediaManager.getNodeUrl(node));
-            } else if (node instanceof FolderNode) {
-                // Get child counts
-                Collection<AbstractNode> searchResult = mediaManager.searchChildNodes(new MediaSearchRequest(node, availableMimeTypes));
-                // Add container to result
-                result.addContainer(nodeId, node, searchResult.size());
-            } else if (node instanceof PodcastNode) {
-                // Add podcast to result
-                result.addContainer(nodeId, node, 1);
-            } else if (node instanceof RawUrlNode) {
-                // Add raw URL to result
-                RawUrlNode rawUrlNode = (RawUrlNode) node;
-                String entryName = node.getName();
-                if (rawUrlNode.getType() == TYPE_PODCAST_ENTRY) {
-                    // Format podcast entry name
-                    entryName = formatPodcastEntryName(result.getResultCount(), totalCount, node.getName());
-                }
-
-                result.addUrlItem(nodeId, rawUrlNode, entryName);
+    private void addNode(final String nodeId, final AbstractNode node, final DirectoryBrowseResult result, final long totalCount, final MimeTypeProfile profile) throws ContentDirectoryException {
+        if (node instanceof ContentNode) {
+            // Add item to result
+            result.addItem(nodeId, (ContentNode) node, mediaManager.getNodeUrl(node));
+        } else if (node instanceof FolderNode) {
+            // Get child count, without listing folder when it is already counted
+            int childCount = mediaManager.getChildCount(new MediaSearchRequest(node, profile, 0, 0, SortCriteria.NONE));
+            // Add container to result
+            result.addContainer(nodeId, node, childCount);
+        } else if (node instanceof PodcastNode) {
+            // Add podcast to result
+            result.addContainer(nodeId, node, 1);
+        } else if (node instanceof RawUrlNode) {
+            // Add raw URL to result
+            RawUrlNode rawUrlNode = (RawUrlNode) node;
+            String entryName = node.getName();
+            if (rawUrlNode.getType() == TYPE_PODCAST_ENTRY) {
+                // Format podcast entry name
+                entryName = formatPodcastEntryName(result.getResultCount(), totalCount, node.getName());
             }
+
+            result.addUrlItem(nodeId, rawUrlNode, entryName);
         }
     }
 
@@ -190,8 +323,67 @@ public final class ContentDirectoryService extends AbstractContentDirectoryServi
         this.mediaManager = mediaManager;
     }
 
+    @VisibleForTesting
+    void setBrowseResultCache(final BrowseResultCache browseResultCache) {
+        this.browseResultCache = browseResultCache;
+    }
+
     @VisibleForTesting
     void setStreamingManager(final StreamingManager streamingManager) {
         this.streamingManager = streamingManager;
     }
+
+    @VisibleForTesting
+    void setMimeTypeManager(final MimeTypeManager mimeTypeManager) {
+        this.mimeTypeManager = mimeTypeManager;
+    }
+
+    /**
+     * Available mime types of a remote client, with their resolved mime type profile.
+     */
+    private static final class ClientMimeTypes {
+        private final List<String> availableMimeTypes;
+        private final MimeTypeProfile profile;
+        private final long deviceUpdateId;
+
+        /**
+         * Instantiates new client mime types.
+         *
+         * @param availableMimeTypes available mime types
+         * @param profile            mime type profile of available mime types
+         * @param deviceUpdateId     device update id when mime types were resolved
+         */
+        ClientMimeTypes(final List<String> availableMimeTypes, final MimeTypeProfile profile, final long deviceUpdateId) {
+            this.availableMimeTypes = availableMimeTypes;
+            this.profile = profile;
+            this.deviceUpdateId = deviceUpdateId;
+        }
+
+        /**
+         * Get available mime types.
+         *
+         * @return available mime types
+         */
+        List<String> getAvailableMimeTypes() {
+            return availableMimeTypes;
+        }
+
+        /**
+         * Get mime type profile.
+         *
+         * @return mime type profile
+         */
+        MimeTypeProfile getProfile() {
+            return profile;
+        }
+
+        /**
+         * Get device update id when mime types were resolved.
+         *
+         * @return device update id
+         */
+        long getDeviceUpdateId() {
+            return deviceUpdateId;
+        }
+    }
 }
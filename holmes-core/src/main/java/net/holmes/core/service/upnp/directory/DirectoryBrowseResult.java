@@ -21,51 +21,35 @@ import net.holmes.core.business.media.model.AbstractNode;
 import net.holmes.core.business.media.model.ContentNode;
 import net.holmes.core.business.media.model.RawUrlNode;
 import net.holmes.core.business.mimetype.model.MimeType;
+import net.holmes.core.business.streaming.upnp.DidlWriter;
 import org.fourthline.cling.support.contentdirectory.ContentDirectoryException;
-import org.fourthline.cling.support.contentdirectory.DIDLParser;
 import org.fourthline.cling.support.model.BrowseResult;
-import org.fourthline.cling.support.model.DIDLContent;
-import org.fourthline.cling.support.model.DIDLObject;
-import org.fourthline.cling.support.model.DIDLObject.Property.DC;
-import org.fourthline.cling.support.model.DIDLObject.Property.UPNP;
-import org.fourthline.cling.support.model.Res;
-import org.fourthline.cling.support.model.container.Container;
-import org.fourthline.cling.support.model.item.*;
 
-import java.net.URI;
 import java.net.URISyntaxException;
-import java.text.SimpleDateFormat;
 
-import static net.holmes.core.business.mimetype.model.MimeType.*;
-import static net.holmes.core.business.streaming.upnp.UpnpUtils.getUpnpMimeType;
+import static net.holmes.core.business.streaming.upnp.DidlWriter.getItemClass;
 import static org.fourthline.cling.support.contentdirectory.ContentDirectoryErrorCode.CANNOT_PROCESS;
 
 /**
  * UPnP directory browse result.
+ * Nodes are written into DIDL-Lite as they are added.
  */
 final class DirectoryBrowseResult {
-    private static final String UPNP_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ssZ";
-    private static final DIDLObject.Class CONTAINER_CLASS = new DIDLObject.Class("object.container");
-
-    private final DIDLContent didl;
+    private final DidlWriter didlWriter;
     private final long firstResult;
-    private final long maxResults;
-
-    private long itemCount;
-    private long totalCount;
+    private final long totalCount;
 
     /**
      * Instantiates a new directory browse result.
+     * Only nodes in the requested page are added to the result, total count is known before.
      *
      * @param firstResult first result
-     * @param maxResults  max results
+     * @param totalCount  total number of matching nodes
      */
-    public DirectoryBrowseResult(final long firstResult, final long maxResults) {
+    public DirectoryBrowseResult(final long firstResult, final long totalCount) {
         this.firstResult = firstResult;
-        this.maxResults = maxResults;
-        this.didl = new DIDLContent();
-        this.itemCount = 0L;
-        this.totalCount = 0L;
+        this.totalCount = totalCount;
+        this.didlWriter = new DidlWriter();
     }
 
     /**
@@ -74,7 +58,7 @@ final class DirectoryBrowseResult {
      * @return item count
      */
     public long getItemCount() {
-        return itemCount;
+        return didlWriter.getNodeCount();
     }
 
     /**
@@ -95,37 +79,23 @@ final class DirectoryBrowseResult {
         return firstResult;
     }
 
-    /**
-     * Get DIDL.
-     *
-     * @return DIDL
-     */
-    public DIDLContent getDidl() {
-        return didl;
-    }
-
     /**
      * Get total result count.
      *
      * @return total result count
      */
     public long getResultCount() {
-        return itemCount + firstResult;
+        return getItemCount() + firstResult;
     }
 
     /**
      * Build browse result.
      *
-     * @param didlParser DIDL parser
+     * @param updateId update id of browsed container
      * @return browse result
-     * @throws ContentDirectoryException
      */
-    public BrowseResult buildBrowseResult(final DIDLParser didlParser) throws ContentDirectoryException {
-        try {
-            return new BrowseResult(didlParser.generate(didl), itemCount, totalCount);
-        } catch (Exception e) {
-            throw new ContentDirectoryException(CANNOT_PROCESS.getCode(), e.getMessage(), e);
-        }
+    public BrowseResult buildBrowseResult(final long updateId) {
+        return new BrowseResult(didlWriter.toDidl(), getItemCount(), totalCount, updateId);
     }
 
     /**
@@ -137,8 +107,7 @@ final class DirectoryBrowseResult {
      * @throws ContentDirectoryException
      */
     public void addItem(final String parentNodeId, final ContentNode contentNode, final String url) throws ContentDirectoryException {
-        Res res = new Res(getUpnpMimeType(contentNode.getMimeType()), contentNode.getSize(), url);
-        addDidlItem(parentNodeId, contentNode, contentNode.getName(), contentNode.getMimeType(), res);
+        addDidlItem(parentNodeId, contentNode, contentNode.getName(), contentNode.getMimeType(), contentNode.getSize(), null, url);
     }
 
     /**
@@ -150,11 +119,7 @@ final class DirectoryBrowseResult {
      * @throws ContentDirectoryException
      */
     public void addUrlItem(final String parentNodeId, final RawUrlNode rawUrlNode, final String entryName) throws ContentDirectoryException {
-        MimeType mimeType = rawUrlNode.getMimeType();
-        Res res = new Res(getUpnpMimeType(mimeType), null, rawUrlNode.getUrl());
-        res.setDuration(rawUrlNode.getDuration());
-
-        addDidlItem(parentNodeId, rawUrlNode, entryName, mimeType, res);
+        addDidlItem(parentNodeId, rawUrlNode, entryName, rawUrlNode.getMimeType(), null, rawUrlNode.getDuration(), rawUrlNode.getUrl());
     }
 
     /**
@@ -164,55 +129,21 @@ final class DirectoryBrowseResult {
      * @param node         node to add
      * @param name         node name
      * @param mimeType     node mimeType
-     * @param res          didl resource
+     * @param size         resource size
+     * @param duration     resource duration
+     * @param url          resource url
      * @throws ContentDirectoryException
      */
-    private void addDidlItem(final String parentNodeId, final AbstractNode node, final String name, final MimeType mimeType, final Res res) throws ContentDirectoryException {
-        Item item;
-        switch (mimeType.getType()) {
-            case TYPE_VIDEO:
-                // Add video item
-                item = new Movie(node.getId(), parentNodeId, name, null, res);
-                break;
-            case TYPE_AUDIO:
-                // Add audio track item
-                item = new MusicTrack(node.getId(), parentNodeId, name, null, null, (String) null, res);
-                break;
-            case TYPE_IMAGE:
-                // Add image item
-                item = new Photo(node.getId(), parentNodeId, name, null, null, res);
-                break;
-            default:
-                item = getUnknownTypeItem(parentNodeId, node, name, mimeType, res);
-                break;
-        }
-        if (item != null) {
-            setDidlMetadata(item, node);
-            didl.addItem(item);
-            itemCount++;
-        }
-    }
-
-    /**
-     * Get DIDL item with unknown mime type.
-     *
-     * @param parentNodeId parent node id
-     * @param node         node to add
-     * @param name         node name
-     * @param mimeType     node mimeType
-     * @param res          didl resource
-     * @return DIDL item or null
-     */
-    private Item getUnknownTypeItem(final String parentNodeId, final AbstractNode node, final String name, final MimeType mimeType, final Res res) {
-        Item item = null;
-        if (mimeType.equals(MIME_TYPE_SUBTITLE)) {
-            // Add subtitle item
-            item = new TextItem(node.getId(), parentNodeId, name, null, res);
-        } else if (mimeType.equals(MIME_TYPE_OGG)) {
-            // Add OGG item
-            item = new MusicTrack(node.getId(), parentNodeId, name, null, null, (String) null, res);
+    private void addDidlItem(final String parentNodeId, final AbstractNode node, final String name, final MimeType mimeType, final Long size,
+                             final String duration, final String url) throws ContentDirectoryException {
+        String upnpClass = getItemClass(mimeType);
+        if (upnpClass != null) {
+            try {
+                didlWriter.writeItem(parentNodeId, node, name, upnpClass, mimeType, size, duration, url);
+            } catch (URISyntaxException e) {
+                throw new ContentDirectoryException(CANNOT_PROCESS.getCode(), e.getMessage(), e);
+            }
         }
-        return item;
     }
 
     /**
@@ -224,42 +155,10 @@ final class DirectoryBrowseResult {
      * @throws ContentDirectoryException
      */
     public void addContainer(final String parentNodeId, final AbstractNode node, final int childCount) throws ContentDirectoryException {
-        Container container = new Container(node.getId(), parentNodeId, node.getName(), null, CONTAINER_CLASS, childCount);
-        container.setSearchable(true);
-        setDidlMetadata(container, node);
-
-        didl.addContainer(container);
-        itemCount++;
-    }
-
-    /**
-     * Check if node can be added to result according to pagination parameters.
-     *
-     * @return true, if successful
-     */
-    public boolean acceptNode() {
-        totalCount++;
-        return maxResults == 0 || itemCount < maxResults && totalCount >= firstResult + 1;
-    }
-
-    /**
-     * Set the didl metadata.
-     *
-     * @param didlObject didl object
-     * @param node       node
-     * @throws ContentDirectoryException
-     */
-    private void setDidlMetadata(final DIDLObject didlObject, final AbstractNode node) throws ContentDirectoryException {
-        if (node.getModifiedDate() != null) {
-            didlObject.replaceFirstProperty(new DC.DATE(new SimpleDateFormat(UPNP_DATE_FORMAT).format(node.getModifiedDate())));
-        }
-
-        if (node.getIconUrl() != null) {
-            try {
-                didlObject.replaceFirstProperty(new UPNP.ICON(new URI(node.getIconUrl())));
-            } catch (URISyntaxException e) {
-                throw new ContentDirectoryException(CANNOT_PROCESS.getCode(), e.getMessage(), e);
-            }
+        try {
+            didlWriter.writeContainer(parentNodeId, node, childCount);
+        } catch (URISyntaxException e) {
+            throw new ContentDirectoryException(CANNOT_PROCESS.getCode(), e.getMessage(), e);
         }
     }
 }
@@ -0,0 +1,366 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.service.watcher;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.AbstractExecutionThreadService;
+import net.holmes.core.business.configuration.ConfigurationManager;
+import net.holmes.core.business.configuration.model.ConfigurationNode;
+import net.holmes.core.business.media.model.RootNode;
+import net.holmes.core.common.event.ConfigurationEvent;
+import net.holmes.core.common.event.MediaEvent;
+import net.holmes.core.service.Service;
+import org.slf4j.Logger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardWatchEventKinds.*;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static net.holmes.core.common.ConfigurationParameter.FILE_WATCHER_BATCH_DELAY_MILLISECONDS;
+import static net.holmes.core.common.ConfigurationParameter.FILE_WATCHER_ENABLE;
+import static net.holmes.core.common.event.MediaEvent.MediaEventType.FOLDER_CHANGED;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * File watcher service: watches configured video, audio and picture folders and publishes folder changes.
+ * <p>
+ * Folders are watched with a {@link WatchService}: one watch key per folder, files are never watched individually.
+ * File system events are batched per folder: a {@link MediaEvent} is published for each changed folder
+ * once no event has been received during a short delay.
+ * When events are lost (overflow), the whole folder is refreshed and its new sub folders are watched.
+ * </p>
+ */
+@Singleton
+public final class FileWatcherService extends AbstractExecutionThreadService implements Service {
+    private static final Logger LOGGER = getLogger(FileWatcherService.class);
+    /**
+     * Changes are published at the latest after this number of batch delays, even if events keep coming.
+     */
+    private static final int MAX_BATCH_DELAYS = 10;
+
+    private final ConfigurationManager configurationManager;
+    private final EventBus eventBus;
+    private final boolean enabled;
+    private final long batchDelayMillis;
+    private final ConcurrentMap<Path, WatchKey> watchKeys;
+    private final Map<Path, Boolean> changedFolders;
+    private long firstChangeNanos = 0;
+    private volatile WatchService watchService = null;
+    private volatile boolean watchFailed = false;
+
+    /**
+     * Instantiates a new file watcher service.
+     *
+     * @param configurationManager configuration manager
+     * @param eventBus             event bus
+     */
+    @Inject
+    public FileWatcherService(final ConfigurationManager configurationManager, final EventBus eventBus) {
+        this.configurationManager = configurationManager;
+        this.eventBus = eventBus;
+        this.enabled = configurationManager.getParameter(FILE_WATCHER_ENABLE);
+        this.batchDelayMillis = configurationManager.getParameter(FILE_WATCHER_BATCH_DELAY_MILLISECONDS);
+        this.watchKeys = new ConcurrentHashMap<>();
+        this.changedFolders = new LinkedHashMap<>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void start() {
+        if (enabled) {
+            startAsync();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop() {
+        if (enabled) {
+            stopAsync();
+        }
+    }
+
+    /**
+     * Get number of watched folders.
+     *
+     * @return number of watched folders
+     */
+    public int getWatchedFolderCount() {
+        return watchKeys.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void startUp() throws IOException {
+        LOGGER.info("Starting file watcher service");
+        watchService = FileSystems.getDefault().newWatchService();
+        watchConfiguredFolders();
+        LOGGER.info("File watcher service started: {} folders watched", watchKeys.size());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void run() {
+        while (isRunning()) {
+            WatchKey watchKey;
+            try {
+                // Wait for first event, then wait until no event is received during batch delay
+                watchKey = changedFolders.isEmpty() ? watchService.take() : watchService.poll(batchDelayMillis, MILLISECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+            if (watchKey != null) {
+                processEvents(watchKey);
+            }
+            if (!changedFolders.isEmpty() && (watchKey == null
+                    || NANOSECONDS.toMillis(System.nanoTime() - firstChangeNanos) > MAX_BATCH_DELAYS * batchDelayMillis)) {
+                publishChanges();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void triggerShutdown() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void shutDown() {
+        watchKeys.clear();
+        LOGGER.info("File watcher service stopped");
+    }
+
+    /**
+     * Configuration has changed, update watched folders.
+     *
+     * @param configurationEvent configuration event
+     */
+    @Subscribe
+    public void handleConfigEvent(final ConfigurationEvent configurationEvent) {
+        if (watchService != null && isRunning() && configurationEvent.getRootNode().isLocalPath()) {
+            switch (configurationEvent.getType()) {
+                case ADD_FOLDER:
+                case UPDATE_FOLDER:
+                case DELETE_FOLDER:
+                    watchConfiguredFolders();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Watch configured folders and their sub folders. Stop watching folders that are no more configured.
+     */
+    private synchronized void watchConfiguredFolders() {
+        List<Path> configuredPaths = new ArrayList<>();
+        for (RootNode rootNode : RootNode.values()) {
+            if (rootNode.isLocalPath()) {
+                for (ConfigurationNode configNode : configurationManager.getNodes(rootNode)) {
+                    configuredPaths.add(Paths.get(configNode.getPath()).toAbsolutePath());
+                }
+            }
+        }
+
+        // Cancel watch keys of folders that are no more configured
+        for (Entry<Path, WatchKey> watchKeyEntry : watchKeys.entrySet()) {
+            if (!isConfigured(watchKeyEntry.getKey(), configuredPaths)) {
+                watchKeyEntry.getValue().cancel();
+                watchKeys.remove(watchKeyEntry.getKey(), watchKeyEntry.getValue());
+            }
+        }
+
+        // Watch new configured folders
+        for (Path configuredPath : configuredPaths) {
+            if (!watchKeys.containsKey(configuredPath)) {
+                watchTree(configuredPath);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a folder belongs to a configured folder.
+     *
+     * @param folder          folder
+     * @param configuredPaths configured folders
+     * @return true if folder is a configured folder or one of their sub folders
+     */
+    private static boolean isConfigured(final Path folder, final List<Path> configuredPaths) {
+        for (Path configuredPath : configuredPaths) {
+            if (folder.startsWith(configuredPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Watch a folder and all its sub folders.
+     *
+     * @param folder folder
+     */
+    private void watchTree(final Path folder) {
+        try {
+            Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                    if (!dir.equals(folder) && Files.isHidden(dir)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    watch(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+                    LOGGER.debug("Unable to visit {}: {}", file, exc.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.error("Unable to watch " + folder + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Watch a single folder.
+     *
+     * @param folder folder
+     */
+    private void watch(final Path folder) {
+        if (!watchKeys.containsKey(folder)) {
+            try {
+                watchKeys.put(folder, folder.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY));
+            } catch (IOException e) {
+                // Usually the limit of watched folders is reached (inotify on Linux): only log first error
+                if (!watchFailed) {
+                    watchFailed = true;
+                    LOGGER.warn("Unable to watch {}, changes in this folder will not be detected: {}", folder, e.getMessage());
+                } else {
+                    LOGGER.debug("Unable to watch {}: {}", folder, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Process events of a watch key.
+     *
+     * @param watchKey watch key
+     */
+    private void processEvents(final WatchKey watchKey) {
+        Path folder = (Path) watchKey.watchable();
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Events were lost
+                folderChanged(folder, true);
+            } else {
+                Path child = folder.resolve((Path) event.context());
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, NOFOLLOW_LINKS)) {
+                    // Watch new sub folder
+                    watchTree(child);
+                }
+                folderChanged(folder, false);
+            }
+        }
+        if (!watchKey.reset()) {
+            // Folder is no more accessible
+            watchKeys.remove(folder, watchKey);
+        }
+    }
+
+    /**
+     * Record a folder change.
+     *
+     * @param folder   changed folder
+     * @param overflow whether folder events were lost
+     */
+    private void folderChanged(final Path folder, final boolean overflow) {
+        if (changedFolders.isEmpty()) {
+            firstChangeNanos = System.nanoTime();
+        }
+        Boolean previousOverflow = changedFolders.get(folder);
+        changedFolders.put(folder, overflow || previousOverflow != null && previousOverflow);
+    }
+
+    /**
+     * Publish folder changes.
+     */
+    private void publishChanges() {
+        for (Entry<Path, Boolean> changedFolder : changedFolders.entrySet()) {
+            Path folder = changedFolder.getKey();
+            if (changedFolder.getValue()) {
+                // Events were lost: new sub folders may not be watched
+                watchNewSubFolders(folder);
+            }
+            eventBus.post(new MediaEvent(FOLDER_CHANGED, folder.toString()));
+        }
+        LOGGER.debug("{} folder changes published", changedFolders.size());
+        changedFolders.clear();
+    }
+
+    /**
+     * Watch sub folders that are not watched yet.
+     *
+     * @param folder folder
+     */
+    private void watchNewSubFolders(final Path folder) {
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(folder)) {
+            for (Path child : children) {
+                if (Files.isDirectory(child, NOFOLLOW_LINKS) && !watchKeys.containsKey(child)) {
+                    watchTree(child);
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            LOGGER.debug("Unable to list {}: {}", folder, e.getMessage());
+        }
+    }
+}
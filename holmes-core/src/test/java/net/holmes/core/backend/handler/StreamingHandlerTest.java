@@ -22,6 +22,7 @@ import net.holmes.core.backend.response.PlaybackDevice;
 import net.holmes.core.backend.response.PlaybackStatus;
 import net.holmes.core.business.media.MediaManager;
 import net.holmes.core.business.media.MediaSearchRequest;
+import net.holmes.core.business.media.MediaSearchResult;
 import net.holmes.core.business.media.model.AbstractNode;
 import net.holmes.core.business.media.model.ContentNode;
 import net.holmes.core.business.media.model.FolderNode;
@@ -35,7 +36,6 @@ import net.holmes.core.business.streaming.session.UnknownSessionException;
 import org.junit.Test;
 
 import java.io.File;
-import java.util.Collection;
 import java.util.List;
 
 import static com.google.common.collect.Lists.newArrayList;
@@ -267,12 +267,12 @@ public class StreamingHandlerTest {
         FolderNode videoRootNode = new FolderNode(VIDEO.getId(), VIDEO.getParentId(), VIDEO.getId());
         ContentNode contentNode = new ContentNode("id", "parentId", "name", new File("file"), MimeType.valueOf("video/x-msvideo"));
         FolderNode folderNode = new FolderNode("id", "parentId", "name");
-        Collection<AbstractNode> searchResult = newArrayList(contentNode, folderNode);
+        List<AbstractNode> searchResult = newArrayList(contentNode, folderNode);
 
         expect(streamingManager.getDevice(eq("deviceId"))).andReturn(device).atLeastOnce();
         expect(mediaManager.getNode(eq("0"))).andReturn(null).atLeastOnce();
         expect(mediaManager.getNode(eq(VIDEO.getId()))).andReturn(videoRootNode).atLeastOnce();
-        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(searchResult).atLeastOnce();
+        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(new MediaSearchResult(searchResult, searchResult.size())).atLeastOnce();
         expect(mediaManager.getNodeUrl(isA(AbstractNode.class))).andReturn("nodeUrl").atLeastOnce();
         expect(device.isVideoSupported()).andReturn(true).atLeastOnce();
         expect(device.getSupportedMimeTypes()).andReturn(null).atLeastOnce();
@@ -298,11 +298,11 @@ public class StreamingHandlerTest {
         ContentNode contentNode = new ContentNode("idContent", "parentId", "nameContent", new File("file"), MimeType.valueOf("video/x-msvideo"));
         FolderNode folderNode = new FolderNode("idFolder", "parentId", "nameFolder");
         PodcastNode podcastNode = new PodcastNode("idPodcast", "parentId", "namePodcast", "podcastUrl");
-        Collection<AbstractNode> searchResult = newArrayList(contentNode, folderNode, podcastNode);
+        List<AbstractNode> searchResult = newArrayList(contentNode, folderNode, podcastNode);
 
         expect(streamingManager.getDevice(eq("deviceId"))).andReturn(device).atLeastOnce();
         expect(mediaManager.getNode(eq("nodeId"))).andReturn(node).atLeastOnce();
-        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(searchResult).atLeastOnce();
+        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(new MediaSearchResult(searchResult, searchResult.size())).atLeastOnce();
         expect(mediaManager.getNodeUrl(isA(AbstractNode.class))).andReturn("nodeUrl").atLeastOnce();
         expect(device.getSupportedMimeTypes()).andReturn(null).atLeastOnce();
 
@@ -18,8 +18,13 @@
 package net.holmes.core.backend.handler;
 
 
+import net.holmes.core.business.media.BrowseCache;
+import net.holmes.core.business.media.MediaManager;
+import net.holmes.core.business.media.dao.index.MediaIndexStatistics;
+import net.holmes.core.business.media.scan.MediaScanStatistics;
 import net.holmes.core.business.version.ReleaseInfo;
 import net.holmes.core.business.version.VersionManager;
+import net.holmes.core.common.CacheStatistics;
 import org.junit.Test;
 
 import java.util.Collection;
@@ -36,7 +41,7 @@ public class UtilHandlerTest {
         expect(versionManager.getCurrentVersion()).andReturn("version");
         replay(versionManager);
 
-        UtilHandler utilHandler = new UtilHandler(versionManager);
+        UtilHandler utilHandler = new UtilHandler(versionManager, createMock(MediaManager.class), createMock(BrowseCache.class));
         String version = utilHandler.getVersion();
         assertNotNull(version);
         assertEquals(version, "version");
@@ -51,7 +56,7 @@ public class UtilHandlerTest {
         expect(versionManager.getCurrentVersion()).andReturn(null);
         replay(versionManager);
 
-        UtilHandler utilHandler = new UtilHandler(versionManager);
+        UtilHandler utilHandler = new UtilHandler(versionManager, createMock(MediaManager.class), createMock(BrowseCache.class));
         String version = utilHandler.getVersion();
         assertNotNull(version);
         assertEquals(version, "alpha");
@@ -59,6 +64,81 @@ public class UtilHandlerTest {
         verify(versionManager);
     }
 
+    @Test
+    public void testGetMediaIndexStatistics() {
+        VersionManager versionManager = createMock(VersionManager.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+
+        MediaIndexStatistics statistics = new MediaIndexStatistics();
+        expect(mediaManager.getIndexStatistics()).andReturn(statistics);
+        replay(versionManager, mediaManager);
+
+        UtilHandler utilHandler = new UtilHandler(versionManager, mediaManager, createMock(BrowseCache.class));
+        assertEquals(statistics, utilHandler.getMediaIndexStatistics());
+
+        verify(versionManager, mediaManager);
+    }
+
+    @Test
+    public void testGetMediaScanStatistics() {
+        VersionManager versionManager = createMock(VersionManager.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+
+        MediaScanStatistics statistics = new MediaScanStatistics();
+        expect(mediaManager.getScanStatistics()).andReturn(statistics);
+        replay(versionManager, mediaManager);
+
+        UtilHandler utilHandler = new UtilHandler(versionManager, mediaManager, createMock(BrowseCache.class));
+        assertEquals(statistics, utilHandler.getMediaScanStatistics());
+
+        verify(versionManager, mediaManager);
+    }
+
+    @Test
+    public void testGetFolderCacheStatistics() {
+        VersionManager versionManager = createMock(VersionManager.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+
+        CacheStatistics statistics = new CacheStatistics(1, 2, 3, 4);
+        expect(mediaManager.getFolderCacheStatistics()).andReturn(statistics);
+        replay(versionManager, mediaManager);
+
+        UtilHandler utilHandler = new UtilHandler(versionManager, mediaManager, createMock(BrowseCache.class));
+        assertEquals(statistics, utilHandler.getFolderCacheStatistics());
+
+        verify(versionManager, mediaManager);
+    }
+
+    @Test
+    public void testGetCoalescedRequestCount() {
+        VersionManager versionManager = createMock(VersionManager.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+
+        expect(mediaManager.getCoalescedRequestCount()).andReturn(5L);
+        replay(versionManager, mediaManager);
+
+        UtilHandler utilHandler = new UtilHandler(versionManager, mediaManager, createMock(BrowseCache.class));
+        assertEquals(5L, utilHandler.getCoalescedRequestCount());
+
+        verify(versionManager, mediaManager);
+    }
+
+    @Test
+    public void testGetBrowseCacheStatistics() {
+        VersionManager versionManager = createMock(VersionManager.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+        BrowseCache browseCache = createMock(BrowseCache.class);
+
+        CacheStatistics statistics = new CacheStatistics(1, 2, 3, 4);
+        expect(browseCache.getStatistics()).andReturn(statistics);
+        replay(versionManager, mediaManager, browseCache);
+
+        UtilHandler utilHandler = new UtilHandler(versionManager, mediaManager, browseCache);
+        assertEquals(statistics, utilHandler.getBrowseCacheStatistics());
+
+        verify(versionManager, mediaManager, browseCache);
+    }
+
     @Test
     public void testGetReleaseInfo() {
         VersionManager versionManager = createMock(VersionManager.class);
@@ -66,7 +146,7 @@ public class UtilHandlerTest {
         expect(versionManager.getRemoteReleaseInfo()).andReturn(new ReleaseInfo("name", true, "url"));
         replay(versionManager);
 
-        UtilHandler utilHandler = new UtilHandler(versionManager);
+        UtilHandler utilHandler = new UtilHandler(versionManager, createMock(MediaManager.class), createMock(BrowseCache.class));
         ReleaseInfo releaseInfo = utilHandler.getReleaseInfo();
         assertNotNull(releaseInfo);
 
@@ -79,7 +159,7 @@ public class UtilHandlerTest {
 
         replay(versionManager);
 
-        UtilHandler utilHandler = new UtilHandler(versionManager);
+        UtilHandler utilHandler = new UtilHandler(versionManager, createMock(MediaManager.class), createMock(BrowseCache.class));
         Collection<UtilHandler.Folder> folders = utilHandler.getChildFolders("/");
         assertNotNull(folders);
 
@@ -92,7 +172,7 @@ public class UtilHandlerTest {
 
         replay(versionManager);
 
-        UtilHandler utilHandler = new UtilHandler(versionManager);
+        UtilHandler utilHandler = new UtilHandler(versionManager, createMock(MediaManager.class), createMock(BrowseCache.class));
         Collection<UtilHandler.Folder> folders = utilHandler.getChildFolders(null);
         assertNotNull(folders);
 
@@ -105,7 +185,7 @@ public class UtilHandlerTest {
 
         replay(versionManager);
 
-        UtilHandler utilHandler = new UtilHandler(versionManager);
+        UtilHandler utilHandler = new UtilHandler(versionManager, createMock(MediaManager.class), createMock(BrowseCache.class));
         Collection<UtilHandler.Folder> folders = utilHandler.getChildFolders("none");
         assertNotNull(folders);
 
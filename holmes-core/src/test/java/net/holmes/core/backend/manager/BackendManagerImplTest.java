@@ -25,6 +25,7 @@ import net.holmes.core.business.configuration.ConfigurationManager;
 import net.holmes.core.business.configuration.exception.UnknownNodeException;
 import net.holmes.core.business.configuration.model.ConfigurationNode;
 import net.holmes.core.common.event.ConfigurationEvent;
+import net.holmes.core.common.event.MediaEvent;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -128,6 +129,8 @@ public class BackendManagerImplTest {
         expect(configurationManager.addNode(eq(AUDIO), isA(ConfigurationNode.class))).andReturn(true);
         eventBus.post(isA(ConfigurationEvent.class));
         expectLastCall();
+        eventBus.post(isA(MediaEvent.class));
+        expectLastCall();
 
         replay(configurationManager, eventBus);
 
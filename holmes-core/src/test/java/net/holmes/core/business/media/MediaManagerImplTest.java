@@ -17,14 +17,28 @@
 
 package net.holmes.core.business.media;
 
+import com.google.common.collect.ImmutableMap;
 import net.holmes.core.business.configuration.ConfigurationManager;
 import net.holmes.core.business.configuration.ConfigurationManagerImpl;
 import net.holmes.core.business.configuration.dao.ConfigurationDao;
 import net.holmes.core.business.configuration.model.ConfigurationNode;
+import net.holmes.core.business.media.dao.FolderCounts;
 import net.holmes.core.business.media.dao.MediaDao;
+import net.holmes.core.business.media.dao.MediaSearchHit;
+import net.holmes.core.business.media.dao.index.MediaIndexStatistics;
 import net.holmes.core.business.media.model.*;
+import net.holmes.core.business.media.scan.MediaScanStatistics;
+import net.holmes.core.business.media.scan.MediaScanner;
+import net.holmes.core.business.media.search.InvalidSortCriteriaException;
+import net.holmes.core.business.media.search.SearchCriteria;
+import net.holmes.core.business.media.search.SortCriteria;
 import net.holmes.core.business.mimetype.MimeTypeManager;
+import net.holmes.core.business.mimetype.MimeTypeManagerImpl;
+import net.holmes.core.business.mimetype.dao.MimeTypeDaoImpl;
 import net.holmes.core.business.mimetype.model.MimeType;
+import net.holmes.core.business.mimetype.model.MimeTypeProfile;
+import net.holmes.core.common.CacheStatistics;
+import net.holmes.core.common.event.ConfigurationEvent;
 import net.holmes.core.common.event.MediaEvent;
 import net.holmes.core.test.TestConfigurationDao;
 import org.junit.Test;
@@ -32,18 +46,22 @@ import org.junit.Test;
 import java.io.File;
 import java.net.InetAddress;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.ResourceBundle;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static net.holmes.core.business.media.model.AbstractNode.NodeType.TYPE_PODCAST_ENTRY;
 import static net.holmes.core.business.media.model.RootNode.*;
+import static net.holmes.core.common.event.ConfigurationEvent.EventType.SAVE_SETTINGS;
 import static net.holmes.core.common.event.MediaEvent.MediaEventType.*;
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
 public class MediaManagerImplTest {
+    private static final MimeTypeManager MIME_TYPE_MANAGER = new MimeTypeManagerImpl(new MimeTypeDaoImpl("/mimetypes.properties"));
+    private static final MimeTypeProfile VIDEO_PROFILE = MIME_TYPE_MANAGER.getProfile(newArrayList("video/avi"));
+    private static final MimeTypeProfile ANY_PROFILE = MIME_TYPE_MANAGER.getProfile(null);
+
 
     @Test
     public void testGetNodeRoot() {
@@ -51,15 +69,24 @@ public class MediaManagerImplTest {
         ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
         MediaDao mediaDao = createMock(MediaDao.class);
         MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
         InetAddress localAddress = createMock(InetAddress.class);
 
-        replay(mediaDao, mimeTypeManager, localAddress);
+        expect(mediaDao.getContainerUpdateId(eq(ROOT.getId()))).andReturn(0L).times(3);
+        expect(mediaDao.getRootNodeChildren(isA(RootNode.class))).andReturn(new ArrayList<AbstractNode>()).times(4);
+
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
 
-        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, localAddress);
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
         AbstractNode result = mediaManager.getNode(VIDEO.getId());
         assertNotNull(result);
+        assertEquals(ROOT.getId(), result.getParentId());
 
-        verify(mediaDao, mimeTypeManager, localAddress);
+        // Root nodes are reused
+        assertSame(result, mediaManager.getNode(VIDEO.getId()));
+        assertEquals(ROOT.getId(), mediaManager.getNode(ROOT.getId()).getId());
+
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
     }
 
     @Test
@@ -68,17 +95,18 @@ public class MediaManagerImplTest {
         ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
         MediaDao mediaDao = createMock(MediaDao.class);
         MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
         InetAddress localAddress = createMock(InetAddress.class);
 
         expect(mediaDao.getNode(eq("nodeId"))).andReturn(new FolderNode("id", "parentId", "name"));
 
-        replay(mediaDao, mimeTypeManager, localAddress);
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
 
-        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, localAddress);
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
         AbstractNode result = mediaManager.getNode("nodeId");
         assertNotNull(result);
 
-        verify(mediaDao, mimeTypeManager, localAddress);
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
     }
 
     @Test
@@ -87,15 +115,16 @@ public class MediaManagerImplTest {
         ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
         MediaDao mediaDao = createMock(MediaDao.class);
         MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
         InetAddress localAddress = createMock(InetAddress.class);
 
-        replay(mediaDao, mimeTypeManager, localAddress);
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
 
-        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, localAddress);
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
         AbstractNode result = mediaManager.getNode(null);
         assertNull(result);
 
-        verify(mediaDao, mimeTypeManager, localAddress);
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
     }
 
     @Test
@@ -104,19 +133,20 @@ public class MediaManagerImplTest {
         ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
         MediaDao mediaDao = createMock(MediaDao.class);
         MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
         InetAddress localAddress = createMock(InetAddress.class);
 
         expect(localAddress.getHostAddress()).andReturn("localHost");
 
-        replay(mediaDao, mimeTypeManager, localAddress);
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
 
-        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, localAddress);
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
         PodcastNode podcastNode = new PodcastNode("id", "parentId", "name", "url");
         String result = mediaManager.getNodeUrl(podcastNode);
 
         assertNotNull(result);
 
-        verify(mediaDao, mimeTypeManager, localAddress);
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
     }
 
     @Test
@@ -125,38 +155,119 @@ public class MediaManagerImplTest {
         ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
         MediaDao mediaDao = createMock(MediaDao.class);
         MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
         InetAddress localAddress = createMock(InetAddress.class);
 
-        mediaDao.cleanUpCache();
+        mediaDao.cleanUpCache(10);
         expectLastCall();
 
-        replay(mediaDao, mimeTypeManager, localAddress);
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
 
-        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, localAddress);
-        mediaManager.cleanUpCache();
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        mediaManager.cleanUpCache(10);
 
-        verify(mediaDao, mimeTypeManager, localAddress);
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+    }
+
+    @Test
+    public void testGetIndexStatistics() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
+        MediaDao mediaDao = createMock(MediaDao.class);
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
+        InetAddress localAddress = createMock(InetAddress.class);
+
+        MediaIndexStatistics statistics = new MediaIndexStatistics();
+        expect(mediaDao.getIndexStatistics()).andReturn(statistics);
+
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        assertEquals(statistics, mediaManager.getIndexStatistics());
+
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+    }
+
+    @Test
+    public void testGetFolderCacheStatistics() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
+        MediaDao mediaDao = createMock(MediaDao.class);
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
+        InetAddress localAddress = createMock(InetAddress.class);
+
+        CacheStatistics statistics = new CacheStatistics(1, 2, 3, 4);
+        expect(mediaDao.getFolderCacheStatistics()).andReturn(statistics);
+
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        assertEquals(statistics, mediaManager.getFolderCacheStatistics());
+
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+    }
+
+    @Test
+    public void testGetScanStatistics() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
+        MediaDao mediaDao = createMock(MediaDao.class);
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
+        InetAddress localAddress = createMock(InetAddress.class);
+
+        MediaScanStatistics statistics = new MediaScanStatistics();
+        expect(mediaScanner.getStatistics()).andReturn(statistics);
+
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        assertEquals(statistics, mediaManager.getScanStatistics());
+
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
     }
 
     @Test
     public void testHandleMediaEvent() {
-        ConfigurationDao configurationDao = new TestConfigurationDao();
-        ConfigurationManager configurationManager = new ConfigurationManagerImpl(configurationDao);
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
         ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
         MediaDao mediaDao = createMock(MediaDao.class);
         MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
         InetAddress localAddress = createMock(InetAddress.class);
 
-        expect(mediaDao.getRootNodeChildren(eq(VIDEO))).andReturn(getRootChildNodes(VIDEO, configurationDao));
-        expect(mediaDao.getChildNodes(eq("videosTest"))).andReturn(new ArrayList<AbstractNode>());
+        mediaScanner.scan(eq("videosTest"));
+        expectLastCall();
 
-        replay(mediaDao, mimeTypeManager, localAddress);
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
 
-        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, localAddress);
-        MediaEvent mediaEvent = new MediaEvent(SCAN_NODE, VIDEO.getId());
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        MediaEvent mediaEvent = new MediaEvent(SCAN_NODE, "videosTest");
         mediaManager.handleMediaEvent(mediaEvent);
 
-        verify(mediaDao, mimeTypeManager, localAddress);
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+    }
+
+    @Test
+    public void testHandleFolderChangedEvent() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
+        MediaDao mediaDao = createMock(MediaDao.class);
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
+        InetAddress localAddress = createMock(InetAddress.class);
+
+        mediaDao.refreshFolder(eq("folderPath"));
+        expectLastCall();
+
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        mediaManager.handleMediaEvent(new MediaEvent(FOLDER_CHANGED, "folderPath"));
+
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
     }
 
     @Test
@@ -165,34 +276,41 @@ public class MediaManagerImplTest {
         ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
         MediaDao mediaDao = createMock(MediaDao.class);
         MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
         InetAddress localAddress = createMock(InetAddress.class);
 
-        replay(mediaDao, mimeTypeManager, localAddress);
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
 
-        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, localAddress);
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
         MediaEvent mediaEvent = new MediaEvent(UNKNOWN, VIDEO.getId());
         mediaManager.handleMediaEvent(mediaEvent);
 
-        verify(mediaDao, mimeTypeManager, localAddress);
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
     }
 
     @Test
-    public void testHandleMediaEventBadFolder() {
+    public void testGetUpdateIdsAndCoalescedRequests() {
         ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
         ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
         MediaDao mediaDao = createMock(MediaDao.class);
         MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
         InetAddress localAddress = createMock(InetAddress.class);
 
-        expect(mediaDao.getNode(eq("nodeId"))).andReturn(new PodcastNode("id", "parentId", "name", "url"));
+        expect(mediaDao.getSystemUpdateId()).andReturn(3L);
+        expect(mediaDao.getContainerUpdateId(eq("folderId"))).andReturn(2L);
+        expect(mediaDao.getCoalescedRequestCount()).andReturn(4L);
 
-        replay(mediaDao, mimeTypeManager, localAddress);
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
 
-        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, localAddress);
-        MediaEvent mediaEvent = new MediaEvent(SCAN_NODE, "nodeId");
-        mediaManager.handleMediaEvent(mediaEvent);
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        assertEquals(3L, mediaManager.getSystemUpdateId());
+        assertEquals(2L, mediaManager.getContainerUpdateId("folderId"));
+        assertEquals(4L, mediaManager.getCoalescedRequestCount());
+        // Container updates are published by content directory service
+        mediaManager.handleMediaEvent(new MediaEvent(CONTAINER_UPDATED, "folderId"));
 
-        verify(mediaDao, mimeTypeManager, localAddress);
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
     }
 
     @Test
@@ -202,23 +320,36 @@ public class MediaManagerImplTest {
         ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
         MediaDao mediaDao = createMock(MediaDao.class);
         MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
         InetAddress localAddress = createMock(InetAddress.class);
 
-        expect(mediaDao.getRootNodeChildren(eq(VIDEO))).andReturn(getRootChildNodes(VIDEO, configurationDao));
-        expect(mediaDao.getRootNodeChildren(eq(PICTURE))).andReturn(getRootChildNodes(PICTURE, configurationDao));
-        expect(mediaDao.getRootNodeChildren(eq(AUDIO))).andReturn(getRootChildNodes(AUDIO, configurationDao));
-        expect(mediaDao.getRootNodeChildren(eq(PODCAST))).andReturn(getRootChildNodes(PODCAST, configurationDao));
+        expect(mediaDao.getContainerUpdateId(eq(ROOT.getId()))).andReturn(0L).times(2);
+        expect(mediaDao.getContainerUpdateId(eq(ROOT.getId()))).andReturn(1L).times(2);
+        expect(mediaDao.getRootNodeChildren(eq(VIDEO))).andReturn(getRootChildNodes(VIDEO, configurationDao)).times(3);
+        expect(mediaDao.getRootNodeChildren(eq(PICTURE))).andReturn(getRootChildNodes(PICTURE, configurationDao)).times(3);
+        expect(mediaDao.getRootNodeChildren(eq(AUDIO))).andReturn(getRootChildNodes(AUDIO, configurationDao)).times(3);
+        expect(mediaDao.getRootNodeChildren(eq(PODCAST))).andReturn(getRootChildNodes(PODCAST, configurationDao)).times(3);
+        expect(mimeTypeManager.getProfile(null)).andReturn(ANY_PROFILE).times(4);
 
-        replay(mediaDao, mimeTypeManager, localAddress);
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
 
-        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, localAddress);
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
         MediaSearchRequest request = new MediaSearchRequest(new FolderNode(ROOT.getId(), ROOT.getParentId(), ROOT.getBundleKey()), null);
-        Collection<AbstractNode> result = mediaManager.searchChildNodes(request);
+        MediaSearchResult result = mediaManager.searchChildNodes(request);
 
         assertNotNull(result);
-        assertFalse(result.isEmpty());
+        assertFalse(result.getNodes().isEmpty());
 
-        verify(mediaDao, mimeTypeManager, localAddress);
+        // Root child nodes are reused until root container update id changes
+        assertSame(result.getNodes().get(0), mediaManager.searchChildNodes(request).getNodes().get(0));
+        AbstractNode updatedNode = mediaManager.searchChildNodes(request).getNodes().get(0);
+        assertNotSame(result.getNodes().get(0), updatedNode);
+
+        // Root child nodes are rebuilt when configuration changes
+        mediaManager.handleConfigurationEvent(new ConfigurationEvent(SAVE_SETTINGS));
+        assertNotSame(updatedNode, mediaManager.searchChildNodes(request).getNodes().get(0));
+
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
     }
 
     @Test
@@ -228,20 +359,23 @@ public class MediaManagerImplTest {
         ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
         MediaDao mediaDao = createMock(MediaDao.class);
         MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
         InetAddress localAddress = createMock(InetAddress.class);
 
         expect(mediaDao.getRootNodeChildren(eq(VIDEO))).andReturn(getRootChildNodes(VIDEO, configurationDao));
+        expect(mediaDao.getFolderCounts(isA(String.class))).andReturn(null).atLeastOnce();
+        expect(mimeTypeManager.getProfile(isA(List.class))).andReturn(VIDEO_PROFILE);
 
-        replay(mediaDao, mimeTypeManager, localAddress);
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
 
-        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, localAddress);
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
         MediaSearchRequest request = new MediaSearchRequest(new FolderNode(VIDEO.getId(), VIDEO.getParentId(), VIDEO.getBundleKey()), newArrayList("video/avi"));
-        Collection<AbstractNode> result = mediaManager.searchChildNodes(request);
+        MediaSearchResult result = mediaManager.searchChildNodes(request);
 
         assertNotNull(result);
-        assertFalse(result.isEmpty());
+        assertFalse(result.getNodes().isEmpty());
 
-        verify(mediaDao, mimeTypeManager, localAddress);
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
     }
 
     @Test
@@ -252,6 +386,7 @@ public class MediaManagerImplTest {
         ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
         MediaDao mediaDao = createMock(MediaDao.class);
         MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
         InetAddress localAddress = createMock(InetAddress.class);
 
         List<AbstractNode> childNodes = new ArrayList<>();
@@ -261,21 +396,88 @@ public class MediaManagerImplTest {
         childNodes.add(new RawUrlNode(TYPE_PODCAST_ENTRY, "id1", "parentId", "name", videoMimeType, "url", "duration"));
         childNodes.add(new RawUrlNode(TYPE_PODCAST_ENTRY, "id2", "parentId", "name", audioMimeType, "url", "duration"));
 
-        expect(mediaDao.getChildNodes(eq("folderId"))).andReturn(childNodes);
-        expect(mimeTypeManager.isMimeTypeCompliant(eq(videoMimeType), isA(List.class))).andReturn(true);
-        expect(mimeTypeManager.isMimeTypeCompliant(eq(audioMimeType), isA(List.class))).andReturn(false);
+        expect(mediaDao.getChildNodes(eq("folderId"), same(SortCriteria.NONE))).andReturn(childNodes);
+        expect(mimeTypeManager.getProfile(isA(List.class))).andReturn(VIDEO_PROFILE);
 
-        replay(mediaDao, mimeTypeManager, localAddress);
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
 
-        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, localAddress);
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
         MediaSearchRequest request = new MediaSearchRequest(new FolderNode("folderId", "folderParentId", "folderName"), newArrayList("video/avi"));
-        Collection<AbstractNode> result = mediaManager.searchChildNodes(request);
+        MediaSearchResult result = mediaManager.searchChildNodes(request);
 
         assertNotNull(result);
-        assertFalse(result.isEmpty());
-        assertEquals(2, result.size());
+        assertEquals(2, result.getNodes().size());
+        assertEquals(2, result.getTotalCount());
 
-        verify(mediaDao, mimeTypeManager, localAddress);
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+    }
+
+    @Test
+    public void testSearchChildNodesMimeTypeProfile() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
+        MediaDao mediaDao = createMock(MediaDao.class);
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
+        InetAddress localAddress = createMock(InetAddress.class);
+
+        List<AbstractNode> childNodes = new ArrayList<>();
+        childNodes.add(new RawUrlNode(TYPE_PODCAST_ENTRY, "id1", "parentId", "name", MimeType.valueOf("video/avi"), "url", "duration"));
+        childNodes.add(new RawUrlNode(TYPE_PODCAST_ENTRY, "id2", "parentId", "name", MimeType.valueOf("audio/mp3"), "url", "duration"));
+
+        expect(mediaDao.getChildNodes(eq("folderId"), same(SortCriteria.NONE))).andReturn(childNodes);
+
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        MediaSearchRequest request = new MediaSearchRequest(new FolderNode("folderId", "folderParentId", "folderName"), VIDEO_PROFILE, 0, 0, SortCriteria.NONE);
+        MediaSearchResult result = mediaManager.searchChildNodes(request);
+
+        assertEquals(1, result.getNodes().size());
+        assertEquals("id1", result.getNodes().get(0).getId());
+        assertEquals(1, result.getTotalCount());
+
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSearchChildNodesPage() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
+        MediaDao mediaDao = createMock(MediaDao.class);
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
+        InetAddress localAddress = createMock(InetAddress.class);
+
+        MimeType videoMimeType = MimeType.valueOf("video/avi");
+        MimeType audioMimeType = MimeType.valueOf("audio/mp3");
+        List<AbstractNode> childNodes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            childNodes.add(new RawUrlNode(TYPE_PODCAST_ENTRY, "video" + i, "folderId", "name", videoMimeType, "url", "duration"));
+            childNodes.add(new RawUrlNode(TYPE_PODCAST_ENTRY, "audio" + i, "folderId", "name", audioMimeType, "url", "duration"));
+        }
+
+        expect(mediaDao.getChildNodes(eq("folderId"), same(SortCriteria.NONE))).andReturn(childNodes).times(2);
+        expect(mimeTypeManager.getProfile(isA(List.class))).andReturn(VIDEO_PROFILE).times(2);
+
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        FolderNode folderNode = new FolderNode("folderId", "folderParentId", "folderName");
+
+        MediaSearchResult result = mediaManager.searchChildNodes(new MediaSearchRequest(folderNode, newArrayList("video/avi"), 2, 3));
+        assertEquals(10, result.getTotalCount());
+        assertEquals(3, result.getNodes().size());
+        assertEquals("video2", result.getNodes().get(0).getId());
+        assertEquals("video4", result.getNodes().get(2).getId());
+
+        result = mediaManager.searchChildNodes(new MediaSearchRequest(folderNode, newArrayList("video/avi"), 8, 5));
+        assertEquals(10, result.getTotalCount());
+        assertEquals(2, result.getNodes().size());
+        assertEquals("video9", result.getNodes().get(1).getId());
+
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
     }
 
     public List<AbstractNode> getRootChildNodes(RootNode rootNode, ConfigurationDao configurationDao) {
@@ -286,4 +488,201 @@ public class MediaManagerImplTest {
         }
         return nodes;
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSearchChildNodesHideEmptyFolders() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
+        MediaDao mediaDao = createMock(MediaDao.class);
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
+        InetAddress localAddress = createMock(InetAddress.class);
+
+        MimeType videoMimeType = MimeType.valueOf("video/avi");
+        MimeType audioMimeType = MimeType.valueOf("audio/mp3");
+        List<AbstractNode> childNodes = new ArrayList<>();
+        childNodes.add(new FolderNode("videoFolderId", "folderId", "videoFolder"));
+        childNodes.add(new FolderNode("audioFolderId", "folderId", "audioFolder"));
+        childNodes.add(new FolderNode("partialFolderId", "folderId", "partialFolder"));
+        childNodes.add(new FolderNode("unknownFolderId", "folderId", "unknownFolder"));
+
+        expect(mediaDao.getChildNodes(eq("folderId"), same(SortCriteria.NONE))).andReturn(childNodes);
+        expect(mediaDao.getFolderCounts(eq("videoFolderId"))).andReturn(folderCounts(videoMimeType, true));
+        expect(mediaDao.getFolderCounts(eq("audioFolderId"))).andReturn(folderCounts(audioMimeType, true));
+        expect(mediaDao.getFolderCounts(eq("partialFolderId"))).andReturn(folderCounts(audioMimeType, false));
+        expect(mediaDao.getFolderCounts(eq("unknownFolderId"))).andReturn(null);
+        expect(mimeTypeManager.getProfile(isA(List.class))).andReturn(VIDEO_PROFILE);
+
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        MediaSearchRequest request = new MediaSearchRequest(new FolderNode("folderId", "folderParentId", "folderName"), newArrayList("video/avi"));
+        List<AbstractNode> result = mediaManager.searchChildNodes(request).getNodes();
+
+        assertEquals(3, result.size());
+        assertEquals("videoFolderId", result.get(0).getId());
+        assertEquals("partialFolderId", result.get(1).getId());
+        assertEquals("unknownFolderId", result.get(2).getId());
+
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSearchNodes() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
+        MediaDao mediaDao = createMock(MediaDao.class);
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
+        InetAddress localAddress = createMock(InetAddress.class);
+
+        MimeType videoMimeType = MimeType.valueOf("video/avi");
+        MimeType audioMimeType = MimeType.valueOf("audio/mp3");
+        SearchCriteria criteria = SearchCriteria.all();
+        List<MediaSearchHit> hits = newArrayList(new MediaSearchHit("emptyFolderId", null), new MediaSearchHit("audioId", audioMimeType),
+                new MediaSearchHit("videoId1", videoMimeType), new MediaSearchHit("videoId2", videoMimeType), new MediaSearchHit("videoId3", videoMimeType));
+
+        expect(mediaDao.searchNodes(eq("folderId"), same(criteria))).andReturn(hits);
+        expect(mediaDao.getFolderCounts(eq("emptyFolderId"))).andReturn(folderCounts(audioMimeType, true));
+        expect(mimeTypeManager.getProfile(isA(List.class))).andReturn(VIDEO_PROFILE);
+        expect(mediaDao.getNode(eq("videoId2"))).andReturn(new ContentNode("videoId2", "folderId", "video2", new File("video2.avi"), videoMimeType));
+
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        MediaSearchRequest request = new MediaSearchRequest(new FolderNode("folderId", "folderParentId", "folderName"), newArrayList("video/avi"), 1, 1);
+        MediaSearchResult result = mediaManager.searchNodes(request, criteria);
+
+        assertEquals(3, result.getTotalCount());
+        assertEquals(1, result.getNodes().size());
+        assertEquals("videoId2", result.getNodes().get(0).getId());
+
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSearchNodesSorted() throws InvalidSortCriteriaException {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
+        MediaDao mediaDao = createMock(MediaDao.class);
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
+        InetAddress localAddress = createMock(InetAddress.class);
+
+        MimeType videoMimeType = MimeType.valueOf("video/avi");
+        MimeType audioMimeType = MimeType.valueOf("audio/mp3");
+        SearchCriteria criteria = SearchCriteria.all();
+        List<MediaSearchHit> hits = newArrayList(new MediaSearchHit("audioId", audioMimeType), new MediaSearchHit("videoId1", videoMimeType),
+                new MediaSearchHit("videoId2", videoMimeType), new MediaSearchHit("videoId3", videoMimeType));
+
+        expect(mediaDao.searchNodes(eq("folderId"), same(criteria))).andReturn(hits);
+        expect(mimeTypeManager.getProfile(isA(List.class))).andReturn(VIDEO_PROFILE);
+        expect(mediaDao.getNode(eq("videoId1"))).andReturn(new ContentNode("videoId1", "folderId", "a", new File("a.avi"), videoMimeType));
+        expect(mediaDao.getNode(eq("videoId2"))).andReturn(new ContentNode("videoId2", "folderId", "c", new File("c.avi"), videoMimeType));
+        expect(mediaDao.getNode(eq("videoId3"))).andReturn(new ContentNode("videoId3", "folderId", "b", new File("b.avi"), videoMimeType));
+
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        MediaSearchRequest request = new MediaSearchRequest(new FolderNode("folderId", "folderParentId", "folderName"), newArrayList("video/avi"), 0, 2,
+                SortCriteria.parse("-dc:title"));
+        MediaSearchResult result = mediaManager.searchNodes(request, criteria);
+
+        assertEquals(3, result.getTotalCount());
+        assertEquals(2, result.getNodes().size());
+        assertEquals("videoId2", result.getNodes().get(0).getId());
+        assertEquals("videoId3", result.getNodes().get(1).getId());
+
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetChildCount() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
+        MediaDao mediaDao = createMock(MediaDao.class);
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
+        InetAddress localAddress = createMock(InetAddress.class);
+
+        MimeType videoMimeType = MimeType.valueOf("video/avi");
+        MimeType audioMimeType = MimeType.valueOf("audio/mp3");
+        FolderCounts counts = new FolderCounts(newArrayList("videoFolderId", "audioFolderId"),
+                ImmutableMap.of(videoMimeType, 3, audioMimeType, 2), ImmutableMap.of(videoMimeType, 4, audioMimeType, 3), true);
+
+        expect(mediaDao.getFolderCounts(eq("folderId"))).andReturn(counts);
+        expect(mediaDao.getFolderCounts(eq("videoFolderId"))).andReturn(folderCounts(videoMimeType, true));
+        expect(mediaDao.getFolderCounts(eq("audioFolderId"))).andReturn(folderCounts(audioMimeType, true));
+        expect(mimeTypeManager.getProfile(isA(List.class))).andReturn(VIDEO_PROFILE);
+
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        MediaSearchRequest request = new MediaSearchRequest(new FolderNode("folderId", "folderParentId", "folderName"), newArrayList("video/avi"));
+        assertEquals(4, mediaManager.getChildCount(request));
+
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+    }
+
+    @Test
+    public void testGetChildCountNotCounted() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
+        MediaDao mediaDao = createMock(MediaDao.class);
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
+        InetAddress localAddress = createMock(InetAddress.class);
+
+        MimeType videoMimeType = MimeType.valueOf("video/avi");
+        MimeType audioMimeType = MimeType.valueOf("audio/mp3");
+        FolderCounts counts = new FolderCounts(new ArrayList<String>(), ImmutableMap.of(videoMimeType, 3, audioMimeType, 2),
+                ImmutableMap.of(videoMimeType, 3, audioMimeType, 2), true);
+
+        // Folder is not listed yet: it is listed once to be counted
+        expect(mediaDao.getFolderCounts(eq("folderId"))).andReturn(null);
+        expect(mediaDao.getChildNodes(eq("folderId"))).andReturn(new ArrayList<AbstractNode>());
+        expect(mediaDao.getFolderCounts(eq("folderId"))).andReturn(counts);
+        expect(mimeTypeManager.getProfile(null)).andReturn(ANY_PROFILE);
+
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        MediaSearchRequest request = new MediaSearchRequest(new FolderNode("folderId", "folderParentId", "folderName"), null);
+        assertEquals(5, mediaManager.getChildCount(request));
+
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+    }
+
+    @Test
+    public void testGetChildCountRootNode() {
+        ConfigurationDao configurationDao = new TestConfigurationDao();
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(configurationDao);
+        ResourceBundle resourceBundle = ResourceBundle.getBundle("message");
+        MediaDao mediaDao = createMock(MediaDao.class);
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaScanner mediaScanner = createMock(MediaScanner.class);
+        InetAddress localAddress = createMock(InetAddress.class);
+
+        List<AbstractNode> rootChildNodes = getRootChildNodes(VIDEO, configurationDao);
+        expect(mediaDao.getFolderCounts(eq(VIDEO.getId()))).andReturn(null);
+        expect(mediaDao.getRootNodeChildren(eq(VIDEO))).andReturn(rootChildNodes);
+        expect(mediaDao.getFolderCounts(isA(String.class))).andReturn(null).atLeastOnce();
+        expect(mimeTypeManager.getProfile(null)).andReturn(ANY_PROFILE);
+
+        replay(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+
+        MediaManagerImpl mediaManager = new MediaManagerImpl(configurationManager, resourceBundle, mediaDao, mimeTypeManager, mediaScanner, localAddress);
+        MediaSearchRequest request = new MediaSearchRequest(new FolderNode(VIDEO.getId(), VIDEO.getParentId(), VIDEO.getBundleKey()), null);
+        assertEquals(rootChildNodes.size(), mediaManager.getChildCount(request));
+
+        verify(mediaDao, mimeTypeManager, mediaScanner, localAddress);
+    }
+
+    private FolderCounts folderCounts(final MimeType mimeType, final boolean complete) {
+        return new FolderCounts(new ArrayList<String>(), ImmutableMap.of(mimeType, 1), ImmutableMap.of(mimeType, 1), complete);
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ContainerUpdateIndexTest {
+
+    @Test
+    public void testUpdateFingerprint() {
+        ContainerUpdateIndex index = new ContainerUpdateIndex();
+        assertEquals(0, index.getSystemUpdateId());
+
+        // First fingerprint is not a change
+        assertFalse(index.update("folder1", 10L));
+        assertFalse(index.update("folder2", 20L));
+        assertEquals(0, index.getSystemUpdateId());
+        assertEquals(0, index.getContainerUpdateId("folder1"));
+
+        // Same fingerprint is not a change
+        assertFalse(index.update("folder1", 10L));
+        assertEquals(0, index.getSystemUpdateId());
+
+        // New fingerprint changes container
+        assertTrue(index.update("folder1", 11L));
+        assertEquals(1, index.getSystemUpdateId());
+        assertEquals(1, index.getContainerUpdateId("folder1"));
+        assertEquals(0, index.getContainerUpdateId("folder2"));
+
+        assertTrue(index.update("folder2", 21L));
+        assertEquals(2, index.getSystemUpdateId());
+        assertEquals(1, index.getContainerUpdateId("folder1"));
+        assertEquals(2, index.getContainerUpdateId("folder2"));
+    }
+
+    @Test
+    public void testChanged() {
+        ContainerUpdateIndex index = new ContainerUpdateIndex();
+
+        // Several containers changed at once increment system update id once
+        assertEquals(1, index.changed("folder1", "folder2"));
+        assertEquals(1, index.getContainerUpdateId("folder1"));
+        assertEquals(1, index.getContainerUpdateId("folder2"));
+
+        // Change without container
+        assertEquals(2, index.changed());
+        assertEquals(2, index.getSystemUpdateId());
+        assertEquals(1, index.getContainerUpdateId("folder1"));
+    }
+
+    @Test
+    public void testRemove() {
+        ContainerUpdateIndex index = new ContainerUpdateIndex();
+
+        index.update("folder1", 10L);
+        index.update("folder1", 11L);
+        assertEquals(1, index.getContainerUpdateId("folder1"));
+
+        // Removed container fingerprint is forgotten
+        index.remove("folder1");
+        assertEquals(0, index.getContainerUpdateId("folder1"));
+        assertFalse(index.update("folder1", 12L));
+        assertEquals(1, index.getSystemUpdateId());
+    }
+}
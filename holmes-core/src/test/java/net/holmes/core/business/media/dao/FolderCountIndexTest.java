@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import net.holmes.core.business.mimetype.model.MimeType;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FolderCountIndexTest {
+    private static final MimeType AVI = MimeType.valueOf("video/avi");
+    private static final MimeType MKV = MimeType.valueOf("video/x-matroska");
+
+    @Test
+    public void testUpdateFolderTree() {
+        FolderCountIndex index = new FolderCountIndex();
+
+        // Root folder with 2 sub-folders
+        index.update("root", "1_VIDEOS", Sets.newHashSet("sub1", "sub2"), counts(AVI, 2));
+        FolderCounts rootCounts = index.get("root");
+        assertEquals(2, rootCounts.getFolderIds().size());
+        assertEquals(ImmutableMap.of(AVI, 2), rootCounts.getContentCounts());
+        assertEquals(ImmutableMap.of(AVI, 2), rootCounts.getTreeContentCounts());
+        assertFalse(rootCounts.isComplete());
+        assertNotNull(rootCounts.toString());
+
+        // Sub-folders counts are propagated to root folder
+        index.update("sub1", "root", Collections.<String>emptySet(), counts(MKV, 3));
+        assertEquals(ImmutableMap.of(AVI, 2, MKV, 3), index.get("root").getTreeContentCounts());
+        assertFalse(index.get("root").isComplete());
+        index.update("sub2", "root", Sets.newHashSet("sub3"), counts(AVI, 1));
+        assertEquals(ImmutableMap.of(AVI, 3, MKV, 3), index.get("root").getTreeContentCounts());
+        assertFalse(index.get("root").isComplete());
+        index.update("sub3", "sub2", Collections.<String>emptySet(), counts(AVI, 4));
+        assertEquals(ImmutableMap.of(AVI, 7, MKV, 3), index.get("root").getTreeContentCounts());
+        assertTrue(index.get("sub2").isComplete());
+        assertTrue(index.get("root").isComplete());
+        assertEquals(4, index.size());
+
+        // Content removed from a sub-folder
+        index.update("sub3", "sub2", Collections.<String>emptySet(), counts(AVI, 1));
+        assertEquals(ImmutableMap.of(AVI, 4, MKV, 3), index.get("root").getTreeContentCounts());
+        assertEquals(ImmutableMap.of(AVI, 1), index.get("sub2").getContentCounts());
+
+        // New sub-folder makes tree incomplete
+        index.update("sub1", "root", Sets.newHashSet("sub4"), counts(MKV, 3));
+        assertFalse(index.get("sub1").isComplete());
+        assertFalse(index.get("root").isComplete());
+        index.update("sub4", "sub1", Collections.<String>emptySet(), Collections.<MimeType, Integer>emptyMap());
+        assertTrue(index.get("root").isComplete());
+    }
+
+    @Test
+    public void testUpdateRemovedFolder() {
+        FolderCountIndex index = new FolderCountIndex();
+
+        index.update("root", "1_VIDEOS", Sets.newHashSet("sub1", "sub2"), counts(AVI, 1));
+        index.update("sub1", "root", Sets.newHashSet("sub3"), counts(AVI, 1));
+        index.update("sub3", "sub1", Collections.<String>emptySet(), counts(MKV, 1));
+        index.update("sub2", "root", Collections.<String>emptySet(), counts(AVI, 1));
+        assertEquals(ImmutableMap.of(AVI, 3, MKV, 1), index.get("root").getTreeContentCounts());
+
+        // Removed sub-folder tree is forgotten
+        index.update("root", "1_VIDEOS", Sets.newHashSet("sub2"), counts(AVI, 1));
+        assertEquals(ImmutableMap.of(AVI, 2), index.get("root").getTreeContentCounts());
+        assertTrue(index.get("root").isComplete());
+        assertNull(index.get("sub1"));
+        assertNull(index.get("sub3"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testUpdateSubFolderBeforeParent() {
+        FolderCountIndex index = new FolderCountIndex();
+
+        index.update("sub1", "root", Collections.<String>emptySet(), counts(AVI, 2));
+        assertNull(index.get("root"));
+
+        // Already counted sub-folder is included when parent is counted
+        index.update("root", "1_VIDEOS", Sets.newHashSet("sub1"), counts(MKV, 1));
+        assertEquals(ImmutableMap.of(AVI, 2, MKV, 1), index.get("root").getTreeContentCounts());
+        assertTrue(index.get("root").isComplete());
+    }
+
+    @Test
+    public void testRemoveFolder() {
+        FolderCountIndex index = new FolderCountIndex();
+
+        index.update("root", "1_VIDEOS", Sets.newHashSet("sub1", "sub2"), counts(AVI, 1));
+        index.update("sub1", "root", Sets.newHashSet("sub3"), counts(AVI, 1));
+        index.update("sub3", "sub1", Collections.<String>emptySet(), counts(MKV, 1));
+        index.update("sub2", "root", Collections.<String>emptySet(), counts(AVI, 1));
+        FolderCounts rootCounts = index.get("root");
+        assertTrue(rootCounts.isComplete());
+
+        // Removed folder tree is no more counted, root tree is incomplete until root is listed again
+        index.remove("sub1");
+        assertNull(index.get("sub1"));
+        assertNull(index.get("sub3"));
+        assertEquals(ImmutableMap.of(AVI, 2), index.get("root").getTreeContentCounts());
+        assertFalse(index.get("root").isComplete());
+        assertEquals(2, index.size());
+
+        // Published counts are not changed by updates
+        assertEquals(ImmutableMap.of(AVI, 3, MKV, 1), rootCounts.getTreeContentCounts());
+        assertTrue(rootCounts.isComplete());
+
+        // Unknown folder
+        index.remove("unknown");
+        assertEquals(2, index.size());
+    }
+
+    private static Map<MimeType, Integer> counts(final MimeType mimeType, final int count) {
+        return ImmutableMap.of(mimeType, count);
+    }
+}
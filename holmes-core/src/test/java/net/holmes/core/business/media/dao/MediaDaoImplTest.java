@@ -17,25 +17,38 @@
 
 package net.holmes.core.business.media.dao;
 
+import com.google.common.eventbus.EventBus;
 import net.holmes.core.business.configuration.ConfigurationManager;
 import net.holmes.core.business.configuration.ConfigurationManagerImpl;
 import net.holmes.core.business.configuration.model.ConfigurationNode;
 import net.holmes.core.business.media.dao.index.MediaIndexDao;
 import net.holmes.core.business.media.dao.index.MediaIndexElement;
+import net.holmes.core.business.media.dao.index.MediaIndexListener;
+import net.holmes.core.business.media.dao.index.MediaIndexStatistics;
 import net.holmes.core.business.media.model.*;
+import net.holmes.core.business.media.search.InvalidSortCriteriaException;
+import net.holmes.core.business.media.search.SortCriteria;
 import net.holmes.core.business.mimetype.MimeTypeManager;
 import net.holmes.core.business.mimetype.model.MimeType;
+import net.holmes.core.common.CacheStatistics;
 import net.holmes.core.common.UniqueIdGenerator;
+import net.holmes.core.common.event.ConfigurationEvent;
+import net.holmes.core.common.event.MediaEvent;
 import net.holmes.core.test.TestConfigurationDao;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.List;
 
 import static net.holmes.core.business.media.model.RootNode.*;
 import static net.holmes.core.business.mimetype.model.MimeType.MIME_TYPE_SUBTITLE;
 import static net.holmes.core.common.MediaType.*;
+import static net.holmes.core.common.event.ConfigurationEvent.EventType.*;
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
@@ -48,9 +61,11 @@ public class MediaDaoImplTest {
         MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
 
         expect(mediaIndexDao.get(eq("nodeId"))).andReturn(null);
+        expect(mediaIndexDao.getEvictedParentId(eq("nodeId"))).andReturn(null);
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         AbstractNode result = mediaDao.getNode("nodeId");
         assertNull(result);
@@ -58,6 +73,39 @@ public class MediaDaoImplTest {
         verify(mimeTypeManager, mediaIndexDao);
     }
 
+    @Test
+    public void testGetEvictedNode() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
+
+        ConfigurationNode videoNode = configurationManager.getNodes(VIDEO).get(0);
+        Path videoFolderPath = Paths.get(videoNode.getPath(), "subFolder");
+        Path videoFilePath = Paths.get(videoNode.getPath(), "subFolder", "video.avi");
+
+        MediaIndexElement folderElement = new MediaIndexElement(VIDEO.getId(), TYPE_VIDEO.getValue(), null, videoFolderPath.toFile().getPath(), null, true, false);
+        MediaIndexElement fileElement = new MediaIndexElement("parentId", TYPE_VIDEO.getValue(), "video/avi", videoFilePath.toFile().getPath(), null, true, false);
+
+        expect(mediaIndexDao.get(eq("nodeId"))).andReturn(null).andReturn(fileElement);
+        expect(mediaIndexDao.getEvictedParentId(eq("nodeId"))).andReturn("parentId");
+        expect(mediaIndexDao.get(eq("parentId"))).andReturn(folderElement);
+        expect(mediaIndexDao.add(isA(MediaIndexElement.class))).andReturn("nodeId").atLeastOnce();
+        expect(mimeTypeManager.getMimeType(eq("video.avi"))).andReturn(MimeType.valueOf("video/avi")).atLeastOnce();
+        expect(mimeTypeManager.getMimeType(eq("video.unknown"))).andReturn(null).atLeastOnce();
+        expect(mimeTypeManager.getMimeType(eq("video.srt"))).andReturn(MIME_TYPE_SUBTITLE).atLeastOnce();
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
+
+        replay(mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
+
+        AbstractNode result = mediaDao.getNode("nodeId");
+        assertNotNull(result);
+        assertEquals("nodeId", result.getId());
+        assertEquals("parentId", result.getParentId());
+
+        verify(mimeTypeManager, mediaIndexDao);
+    }
+
     @Test
     public void testGetPodcastNode() {
         ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
@@ -66,9 +114,10 @@ public class MediaDaoImplTest {
 
         MediaIndexElement podcastElement = new MediaIndexElement(PODCAST.getId(), TYPE_PODCAST.getValue(), null, "path", "name", PODCAST.isLocalPath(), true);
         expect(mediaIndexDao.get(eq("nodeId"))).andReturn(podcastElement);
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         AbstractNode result = mediaDao.getNode("nodeId");
         assertNotNull(result);
@@ -85,9 +134,10 @@ public class MediaDaoImplTest {
 
         MediaIndexElement rawUrlElement = new MediaIndexElement(VIDEO.getId(), TYPE_RAW_URL.getValue(), "video/avi", "path", "name", false, true);
         expect(mediaIndexDao.get(eq("nodeId"))).andReturn(rawUrlElement);
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         AbstractNode result = mediaDao.getNode("nodeId");
         assertNotNull(result);
@@ -104,9 +154,10 @@ public class MediaDaoImplTest {
 
         MediaIndexElement videoElement = new MediaIndexElement(VIDEO.getId(), TYPE_VIDEO.getValue(), "video/avi", "path", "name", VIDEO.isLocalPath(), true);
         expect(mediaIndexDao.get(eq("nodeId"))).andReturn(videoElement);
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         AbstractNode result = mediaDao.getNode("nodeId");
         assertNull(result);
@@ -124,9 +175,10 @@ public class MediaDaoImplTest {
 
         MediaIndexElement videoElement = new MediaIndexElement(VIDEO.getId(), TYPE_VIDEO.getValue(), "video/avi", videoNode.getPath(), "name", VIDEO.isLocalPath(), true);
         expect(mediaIndexDao.get(eq("nodeId"))).andReturn(videoElement);
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         AbstractNode result = mediaDao.getNode("nodeId");
         assertNotNull(result);
@@ -145,9 +197,10 @@ public class MediaDaoImplTest {
 
         MediaIndexElement videoElement = new MediaIndexElement(VIDEO.getId(), TYPE_VIDEO.getValue(), "video/avi", videoNode.getPath(), null, VIDEO.isLocalPath(), true);
         expect(mediaIndexDao.get(eq("nodeId"))).andReturn(videoElement);
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         AbstractNode result = mediaDao.getNode("nodeId");
         assertNotNull(result);
@@ -168,9 +221,10 @@ public class MediaDaoImplTest {
         MediaIndexElement videoElement = new MediaIndexElement(VIDEO.getId(), TYPE_VIDEO.getValue(), "video/avi", videoFilePath.toFile().getPath(), videoFilePath.toFile().getName(), VIDEO.isLocalPath(), true);
         expect(mediaIndexDao.get(eq("nodeId"))).andReturn(videoElement);
         expect(mimeTypeManager.getMimeType(eq("video.avi"))).andReturn(MimeType.valueOf("video/avi"));
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         AbstractNode result = mediaDao.getNode("nodeId");
         assertNotNull(result);
@@ -191,9 +245,10 @@ public class MediaDaoImplTest {
         MediaIndexElement videoElement = new MediaIndexElement(VIDEO.getId(), TYPE_VIDEO.getValue(), "video/avi", videoFilePath.toFile().getPath(), videoFilePath.toFile().getName(), VIDEO.isLocalPath(), true);
         expect(mediaIndexDao.get(eq("nodeId"))).andReturn(videoElement);
         expect(mimeTypeManager.getMimeType(eq("video.avi"))).andReturn(null);
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         AbstractNode result = mediaDao.getNode("nodeId");
         assertNull(result);
@@ -208,9 +263,11 @@ public class MediaDaoImplTest {
         MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
 
         expect(mediaIndexDao.get(eq("nodeId"))).andReturn(null);
+        expect(mediaIndexDao.getEvictedParentId(eq("nodeId"))).andReturn(null);
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         List<AbstractNode> result = mediaDao.getChildNodes("nodeId");
         assertTrue(result.isEmpty());
@@ -231,9 +288,10 @@ public class MediaDaoImplTest {
         mediaIndexDao.removeChildren(eq("nodeId"));
         expectLastCall();
         expect(mediaIndexDao.add(isA(MediaIndexElement.class))).andReturn(UniqueIdGenerator.newUniqueId()).atLeastOnce();
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         List<AbstractNode> result = mediaDao.getChildNodes("nodeId");
         assertFalse(result.isEmpty());
@@ -252,9 +310,10 @@ public class MediaDaoImplTest {
         expect(mediaIndexDao.get(eq("nodeId"))).andReturn(podcastElement);
         mediaIndexDao.removeChildren(eq("nodeId"));
         expectLastCall();
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         List<AbstractNode> result = mediaDao.getChildNodes("nodeId");
         assertTrue(result.isEmpty());
@@ -270,9 +329,10 @@ public class MediaDaoImplTest {
 
         MediaIndexElement rawUrlElement = new MediaIndexElement("id", TYPE_RAW_URL.getValue(), null, "rawUrl", "rawUrl", false, true);
         expect(mediaIndexDao.get(eq("nodeId"))).andReturn(rawUrlElement);
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         List<AbstractNode> result = mediaDao.getChildNodes("nodeId");
         assertTrue(result.isEmpty());
@@ -296,9 +356,10 @@ public class MediaDaoImplTest {
         expect(mimeTypeManager.getMimeType(eq("video.avi"))).andReturn(MimeType.valueOf("video/avi")).atLeastOnce();
         expect(mimeTypeManager.getMimeType(eq("video.unknown"))).andReturn(null).atLeastOnce();
         expect(mimeTypeManager.getMimeType(eq("video.srt"))).andReturn(MIME_TYPE_SUBTITLE).atLeastOnce();
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         List<AbstractNode> result = mediaDao.getChildNodes("nodeId");
         assertFalse(result.isEmpty());
@@ -318,9 +379,10 @@ public class MediaDaoImplTest {
         MediaIndexElement videoElement = new MediaIndexElement(VIDEO.getId(), TYPE_VIDEO.getValue(), "video/avi", videoFolderPath.toFile().getPath(), videoFolderPath.toFile().getName(), VIDEO.isLocalPath(), true);
 
         expect(mediaIndexDao.get(eq("nodeId"))).andReturn(videoElement);
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         List<AbstractNode> result = mediaDao.getChildNodes("nodeId");
         assertTrue(result.isEmpty());
@@ -344,9 +406,10 @@ public class MediaDaoImplTest {
         expect(mimeTypeManager.getMimeType(eq("video.avi"))).andReturn(MimeType.valueOf("video/avi")).atLeastOnce();
         expect(mimeTypeManager.getMimeType(eq("video.unknown"))).andReturn(null).atLeastOnce();
         expect(mimeTypeManager.getMimeType(eq("video.srt"))).andReturn(MIME_TYPE_SUBTITLE).atLeastOnce();
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         List<AbstractNode> result = mediaDao.getChildNodes("nodeId");
         assertFalse(result.isEmpty());
@@ -360,13 +423,146 @@ public class MediaDaoImplTest {
         MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
         MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
 
-        mediaIndexDao.clean();
+        expect(mediaIndexDao.clean(10)).andReturn(Collections.<String>emptySet());
+        expect(mediaIndexDao.clean(10)).andReturn(Collections.singleton("parentId"));
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
+
+        replay(mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
+
+        // Nothing removed
+        mediaDao.cleanUpCache(10);
+        assertEquals(0L, mediaDao.getSystemUpdateId());
+
+        // Parent which lost children changed
+        mediaDao.cleanUpCache(10);
+        assertEquals(1L, mediaDao.getSystemUpdateId());
+        assertEquals(1L, mediaDao.getContainerUpdateId("parentId"));
+
+        verify(mimeTypeManager, mediaIndexDao);
+    }
+
+    @Test
+    public void testGetIndexStatistics() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
+
+        MediaIndexStatistics statistics = new MediaIndexStatistics();
+        expect(mediaIndexDao.getStatistics()).andReturn(statistics);
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
+
+        replay(mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
+
+        assertEquals(statistics, mediaDao.getIndexStatistics());
+
+        verify(mimeTypeManager, mediaIndexDao);
+    }
+
+    @Test
+    public void testRefreshFolder() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
+
+        ConfigurationNode videoNode = configurationManager.getNodes(VIDEO).get(0);
+        String subFolderPath = new File(videoNode.getPath(), "subFolder").getAbsolutePath();
+
+        expect(mediaIndexDao.findId(eq(videoNode.getId()), eq(subFolderPath))).andReturn("subFolderId");
+        expect(mediaIndexDao.add(isA(MediaIndexElement.class))).andReturn(UniqueIdGenerator.newUniqueId()).atLeastOnce();
+        expect(mimeTypeManager.getMimeType(isA(String.class))).andReturn(MimeType.valueOf("video/avi")).atLeastOnce();
+        mediaIndexDao.cleanChildren(eq("subFolderId"));
         expectLastCall();
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
-        mediaDao.cleanUpCache();
+        assertEquals(0, mediaDao.getSystemUpdateId());
+        mediaDao.refreshFolder(subFolderPath);
+        assertEquals(1, mediaDao.getSystemUpdateId());
+        assertEquals(1, mediaDao.getContainerUpdateId("subFolderId"));
+        assertEquals(0, mediaDao.getContainerUpdateId(videoNode.getId()));
+
+        verify(mimeTypeManager, mediaIndexDao);
+    }
+
+    @Test
+    public void testHandleConfigEvent() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
+        EventBus eventBus = createMock(EventBus.class);
+
+        ConfigurationNode videoNode = configurationManager.getNodes(VIDEO).get(0);
+
+        eventBus.post(isA(MediaEvent.class));
+        expectLastCall().times(6);
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
+
+        replay(mimeTypeManager, mediaIndexDao, eventBus);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, eventBus);
+
+        mediaDao.handleConfigEvent(new ConfigurationEvent(ADD_FOLDER, videoNode, VIDEO));
+        assertEquals(1, mediaDao.getSystemUpdateId());
+        assertEquals(1, mediaDao.getContainerUpdateId(ROOT.getId()));
+        assertEquals(1, mediaDao.getContainerUpdateId(VIDEO.getId()));
+
+        mediaDao.handleConfigEvent(new ConfigurationEvent(UPDATE_FOLDER, videoNode, VIDEO));
+        assertEquals(2, mediaDao.getSystemUpdateId());
+        assertEquals(2, mediaDao.getContainerUpdateId(videoNode.getId()));
+        assertEquals(2, mediaDao.getContainerUpdateId(VIDEO.getId()));
+
+        mediaDao.handleConfigEvent(new ConfigurationEvent(SAVE_SETTINGS));
+        assertEquals(3, mediaDao.getSystemUpdateId());
+        assertEquals(2, mediaDao.getContainerUpdateId(ROOT.getId()));
+
+        mediaDao.handleConfigEvent(new ConfigurationEvent(UNKNOWN));
+        assertEquals(3, mediaDao.getSystemUpdateId());
+
+        verify(mimeTypeManager, mediaIndexDao, eventBus);
+    }
+
+    @Test
+    public void testRefreshConfiguredFolder() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
+
+        ConfigurationNode videoNode = configurationManager.getNodes(VIDEO).get(0);
+
+        expect(mediaIndexDao.add(isA(MediaIndexElement.class))).andReturn(UniqueIdGenerator.newUniqueId()).atLeastOnce();
+        expect(mimeTypeManager.getMimeType(isA(String.class))).andReturn(MimeType.valueOf("video/avi")).atLeastOnce();
+        mediaIndexDao.cleanChildren(eq(videoNode.getId()));
+        expectLastCall();
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
+
+        replay(mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
+
+        mediaDao.refreshFolder(videoNode.getPath());
+
+        verify(mimeTypeManager, mediaIndexDao);
+    }
+
+    @Test
+    public void testRefreshFolderNotIndexed() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
+
+        ConfigurationNode videoNode = configurationManager.getNodes(VIDEO).get(0);
+        String subFolderPath = new File(videoNode.getPath(), "subFolder").getAbsolutePath();
+
+        expect(mediaIndexDao.findId(eq(videoNode.getId()), eq(subFolderPath))).andReturn(null);
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
+
+        replay(mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
+
+        mediaDao.refreshFolder(subFolderPath);
+        mediaDao.refreshFolder(System.getProperty("java.io.tmpdir"));
 
         verify(mimeTypeManager, mediaIndexDao);
     }
@@ -379,9 +575,10 @@ public class MediaDaoImplTest {
 
         mediaIndexDao.put(isA(String.class), isA(MediaIndexElement.class));
         expectLastCall().atLeastOnce();
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         List<AbstractNode> result = mediaDao.getRootNodeChildren(PODCAST);
         assertNotNull(result);
@@ -397,13 +594,191 @@ public class MediaDaoImplTest {
 
         mediaIndexDao.put(isA(String.class), isA(MediaIndexElement.class));
         expectLastCall().atLeastOnce();
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
 
         replay(mimeTypeManager, mediaIndexDao);
-        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
 
         List<AbstractNode> result = mediaDao.getRootNodeChildren(VIDEO);
         assertNotNull(result);
 
         verify(mimeTypeManager, mediaIndexDao);
     }
+
+    @Test
+    public void testGetRootNodeChildrenReloadedOnConfigEvent() {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
+
+        ConfigurationNode videoNode = configurationManager.getNodes(VIDEO).get(0);
+        int videoNodeCount = configurationManager.getNodes(VIDEO).size();
+
+        mediaIndexDao.put(isA(String.class), isA(MediaIndexElement.class));
+        expectLastCall().times(videoNodeCount * 2);
+        mediaIndexDao.addListener(isA(MediaIndexListener.class));
+
+        replay(mimeTypeManager, mediaIndexDao);
+        MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
+
+        List<AbstractNode> result = mediaDao.getRootNodeChildren(VIDEO);
+        assertEquals(videoNodeCount, result.size());
+        assertSame(result, mediaDao.getRootNodeChildren(VIDEO));
+
+        // Other root node children are not reloaded
+        mediaDao.handleConfigEvent(new ConfigurationEvent(ADD_FOLDER, videoNode, AUDIO));
+        assertSame(result, mediaDao.getRootNodeChildren(VIDEO));
+
+        mediaDao.handleConfigEvent(new ConfigurationEvent(UPDATE_FOLDER, videoNode, VIDEO));
+        List<AbstractNode> reloaded = mediaDao.getRootNodeChildren(VIDEO);
+        assertNotSame(result, reloaded);
+        assertEquals(videoNodeCount, reloaded.size());
+        assertSame(reloaded, mediaDao.getRootNodeChildren(VIDEO));
+
+        verify(mimeTypeManager, mediaIndexDao);
+    }
+
+    @Test
+    public void testGetChildNodesFromFolderCache() throws IOException {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
+
+        Path folder = Files.createTempDirectory("holmesFolderCache");
+        try {
+            Files.createFile(folder.resolve("video.avi"));
+            Files.createDirectory(folder.resolve("subFolder"));
+            // Folder modified just now is not cached
+            assertTrue(folder.toFile().setLastModified(System.currentTimeMillis() - 10000L));
+            MediaIndexElement folderElement = new MediaIndexElement(VIDEO.getId(), TYPE_VIDEO.getValue(), null, folder.toString(), null, true, false);
+
+            expect(mediaIndexDao.get(eq("nodeId"))).andReturn(folderElement).times(3);
+            expect(mediaIndexDao.add(isA(MediaIndexElement.class))).andReturn(UniqueIdGenerator.newUniqueId()).times(7);
+            expect(mimeTypeManager.getMimeType(isA(String.class))).andReturn(MimeType.valueOf("video/avi")).atLeastOnce();
+            mediaIndexDao.addListener(isA(MediaIndexListener.class));
+
+            replay(mimeTypeManager, mediaIndexDao);
+            MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
+
+            assertEquals(2, mediaDao.getChildNodes("nodeId").size());
+            assertEquals(2, mediaDao.getChildNodes("nodeId").size());
+
+            CacheStatistics statistics = mediaDao.getFolderCacheStatistics();
+            assertEquals(1, statistics.getHits());
+            assertEquals(1, statistics.getMisses());
+            assertEquals(1, statistics.getSize());
+
+            // Folder is counted
+            FolderCounts counts = mediaDao.getFolderCounts("nodeId");
+            assertEquals(1, counts.getFolderIds().size());
+            assertEquals(Integer.valueOf(1), counts.getContentCounts().get(MimeType.valueOf("video/avi")));
+
+            // Folder modification date changes: listing is reloaded
+            Files.createFile(folder.resolve("video2.avi"));
+            assertTrue(folder.toFile().setLastModified(System.currentTimeMillis() - 5000L));
+            assertEquals(3, mediaDao.getChildNodes("nodeId").size());
+
+            statistics = mediaDao.getFolderCacheStatistics();
+            assertEquals(1, statistics.getHits());
+            assertEquals(2, statistics.getMisses());
+            assertEquals(Integer.valueOf(2), mediaDao.getFolderCounts("nodeId").getContentCounts().get(MimeType.valueOf("video/avi")));
+
+            verify(mimeTypeManager, mediaIndexDao);
+        } finally {
+            Files.deleteIfExists(folder.resolve("video.avi"));
+            Files.deleteIfExists(folder.resolve("video2.avi"));
+            Files.deleteIfExists(folder.resolve("subFolder"));
+            Files.delete(folder);
+        }
+    }
+
+    @Test
+    public void testGetChildNodesRecentlyModifiedFolderNotCached() throws IOException {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
+
+        Path folder = Files.createTempDirectory("holmesFolderCache");
+        try {
+            Files.createFile(folder.resolve("video.avi"));
+            assertTrue(folder.toFile().setLastModified(System.currentTimeMillis()));
+            MediaIndexElement folderElement = new MediaIndexElement(VIDEO.getId(), TYPE_VIDEO.getValue(), null, folder.toString(), null, true, false);
+
+            expect(mediaIndexDao.get(eq("nodeId"))).andReturn(folderElement).times(2);
+            expect(mediaIndexDao.add(isA(MediaIndexElement.class))).andReturn(UniqueIdGenerator.newUniqueId()).times(2);
+            expect(mimeTypeManager.getMimeType(isA(String.class))).andReturn(MimeType.valueOf("video/avi")).times(2);
+            mediaIndexDao.addListener(isA(MediaIndexListener.class));
+
+            replay(mimeTypeManager, mediaIndexDao);
+            MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
+
+            assertEquals(1, mediaDao.getChildNodes("nodeId").size());
+            assertEquals(1, mediaDao.getChildNodes("nodeId").size());
+
+            CacheStatistics statistics = mediaDao.getFolderCacheStatistics();
+            assertEquals(0, statistics.getHits());
+            assertEquals(2, statistics.getMisses());
+            assertEquals(0, statistics.getSize());
+
+            verify(mimeTypeManager, mediaIndexDao);
+        } finally {
+            Files.deleteIfExists(folder.resolve("video.avi"));
+            Files.delete(folder);
+        }
+    }
+
+    @Test
+    public void testGetSortedChildNodes() throws IOException, InvalidSortCriteriaException {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
+
+        Path folder = Files.createTempDirectory("holmesFolderSort");
+        try {
+            Files.createFile(folder.resolve("video10.avi"));
+            Files.createFile(folder.resolve("video2.avi"));
+            Files.createFile(folder.resolve("Video1.avi"));
+            Files.createDirectory(folder.resolve("zSubFolder"));
+            assertTrue(folder.resolve("video2.avi").toFile().setLastModified(System.currentTimeMillis() - 30000L));
+            assertTrue(folder.resolve("video10.avi").toFile().setLastModified(System.currentTimeMillis() - 20000L));
+            assertTrue(folder.resolve("Video1.avi").toFile().setLastModified(System.currentTimeMillis() - 10000L));
+            assertTrue(folder.toFile().setLastModified(System.currentTimeMillis() - 10000L));
+            MediaIndexElement folderElement = new MediaIndexElement(VIDEO.getId(), TYPE_VIDEO.getValue(), null, folder.toString(), null, true, false);
+
+            expect(mediaIndexDao.get(eq("nodeId"))).andReturn(folderElement).times(4);
+            expect(mediaIndexDao.add(isA(MediaIndexElement.class))).andReturn(UniqueIdGenerator.newUniqueId()).anyTimes();
+            expect(mimeTypeManager.getMimeType(isA(String.class))).andReturn(MimeType.valueOf("video/avi")).atLeastOnce();
+            mediaIndexDao.addListener(isA(MediaIndexListener.class));
+
+            replay(mimeTypeManager, mediaIndexDao);
+            MediaDaoImpl mediaDao = new MediaDaoImpl(configurationManager, mimeTypeManager, mediaIndexDao, new EventBus());
+
+            // Folders first, then natural title order
+            assertArrayEquals(new String[]{"zSubFolder", "Video1.avi", "video2.avi", "video10.avi"}, names(mediaDao.getChildNodes("nodeId", SortCriteria.parse("+dc:title"))));
+            assertArrayEquals(new String[]{"zSubFolder", "video10.avi", "video2.avi", "Video1.avi"}, names(mediaDao.getChildNodes("nodeId", SortCriteria.parse("-dc:title"))));
+            assertArrayEquals(new String[]{"zSubFolder", "video2.avi", "video10.avi", "Video1.avi"}, names(mediaDao.getChildNodes("nodeId", SortCriteria.parse("+dc:date"))));
+            assertArrayEquals(new String[]{"zSubFolder", "Video1.avi", "video10.avi", "video2.avi"}, names(mediaDao.getChildNodes("nodeId", SortCriteria.parse("-dc:date,+dc:title"))));
+
+            // Sorted orders are computed on the cached listing
+            CacheStatistics statistics = mediaDao.getFolderCacheStatistics();
+            assertEquals(3, statistics.getHits());
+            assertEquals(1, statistics.getMisses());
+
+            verify(mimeTypeManager, mediaIndexDao);
+        } finally {
+            Files.deleteIfExists(folder.resolve("video10.avi"));
+            Files.deleteIfExists(folder.resolve("video2.avi"));
+            Files.deleteIfExists(folder.resolve("Video1.avi"));
+            Files.deleteIfExists(folder.resolve("zSubFolder"));
+            Files.delete(folder);
+        }
+    }
+
+    private String[] names(final List<AbstractNode> nodes) {
+        String[] names = new String[nodes.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = nodes.get(i).getName();
+        }
+        return names;
+    }
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao;
+
+import com.google.common.collect.Lists;
+import net.holmes.core.business.media.model.AbstractNode;
+import net.holmes.core.business.media.model.ContentNode;
+import net.holmes.core.business.media.model.FolderNode;
+import net.holmes.core.business.media.search.InvalidSearchCriteriaException;
+import net.holmes.core.business.media.search.SearchCriteria;
+import net.holmes.core.business.mimetype.model.MimeType;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.holmes.core.business.media.model.RootNode.ROOT;
+import static net.holmes.core.business.media.model.RootNode.VIDEO;
+import static net.holmes.core.business.media.search.SearchCriteriaParser.parse;
+import static net.holmes.core.business.mimetype.model.MimeType.MIME_TYPE_SUBTITLE;
+import static org.junit.Assert.*;
+
+public class MediaTitleIndexTest {
+    private static final MimeType AVI = MimeType.valueOf("video/avi");
+    private static final MimeType MP3 = MimeType.valueOf("audio/mp3");
+
+    @Test
+    public void testSearchTitle() throws InvalidSearchCriteriaException {
+        MediaTitleIndex index = buildIndex();
+
+        assertEquals(Lists.newArrayList("matrixId", "matrix2Id"), ids(index.search(ROOT.getId(), parse("dc:title contains \"matrix\""))));
+        assertEquals(Lists.newArrayList("matrixId", "matrix2Id"), ids(index.search(VIDEO.getId(), parse("dc:title contains \"ATRI\""))));
+        assertEquals(Lists.newArrayList("matrix2Id"), ids(index.search("configId", parse("dc:title contains \"matrix.reloaded\""))));
+        assertEquals(Lists.newArrayList("matrixId"), ids(index.search("configId", parse("dc:title = \"The.Matrix.avi\""))));
+        assertTrue(index.search("configId", parse("dc:title contains \"matrix reloaded\"")).isEmpty());
+        assertTrue(index.search("configId", parse("dc:title contains \"unknown\"")).isEmpty());
+
+        // Search is limited to container descendants
+        assertTrue(index.search("musicFolderId", parse("dc:title contains \"matrix\"")).isEmpty());
+        assertTrue(index.search("unknownId", parse("*")).isEmpty());
+    }
+
+    @Test
+    public void testSearchClass() throws InvalidSearchCriteriaException {
+        MediaTitleIndex index = buildIndex();
+
+        List<MediaSearchHit> hits = index.search("configId", parse("upnp:class derivedfrom \"object.item.audioItem\""));
+        assertEquals(Lists.newArrayList("songId"), ids(hits));
+        assertEquals(MP3, hits.get(0).getMimeType());
+        assertFalse(hits.get(0).isFolder());
+        assertNotNull(hits.get(0).toString());
+
+        hits = index.search("configId", parse("upnp:class = \"object.container\""));
+        assertEquals(Lists.newArrayList("musicFolderId"), ids(hits));
+        assertTrue(hits.get(0).isFolder());
+
+        assertEquals(Lists.newArrayList("songId", "matrixId"),
+                ids(index.search("configId", parse("upnp:class derivedfrom \"object.item.audioItem\" or dc:title = \"the.matrix.avi\""))));
+        assertEquals(Lists.newArrayList("matrixId", "matrix2Id"),
+                ids(index.search("configId", parse("upnp:class derivedfrom \"object.item\" and dc:title doesNotContain \"song\""))));
+        assertEquals(4, index.search("configId", SearchCriteria.all()).size());
+    }
+
+    @Test
+    public void testUpdate() throws InvalidSearchCriteriaException {
+        MediaTitleIndex index = buildIndex();
+        assertEquals(5, index.size());
+
+        // Music folder is removed with its content, matrix is renamed
+        List<AbstractNode> children = new ArrayList<>();
+        children.add(new ContentNode("matrixId", "configId", "Matrix.Revolutions.avi", new File("Matrix.Revolutions.avi"), AVI));
+        children.add(new ContentNode("matrix2Id", "configId", "The.Matrix.Reloaded.avi", new File("The.Matrix.Reloaded.avi"), AVI));
+        index.update("configId", children);
+
+        assertEquals(3, index.size());
+        assertEquals(Lists.newArrayList("matrixId"), ids(index.search(ROOT.getId(), parse("dc:title contains \"revolutions\""))));
+        assertTrue(index.search(ROOT.getId(), parse("dc:title contains \"the.matrix.avi\"")).isEmpty());
+        assertTrue(index.search(ROOT.getId(), parse("dc:title contains \"song\"")).isEmpty());
+    }
+
+    @Test
+    public void testRemove() throws InvalidSearchCriteriaException {
+        MediaTitleIndex index = buildIndex();
+
+        // Removed folder is removed with its content
+        index.remove("musicFolderId");
+        assertEquals(3, index.size());
+        assertTrue(index.search(ROOT.getId(), parse("dc:title contains \"song\"")).isEmpty());
+        assertTrue(index.search(ROOT.getId(), parse("dc:title contains \"music\"")).isEmpty());
+
+        // Removed content
+        index.remove("matrixId");
+        assertEquals(Lists.newArrayList("matrix2Id"), ids(index.search(ROOT.getId(), parse("dc:title contains \"matrix\""))));
+        index.remove("unknownId");
+        assertEquals(2, index.size());
+
+        // Folder listed again
+        List<AbstractNode> music = new ArrayList<>();
+        music.add(new ContentNode("songId", "musicFolderId", "Song.mp3", new File("Song.mp3"), MP3));
+        index.update("musicFolderId", music);
+        assertEquals(Lists.newArrayList("songId"), ids(index.search("musicFolderId", parse("dc:title contains \"ong\""))));
+    }
+
+    @Test
+    public void testUpdateUnpublishedContent() throws InvalidSearchCriteriaException {
+        MediaTitleIndex index = buildIndex();
+
+        // Contents which are not published in browse results are not indexed
+        List<AbstractNode> music = new ArrayList<>();
+        music.add(new ContentNode("songId", "musicFolderId", "Song.mp3", new File("Song.mp3"), MP3));
+        music.add(new ContentNode("lyricsId", "musicFolderId", "Song.srt", new File("Song.srt"), MIME_TYPE_SUBTITLE));
+        music.add(new ContentNode("coverId", "musicFolderId", "Song.pdf", new File("Song.pdf"), MimeType.valueOf("application/pdf")));
+        index.update("musicFolderId", music);
+
+        assertEquals(6, index.size());
+        assertEquals(Lists.newArrayList("songId", "lyricsId"), ids(index.search("musicFolderId", parse("upnp:class derivedfrom \"object.item\""))));
+        assertEquals(Lists.newArrayList("lyricsId"), ids(index.search("musicFolderId", parse("upnp:class = \"object.item.textItem\""))));
+        assertTrue(index.search(ROOT.getId(), parse("dc:title contains \"pdf\"")).isEmpty());
+    }
+
+    @Test
+    public void testSearchTitleWordSuffix() throws InvalidSearchCriteriaException {
+        MediaTitleIndex index = buildIndex();
+
+        assertEquals(Lists.newArrayList("matrixId", "matrix2Id"), ids(index.search(ROOT.getId(), parse("dc:title contains \"trix\""))));
+        assertEquals(Lists.newArrayList("matrix2Id"), ids(index.search(ROOT.getId(), parse("dc:title contains \"load\""))));
+        assertEquals(Lists.newArrayList("matrixId", "matrix2Id"), ids(index.search(ROOT.getId(), parse("dc:title contains \"avi\""))));
+        assertTrue(index.search(ROOT.getId(), parse("dc:title contains \"matrixx\"")).isEmpty());
+
+        // Suffixes of a word no more used are removed
+        List<AbstractNode> children = new ArrayList<>();
+        children.add(new ContentNode("matrixId", "configId", "The.Matrix.avi", new File("The.Matrix.avi"), AVI));
+        index.update("configId", children);
+        assertTrue(index.search(ROOT.getId(), parse("dc:title contains \"load\"")).isEmpty());
+    }
+
+    private MediaTitleIndex buildIndex() {
+        MediaTitleIndex index = new MediaTitleIndex();
+        List<AbstractNode> configNodes = new ArrayList<>();
+        configNodes.add(new FolderNode("configId", VIDEO.getId(), "Movies", new File("movies")));
+        index.update(VIDEO.getId(), configNodes);
+
+        List<AbstractNode> children = new ArrayList<>();
+        children.add(new ContentNode("matrix2Id", "configId", "The.Matrix.Reloaded.avi", new File("The.Matrix.Reloaded.avi"), AVI));
+        children.add(new ContentNode("matrixId", "configId", "The.Matrix.avi", new File("The.Matrix.avi"), AVI));
+        children.add(new FolderNode("musicFolderId", "configId", "Music", new File("music")));
+        index.update("configId", children);
+
+        List<AbstractNode> music = new ArrayList<>();
+        music.add(new ContentNode("songId", "musicFolderId", "Song.mp3", new File("Song.mp3"), MP3));
+        index.update("musicFolderId", music);
+        return index;
+    }
+
+    private List<String> ids(final List<MediaSearchHit> hits) {
+        List<String> ids = new ArrayList<>();
+        for (MediaSearchHit hit : hits) {
+            ids.add(hit.getNodeId());
+        }
+        return ids;
+    }
+}
@@ -22,6 +22,12 @@ import net.holmes.core.business.media.model.RootNode;
 import net.holmes.core.common.event.ConfigurationEvent;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import static net.holmes.core.common.event.ConfigurationEvent.EventType.*;
 import static org.junit.Assert.*;
 
@@ -45,6 +51,103 @@ public class MediaIndexDaoImplTest {
         assertFalse(uuid1.equals(uuid2));
     }
 
+    /**
+     * Check that elements are restored as they were added
+     */
+    @Test
+    public void testAddToMediaIndexCompactStorage() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl();
+
+        String sep = File.separator;
+        MediaIndexElement[] elements = {
+                new MediaIndexElement("parentId", "mediaType", "mimeType", sep + "root" + sep + "dir" + sep + "file1", null, true, false),
+                new MediaIndexElement("parentId", "mediaType", "mimeType", sep + "root" + sep + "dir" + sep + "file2", null, true, false),
+                new MediaIndexElement("parentId", "mediaType", null, sep + "root" + sep + "dir", "dir", true, true),
+                new MediaIndexElement("parentId", "mediaType", null, sep + "root", null, true, false),
+                new MediaIndexElement("parentId", "mediaType", null, sep + "root" + sep + sep + "dir" + sep, null, true, false),
+                new MediaIndexElement("parentId", "mediaType", "mimeType", "http://host/podcast/entry.mp3", "entry", false, false),
+                new MediaIndexElement("parentId", null, null, "path", null, false, false),
+                new MediaIndexElement("parentId", null, null, null, null, false, false)
+        };
+        String[] uuids = new String[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            uuids[i] = mediaIndexDao.add(elements[i]);
+        }
+        for (int i = 0; i < elements.length; i++) {
+            assertEquals(elements[i], mediaIndexDao.get(uuids[i]));
+            assertEquals(uuids[i], mediaIndexDao.add(elements[i]));
+        }
+        assertEquals(elements.length, mediaIndexDao.size());
+    }
+
+    /**
+     * Check that ids only depend on element data
+     */
+    @Test
+    public void testAddToMediaIndexStableId() {
+        MediaIndexDaoImpl mediaIndexDao1 = new MediaIndexDaoImpl();
+        MediaIndexDaoImpl mediaIndexDao2 = new MediaIndexDaoImpl();
+
+        String uuid1 = mediaIndexDao1.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path", "name", true, false));
+        String uuid2 = mediaIndexDao2.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path", "name", true, false));
+        assertEquals(uuid1, uuid2);
+
+        uuid2 = mediaIndexDao2.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path2", "name", true, false));
+        assertNotEquals(uuid1, uuid2);
+    }
+
+    @Test
+    public void testAddToMediaIndexIdCollision() {
+        MediaIndexDaoImpl mediaIndexDao1 = new MediaIndexDaoImpl();
+        MediaIndexElement element = new MediaIndexElement("parentId", "mediaType", "mimeType", "path", "name", true, false);
+        String uuid1 = mediaIndexDao1.add(element);
+
+        // Another element has been put with the element id
+        MediaIndexDaoImpl mediaIndexDao2 = new MediaIndexDaoImpl();
+        MediaIndexElement otherElement = new MediaIndexElement("otherParentId", "mediaType", "mimeType", "otherPath", "name", true, false);
+        mediaIndexDao2.put(uuid1, otherElement);
+        assertEquals(uuid1, mediaIndexDao2.add(element));
+        assertEquals(element, mediaIndexDao2.get(uuid1));
+        assertEquals(uuid1, mediaIndexDao2.findId("parentId", "path"));
+        assertNull(mediaIndexDao2.findId("otherParentId", "otherPath"));
+        assertEquals(1, mediaIndexDao2.size());
+    }
+
+    @Test
+    public void testAddToMediaIndexChangedElement() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl();
+        String uuid1 = mediaIndexDao.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path", "name", true, false));
+
+        // Element data changed: element is replaced and keeps its id
+        MediaIndexElement changedElement = new MediaIndexElement("parentId", "mediaType", "otherMimeType", "path", "otherName", true, false);
+        assertEquals(uuid1, mediaIndexDao.add(changedElement));
+        assertEquals(changedElement, mediaIndexDao.get(uuid1));
+        assertEquals(uuid1, mediaIndexDao.findId("parentId", "path"));
+        assertEquals(1, mediaIndexDao.size());
+
+        // Replaced element is still a child of its parent
+        mediaIndexDao.removeChildren("parentId");
+        assertNull(mediaIndexDao.get(uuid1));
+        assertEquals(0, mediaIndexDao.size());
+    }
+
+    @Test
+    public void testAddToMediaIndexInsertionOrder() {
+        MediaIndexElement element1 = new MediaIndexElement("parentId", "mediaType", "mimeType", "path1", "name", true, false);
+        MediaIndexElement element2 = new MediaIndexElement("parentId", "mediaType", "mimeType", "path2", "name", true, false);
+        MediaIndexElement changedElement1 = new MediaIndexElement("parentId", "mediaType", "otherMimeType", "path1", "name", true, false);
+
+        MediaIndexDaoImpl mediaIndexDao1 = new MediaIndexDaoImpl();
+        String uuid1 = mediaIndexDao1.add(element1);
+        String uuid2 = mediaIndexDao1.add(element2);
+        assertEquals(uuid1, mediaIndexDao1.add(changedElement1));
+
+        MediaIndexDaoImpl mediaIndexDao2 = new MediaIndexDaoImpl();
+        assertEquals(uuid1, mediaIndexDao2.add(changedElement1));
+        assertEquals(uuid2, mediaIndexDao2.add(element2));
+        assertEquals(uuid1, mediaIndexDao2.add(element1));
+    }
+
     @Test
     public void testRemoveChildrenMediaIndex() {
         MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl();
@@ -58,6 +161,25 @@ public class MediaIndexDaoImplTest {
         assertNull(mediaIndexDao.get(uuid2));
     }
 
+    @Test
+    public void testRemoveChildrenMediaIndexSubTree() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl();
+
+        String uuid1 = mediaIndexDao.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path1", "name", true, false));
+        String uuid2 = mediaIndexDao.add(new MediaIndexElement(uuid1, "mediaType", "mimeType", "path2", "name", true, false));
+        String uuid3 = mediaIndexDao.add(new MediaIndexElement(uuid2, "mediaType", "mimeType", "path3", "name", true, false));
+        String uuid4 = mediaIndexDao.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path4", "name", true, false));
+        mediaIndexDao.removeChildren(uuid1);
+        assertNotNull(mediaIndexDao.get(uuid1));
+        assertNull(mediaIndexDao.get(uuid2));
+        assertNull(mediaIndexDao.get(uuid3));
+        assertNotNull(mediaIndexDao.get(uuid4));
+
+        // Removed element gets the same uuid when added again
+        assertEquals(uuid2, mediaIndexDao.add(new MediaIndexElement(uuid1, "mediaType", "mimeType", "path2", "name", true, false)));
+        assertNotNull(mediaIndexDao.get(uuid2));
+    }
+
     @Test
     public void testCleanMediaIndexNonExistingParent() {
         MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl();
@@ -68,6 +190,252 @@ public class MediaIndexDaoImplTest {
         assertNull(mediaIndexDao.get(uuid1));
     }
 
+    @Test
+    public void testCleanMediaIndexNonExistingParentSubTree() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl();
+
+        String uuid1 = mediaIndexDao.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path1", "name", false, false));
+        String uuid2 = mediaIndexDao.add(new MediaIndexElement(uuid1, "mediaType", "mimeType", "path2", "name", false, false));
+        mediaIndexDao.clean();
+        assertNull(mediaIndexDao.get(uuid1));
+        assertNull(mediaIndexDao.get(uuid2));
+    }
+
+    @Test
+    public void testCleanMediaIndexBatches() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl();
+
+        String rootUuid = mediaIndexDao.add(new MediaIndexElement("0", "mediaType", null, "root", "root", false, true));
+        for (int i = 0; i < 4; i++) {
+            mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", "mimeType", "path" + i, "name", false, false));
+        }
+        String uuid1 = mediaIndexDao.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "orphan", "name", false, false));
+        String uuid2 = mediaIndexDao.add(new MediaIndexElement(uuid1, "mediaType", "mimeType", "orphanChild", "name", false, false));
+
+        MediaIndexStatistics statistics = mediaIndexDao.getStatistics();
+        mediaIndexDao.clean(3);
+        assertEquals(1, statistics.getCleanBatches());
+        assertEquals(0, statistics.getCleanPasses());
+        assertEquals(3, statistics.getLastBatchScannedElements());
+        while (statistics.getCleanPasses() == 0) {
+            mediaIndexDao.clean(3);
+        }
+        assertEquals(2, statistics.getRemovedElements());
+        assertTrue(statistics.getCleanBatches() <= 3);
+        assertNull(mediaIndexDao.get(uuid1));
+        assertNull(mediaIndexDao.get(uuid2));
+        assertEquals(5, mediaIndexDao.size());
+
+        // Next batch starts a new pass
+        assertTrue(mediaIndexDao.clean(10).isEmpty());
+        assertEquals(5, statistics.getLastBatchScannedElements());
+        assertEquals(0, statistics.getLastBatchRemovedElements());
+        assertEquals(2, statistics.getCleanPasses());
+    }
+
+    @Test
+    public void testCleanMediaIndexChangedParents() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl();
+
+        String rootUuid = mediaIndexDao.add(new MediaIndexElement("0", "mediaType", null, "root", "root", false, true));
+        mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", "mimeType", "path", "name", false, false));
+        mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", "mimeType", "/unknown/path", "name", true, false));
+        mediaIndexDao.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "orphan", "name", false, false));
+
+        // Only parents still in media index are reported
+        assertEquals(Collections.singleton(rootUuid), mediaIndexDao.clean(10));
+        assertEquals(2, mediaIndexDao.size());
+        assertTrue(mediaIndexDao.clean(10).isEmpty());
+    }
+
+    @Test
+    public void testEvictMediaIndex() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl(3);
+
+        String rootUuid = mediaIndexDao.add(new MediaIndexElement("0", "mediaType", null, "root", "root", true, true));
+        MediaIndexElement[] elements = new MediaIndexElement[5];
+        String[] uuids = new String[5];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = new MediaIndexElement(rootUuid, "mediaType", "mimeType", "path" + i, null, true, false);
+            uuids[i] = mediaIndexDao.add(elements[i]);
+        }
+        assertEquals(3, mediaIndexDao.size());
+        assertEquals(3, mediaIndexDao.getStatistics().getEvictions());
+        assertNotNull(mediaIndexDao.get(rootUuid));
+
+        int evicted = -1;
+        for (int i = 0; i < elements.length; i++) {
+            if (mediaIndexDao.get(uuids[i]) == null) {
+                evicted = i;
+                assertEquals(rootUuid, mediaIndexDao.getEvictedParentId(uuids[i]));
+            } else {
+                assertNull(mediaIndexDao.getEvictedParentId(uuids[i]));
+            }
+        }
+
+        // Evicted element gets back its id
+        assertTrue(evicted >= 0);
+        assertEquals(uuids[evicted], mediaIndexDao.add(elements[evicted]));
+        assertEquals(4, mediaIndexDao.getStatistics().getEvictions());
+        assertEquals(3, mediaIndexDao.size());
+    }
+
+    @Test
+    public void testEvictMediaIndexNotEvictable() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl(1);
+
+        String rootUuid = mediaIndexDao.add(new MediaIndexElement("0", "mediaType", null, "root", "root", true, true));
+        for (int i = 0; i < 3; i++) {
+            mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", "mimeType", "http://host/path" + i, null, false, false));
+        }
+        assertEquals(4, mediaIndexDao.size());
+        assertEquals(0, mediaIndexDao.getStatistics().getEvictions());
+    }
+
+    @Test
+    public void testRemoveChildrenEvicted() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl(2);
+
+        String rootUuid = mediaIndexDao.add(new MediaIndexElement("0", "mediaType", null, "root", "root", true, true));
+        String uuid1 = mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", "mimeType", "path1", null, true, false));
+        String uuid2 = mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", "mimeType", "path2", null, true, false));
+        assertEquals(1, mediaIndexDao.getStatistics().getEvictions());
+
+        mediaIndexDao.removeChildren(rootUuid);
+        assertNull(mediaIndexDao.get(uuid1));
+        assertNull(mediaIndexDao.get(uuid2));
+        assertEquals(1, mediaIndexDao.size());
+
+        // Removed elements get back their ids when root is listed again
+        assertEquals(uuid1, mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", "mimeType", "path1", null, true, false)));
+        assertEquals(uuid2, mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", "mimeType", "path2", null, true, false)));
+    }
+
+    @Test
+    public void testRemoveParentEvicted() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl(2);
+
+        String rootUuid = mediaIndexDao.add(new MediaIndexElement("0", "mediaType", null, "root", "root", true, true));
+        String folderUuid = mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", null, "folder", null, true, false));
+        String uuid1 = mediaIndexDao.add(new MediaIndexElement(folderUuid, "mediaType", "mimeType", "http://host/path1", null, false, false));
+        assertNull(mediaIndexDao.get(folderUuid));
+        assertEquals(rootUuid, mediaIndexDao.getEvictedParentId(folderUuid));
+
+        // Evicted parent id is dropped once parent is removed
+        mediaIndexDao.handleConfigEvent(new ConfigurationEvent(DELETE_FOLDER, new ConfigurationNode(rootUuid, "root", "root"), RootNode.VIDEO));
+        assertNull(mediaIndexDao.getEvictedParentId(folderUuid));
+        mediaIndexDao.clean();
+        assertNull(mediaIndexDao.get(uuid1));
+        assertEquals(0, mediaIndexDao.size());
+    }
+
+    @Test
+    public void testEvictMediaIndexBoundedEvictedIds() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl(2);
+
+        String rootUuid = mediaIndexDao.add(new MediaIndexElement("0", "mediaType", null, "root", "root", true, true));
+        String[] uuids = new String[10];
+        for (int i = 0; i < uuids.length; i++) {
+            uuids[i] = mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", "mimeType", "path" + i, null, true, false));
+        }
+        assertEquals(2, mediaIndexDao.size());
+        assertEquals(9, mediaIndexDao.getStatistics().getEvictions());
+
+        // Only the last evicted parent ids are kept
+        int evictedIds = 0;
+        for (String uuid : uuids) {
+            if (mediaIndexDao.getEvictedParentId(uuid) != null) {
+                evictedIds++;
+            }
+        }
+        assertEquals(2, evictedIds);
+    }
+
+    @Test
+    public void testCleanMediaIndexEvictedParent() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl(2);
+
+        String rootUuid = mediaIndexDao.add(new MediaIndexElement("0", "mediaType", null, "root", "root", false, true));
+        String folderUuid = mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", null, "folder", null, true, false));
+        String childUuid = mediaIndexDao.add(new MediaIndexElement(folderUuid, "mediaType", "mimeType", "http://host/child", null, false, false));
+        assertEquals(rootUuid, mediaIndexDao.getEvictedParentId(folderUuid));
+
+        mediaIndexDao.clean();
+        assertNotNull(mediaIndexDao.get(childUuid));
+    }
+
+    @Test
+    public void testMediaIndexListener() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl(2);
+        final List<String> removedIds = new ArrayList<>();
+        mediaIndexDao.addListener(new MediaIndexListener() {
+            @Override
+            public void elementRemoved(final String uuid) {
+                removedIds.add(uuid);
+            }
+        });
+
+        String rootUuid = mediaIndexDao.add(new MediaIndexElement("0", "mediaType", null, "root", "root", true, true));
+        String uuid1 = mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", "mimeType", "path1", null, true, false));
+        String uuid2 = mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", "mimeType", "path2", null, true, false));
+
+        // Evicted element
+        assertEquals(1, removedIds.size());
+        String evictedUuid = removedIds.get(0);
+        assertTrue(evictedUuid.equals(uuid1) || evictedUuid.equals(uuid2));
+
+        // Removed element
+        mediaIndexDao.removeChildren(rootUuid);
+        assertEquals(2, removedIds.size());
+        assertEquals(evictedUuid.equals(uuid1) ? uuid2 : uuid1, removedIds.get(1));
+    }
+
+    @Test
+    public void testFindId() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl(2);
+
+        String rootUuid = mediaIndexDao.add(new MediaIndexElement("0", "mediaType", null, "root", "root", true, true));
+        String uuid1 = mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", "mimeType", "path1", null, true, false));
+        String uuid2 = mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", "mimeType", "path2", null, true, false));
+
+        // One of both elements is evicted
+        assertEquals(uuid1, mediaIndexDao.findId(rootUuid, "path1"));
+        assertEquals(uuid2, mediaIndexDao.findId(rootUuid, "path2"));
+        assertNull(mediaIndexDao.findId(rootUuid, "path3"));
+        assertNull(mediaIndexDao.findId("parentId", "path1"));
+    }
+
+    @Test
+    public void testCleanChildren() throws IOException {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl();
+
+        File file = File.createTempFile("holmes", ".avi");
+        file.deleteOnExit();
+        String rootUuid = mediaIndexDao.add(new MediaIndexElement("0", "mediaType", null, "root", "root", true, true));
+        String folderUuid = mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", null, "folder", null, true, false));
+        String childUuid = mediaIndexDao.add(new MediaIndexElement(folderUuid, "mediaType", "mimeType", "child", null, true, false));
+        String fileUuid = mediaIndexDao.add(new MediaIndexElement(rootUuid, "mediaType", "mimeType", file.getAbsolutePath(), null, true, false));
+
+        mediaIndexDao.cleanChildren(rootUuid);
+        assertNotNull(mediaIndexDao.get(rootUuid));
+        assertNull(mediaIndexDao.get(folderUuid));
+        assertNull(mediaIndexDao.get(childUuid));
+        assertNotNull(mediaIndexDao.get(fileUuid));
+    }
+
+    @Test
+    public void testMediaIndexHitsAndMisses() {
+        MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl();
+
+        String uuid = mediaIndexDao.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path", "name", true, false));
+        mediaIndexDao.get(uuid);
+        mediaIndexDao.get(uuid);
+        mediaIndexDao.get("unknown");
+        assertEquals(2, mediaIndexDao.getStatistics().getHits());
+        assertEquals(1, mediaIndexDao.getStatistics().getMisses());
+        assertEquals(0, mediaIndexDao.getStatistics().getEvictions());
+    }
+
     @Test
     public void testCleanMediaIndexNonExistingFile() {
         MediaIndexDaoImpl mediaIndexDao = new MediaIndexDaoImpl();
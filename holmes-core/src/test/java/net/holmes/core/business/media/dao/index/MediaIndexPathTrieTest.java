@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao.index;
+
+import net.holmes.core.business.media.dao.index.MediaIndexPathTrie.Segment;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MediaIndexPathTrieTest {
+
+    @Test
+    public void testInternSameDirectory() {
+        MediaIndexPathTrie trie = new MediaIndexPathTrie('/');
+        Segment segment1 = trie.intern("/root/dir");
+        Segment segment2 = trie.intern(new StringBuilder("/root/").append("dir").toString());
+        assertSame(segment1, segment2);
+    }
+
+    @Test
+    public void testInternSharedParent() {
+        MediaIndexPathTrie trie = new MediaIndexPathTrie('/');
+        Segment segment1 = trie.intern("/root/dir1");
+        Segment segment2 = trie.intern("/root/dir2");
+        Segment segment3 = trie.intern("/root/dir1");
+        assertNotSame(segment1, segment2);
+        assertSame(segment1, segment3);
+        assertEquals("/root/dir1/file", trie.buildPath(segment1, "file"));
+        assertEquals("/root/dir2/file", trie.buildPath(segment2, "file"));
+    }
+
+    @Test
+    public void testBuildPath() {
+        MediaIndexPathTrie trie = new MediaIndexPathTrie('/');
+        assertEquals("file", trie.buildPath(null, "file"));
+        assertEquals("/file", trie.buildPath(trie.intern(""), "file"));
+        assertEquals("a//b/", trie.buildPath(trie.intern("a//b"), ""));
+        assertEquals("http://host/path/file", trie.buildPath(trie.intern("http://host/path"), "file"));
+    }
+
+    @Test
+    public void testBuildPathOtherSeparator() {
+        MediaIndexPathTrie trie = new MediaIndexPathTrie('\\');
+        assertEquals('\\', trie.getSeparator());
+        assertEquals("C:\\dir/name\\file", trie.buildPath(trie.intern("C:\\dir/name"), "file"));
+    }
+
+    @Test
+    public void testSegmentMatches() {
+        MediaIndexPathTrie trie = new MediaIndexPathTrie('/');
+        Segment segment = trie.intern("/root/dir");
+        assertTrue(segment.matches("/root/dir", '/'));
+        assertFalse(segment.matches("/root/dir2", '/'));
+        assertFalse(segment.matches("root/dir", '/'));
+        assertFalse(segment.matches("/rootdir", '/'));
+        assertFalse(segment.matches("/x/root/dir", '/'));
+        assertFalse(segment.matches("dir", '/'));
+    }
+
+    @Test
+    public void testSegmentEquals() {
+        MediaIndexPathTrie trie = new MediaIndexPathTrie('/');
+        Segment parent = trie.intern("/root");
+        Segment segment = new Segment(parent, "dir");
+        assertEquals(segment, segment);
+        assertEquals(segment, new Segment(parent, "dir"));
+        assertEquals(segment.hashCode(), new Segment(parent, "dir").hashCode());
+        assertNotEquals(segment, new Segment(parent, "dir2"));
+        assertNotEquals(segment, new Segment(null, "dir"));
+        assertNotEquals(segment, null);
+        assertNotEquals(segment, "dir");
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao.index;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MediaIndexStatisticsTest {
+
+    @Test
+    public void testNoCleanBatch() {
+        MediaIndexStatistics statistics = new MediaIndexStatistics();
+        assertEquals(0, statistics.getCleanBatches());
+        assertEquals(0, statistics.getCleanPasses());
+        assertEquals(0, statistics.getScannedElements());
+        assertEquals(0, statistics.getRemovedElements());
+        assertEquals(0, statistics.getLastBatchScannedElements());
+        assertEquals(0, statistics.getLastBatchRemovedElements());
+        assertEquals(0d, statistics.getLastBatchDurationMillis(), 0d);
+        assertEquals(0d, statistics.getAverageBatchDurationMillis(), 0d);
+    }
+
+    @Test
+    public void testRecordCleanBatch() {
+        MediaIndexStatistics statistics = new MediaIndexStatistics();
+        statistics.recordCleanBatch(10, 2, false, 3000000);
+        statistics.recordCleanBatch(5, 1, true, 1000000);
+        assertEquals(2, statistics.getCleanBatches());
+        assertEquals(1, statistics.getCleanPasses());
+        assertEquals(15, statistics.getScannedElements());
+        assertEquals(3, statistics.getRemovedElements());
+        assertEquals(5, statistics.getLastBatchScannedElements());
+        assertEquals(1, statistics.getLastBatchRemovedElements());
+        assertEquals(1d, statistics.getLastBatchDurationMillis(), 0d);
+        assertEquals(2d, statistics.getAverageBatchDurationMillis(), 0d);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao.index;
+
+import org.junit.Test;
+
+import static net.holmes.core.business.media.dao.index.MediaIndexSymbolTable.NULL_ORDINAL;
+import static org.junit.Assert.*;
+
+public class MediaIndexSymbolTableTest {
+
+    @Test
+    public void testGetOrdinal() {
+        MediaIndexSymbolTable symbolTable = new MediaIndexSymbolTable();
+        short ordinal1 = symbolTable.getOrdinal("video/mp4");
+        short ordinal2 = symbolTable.getOrdinal("audio/mpeg");
+        assertNotEquals(ordinal1, ordinal2);
+        assertEquals(ordinal1, symbolTable.getOrdinal(new String("video/mp4")));
+        assertEquals("video/mp4", symbolTable.getSymbol(ordinal1));
+        assertEquals("audio/mpeg", symbolTable.getSymbol(ordinal2));
+    }
+
+    @Test
+    public void testGetOrdinalNull() {
+        MediaIndexSymbolTable symbolTable = new MediaIndexSymbolTable();
+        assertEquals(NULL_ORDINAL, symbolTable.getOrdinal(null));
+        assertNull(symbolTable.getSymbol(NULL_ORDINAL));
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.dao.index;
+
+import net.holmes.core.business.configuration.ConfigurationManager;
+import net.holmes.core.business.configuration.ConfigurationManagerImpl;
+import net.holmes.core.business.configuration.model.ConfigurationNode;
+import net.holmes.core.test.TestConfigurationDao;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static net.holmes.core.business.media.model.RootNode.VIDEO;
+import static org.junit.Assert.*;
+
+public class PersistentMediaIndexDaoImplTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testReloadMediaIndex() throws IOException {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        String dataDir = temporaryFolder.getRoot().getAbsolutePath();
+
+        PersistentMediaIndexDaoImpl mediaIndexDao = new PersistentMediaIndexDaoImpl(configurationManager, dataDir);
+        String uuid1 = mediaIndexDao.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path1", "name", true, false));
+        String uuid2 = mediaIndexDao.add(new MediaIndexElement(uuid1, "mediaType", null, "path2", null, true, false));
+        String uuid3 = mediaIndexDao.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path3", "name", true, false));
+        mediaIndexDao.removeChildren(uuid3);
+        mediaIndexDao.close();
+
+        PersistentMediaIndexDaoImpl reloadedMediaIndexDao = new PersistentMediaIndexDaoImpl(configurationManager, dataDir);
+        assertEquals(mediaIndexDao.get(uuid1), reloadedMediaIndexDao.get(uuid1));
+        assertEquals(mediaIndexDao.get(uuid2), reloadedMediaIndexDao.get(uuid2));
+        assertEquals(uuid2, reloadedMediaIndexDao.add(new MediaIndexElement(uuid1, "mediaType", null, "path2", null, true, false)));
+        assertEquals(mediaIndexDao.size(), reloadedMediaIndexDao.size());
+        assertTrue(reloadedMediaIndexDao.getLoadDuration() >= 0);
+        reloadedMediaIndexDao.close();
+    }
+
+    @Test
+    public void testReloadMediaIndexRemovedElements() throws IOException {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        String dataDir = temporaryFolder.getRoot().getAbsolutePath();
+
+        PersistentMediaIndexDaoImpl mediaIndexDao = new PersistentMediaIndexDaoImpl(configurationManager, dataDir);
+        String uuid1 = mediaIndexDao.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path1", "name", true, false));
+        String uuid2 = mediaIndexDao.add(new MediaIndexElement(uuid1, "mediaType", "mimeType", "path2", "name", true, false));
+        mediaIndexDao.removeChildren(uuid1);
+        mediaIndexDao.close();
+
+        PersistentMediaIndexDaoImpl reloadedMediaIndexDao = new PersistentMediaIndexDaoImpl(configurationManager, dataDir);
+        assertNotNull(reloadedMediaIndexDao.get(uuid1));
+        assertNull(reloadedMediaIndexDao.get(uuid2));
+        reloadedMediaIndexDao.close();
+    }
+
+    @Test
+    public void testReloadMediaIndexConfigurationElements() throws IOException {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        String dataDir = temporaryFolder.getRoot().getAbsolutePath();
+        ConfigurationNode videoNode = configurationManager.getNodes(VIDEO).get(0);
+
+        PersistentMediaIndexDaoImpl mediaIndexDao = new PersistentMediaIndexDaoImpl(configurationManager, dataDir);
+        assertNotNull(mediaIndexDao.get(videoNode.getId()));
+        mediaIndexDao.put("lockedId", new MediaIndexElement(VIDEO.getId(), "mediaType", null, "path", "name", true, true));
+        mediaIndexDao.close();
+
+        // Locked elements are restored from configuration only
+        PersistentMediaIndexDaoImpl reloadedMediaIndexDao = new PersistentMediaIndexDaoImpl(configurationManager, dataDir);
+        assertNotNull(reloadedMediaIndexDao.get(videoNode.getId()));
+        assertNull(reloadedMediaIndexDao.get("lockedId"));
+        reloadedMediaIndexDao.close();
+    }
+
+    @Test
+    public void testReloadMediaIndexTruncatedJournal() throws IOException {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        String dataDir = temporaryFolder.getRoot().getAbsolutePath();
+
+        PersistentMediaIndexDaoImpl mediaIndexDao = new PersistentMediaIndexDaoImpl(configurationManager, dataDir);
+        String uuid1 = mediaIndexDao.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path1", "name", true, false));
+        mediaIndexDao.close();
+
+        // Append a partial record to journal
+        try (FileOutputStream out = new FileOutputStream(new File(dataDir, "media-index.log"), true)) {
+            out.write(new byte[]{1, 0, 10, 'p'});
+        }
+
+        PersistentMediaIndexDaoImpl reloadedMediaIndexDao = new PersistentMediaIndexDaoImpl(configurationManager, dataDir);
+        assertNotNull(reloadedMediaIndexDao.get(uuid1));
+        reloadedMediaIndexDao.close();
+    }
+
+    @Test
+    public void testLoadMediaIndexInvalidSnapshot() throws IOException {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        String dataDir = temporaryFolder.getRoot().getAbsolutePath();
+        try (FileOutputStream out = new FileOutputStream(new File(dataDir, "media-index.dat"))) {
+            out.write(new byte[]{0, 0, 0, 0, 0, 0, 0, 0});
+        }
+
+        PersistentMediaIndexDaoImpl mediaIndexDao = new PersistentMediaIndexDaoImpl(configurationManager, dataDir);
+        String uuid1 = mediaIndexDao.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path1", "name", true, false));
+        assertNotNull(mediaIndexDao.get(uuid1));
+        mediaIndexDao.close();
+    }
+
+    @Test
+    public void testCloseMediaIndexTwice() throws IOException {
+        ConfigurationManager configurationManager = new ConfigurationManagerImpl(new TestConfigurationDao());
+        String dataDir = temporaryFolder.getRoot().getAbsolutePath();
+
+        PersistentMediaIndexDaoImpl mediaIndexDao = new PersistentMediaIndexDaoImpl(configurationManager, dataDir);
+        String uuid1 = mediaIndexDao.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path1", "name", true, false));
+        mediaIndexDao.close();
+        mediaIndexDao.close();
+
+        // Changes made after close are not saved
+        String uuid2 = mediaIndexDao.add(new MediaIndexElement("parentId", "mediaType", "mimeType", "path2", "name", true, false));
+        PersistentMediaIndexDaoImpl reloadedMediaIndexDao = new PersistentMediaIndexDaoImpl(configurationManager, dataDir);
+        assertNotNull(reloadedMediaIndexDao.get(uuid1));
+        assertNull(reloadedMediaIndexDao.get(uuid2));
+        reloadedMediaIndexDao.close();
+    }
+}
@@ -24,6 +24,8 @@ import org.junit.Test;
 import org.junit.rules.TestName;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 
 import static org.junit.Assert.*;
 
@@ -110,6 +112,18 @@ public class ContentNodeTest {
         assertEquals(node1.toString(), node2.toString());
     }
 
+    /**
+     * Method: ContentNode(id, parentId, name, path, attributes, mimeType)
+     */
+    @Test
+    public void testContentNodeFromAttributes() throws Exception {
+        File file = File.createTempFile(testName.getMethodName(), "avi");
+        file.deleteOnExit();
+        BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        ContentNode node = new ContentNode("id", "parentId", "name", file.toPath(), attributes, MimeType.valueOf("video/x-msvideo"));
+        assertEquals(buildContentNode(file), node);
+    }
+
     private ContentNode buildContentNode(File file) {
         MimeType mimeType = MimeType.valueOf("video/x-msvideo");
         return new ContentNode("id", "parentId", "name", file, mimeType);
@@ -19,6 +19,11 @@ package net.holmes.core.business.media.model;
 
 import org.junit.Test;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
 import static org.junit.Assert.*;
 
 /**
@@ -61,6 +66,21 @@ public class FolderNodeTest {
         assertEquals(node1.toString(), node2.toString());
     }
 
+    /**
+     * Method: FolderNode(id, parentId, name, path, attributes)
+     */
+    @Test
+    public void testFolderNodeFromAttributes() throws Exception {
+        Path folder = Files.createTempDirectory("holmesFolderNode");
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(folder, BasicFileAttributes.class);
+            FolderNode node = new FolderNode("id", "parentId", "name", folder, attributes);
+            assertEquals(new FolderNode("id", "parentId", "name", new File(folder.toString())), node);
+        } finally {
+            Files.delete(folder);
+        }
+    }
+
     private FolderNode buildFolderNode() {
         return new FolderNode("id", "parentId", "name");
     }
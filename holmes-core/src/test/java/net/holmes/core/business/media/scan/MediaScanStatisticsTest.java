@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.scan;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MediaScanStatisticsTest {
+
+    @Test
+    public void testMediaScanStatistics() throws InterruptedException {
+        MediaScanStatistics statistics = new MediaScanStatistics();
+        assertFalse(statistics.isRunning());
+        assertEquals(0, statistics.getDurationMillis());
+        assertEquals(0, statistics.getThroughput(), 0);
+
+        statistics.recordScanStarted();
+        statistics.recordScanStarted();
+        statistics.recordFolder(3);
+        statistics.recordFolder(1);
+        statistics.recordCycle();
+        Thread.sleep(5);
+        statistics.recordScanFinished();
+        assertTrue(statistics.isRunning());
+        statistics.recordScanFinished();
+        assertFalse(statistics.isRunning());
+
+        assertEquals(2, statistics.getScans());
+        assertEquals(2, statistics.getVisitedFolders());
+        assertEquals(4, statistics.getVisitedFiles());
+        assertEquals(1, statistics.getCycles());
+        assertTrue(statistics.getDurationMillis() > 0);
+        assertTrue(statistics.getThroughput() > 0);
+
+        // A new scan resets progress counters
+        statistics.recordScanStarted();
+        assertEquals(3, statistics.getScans());
+        assertEquals(0, statistics.getVisitedFolders());
+        assertEquals(0, statistics.getVisitedFiles());
+        assertEquals(0, statistics.getCycles());
+    }
+}
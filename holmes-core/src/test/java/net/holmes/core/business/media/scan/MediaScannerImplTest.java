@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.scan;
+
+import net.holmes.core.business.configuration.ConfigurationManager;
+import net.holmes.core.business.media.dao.MediaDao;
+import net.holmes.core.business.media.model.AbstractNode;
+import net.holmes.core.business.media.model.ContentNode;
+import net.holmes.core.business.media.model.FolderNode;
+import net.holmes.core.business.mimetype.model.MimeType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static net.holmes.core.business.media.model.RootNode.*;
+import static net.holmes.core.common.ConfigurationParameter.*;
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+public class MediaScannerImplTest {
+    private Path rootPath;
+
+    @Before
+    public void setUp() throws IOException {
+        rootPath = Files.createTempDirectory("holmesScanner").toRealPath();
+        Files.createFile(rootPath.resolve("a.avi"));
+        Files.createDirectory(rootPath.resolve("sub"));
+        Files.createFile(rootPath.resolve("sub").resolve("b.avi"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(rootPath.resolve("sub").resolve("loop"));
+        Files.deleteIfExists(rootPath.resolve("sub").resolve("b.avi"));
+        Files.deleteIfExists(rootPath.resolve("sub"));
+        Files.deleteIfExists(rootPath.resolve("a.avi"));
+        Files.deleteIfExists(rootPath);
+    }
+
+    @Test
+    public void testScanAll() throws Exception {
+        ConfigurationManager configurationManager = mockConfigurationManager(true, 64);
+        MediaDao mediaDao = createMock(MediaDao.class);
+
+        expect(mediaDao.getRootNodeChildren(VIDEO)).andReturn(rootChildren("rootId"));
+        expect(mediaDao.getRootNodeChildren(PICTURE)).andReturn(new ArrayList<AbstractNode>());
+        expect(mediaDao.getRootNodeChildren(AUDIO)).andReturn(new ArrayList<AbstractNode>());
+        expect(mediaDao.getChildNodes("rootId")).andReturn(rootFolderChildren());
+        expect(mediaDao.getChildNodes("subId")).andReturn(subFolderChildren());
+
+        replay(configurationManager, mediaDao);
+
+        MediaScannerImpl mediaScanner = new MediaScannerImpl(configurationManager, mediaDao);
+        try {
+            mediaScanner.scanAll();
+            MediaScanStatistics statistics = awaitScan(mediaScanner);
+            assertEquals(1, statistics.getScans());
+            assertEquals(2, statistics.getVisitedFolders());
+            assertEquals(2, statistics.getVisitedFiles());
+            assertEquals(0, statistics.getCycles());
+            verify(configurationManager, mediaDao);
+        } finally {
+            mediaScanner.shutdown();
+        }
+    }
+
+    @Test
+    public void testScanSymbolicLinkCycle() throws Exception {
+        Path loopPath;
+        try {
+            loopPath = Files.createSymbolicLink(rootPath.resolve("sub").resolve("loop"), rootPath);
+        } catch (UnsupportedOperationException | IOException e) {
+            // Symbolic links not supported
+            return;
+        }
+        ConfigurationManager configurationManager = mockConfigurationManager(true, 64);
+        MediaDao mediaDao = createMock(MediaDao.class);
+
+        List<AbstractNode> subFolderChildren = subFolderChildren();
+        subFolderChildren.add(new FolderNode("loopId", "subId", "loop", loopPath.toFile()));
+        expect(mediaDao.getRootNodeChildren(VIDEO)).andReturn(rootChildren("rootId"));
+        expect(mediaDao.getRootNodeChildren(PICTURE)).andReturn(new ArrayList<AbstractNode>());
+        expect(mediaDao.getRootNodeChildren(AUDIO)).andReturn(new ArrayList<AbstractNode>());
+        expect(mediaDao.getChildNodes("rootId")).andReturn(rootFolderChildren());
+        expect(mediaDao.getChildNodes("subId")).andReturn(subFolderChildren);
+
+        replay(configurationManager, mediaDao);
+
+        MediaScannerImpl mediaScanner = new MediaScannerImpl(configurationManager, mediaDao);
+        try {
+            mediaScanner.scanAll();
+            MediaScanStatistics statistics = awaitScan(mediaScanner);
+            assertEquals(2, statistics.getVisitedFolders());
+            assertEquals(1, statistics.getCycles());
+            verify(configurationManager, mediaDao);
+        } finally {
+            mediaScanner.shutdown();
+        }
+    }
+
+    @Test
+    public void testScanMaxDepth() throws Exception {
+        ConfigurationManager configurationManager = mockConfigurationManager(true, 0);
+        MediaDao mediaDao = createMock(MediaDao.class);
+
+        expect(mediaDao.getRootNodeChildren(VIDEO)).andReturn(rootChildren("rootId"));
+        expect(mediaDao.getRootNodeChildren(PICTURE)).andReturn(new ArrayList<AbstractNode>());
+        expect(mediaDao.getRootNodeChildren(AUDIO)).andReturn(new ArrayList<AbstractNode>());
+        expect(mediaDao.getChildNodes("rootId")).andReturn(rootFolderChildren());
+
+        replay(configurationManager, mediaDao);
+
+        MediaScannerImpl mediaScanner = new MediaScannerImpl(configurationManager, mediaDao);
+        try {
+            mediaScanner.scanAll();
+            MediaScanStatistics statistics = awaitScan(mediaScanner);
+            assertEquals(1, statistics.getVisitedFolders());
+            assertEquals(1, statistics.getVisitedFiles());
+            verify(configurationManager, mediaDao);
+        } finally {
+            mediaScanner.shutdown();
+        }
+    }
+
+    @Test
+    public void testScanConfiguredFolder() throws Exception {
+        ConfigurationManager configurationManager = mockConfigurationManager(true, 64);
+        MediaDao mediaDao = createMock(MediaDao.class);
+
+        expect(mediaDao.getRootNodeChildren(VIDEO)).andReturn(rootChildren("otherId"));
+        expect(mediaDao.getRootNodeChildren(PICTURE)).andReturn(rootChildren("rootId"));
+        expect(mediaDao.getRootNodeChildren(AUDIO)).andReturn(new ArrayList<AbstractNode>());
+        expect(mediaDao.getChildNodes("rootId")).andReturn(new ArrayList<AbstractNode>());
+
+        replay(configurationManager, mediaDao);
+
+        MediaScannerImpl mediaScanner = new MediaScannerImpl(configurationManager, mediaDao);
+        try {
+            mediaScanner.scan("rootId");
+            MediaScanStatistics statistics = awaitScan(mediaScanner);
+            assertEquals(1, statistics.getVisitedFolders());
+            assertEquals(0, statistics.getVisitedFiles());
+            verify(configurationManager, mediaDao);
+        } finally {
+            mediaScanner.shutdown();
+        }
+    }
+
+    @Test
+    public void testScanDisabled() {
+        ConfigurationManager configurationManager = mockConfigurationManager(false, 64);
+        MediaDao mediaDao = createMock(MediaDao.class);
+
+        replay(configurationManager, mediaDao);
+
+        MediaScannerImpl mediaScanner = new MediaScannerImpl(configurationManager, mediaDao);
+        mediaScanner.scanAll();
+        mediaScanner.scan("rootId");
+        mediaScanner.scan(null);
+        assertEquals(0, mediaScanner.getStatistics().getScans());
+
+        verify(configurationManager, mediaDao);
+    }
+
+    @Test
+    public void testScanAfterShutdown() {
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        MediaDao mediaDao = createMock(MediaDao.class);
+
+        expect(configurationManager.getParameter(MEDIA_SCAN_THREADS_PER_DISK)).andReturn(2);
+        expect(configurationManager.getParameter(MEDIA_SCAN_MAX_DEPTH)).andReturn(64);
+
+        replay(configurationManager, mediaDao);
+
+        MediaScannerImpl mediaScanner = new MediaScannerImpl(configurationManager, mediaDao);
+        mediaScanner.shutdown();
+        mediaScanner.scanAll();
+        assertFalse(mediaScanner.getStatistics().isRunning());
+
+        verify(configurationManager, mediaDao);
+    }
+
+    private ConfigurationManager mockConfigurationManager(final boolean enabled, final int maxDepth) {
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        expect(configurationManager.getParameter(MEDIA_SCAN_THREADS_PER_DISK)).andReturn(2);
+        expect(configurationManager.getParameter(MEDIA_SCAN_MAX_DEPTH)).andReturn(maxDepth);
+        expect(configurationManager.getParameter(MEDIA_SCAN_ENABLE)).andReturn(enabled).anyTimes();
+        return configurationManager;
+    }
+
+    private List<AbstractNode> rootChildren(final String rootId) {
+        return new ArrayList<AbstractNode>(Arrays.asList(new FolderNode(rootId, VIDEO.getId(), "root", rootPath.toFile())));
+    }
+
+    private List<AbstractNode> rootFolderChildren() {
+        return new ArrayList<AbstractNode>(Arrays.asList(
+                new ContentNode("aId", "rootId", "a.avi", rootPath.resolve("a.avi").toFile(), MimeType.valueOf("video/avi")),
+                new FolderNode("subId", "rootId", "sub", rootPath.resolve("sub").toFile())));
+    }
+
+    private List<AbstractNode> subFolderChildren() {
+        return new ArrayList<AbstractNode>(Arrays.asList(
+                new ContentNode("bId", "subId", "b.avi", rootPath.resolve("sub").resolve("b.avi").toFile(), MimeType.valueOf("video/avi"))));
+    }
+
+    private static MediaScanStatistics awaitScan(final MediaScanner mediaScanner) throws InterruptedException {
+        MediaScanStatistics statistics = mediaScanner.getStatistics();
+        for (int i = 0; i < 500 && statistics.isRunning(); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(statistics.isRunning());
+        return statistics;
+    }
+}
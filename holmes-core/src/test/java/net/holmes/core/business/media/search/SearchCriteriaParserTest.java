@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.search;
+
+import net.holmes.core.business.media.search.SearchCriteria.Operator;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SearchCriteriaParserTest {
+    private static final String VIDEO_CLASS = "object.item.videoItem.movie";
+    private static final String AUDIO_CLASS = "object.item.audioItem.musicTrack";
+
+    @Test
+    public void testParseAll() throws InvalidSearchCriteriaException {
+        assertSame(SearchCriteria.all(), SearchCriteriaParser.parse("*"));
+        assertSame(SearchCriteria.all(), SearchCriteriaParser.parse(" "));
+        assertSame(SearchCriteria.all(), SearchCriteriaParser.parse(null));
+        assertTrue(SearchCriteria.all().matches("title", VIDEO_CLASS));
+    }
+
+    @Test
+    public void testParseRelation() throws InvalidSearchCriteriaException {
+        SearchCriteria criteria = SearchCriteriaParser.parse("dc:title contains \"Matrix\"");
+        assertEquals(Operator.CONTAINS, criteria.getOperator());
+        assertEquals("dc:title", criteria.getProperty());
+        assertEquals("matrix", criteria.getValue());
+        assertNotNull(criteria.toString());
+        assertTrue(criteria.matches("the matrix", VIDEO_CLASS));
+        assertFalse(criteria.matches("alien", VIDEO_CLASS));
+    }
+
+    @Test
+    public void testParseOperators() throws InvalidSearchCriteriaException {
+        assertTrue(SearchCriteriaParser.parse("dc:title = \"Alien\"").matches("alien", VIDEO_CLASS));
+        assertTrue(SearchCriteriaParser.parse("dc:title=\"alien\"").matches("alien", VIDEO_CLASS));
+        assertTrue(SearchCriteriaParser.parse("dc:title != \"alien\"").matches("aliens", VIDEO_CLASS));
+        assertTrue(SearchCriteriaParser.parse("dc:title < \"b\"").matches("alien", VIDEO_CLASS));
+        assertTrue(SearchCriteriaParser.parse("dc:title <= \"alien\"").matches("alien", VIDEO_CLASS));
+        assertFalse(SearchCriteriaParser.parse("dc:title > \"b\"").matches("alien", VIDEO_CLASS));
+        assertTrue(SearchCriteriaParser.parse("dc:title >= \"alien\"").matches("alien", VIDEO_CLASS));
+        assertTrue(SearchCriteriaParser.parse("dc:title doesNotContain \"matrix\"").matches("alien", VIDEO_CLASS));
+        assertTrue(SearchCriteriaParser.parse("upnp:class derivedfrom \"object.item.videoItem\"").matches("alien", VIDEO_CLASS));
+        assertFalse(SearchCriteriaParser.parse("upnp:class derivedfrom \"object.item.video\"").matches("alien", VIDEO_CLASS));
+        assertTrue(SearchCriteriaParser.parse("upnp:class derivedFrom \"object.item\"").matches("alien", AUDIO_CLASS));
+        assertTrue(SearchCriteriaParser.parse("dc:title exists true").matches("alien", VIDEO_CLASS));
+        assertFalse(SearchCriteriaParser.parse("upnp:artist exists true").matches("alien", VIDEO_CLASS));
+        assertTrue(SearchCriteriaParser.parse("upnp:artist exists false").matches("alien", VIDEO_CLASS));
+        assertFalse(SearchCriteriaParser.parse("upnp:artist = \"alien\"").matches("alien", VIDEO_CLASS));
+    }
+
+    @Test
+    public void testParseLogicalOperators() throws InvalidSearchCriteriaException {
+        // 'and' has precedence over 'or'
+        SearchCriteria criteria = SearchCriteriaParser.parse("dc:title contains \"a\" or dc:title contains \"b\" and upnp:class = \"object.item\"");
+        assertEquals(Operator.OR, criteria.getOperator());
+        assertEquals(Operator.AND, criteria.getRight().getOperator());
+        assertTrue(criteria.matches("a", VIDEO_CLASS));
+        assertFalse(criteria.matches("b", VIDEO_CLASS));
+
+        criteria = SearchCriteriaParser.parse("(dc:title contains \"a\" OR dc:title contains \"b\") AND upnp:class derivedfrom \"object.item.audioItem\"");
+        assertEquals(Operator.AND, criteria.getOperator());
+        assertTrue(criteria.matches("b", AUDIO_CLASS));
+        assertFalse(criteria.matches("a", VIDEO_CLASS));
+    }
+
+    @Test
+    public void testParseEscapedValue() throws InvalidSearchCriteriaException {
+        SearchCriteria criteria = SearchCriteriaParser.parse("dc:title = \"say \\\"hello\\\" \\\\o/\"");
+        assertEquals("say \"hello\" \\o/", criteria.getValue());
+    }
+
+    @Test(expected = InvalidSearchCriteriaException.class)
+    public void testParseMissingOperator() throws InvalidSearchCriteriaException {
+        SearchCriteriaParser.parse("dc:title \"alien\"");
+    }
+
+    @Test(expected = InvalidSearchCriteriaException.class)
+    public void testParseUnknownOperator() throws InvalidSearchCriteriaException {
+        SearchCriteriaParser.parse("dc:title like \"alien\"");
+    }
+
+    @Test(expected = InvalidSearchCriteriaException.class)
+    public void testParseUnquotedValue() throws InvalidSearchCriteriaException {
+        SearchCriteriaParser.parse("dc:title = alien");
+    }
+
+    @Test(expected = InvalidSearchCriteriaException.class)
+    public void testParseBadBoolean() throws InvalidSearchCriteriaException {
+        SearchCriteriaParser.parse("dc:title exists \"true\"");
+    }
+
+    @Test(expected = InvalidSearchCriteriaException.class)
+    public void testParseUnterminatedValue() throws InvalidSearchCriteriaException {
+        SearchCriteriaParser.parse("dc:title = \"alien");
+    }
+
+    @Test(expected = InvalidSearchCriteriaException.class)
+    public void testParseMissingParenthesis() throws InvalidSearchCriteriaException {
+        SearchCriteriaParser.parse("(dc:title = \"alien\"");
+    }
+
+    @Test(expected = InvalidSearchCriteriaException.class)
+    public void testParseTrailingToken() throws InvalidSearchCriteriaException {
+        SearchCriteriaParser.parse("dc:title = \"alien\" dc:title");
+    }
+
+    @Test(expected = InvalidSearchCriteriaException.class)
+    public void testParseMissingProperty() throws InvalidSearchCriteriaException {
+        SearchCriteriaParser.parse("dc:title = \"alien\" and");
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.media.search;
+
+import net.holmes.core.business.media.model.AbstractNode;
+import net.holmes.core.business.media.model.FolderNode;
+import net.holmes.core.business.media.model.PodcastNode;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SortCriteriaTest {
+
+    @Test
+    public void testParse() throws InvalidSortCriteriaException {
+        assertSame(SortCriteria.NONE, SortCriteria.parse(null));
+        assertSame(SortCriteria.NONE, SortCriteria.parse(""));
+        assertTrue(SortCriteria.NONE.isNone());
+
+        SortCriteria sortCriteria = SortCriteria.parse("+dc:title,-dc:date");
+        assertFalse(sortCriteria.isNone());
+        assertEquals(sortCriteria, SortCriteria.parse(" +dc:title , -dc:date "));
+        assertEquals(sortCriteria.hashCode(), SortCriteria.parse("+dc:title,-dc:date").hashCode());
+        assertNotEquals(sortCriteria, SortCriteria.parse("-dc:title,-dc:date"));
+        assertEquals(SortCriteria.parse("+dc:title"), SortCriteria.parse("dc:title"));
+        assertNotNull(sortCriteria.toString());
+    }
+
+    @Test(expected = InvalidSortCriteriaException.class)
+    public void testParseUnsupportedProperty() throws InvalidSortCriteriaException {
+        SortCriteria.parse("+dc:title,+upnp:artist");
+    }
+
+    @Test
+    public void testNodeComparator() throws InvalidSortCriteriaException {
+        List<AbstractNode> nodes = new ArrayList<>();
+        nodes.add(node("podcast 10", 1L));
+        nodes.add(node("Podcast 9", 3L));
+        nodes.add(node("podcast 9", 2L));
+        nodes.add(new FolderNode("folderId", "parentId", "folder"));
+
+        Collections.sort(nodes, SortCriteria.parse("+dc:title").getNodeComparator());
+        assertEquals("folder", nodes.get(0).getName());
+        assertEquals("Podcast 9", nodes.get(1).getName());
+        assertEquals("podcast 10", nodes.get(3).getName());
+
+        Collections.sort(nodes, SortCriteria.parse("-dc:date").getNodeComparator());
+        assertEquals("folder", nodes.get(0).getName());
+        assertEquals(Long.valueOf(3L), nodes.get(1).getModifiedDate());
+        assertEquals(Long.valueOf(1L), nodes.get(3).getModifiedDate());
+    }
+
+    private AbstractNode node(final String name, final Long modifiedDate) {
+        AbstractNode node = new PodcastNode(name, "parentId", name, "url");
+        node.setModifiedDate(modifiedDate);
+        return node;
+    }
+}
@@ -16,11 +16,14 @@
  */
 package net.holmes.core.business.mimetype;
 
+import net.holmes.core.business.mimetype.dao.MimeTypeDao;
 import net.holmes.core.business.mimetype.dao.MimeTypeDaoImpl;
 import net.holmes.core.business.mimetype.model.MimeType;
+import net.holmes.core.business.mimetype.model.MimeTypeProfile;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.junit.Assert.*;
@@ -59,4 +62,45 @@ public class MimeTypeManagerImplTest {
         assertFalse(mimeTypeManager.isMimeTypeCompliant(mimeType, newArrayList("video/*")));
         assertTrue(mimeTypeManager.isMimeTypeCompliant(mimeType, newArrayList("*/*")));
     }
+
+    @Test
+    public void testGetProfile() {
+        MimeTypeManager mimeTypeManager = new MimeTypeManagerImpl(new MimeTypeDaoImpl("/mimetypes.properties"));
+
+        MimeTypeProfile profile = mimeTypeManager.getProfile(newArrayList("video/avi"));
+        assertSame(profile, mimeTypeManager.getProfile(newArrayList("video/avi")));
+        assertTrue(profile.isCompliant(MimeType.valueOf("video/avi")));
+        assertTrue(profile.isCompliant(MimeType.valueOf("video/x-msvideo")));
+        assertFalse(profile.isCompliant(MimeType.valueOf("audio/mpeg")));
+        assertFalse(profile.isCompliant(MimeType.valueOf("video/unknown")));
+        assertTrue(profile.isCompliant(MimeType.valueOf("")));
+        assertTrue(profile.isCompliant(null));
+
+        profile = mimeTypeManager.getProfile(newArrayList("audio/*", "video/unknown"));
+        assertTrue(profile.isCompliant(MimeType.valueOf("audio/mpeg")));
+        assertTrue(profile.isCompliant(MimeType.valueOf("audio/unknown")));
+        assertTrue(profile.isCompliant(MimeType.valueOf("video/unknown")));
+        assertFalse(profile.isCompliant(MimeType.valueOf("video/avi")));
+
+        profile = mimeTypeManager.getProfile(newArrayList("*/*"));
+        assertTrue(profile.isCompliant(MimeType.valueOf("video/avi")));
+        assertTrue(profile.isCompliant(MimeType.valueOf("audio/mpeg")));
+
+        assertSame(mimeTypeManager.getProfile(null), mimeTypeManager.getProfile(new ArrayList<String>(0)));
+        assertTrue(mimeTypeManager.getProfile(null).isCompliant(MimeType.valueOf("audio/mpeg")));
+    }
+
+    @Test
+    public void testGetProfileSameAsIsMimeTypeCompliant() {
+        MimeTypeDao mimeTypeDao = new MimeTypeDaoImpl("/mimetypes.properties");
+        MimeTypeManager mimeTypeManager = new MimeTypeManagerImpl(mimeTypeDao);
+
+        List<String> availableMimeTypes = newArrayList("video/avi", "audio/*", "image/jpeg");
+        MimeTypeProfile profile = mimeTypeManager.getProfile(availableMimeTypes);
+        for (MimeType mimeType : mimeTypeDao.getMimeTypes().values()) {
+            assertEquals(mimeType.toString(), mimeTypeManager.isMimeTypeCompliant(mimeType, availableMimeTypes), profile.isCompliant(mimeType));
+            MimeType unregistered = MimeType.valueOf(mimeType.getMimeType());
+            assertEquals(mimeType.toString(), mimeTypeManager.isMimeTypeCompliant(unregistered, availableMimeTypes), profile.isCompliant(unregistered));
+        }
+    }
 }
@@ -81,4 +81,14 @@ public class MimeTypeDaoImplTest {
         assertNull(aliasMimeType);
     }
 
+    @Test
+    public void testGetMimeTypesRegistered() {
+        MimeTypeDao mimeTypeDao = new MimeTypeDaoImpl("/mimetypes.properties");
+
+        MimeType mimeType = mimeTypeDao.getMimeType("movie.avi");
+        assertSame(mimeType, mimeTypeDao.getMimeTypes().get("video/avi"));
+        assertTrue(mimeType.getOrdinal() >= 0);
+        assertSame(mimeType, mimeTypeDao.getAliasMimeType(MimeType.valueOf("video/x-msvideo")));
+        assertEquals(-1, MimeType.valueOf("video/avi").getOrdinal());
+    }
 }
@@ -39,6 +39,7 @@ import static net.holmes.core.business.streaming.event.StreamingEvent.StreamingE
 import static net.holmes.core.business.streaming.session.SessionStatus.*;
 import static net.holmes.core.common.ConfigurationParameter.STREAMING_STATUS_UPDATE_DELAY_SECONDS;
 import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
 public class StreamingManagerImplTest {
@@ -59,6 +60,7 @@ public class StreamingManagerImplTest {
 
         StreamingManagerImpl streamingManager = new StreamingManagerImpl(configurationManager, deviceDao, sessionDao, upnpDeviceStreamer, airplayDeviceStreamer);
         streamingManager.addDevice(new UpnpDevice("id", "name", null, null, null));
+        assertEquals(1L, streamingManager.getDeviceUpdateId());
 
         verify(configurationManager, deviceDao, sessionDao, upnpDeviceStreamer, airplayDeviceStreamer);
     }
@@ -100,6 +102,7 @@ public class StreamingManagerImplTest {
 
         StreamingManagerImpl streamingManager = new StreamingManagerImpl(configurationManager, deviceDao, sessionDao, upnpDeviceStreamer, airplayDeviceStreamer);
         streamingManager.removeDevice("deviceId");
+        assertEquals(1L, streamingManager.getDeviceUpdateId());
 
         verify(configurationManager, deviceDao, sessionDao, upnpDeviceStreamer, airplayDeviceStreamer);
     }
@@ -119,6 +122,7 @@ public class StreamingManagerImplTest {
 
         StreamingManagerImpl streamingManager = new StreamingManagerImpl(configurationManager, deviceDao, sessionDao, upnpDeviceStreamer, airplayDeviceStreamer);
         streamingManager.removeDevice("deviceId");
+        assertEquals(0L, streamingManager.getDeviceUpdateId());
 
         verify(configurationManager, deviceDao, sessionDao, upnpDeviceStreamer, airplayDeviceStreamer);
     }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.holmes.core.business.streaming.upnp;
+
+import net.holmes.core.business.media.model.AbstractNode;
+import net.holmes.core.business.media.model.FolderNode;
+import org.fourthline.cling.support.contentdirectory.DIDLParser;
+import org.fourthline.cling.support.model.DIDLContent;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import static net.holmes.core.business.streaming.upnp.DidlWriter.MOVIE_CLASS;
+import static net.holmes.core.business.streaming.upnp.DidlWriterTest.MIME_TYPES;
+import static net.holmes.core.business.streaming.upnp.DidlWriterTest.toItem;
+import static org.junit.Assert.assertEquals;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * DIDL generation benchmark, not part of default test run: run it with -Dtest=DidlWriterBenchmark.
+ */
+public class DidlWriterBenchmark {
+    private static final Logger LOGGER = getLogger(DidlWriterBenchmark.class);
+
+    @Test
+    public void testLargeResultBenchmark() throws Exception {
+        DIDLContent didl = new DIDLContent();
+        AbstractNode[] nodes = new AbstractNode[1000];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new FolderNode("id" + i, "parentId", "Node " + i);
+            nodes[i].setModifiedDate(1234567890000L);
+            didl.addItem(toItem("parentId", nodes[i], nodes[i].getName(), MIME_TYPES[0], 1024L, null, "http://host/" + i));
+        }
+
+        // Warm up, then measure DIDL generation of 1000 items with both implementations
+        long parserTime = 0;
+        long writerTime = 0;
+        for (int run = 0; run < 10; run++) {
+            long start = System.nanoTime();
+            String expected = new DIDLParser().generate(didl);
+            long middle = System.nanoTime();
+            DidlWriter didlWriter = new DidlWriter();
+            for (AbstractNode node : nodes) {
+                didlWriter.writeItem("parentId", node, node.getName(), MOVIE_CLASS, MIME_TYPES[0], 1024L, null, "http://host/" + node.getId().substring(2));
+            }
+            String result = didlWriter.toDidl();
+            long end = System.nanoTime();
+            assertEquals(expected, result);
+            if (run >= 5) {
+                parserTime += middle - start;
+                writerTime += end - middle;
+            }
+        }
+        LOGGER.info("DIDL generation of 1000 items, 5 runs: DIDL writer {} ns, DIDL parser {} ns", writerTime, parserTime);
+    }
+}
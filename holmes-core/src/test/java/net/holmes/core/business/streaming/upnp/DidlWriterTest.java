@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.business.streaming.upnp;
+
+import net.holmes.core.business.media.model.AbstractNode;
+import net.holmes.core.business.media.model.FolderNode;
+import net.holmes.core.business.media.model.RawUrlNode;
+import net.holmes.core.business.mimetype.model.MimeType;
+import org.fourthline.cling.support.contentdirectory.DIDLParser;
+import org.fourthline.cling.support.model.DIDLContent;
+import org.fourthline.cling.support.model.DIDLObject;
+import org.fourthline.cling.support.model.DIDLObject.Property.DC;
+import org.fourthline.cling.support.model.DIDLObject.Property.UPNP;
+import org.fourthline.cling.support.model.Res;
+import org.fourthline.cling.support.model.container.Container;
+import org.fourthline.cling.support.model.item.*;
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.text.SimpleDateFormat;
+
+import static net.holmes.core.business.media.model.AbstractNode.NodeType.TYPE_PODCAST_ENTRY;
+import static net.holmes.core.business.streaming.upnp.DidlWriter.*;
+import static org.junit.Assert.*;
+
+public class DidlWriterTest {
+    static final MimeType[] MIME_TYPES = new MimeType[]{MimeType.valueOf("video/x-msvideo"), MimeType.valueOf("audio/mpeg"),
+            MimeType.valueOf("image/jpeg"), MimeType.valueOf("application/x-subrip"), MimeType.valueOf("application/ogg")};
+
+    @Test
+    public void testGetItemClass() {
+        assertEquals(MOVIE_CLASS, getItemClass(MimeType.valueOf("video/avi")));
+        assertEquals(MUSIC_TRACK_CLASS, getItemClass(MimeType.valueOf("audio/mpeg")));
+        assertEquals(PHOTO_CLASS, getItemClass(MimeType.valueOf("image/png")));
+        assertEquals(TEXT_ITEM_CLASS, getItemClass(MimeType.valueOf("application/x-subrip")));
+        assertEquals(MUSIC_TRACK_CLASS, getItemClass(MimeType.valueOf("application/ogg")));
+        assertNull(getItemClass(MimeType.valueOf("application/bad-subrip")));
+    }
+
+    @Test
+    public void testGetProtocolInfo() {
+        assertEquals("http-get:*:video/x-msvideo:*", getProtocolInfo(MimeType.valueOf("video/x-msvideo")));
+    }
+
+    @Test
+    public void testEmptyDidl() throws Exception {
+        assertEquals(new DIDLParser().generate(new DIDLContent()), new DidlWriter().toDidl());
+    }
+
+    @Test
+    public void testWriteItem() throws Exception {
+        AbstractNode node = new FolderNode("id&1", "parentId", "unused");
+        node.setModifiedDate(1234567890000L);
+        node.setIconUrl("http://host/icon?a=1&b=2");
+        MimeType mimeType = MimeType.valueOf("video/x-msvideo");
+
+        DidlWriter didlWriter = new DidlWriter();
+        didlWriter.writeItem("parent\"Id", node, "Title <with> \"special\" & 'chars' \u00e9", MOVIE_CLASS, mimeType, 1024L, null, "http://host/content?id=1&x=2");
+        assertEquals(1, didlWriter.getNodeCount());
+
+        DIDLContent didl = new DIDLContent();
+        didl.addItem(toItem("parent\"Id", node, "Title <with> \"special\" & 'chars' \u00e9", mimeType, 1024L, null, "http://host/content?id=1&x=2"));
+        assertEquals(new DIDLParser().generate(didl), didlWriter.toDidl());
+    }
+
+    @Test
+    public void testWriteUrlItem() throws Exception {
+        MimeType mimeType = MimeType.valueOf("audio/mpeg");
+        RawUrlNode node = new RawUrlNode(TYPE_PODCAST_ENTRY, "id", "parentId", "name", mimeType, "http://host/podcast.mp3", "00:01:02");
+
+        DidlWriter didlWriter = new DidlWriter();
+        didlWriter.writeItem("parentId", node, "", MUSIC_TRACK_CLASS, mimeType, null, node.getDuration(), node.getUrl());
+
+        DIDLContent didl = new DIDLContent();
+        didl.addItem(toItem("parentId", node, "", mimeType, null, node.getDuration(), node.getUrl()));
+        assertEquals(new DIDLParser().generate(didl), didlWriter.toDidl());
+    }
+
+    @Test
+    public void testWriteContainer() throws Exception {
+        AbstractNode node = new FolderNode("id", "parentId", "Folder\tname");
+        node.setModifiedDate(1234567890000L);
+
+        DidlWriter didlWriter = new DidlWriter();
+        didlWriter.writeContainer("parentId", node, 12);
+
+        DIDLContent didl = new DIDLContent();
+        didl.addContainer(toContainer("parentId", node, 12));
+        assertEquals(new DIDLParser().generate(didl), didlWriter.toDidl());
+    }
+
+    @Test(expected = URISyntaxException.class)
+    public void testWriteBadIconUrl() throws URISyntaxException {
+        AbstractNode node = new FolderNode("id", "parentId", "name");
+        node.setIconUrl("\\bad_url");
+        new DidlWriter().writeContainer("parentId", node, 0);
+    }
+
+    @Test
+    public void testReset() throws URISyntaxException {
+        DidlWriter didlWriter = new DidlWriter();
+        String emptyDidl = didlWriter.toDidl();
+        didlWriter.writeContainer("parentId", new FolderNode("id", "parentId", "name"), 0);
+        assertEquals(didlWriter.toDidl(), didlWriter.toDidl());
+        didlWriter.reset();
+        assertEquals(0, didlWriter.getNodeCount());
+        assertEquals(emptyDidl, didlWriter.toDidl());
+    }
+
+    @Test
+    public void testLargeResult() throws Exception {
+        // Containers come first in DIDLParser output, write them first
+        DidlWriter didlWriter = new DidlWriter();
+        DIDLContent didl = new DIDLContent();
+        for (int i = 0; i < 1000; i++) {
+            AbstractNode node = new FolderNode("id" + i, "parentId", "Node " + i + " & co");
+            node.setModifiedDate(1234567890000L + i * 1000L);
+            if (i < 100) {
+                didlWriter.writeContainer("parentId", node, i);
+                didl.addContainer(toContainer("parentId", node, i));
+            } else {
+                MimeType mimeType = MIME_TYPES[i % MIME_TYPES.length];
+                didlWriter.writeItem("parentId", node, node.getName(), getItemClass(mimeType), mimeType, (long) i, null, "http://host/" + i);
+                didl.addItem(toItem("parentId", node, node.getName(), mimeType, (long) i, null, "http://host/" + i));
+            }
+        }
+        assertEquals(1000, didlWriter.getNodeCount());
+        assertEquals(new DIDLParser().generate(didl), didlWriter.toDidl());
+    }
+
+    static Item toItem(final String parentId, final AbstractNode node, final String title, final MimeType mimeType, final Long size,
+                       final String duration, final String url) throws URISyntaxException {
+        Res res = new Res(getUpnpMimeType(mimeType), size, url);
+        res.setDuration(duration);
+        Item item;
+        switch (getItemClass(mimeType)) {
+            case MOVIE_CLASS:
+                item = new Movie(node.getId(), parentId, title, null, res);
+                break;
+            case PHOTO_CLASS:
+                item = new Photo(node.getId(), parentId, title, null, null, res);
+                break;
+            case TEXT_ITEM_CLASS:
+                item = new TextItem(node.getId(), parentId, title, null, res);
+                break;
+            default:
+                item = new MusicTrack(node.getId(), parentId, title, null, null, (String) null, res);
+                break;
+        }
+        setMetadata(item, node);
+        return item;
+    }
+
+    private static org.seamless.util.MimeType getUpnpMimeType(final MimeType mimeType) {
+        return new org.seamless.util.MimeType(mimeType.getType().getValue(), mimeType.getSubType());
+    }
+
+    private static Container toContainer(final String parentId, final AbstractNode node, final int childCount) throws URISyntaxException {
+        Container container = new Container(node.getId(), parentId, node.getName(), null, new DIDLObject.Class(CONTAINER_CLASS), childCount);
+        container.setSearchable(true);
+        setMetadata(container, node);
+        return container;
+    }
+
+    private static void setMetadata(final DIDLObject didlObject, final AbstractNode node) throws URISyntaxException {
+        if (node.getModifiedDate() != null) {
+            didlObject.replaceFirstProperty(new DC.DATE(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ").format(node.getModifiedDate())));
+        }
+        if (node.getIconUrl() != null) {
+            didlObject.replaceFirstProperty(new UPNP.ICON(new URI(node.getIconUrl())));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class CacheStatisticsTest {
+
+    @Test
+    public void testCacheStatistics() {
+        CacheStatistics statistics = new CacheStatistics(3, 1, 2, 10);
+        assertEquals(3, statistics.getHits());
+        assertEquals(1, statistics.getMisses());
+        assertEquals(2, statistics.getEvictions());
+        assertEquals(10, statistics.getSize());
+        assertEquals(0.75, statistics.getHitRate(), 0);
+        assertNotNull(statistics.toString());
+    }
+
+    @Test
+    public void testCacheStatisticsNoRequest() {
+        CacheStatistics statistics = new CacheStatistics(0, 0, 0, 0);
+        assertEquals(0, statistics.getHitRate(), 0);
+    }
+}
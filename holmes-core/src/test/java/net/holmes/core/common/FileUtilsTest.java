@@ -20,7 +20,11 @@ package net.holmes.core.common;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 import static net.holmes.core.common.FileUtils.*;
 import static org.junit.Assert.*;
@@ -180,4 +184,60 @@ public class FileUtilsTest {
         assertFalse(isValidDirectory(file));
     }
 
+    @Test
+    public void testListChildEntries() throws IOException {
+        Path folder = Files.createTempDirectory("holmesListChildEntries");
+        try {
+            Files.write(folder.resolve("file.avi"), new byte[]{1, 2, 3});
+            Files.createDirectory(folder.resolve("subFolder"));
+            Files.createFile(folder.resolve(".hidden"));
+
+            List<FileEntry> entries = listChildEntries(folder);
+            assertEquals(2, entries.size());
+            for (FileEntry entry : entries) {
+                assertEquals(folder, entry.getPath().getParent());
+                assertNotNull(entry.toString());
+                if (entry.isDirectory()) {
+                    assertEquals("subFolder", entry.getName());
+                } else {
+                    assertEquals("file.avi", entry.getName());
+                    assertEquals(3, entry.getAttributes().size());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(folder.resolve("file.avi"));
+            Files.deleteIfExists(folder.resolve("subFolder"));
+            Files.deleteIfExists(folder.resolve(".hidden"));
+            Files.delete(folder);
+        }
+    }
+
+    @Test
+    public void testListChildEntriesNotDirectory() throws IOException {
+        Path file = Files.createTempFile("holmesListChildEntries", ".avi");
+        try {
+            assertTrue(listChildEntries(file).isEmpty());
+            assertTrue(listChildEntries(file.resolveSibling("unknownFolder")).isEmpty());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testReadValidAttributes() throws IOException {
+        Path folder = Files.createTempDirectory("holmesReadValidAttributes");
+        try {
+            Path file = Files.createFile(folder.resolve("file.avi"));
+            Path hidden = Files.createFile(folder.resolve(".hidden"));
+
+            assertTrue(readValidAttributes(file).isRegularFile());
+            assertTrue(readValidAttributes(folder).isDirectory());
+            assertNull(readValidAttributes(hidden));
+            assertNull(readValidAttributes(folder.resolve("unknown")));
+        } finally {
+            Files.deleteIfExists(folder.resolve("file.avi"));
+            Files.deleteIfExists(folder.resolve(".hidden"));
+            Files.delete(folder);
+        }
+    }
 }
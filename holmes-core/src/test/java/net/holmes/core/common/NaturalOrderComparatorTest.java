@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.common;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static net.holmes.core.common.NaturalOrderComparator.NATURAL_ORDER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NaturalOrderComparatorTest {
+
+    @Test
+    public void testCompareNumbers() {
+        assertTrue(NATURAL_ORDER.compare("Episode 2", "Episode 10") < 0);
+        assertTrue(NATURAL_ORDER.compare("Episode 10", "Episode 2") > 0);
+        assertTrue(NATURAL_ORDER.compare("Episode 02", "Episode 10") < 0);
+        assertTrue(NATURAL_ORDER.compare("Episode 100", "Episode 99") > 0);
+        assertTrue(NATURAL_ORDER.compare("0", "00") != 0);
+    }
+
+    @Test
+    public void testCompareCase() {
+        assertTrue(NATURAL_ORDER.compare("alpha", "Beta") < 0);
+        assertTrue(NATURAL_ORDER.compare("Alpha", "alpha") != 0);
+        assertTrue(NATURAL_ORDER.compare("alpha", "alphabet") < 0);
+        assertEquals(0, NATURAL_ORDER.compare("alpha", "alpha"));
+    }
+
+    @Test
+    public void testSort() {
+        List<String> names = Arrays.asList("track10.mp3", "Track1.mp3", "track2.mp3", "intro.mp3", "track02b.mp3");
+        Collections.sort(names, NATURAL_ORDER);
+        assertEquals(Arrays.asList("intro.mp3", "Track1.mp3", "track2.mp3", "track02b.mp3", "track10.mp3"), names);
+    }
+}
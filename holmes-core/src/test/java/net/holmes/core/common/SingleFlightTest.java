@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.common;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testExecute() throws ExecutionException {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountingCallable callable = new CountingCallable("result", null);
+
+        // Computations are not cached: each sequential call runs computation
+        assertEquals("result", singleFlight.execute("key", callable));
+        assertEquals("result", singleFlight.execute("key", callable));
+        assertEquals(2, callable.count.get());
+        assertEquals(0, singleFlight.getCoalescedCount());
+    }
+
+    @Test(timeout = 10000)
+    public void testExecuteCoalesced() throws Exception {
+        final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        final CountingCallable callable = new CountingCallable("result", release);
+        final AtomicReference<String> firstResult = new AtomicReference<>();
+        final AtomicReference<String> secondResult = new AtomicReference<>();
+
+        Thread first = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                firstResult.set(execute(singleFlight, callable));
+            }
+        });
+        first.start();
+        callable.started.await();
+
+        // Second call waits for in flight computation
+        Thread second = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                secondResult.set(execute(singleFlight, new CountingCallable("other", null)));
+            }
+        });
+        second.start();
+        while (singleFlight.getCoalescedCount() == 0) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertEquals("result", firstResult.get());
+        assertEquals("result", secondResult.get());
+        assertEquals(1, callable.count.get());
+        assertEquals(1, singleFlight.getCoalescedCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testExecuteUncheckedException() throws ExecutionException {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        singleFlight.execute("key", new Callable<String>() {
+            @Override
+            public String call() {
+                throw new IllegalStateException();
+            }
+        });
+    }
+
+    @Test
+    public void testExecuteCheckedException() throws ExecutionException {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        try {
+            singleFlight.execute("key", new Callable<String>() {
+                @Override
+                public String call() throws IOException {
+                    throw new IOException();
+                }
+            });
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+
+        // Failed computation is not kept
+        assertEquals("result", singleFlight.execute("key", new CountingCallable("result", null)));
+    }
+
+    private static String execute(final SingleFlight<String, String> singleFlight, final Callable<String> callable) {
+        try {
+            return singleFlight.execute("key", callable);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class CountingCallable implements Callable<String> {
+        private final String result;
+        private final CountDownLatch release;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final AtomicInteger count = new AtomicInteger();
+
+        CountingCallable(final String result, final CountDownLatch release) {
+            this.result = result;
+            this.release = release;
+        }
+
+        @Override
+        public String call() throws InterruptedException {
+            count.incrementAndGet();
+            started.countDown();
+            if (release != null) {
+                release.await();
+            }
+            return result;
+        }
+    }
+}
@@ -17,7 +17,6 @@
 
 package net.holmes.core.common;
 
-import net.holmes.core.business.mimetype.model.MimeType;
 import net.holmes.core.business.streaming.upnp.UpnpUtils;
 import org.fourthline.cling.UpnpService;
 import org.fourthline.cling.model.meta.*;
@@ -46,12 +45,6 @@ public class UpnpUtilsTest {
         assertNotNull(upnpService);
     }
 
-    @Test
-    public void testGetUpnpMimeType() {
-        org.seamless.util.MimeType mimeType = UpnpUtils.getUpnpMimeType(MimeType.valueOf("image/png"));
-        assertNotNull(mimeType);
-    }
-
     @Test
     public void testGetConnectionManagerService() {
         LocalService<ConnectionManagerService> connectionManagerService = UpnpUtils.buildConnectionManagerService();
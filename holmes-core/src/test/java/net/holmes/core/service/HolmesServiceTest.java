@@ -18,6 +18,7 @@
 package net.holmes.core.service;
 
 import com.google.common.eventbus.DeadEvent;
+import net.holmes.core.business.media.dao.index.MediaIndexDao;
 import org.junit.Test;
 
 import static org.easymock.EasyMock.*;
@@ -27,54 +28,61 @@ public class HolmesServiceTest {
     @Test
     public void testHolmesServer() {
         Service service = createMock(Service.class);
+        MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
 
-        HolmesService holmesService = new HolmesService(service, service, service, service, service, System.getProperty("java.io.tmpdir"));
+        HolmesService holmesService = new HolmesService(service, service, service, service, service, service, service, service, mediaIndexDao, System.getProperty("java.io.tmpdir"));
 
         service.start();
-        expectLastCall().times(5);
+        expectLastCall().times(8);
         service.stop();
-        expectLastCall().times(5);
+        expectLastCall().times(8);
+        mediaIndexDao.close();
+        expectLastCall().once();
 
-        replay(service);
+        replay(service, mediaIndexDao);
         holmesService.start();
         holmesService.stop();
-        verify(service);
+        verify(service, mediaIndexDao);
     }
 
     @Test(expected = RuntimeException.class)
     public void testHolmesServerStartTwoServers() {
         Service service = createMock(Service.class);
+        MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
 
-        HolmesService holmesService = new HolmesService(service, service, service, service, service, System.getProperty("java.io.tmpdir"));
-        HolmesService holmesService2 = new HolmesService(service, service, service, service, service, System.getProperty("java.io.tmpdir"));
+        HolmesService holmesService = new HolmesService(service, service, service, service, service, service, service, service, mediaIndexDao, System.getProperty("java.io.tmpdir"));
+        HolmesService holmesService2 = new HolmesService(service, service, service, service, service, service, service, service, mediaIndexDao, System.getProperty("java.io.tmpdir"));
 
         service.start();
-        expectLastCall().times(5);
+        expectLastCall().times(8);
         service.stop();
-        expectLastCall().times(5);
+        expectLastCall().times(8);
+        mediaIndexDao.close();
+        expectLastCall().once();
 
-        replay(service);
+        replay(service, mediaIndexDao);
         try {
             holmesService.start();
             holmesService2.start();
         } finally {
             holmesService.stop();
-            verify(service);
+            verify(service, mediaIndexDao);
         }
     }
 
     @Test
     public void tesHandleDeadEvent() {
         Service service = createMock(Service.class);
+        MediaIndexDao mediaIndexDao = createMock(MediaIndexDao.class);
         DeadEvent deadEvent = createMock(DeadEvent.class);
 
         expect(deadEvent.getEvent()).andReturn("");
 
-        replay(service, deadEvent);
+        replay(service, mediaIndexDao, deadEvent);
 
-        HolmesService holmesService = new HolmesService(service, service, service, service, service, System.getProperty("java.io.tmpdir"));
+        HolmesService holmesService = new HolmesService(service, service, service, service, service, service, service, service, mediaIndexDao, System.getProperty("java.io.tmpdir"));
         holmesService.handleDeadEvent(deadEvent);
 
-        verify(service, deadEvent);
+        verify(service, mediaIndexDao, deadEvent);
     }
 }
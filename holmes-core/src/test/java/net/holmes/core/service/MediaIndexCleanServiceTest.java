@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.service;
+
+import net.holmes.core.business.configuration.ConfigurationManager;
+import net.holmes.core.business.media.MediaManager;
+import org.junit.Test;
+
+import java.util.concurrent.TimeoutException;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static net.holmes.core.common.ConfigurationParameter.MEDIA_INDEX_CLEAN_BATCH_SIZE;
+import static net.holmes.core.common.ConfigurationParameter.MEDIA_INDEX_CLEAN_DELAY_SECONDS;
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.fail;
+
+public class MediaIndexCleanServiceTest {
+
+    @Test
+    public void testMediaIndexCleanService() {
+        MediaManager mediaManager = createMock(MediaManager.class);
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+
+        expect(configurationManager.getParameter(MEDIA_INDEX_CLEAN_DELAY_SECONDS)).andReturn(1);
+        expect(configurationManager.getParameter(MEDIA_INDEX_CLEAN_BATCH_SIZE)).andReturn(100);
+        mediaManager.cleanUpCache(100);
+        expectLastCall().atLeastOnce();
+
+        replay(mediaManager, configurationManager);
+
+        MediaIndexCleanServiceTester service = new MediaIndexCleanServiceTester(mediaManager, configurationManager);
+
+        try {
+            service.start();
+            service.awaitRunning(10, SECONDS);
+            service.run();
+        } catch (TimeoutException e) {
+            fail(e.getMessage());
+        } finally {
+            if (service.isRunning()) {
+                service.stop();
+                service.awaitTerminated();
+            }
+            verify(mediaManager, configurationManager);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMediaIndexCleanServiceNoDelay() {
+        MediaManager mediaManager = createMock(MediaManager.class);
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+
+        expect(configurationManager.getParameter(MEDIA_INDEX_CLEAN_DELAY_SECONDS)).andReturn(0);
+        expect(configurationManager.getParameter(MEDIA_INDEX_CLEAN_BATCH_SIZE)).andReturn(100);
+
+        replay(mediaManager, configurationManager);
+
+        MediaIndexCleanServiceTester service = new MediaIndexCleanServiceTester(mediaManager, configurationManager);
+
+        try {
+            service.start();
+            service.awaitRunning(10, SECONDS);
+        } catch (TimeoutException e) {
+            fail(e.getMessage());
+        } finally {
+            verify(mediaManager, configurationManager);
+            if (service.isRunning()) {
+                service.stop();
+                service.awaitTerminated();
+            }
+        }
+    }
+
+    private class MediaIndexCleanServiceTester extends MediaIndexCleanService {
+
+        public MediaIndexCleanServiceTester(final MediaManager mediaManager, final ConfigurationManager configurationManager) {
+            super(mediaManager, configurationManager);
+        }
+
+        public void run() {
+            runOneIteration();
+        }
+    }
+}
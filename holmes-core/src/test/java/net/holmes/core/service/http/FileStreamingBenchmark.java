@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.service.http;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * File streaming benchmark, not part of default test run: run it with -Dtest=FileStreamingBenchmark.
+ * Compares sender CPU time of zero-copy transfer (FileChannel.transferTo, as used by file regions)
+ * with chunked read and write through a heap buffer (as used by ChunkedFile), over loopback.
+ */
+public class FileStreamingBenchmark {
+    private static final Logger LOGGER = getLogger(FileStreamingBenchmark.class);
+    private static final int FILE_SIZE = 256 * 1024 * 1024;
+    private static final int CHUNK_SIZE = 8192;
+    private static final int RUNS = 4;
+    private static final double BYTES_PER_GB = 1024d * 1024d * 1024d;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testFileStreamingBenchmark() throws Exception {
+        File file = createFile();
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+            // First runs warm up, then measure both transfers alternately
+            long transferToCpu = 0;
+            long chunkedCpu = 0;
+            long transferToTime = 0;
+            long chunkedTime = 0;
+            for (int run = 0; run < RUNS + 1; run++) {
+                long[] transferTo = send(file, server, executor, threadMXBean, true);
+                long[] chunked = send(file, server, executor, threadMXBean, false);
+                if (run > 0) {
+                    transferToCpu += transferTo[0];
+                    transferToTime += transferTo[1];
+                    chunkedCpu += chunked[0];
+                    chunkedTime += chunked[1];
+                }
+            }
+
+            double gigabytes = (double) FILE_SIZE * RUNS / BYTES_PER_GB;
+            LOGGER.info("Sender CPU per GB over loopback, {} runs of {} MB: transferTo {} ms CPU ({} ms wall), chunked {} bytes {} ms CPU ({} ms wall)",
+                    RUNS, FILE_SIZE / (1024 * 1024), toMillisPerGigabyte(transferToCpu, gigabytes), toMillisPerGigabyte(transferToTime, gigabytes),
+                    CHUNK_SIZE, toMillisPerGigabyte(chunkedCpu, gigabytes), toMillisPerGigabyte(chunkedTime, gigabytes));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private File createFile() throws IOException {
+        File file = temporaryFolder.newFile("content.bin");
+        byte[] buffer = new byte[1024 * 1024];
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = (byte) i;
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            for (int written = 0; written < FILE_SIZE; written += buffer.length) {
+                randomAccessFile.write(buffer);
+            }
+        }
+        return file;
+    }
+
+    private long[] send(final File file, final ServerSocketChannel server, final ExecutorService executor, final ThreadMXBean threadMXBean,
+                        final boolean zeroCopy) throws Exception {
+        Future<Long> received = executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws IOException {
+                long count = 0;
+                ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+                try (SocketChannel channel = server.accept()) {
+                    int read;
+                    while ((read = channel.read(buffer)) >= 0) {
+                        count += read;
+                        buffer.clear();
+                    }
+                }
+                return count;
+            }
+        });
+
+        long startCpu;
+        long startTime;
+        long endCpu;
+        long endTime;
+        try (SocketChannel channel = SocketChannel.open(server.getLocalAddress());
+             RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            FileChannel fileChannel = randomAccessFile.getChannel();
+            startCpu = threadMXBean.getCurrentThreadCpuTime();
+            startTime = System.nanoTime();
+            if (zeroCopy) {
+                long position = 0;
+                while (position < FILE_SIZE) {
+                    position += fileChannel.transferTo(position, FILE_SIZE - position, channel);
+                }
+            } else {
+                byte[] chunk = new byte[CHUNK_SIZE];
+                for (long position = 0; position < FILE_SIZE; position += chunk.length) {
+                    randomAccessFile.readFully(chunk);
+                    ByteBuffer buffer = ByteBuffer.wrap(chunk);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            }
+            endCpu = threadMXBean.getCurrentThreadCpuTime();
+            endTime = System.nanoTime();
+        }
+        assertEquals(FILE_SIZE, received.get().longValue());
+        return new long[]{endCpu - startCpu, endTime - startTime};
+    }
+
+    private static long toMillisPerGigabyte(final long nanos, final double gigabytes) {
+        return Math.round(nanos / 1000000d / gigabytes);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.service.http;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
+import static org.junit.Assert.*;
+
+public class HttpByteRangeTest {
+
+    @Test
+    public void testParseClosedRange() throws HttpFileRequestException {
+        List<HttpByteRange> ranges = HttpByteRange.parse("bytes=1000-1999", 10000);
+        assertEquals(1, ranges.size());
+        assertEquals(1000, ranges.get(0).getFirst());
+        assertEquals(1999, ranges.get(0).getLast());
+        assertEquals(1000, ranges.get(0).getLength());
+        assertEquals("bytes 1000-1999/10000", ranges.get(0).getContentRange(10000));
+    }
+
+    @Test
+    public void testParseOpenRange() throws HttpFileRequestException {
+        List<HttpByteRange> ranges = HttpByteRange.parse("bytes=9000-", 10000);
+        assertEquals(1, ranges.size());
+        assertEquals("bytes 9000-9999/10000", ranges.get(0).getContentRange(10000));
+    }
+
+    @Test
+    public void testParseRangeBeyondLength() throws HttpFileRequestException {
+        List<HttpByteRange> ranges = HttpByteRange.parse("Bytes = 9000-20000", 10000);
+        assertEquals(1, ranges.size());
+        assertEquals(9999, ranges.get(0).getLast());
+    }
+
+    @Test
+    public void testParseSuffixRange() throws HttpFileRequestException {
+        List<HttpByteRange> ranges = HttpByteRange.parse("bytes=-500", 10000);
+        assertEquals(1, ranges.size());
+        assertEquals("bytes 9500-9999/10000", ranges.get(0).getContentRange(10000));
+
+        ranges = HttpByteRange.parse("bytes=-20000", 10000);
+        assertEquals("bytes 0-9999/10000", ranges.get(0).getContentRange(10000));
+    }
+
+    @Test
+    public void testParseMultipleRanges() throws HttpFileRequestException {
+        List<HttpByteRange> ranges = HttpByteRange.parse("bytes=5000-5999, 0-99,,-100, 20000-", 10000);
+        assertEquals(3, ranges.size());
+        assertEquals(0, ranges.get(0).getFirst());
+        assertEquals(5000, ranges.get(1).getFirst());
+        assertEquals(9900, ranges.get(2).getFirst());
+    }
+
+    @Test
+    public void testParseCoalescedRanges() throws HttpFileRequestException {
+        List<HttpByteRange> ranges = HttpByteRange.parse("bytes=0-99,100-199,150-299,500-", 1000);
+        assertEquals(2, ranges.size());
+        assertEquals("bytes 0-299/1000", ranges.get(0).getContentRange(1000));
+        assertEquals("bytes 500-999/1000", ranges.get(1).getContentRange(1000));
+    }
+
+    @Test
+    public void testParseOtherUnit() throws HttpFileRequestException {
+        assertNull(HttpByteRange.parse("items=0-5", 1000));
+    }
+
+    @Test
+    public void testParseUnsatisfiableRange() {
+        try {
+            HttpByteRange.parse("bytes=1000-, -0", 1000);
+            fail();
+        } catch (HttpFileRequestException e) {
+            assertEquals(REQUESTED_RANGE_NOT_SATISFIABLE, e.getStatus());
+            assertEquals("bytes */1000", e.getContentRange());
+        }
+    }
+
+    @Test
+    public void testParseInvalidRanges() {
+        for (String range : new String[]{"", "bytes", "=0-5", "bytes=", "bytes=5", "bytes=5-4", "bytes=a-5", "bytes=-", "bytes=+5-", "bytes=99999999999999999999-"}) {
+            try {
+                HttpByteRange.parse(range, 1000);
+                fail();
+            } catch (HttpFileRequestException e) {
+                assertEquals(REQUESTED_RANGE_NOT_SATISFIABLE, e.getStatus());
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package net.holmes.core.service.http;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class HttpDateFormatterTest {
+
+    @Test
+    public void testFormat() {
+        HttpDateFormatter formatter = new HttpDateFormatter();
+        assertEquals("Thu, 01 Jan 2015 00:00:00 GMT", formatter.format(1420070400000L));
+        assertEquals("Thu, 01 Jan 2015 00:00:01 GMT", formatter.format(1420070401500L));
+    }
+
+    @Test
+    public void testFormatSameSecond() {
+        HttpDateFormatter formatter = new HttpDateFormatter();
+        String date = formatter.format(1420070400000L);
+        assertSame(date, formatter.format(1420070400999L));
+        assertNotSame(date, formatter.format(1420070401000L));
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(1420070400000L, HttpDateFormatter.parse("Thu, 01 Jan 2015 00:00:00 GMT"));
+    }
+
+    @Test
+    public void testParseInvalid() {
+        assertEquals(-1L, HttpDateFormatter.parse("01/01/2015"));
+    }
+}
@@ -143,6 +143,29 @@ public class HttpFileRequestDecoderTest {
         verify(context, request, mediaManager, mimeTypeManager);
     }
 
+    @Test
+    public void testDecodeContentFileHeadRequest() {
+        FullHttpRequest request = createMock(FullHttpRequest.class);
+        ChannelHandlerContext context = createMock(ChannelHandlerContext.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+        MimeTypeManager mimeTypeManager = createMock(MimeTypeManager.class);
+        List<Object> out = new ArrayList<>();
+
+        expect(request.getMethod()).andReturn(HEAD).atLeastOnce();
+        expect(request.getUri()).andReturn("/content?id=1234").atLeastOnce();
+        expect(mediaManager.getNode("1234")).andReturn(new ContentNode("id", "parentId", "name", new File("file"), MimeType.valueOf("video/x-msvideo"))).atLeastOnce();
+
+        replay(context, request, mediaManager, mimeTypeManager);
+        HttpFileRequestDecoder decoder = new HttpFileRequestDecoder(mediaManager, mimeTypeManager, System.getProperty("java.io.tmpdir"));
+        decoder.decode(context, request, out);
+        assertEquals(out.size(), 1);
+        assertEquals(out.get(0).getClass(), HttpFileRequest.class);
+        HttpFileRequest fileRequest = (HttpFileRequest) out.get(0);
+        assertTrue(fileRequest.isHeadRequest());
+        assertFalse(fileRequest.isStaticResource());
+        verify(context, request, mediaManager, mimeTypeManager);
+    }
+
     @Test
     public void testDecodeContentFileEmptyContentId() {
         FullHttpRequest request = createMock(FullHttpRequest.class);
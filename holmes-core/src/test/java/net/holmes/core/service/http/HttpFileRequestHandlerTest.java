@@ -17,26 +17,37 @@
 
 package net.holmes.core.service.http;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
 import io.netty.channel.DefaultChannelPromise;
+import io.netty.channel.FileRegion;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.stream.ChunkedFile;
 import net.holmes.core.business.configuration.ConfigurationManager;
 import net.holmes.core.business.mimetype.model.MimeType;
+import org.easymock.Capture;
 import org.junit.Test;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
 
 import static io.netty.handler.codec.http.HttpHeaders.Names.*;
+import static io.netty.handler.codec.http.HttpHeaders.Values.BYTES;
 import static io.netty.handler.codec.http.HttpHeaders.Values.CLOSE;
-import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.*;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
-import static net.holmes.core.common.ConfigurationParameter.HTTP_SERVER_CACHE_SECOND;
+import static net.holmes.core.common.ConfigurationParameter.*;
 import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
 
 public class HttpFileRequestHandlerTest {
 
@@ -54,6 +65,8 @@ public class HttpFileRequestHandlerTest {
         Channel channel = createMock(Channel.class);
 
         expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
         expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
         expect(httpRequest.getProtocolVersion()).andReturn(HTTP_1_1).atLeastOnce();
         expect(context.write(isA(HttpResponse.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
@@ -68,6 +81,73 @@ public class HttpFileRequestHandlerTest {
         verify(context, httpRequest, channel, configurationManager);
     }
 
+    @Test
+    public void testFileRequestHandlerZeroCopy() throws Exception {
+        File indexHtml = File.createTempFile("index", ".html");
+        indexHtml.deleteOnExit();
+
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.add(HOST, "localhost");
+
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        ChannelHandlerContext context = createMock(ChannelHandlerContext.class);
+        ChannelPipeline pipeline = createMock(ChannelPipeline.class);
+        FullHttpRequest httpRequest = createMock(FullHttpRequest.class);
+        Channel channel = createMock(Channel.class);
+
+        expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(true);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
+        expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
+        expect(httpRequest.getProtocolVersion()).andReturn(HTTP_1_1).atLeastOnce();
+        expect(context.pipeline()).andReturn(pipeline).atLeastOnce();
+        expect(pipeline.get(SslHandler.class)).andReturn(null).atLeastOnce();
+        expect(context.write(isA(HttpResponse.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
+        expect(context.write(isA(FileRegion.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
+        expect(context.writeAndFlush(isA(LastHttpContent.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
+
+        HttpFileRequest request = new HttpFileRequest(httpRequest, new File(indexHtml.getAbsolutePath()), MimeType.valueOf("text/html"), false);
+
+        replay(context, pipeline, httpRequest, channel, configurationManager);
+        HttpFileRequestHandler handler = new HttpFileRequestHandler(configurationManager);
+        handler.channelRead0(context, request);
+        verify(context, pipeline, httpRequest, channel, configurationManager);
+    }
+
+    @Test
+    public void testFileRequestHandlerZeroCopyWithTls() throws Exception {
+        File indexHtml = File.createTempFile("index", ".html");
+        indexHtml.deleteOnExit();
+
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.add(HOST, "localhost");
+
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        ChannelHandlerContext context = createMock(ChannelHandlerContext.class);
+        ChannelPipeline pipeline = createMock(ChannelPipeline.class);
+        SslHandler sslHandler = createMock(SslHandler.class);
+        FullHttpRequest httpRequest = createMock(FullHttpRequest.class);
+        Channel channel = createMock(Channel.class);
+
+        expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(true);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
+        expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
+        expect(httpRequest.getProtocolVersion()).andReturn(HTTP_1_1).atLeastOnce();
+        expect(context.pipeline()).andReturn(pipeline).atLeastOnce();
+        expect(pipeline.get(SslHandler.class)).andReturn(sslHandler).atLeastOnce();
+        expect(context.write(isA(HttpResponse.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
+        expect(context.write(isA(ChunkedFile.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
+        expect(context.writeAndFlush(isA(LastHttpContent.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
+
+        HttpFileRequest request = new HttpFileRequest(httpRequest, new File(indexHtml.getAbsolutePath()), MimeType.valueOf("text/html"), false);
+
+        replay(context, pipeline, sslHandler, httpRequest, channel, configurationManager);
+        HttpFileRequestHandler handler = new HttpFileRequestHandler(configurationManager);
+        handler.channelRead0(context, request);
+        verify(context, pipeline, sslHandler, httpRequest, channel, configurationManager);
+    }
+
     @Test
     public void testFileRequestHandlerNoCache() throws Exception {
         File indexHtml = File.createTempFile("index", ".html");
@@ -82,6 +162,8 @@ public class HttpFileRequestHandlerTest {
         Channel channel = createMock(Channel.class);
 
         expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(0);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
         expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
         expect(httpRequest.getProtocolVersion()).andReturn(HTTP_1_1).atLeastOnce();
         expect(context.write(isA(HttpResponse.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
@@ -96,6 +178,173 @@ public class HttpFileRequestHandlerTest {
         verify(context, httpRequest, channel, configurationManager);
     }
 
+    @Test
+    public void testFileRequestHandlerNotModifiedEntityTag() throws Exception {
+        File indexHtml = File.createTempFile("index", ".html");
+        indexHtml.deleteOnExit();
+        assertTrue(indexHtml.setLastModified(System.currentTimeMillis() - 60000L));
+
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.add(HOST, "localhost");
+
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        ChannelHandlerContext context = createMock(ChannelHandlerContext.class);
+        FullHttpRequest httpRequest = createMock(FullHttpRequest.class);
+        Channel channel = createMock(Channel.class);
+        Capture<HttpResponse> response = new Capture<>();
+
+        expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
+        expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
+        expect(httpRequest.getProtocolVersion()).andReturn(HTTP_1_1).atLeastOnce();
+        expect(context.write(and(isA(HttpResponse.class), capture(response)))).andReturn(new DefaultChannelPromise(channel)).times(2);
+        expect(context.write(isA(ChunkedFile.class))).andReturn(new DefaultChannelPromise(channel));
+        expect(context.writeAndFlush(isA(LastHttpContent.class))).andReturn(new DefaultChannelPromise(channel)).times(2);
+
+        HttpFileRequest request = new HttpFileRequest(httpRequest, new File(indexHtml.getAbsolutePath()), MimeType.valueOf("text/html"), true);
+
+        replay(context, httpRequest, channel, configurationManager);
+        HttpFileRequestHandler handler = new HttpFileRequestHandler(configurationManager);
+        handler.channelRead0(context, request);
+        String entityTag = response.getValue().headers().get(ETAG);
+        assertEquals(OK, response.getValue().getStatus());
+        assertTrue(entityTag.startsWith("\""));
+
+        // Weak comparison: weakness indicator is ignored
+        headers.add(IF_NONE_MATCH, "\"other\", W/" + entityTag);
+        handler.channelRead0(context, request);
+        verify(context, httpRequest, channel, configurationManager);
+
+        assertEquals(NOT_MODIFIED, response.getValue().getStatus());
+        assertEquals(entityTag, response.getValue().headers().get(ETAG));
+        assertNotNull(response.getValue().headers().get(EXPIRES));
+        assertNull(response.getValue().headers().get(CONTENT_LENGTH));
+    }
+
+    @Test
+    public void testFileRequestHandlerNotModifiedSince() throws Exception {
+        File indexHtml = File.createTempFile("index", ".html");
+        indexHtml.deleteOnExit();
+        assertTrue(indexHtml.setLastModified(System.currentTimeMillis() - 60000L));
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.add(HOST, "localhost");
+        headers.add(IF_MODIFIED_SINCE, dateFormat.format(new Date()));
+
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        ChannelHandlerContext context = createMock(ChannelHandlerContext.class);
+        FullHttpRequest httpRequest = createMock(FullHttpRequest.class);
+        Channel channel = createMock(Channel.class);
+        Capture<HttpResponse> response = new Capture<>();
+
+        expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
+        expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
+        expect(httpRequest.getProtocolVersion()).andReturn(HTTP_1_1).atLeastOnce();
+        expect(context.write(and(isA(HttpResponse.class), capture(response)))).andReturn(new DefaultChannelPromise(channel));
+        expect(context.writeAndFlush(isA(LastHttpContent.class))).andReturn(new DefaultChannelPromise(channel));
+
+        HttpFileRequest request = new HttpFileRequest(httpRequest, new File(indexHtml.getAbsolutePath()), MimeType.valueOf("video/avi"), false);
+
+        replay(context, httpRequest, channel, configurationManager);
+        HttpFileRequestHandler handler = new HttpFileRequestHandler(configurationManager);
+        handler.channelRead0(context, request);
+        verify(context, httpRequest, channel, configurationManager);
+
+        assertEquals(NOT_MODIFIED, response.getValue().getStatus());
+    }
+
+    @Test
+    public void testFileRequestHandlerWithMatchingIfRange() throws Exception {
+        File indexHtml = File.createTempFile("index", ".html");
+        FileWriter fw = new FileWriter(indexHtml);
+        BufferedWriter bw = new BufferedWriter(fw);
+        bw.write("some content in index.html");
+        bw.close();
+        indexHtml.deleteOnExit();
+        assertTrue(indexHtml.setLastModified(System.currentTimeMillis() - 60000L));
+
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.add(HOST, "localhost");
+
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        ChannelHandlerContext context = createMock(ChannelHandlerContext.class);
+        FullHttpRequest httpRequest = createMock(FullHttpRequest.class);
+        Channel channel = createMock(Channel.class);
+        Capture<HttpResponse> response = new Capture<>();
+
+        expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
+        expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
+        expect(httpRequest.getProtocolVersion()).andReturn(HTTP_1_1).atLeastOnce();
+        expect(context.write(and(isA(HttpResponse.class), capture(response)))).andReturn(new DefaultChannelPromise(channel)).times(2);
+        expect(context.write(isA(ChunkedFile.class))).andReturn(new DefaultChannelPromise(channel)).times(2);
+        expect(context.writeAndFlush(isA(LastHttpContent.class))).andReturn(new DefaultChannelPromise(channel)).times(2);
+
+        HttpFileRequest request = new HttpFileRequest(httpRequest, new File(indexHtml.getAbsolutePath()), MimeType.valueOf("text/html"), false);
+
+        replay(context, httpRequest, channel, configurationManager);
+        HttpFileRequestHandler handler = new HttpFileRequestHandler(configurationManager);
+        handler.channelRead0(context, request);
+        String entityTag = response.getValue().headers().get(ETAG);
+
+        // Range is sent: If-Range entity tag matches file
+        headers.add(RANGE, "bytes=5-");
+        headers.add(IF_RANGE, entityTag);
+        handler.channelRead0(context, request);
+        verify(context, httpRequest, channel, configurationManager);
+
+        assertEquals(PARTIAL_CONTENT, response.getValue().getStatus());
+        assertEquals("bytes 5-25/26", response.getValue().headers().get(CONTENT_RANGE));
+    }
+
+    @Test
+    public void testFileRequestHandlerHeadRequest() throws Exception {
+        File video = File.createTempFile("video", ".avi");
+        FileWriter fw = new FileWriter(video);
+        BufferedWriter bw = new BufferedWriter(fw);
+        bw.write("some content in video.avi");
+        bw.close();
+        video.deleteOnExit();
+
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.add(HOST, "localhost");
+
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        ChannelHandlerContext context = createMock(ChannelHandlerContext.class);
+        FullHttpRequest httpRequest = createMock(FullHttpRequest.class);
+        Channel channel = createMock(Channel.class);
+        Capture<HttpResponse> response = new Capture<>();
+
+        expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
+        expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
+        expect(httpRequest.getProtocolVersion()).andReturn(HTTP_1_1).atLeastOnce();
+        expect(context.write(and(isA(HttpResponse.class), capture(response)))).andReturn(new DefaultChannelPromise(channel));
+        expect(context.writeAndFlush(isA(LastHttpContent.class))).andReturn(new DefaultChannelPromise(channel));
+
+        HttpFileRequest request = new HttpFileRequest(httpRequest, new File(video.getAbsolutePath()), MimeType.valueOf("video/x-msvideo"), false, true);
+
+        replay(context, httpRequest, channel, configurationManager);
+        HttpFileRequestHandler handler = new HttpFileRequestHandler(configurationManager);
+        handler.channelRead0(context, request);
+        verify(context, httpRequest, channel, configurationManager);
+
+        // Headers of a GET response, without content
+        assertEquals(OK, response.getValue().getStatus());
+        assertEquals("25", response.getValue().headers().get(CONTENT_LENGTH));
+        assertEquals(BYTES, response.getValue().headers().get(ACCEPT_RANGES));
+        assertEquals("Streaming", response.getValue().headers().get("transferMode.dlna.org"));
+        assertTrue(response.getValue().headers().get("contentFeatures.dlna.org").startsWith("DLNA.ORG_OP=01;"));
+    }
+
     @Test(expected = HttpFileRequestException.class)
     public void testFileRequestHandlerInvalidFile() throws Exception {
         HttpHeaders headers = new DefaultHttpHeaders();
@@ -108,6 +357,8 @@ public class HttpFileRequestHandlerTest {
         HttpFileRequest request = new HttpFileRequest(httpRequest, new File("invalidFile"), MimeType.valueOf("text/html"), false);
 
         expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
 
         replay(context, httpRequest, configurationManager);
         try {
@@ -137,6 +388,8 @@ public class HttpFileRequestHandlerTest {
         Channel channel = createMock(Channel.class);
 
         expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
         expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
         expect(httpRequest.getProtocolVersion()).andReturn(HTTP_1_1).atLeastOnce();
         expect(context.write(isA(HttpResponse.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
@@ -151,6 +404,168 @@ public class HttpFileRequestHandlerTest {
         verify(context, httpRequest, channel, configurationManager);
     }
 
+    @Test
+    public void testFileRequestHandlerWithClosedRange() throws Exception {
+        File indexHtml = File.createTempFile("index", ".html");
+        FileWriter fw = new FileWriter(indexHtml);
+        BufferedWriter bw = new BufferedWriter(fw);
+        bw.write("some content in index.html");
+        bw.close();
+        indexHtml.deleteOnExit();
+
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.add(HOST, "localhost");
+        headers.add(RANGE, "bytes=5-11");
+
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        ChannelHandlerContext context = createMock(ChannelHandlerContext.class);
+        FullHttpRequest httpRequest = createMock(FullHttpRequest.class);
+        Channel channel = createMock(Channel.class);
+        Capture<HttpResponse> response = new Capture<>();
+
+        expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
+        expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
+        expect(httpRequest.getProtocolVersion()).andReturn(HTTP_1_1).atLeastOnce();
+        expect(context.write(and(isA(HttpResponse.class), capture(response)))).andReturn(new DefaultChannelPromise(channel));
+        expect(context.write(isA(ChunkedFile.class))).andReturn(new DefaultChannelPromise(channel));
+        expect(context.writeAndFlush(isA(LastHttpContent.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
+
+        HttpFileRequest request = new HttpFileRequest(httpRequest, new File(indexHtml.getAbsolutePath()), MimeType.valueOf("text/html"), false);
+
+        replay(context, httpRequest, channel, configurationManager);
+        HttpFileRequestHandler handler = new HttpFileRequestHandler(configurationManager);
+        handler.channelRead0(context, request);
+        verify(context, httpRequest, channel, configurationManager);
+
+        assertEquals(PARTIAL_CONTENT, response.getValue().getStatus());
+        assertEquals("bytes 5-11/26", response.getValue().headers().get(CONTENT_RANGE));
+        assertEquals("7", response.getValue().headers().get(CONTENT_LENGTH));
+        assertEquals(BYTES, response.getValue().headers().get(ACCEPT_RANGES));
+        assertEquals("Interactive", response.getValue().headers().get("transferMode.dlna.org"));
+    }
+
+    @Test
+    public void testFileRequestHandlerWithMultipleRanges() throws Exception {
+        File indexHtml = File.createTempFile("index", ".html");
+        FileWriter fw = new FileWriter(indexHtml);
+        BufferedWriter bw = new BufferedWriter(fw);
+        bw.write("some content in index.html");
+        bw.close();
+        indexHtml.deleteOnExit();
+
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.add(HOST, "localhost");
+        headers.add(RANGE, "bytes=0-3,-4");
+
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        ChannelHandlerContext context = createMock(ChannelHandlerContext.class);
+        FullHttpRequest httpRequest = createMock(FullHttpRequest.class);
+        Channel channel = createMock(Channel.class);
+        Capture<HttpResponse> response = new Capture<>();
+
+        expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
+        expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
+        expect(httpRequest.getProtocolVersion()).andReturn(HTTP_1_1).atLeastOnce();
+        expect(context.write(and(isA(HttpResponse.class), capture(response)))).andReturn(new DefaultChannelPromise(channel));
+        expect(context.write(isA(ByteBuf.class))).andReturn(new DefaultChannelPromise(channel)).times(3);
+        expect(context.write(isA(ChunkedFile.class))).andReturn(new DefaultChannelPromise(channel)).times(2);
+        expect(context.writeAndFlush(isA(LastHttpContent.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
+
+        HttpFileRequest request = new HttpFileRequest(httpRequest, new File(indexHtml.getAbsolutePath()), MimeType.valueOf("text/html"), false);
+
+        replay(context, httpRequest, channel, configurationManager);
+        HttpFileRequestHandler handler = new HttpFileRequestHandler(configurationManager);
+        handler.channelRead0(context, request);
+        verify(context, httpRequest, channel, configurationManager);
+
+        assertEquals(PARTIAL_CONTENT, response.getValue().getStatus());
+        assertTrue(response.getValue().headers().get(CONTENT_TYPE).startsWith("multipart/byteranges; boundary="));
+    }
+
+    @Test
+    public void testFileRequestHandlerWithTooManyRanges() throws Exception {
+        File indexHtml = File.createTempFile("index", ".html");
+        FileWriter fw = new FileWriter(indexHtml);
+        BufferedWriter bw = new BufferedWriter(fw);
+        bw.write("some content in index.html, some more content in index.html");
+        bw.close();
+        indexHtml.deleteOnExit();
+
+        StringBuilder range = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= 16; i++) {
+            range.append(",").append(i * 2).append("-").append(i * 2);
+        }
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.add(HOST, "localhost");
+        headers.add(RANGE, range.toString());
+
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        ChannelHandlerContext context = createMock(ChannelHandlerContext.class);
+        FullHttpRequest httpRequest = createMock(FullHttpRequest.class);
+        Channel channel = createMock(Channel.class);
+        Capture<HttpResponse> response = new Capture<>();
+
+        expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
+        expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
+        expect(httpRequest.getProtocolVersion()).andReturn(HTTP_1_1).atLeastOnce();
+        expect(context.write(and(isA(HttpResponse.class), capture(response)))).andReturn(new DefaultChannelPromise(channel));
+        expect(context.write(isA(ChunkedFile.class))).andReturn(new DefaultChannelPromise(channel));
+        expect(context.writeAndFlush(isA(LastHttpContent.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
+
+        HttpFileRequest request = new HttpFileRequest(httpRequest, new File(indexHtml.getAbsolutePath()), MimeType.valueOf("text/html"), false);
+
+        replay(context, httpRequest, channel, configurationManager);
+        HttpFileRequestHandler handler = new HttpFileRequestHandler(configurationManager);
+        handler.channelRead0(context, request);
+        verify(context, httpRequest, channel, configurationManager);
+
+        // Range is ignored: too many parts
+        assertEquals(OK, response.getValue().getStatus());
+        assertEquals(String.valueOf(indexHtml.length()), response.getValue().headers().get(CONTENT_LENGTH));
+    }
+
+    @Test
+    public void testFileRequestHandlerWithOutdatedIfRange() throws Exception {
+        File indexHtml = File.createTempFile("index", ".html");
+        indexHtml.deleteOnExit();
+
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.add(HOST, "localhost");
+        headers.add(RANGE, "bytes=5-");
+        headers.add(IF_RANGE, "Thu, 01 Jan 2015 00:00:00 GMT");
+
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        ChannelHandlerContext context = createMock(ChannelHandlerContext.class);
+        FullHttpRequest httpRequest = createMock(FullHttpRequest.class);
+        Channel channel = createMock(Channel.class);
+        Capture<HttpResponse> response = new Capture<>();
+
+        expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
+        expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
+        expect(httpRequest.getProtocolVersion()).andReturn(HTTP_1_1).atLeastOnce();
+        expect(context.write(and(isA(HttpResponse.class), capture(response)))).andReturn(new DefaultChannelPromise(channel));
+        expect(context.write(isA(ChunkedFile.class))).andReturn(new DefaultChannelPromise(channel));
+        expect(context.writeAndFlush(isA(LastHttpContent.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
+
+        HttpFileRequest request = new HttpFileRequest(httpRequest, new File(indexHtml.getAbsolutePath()), MimeType.valueOf("text/html"), false);
+
+        replay(context, httpRequest, channel, configurationManager);
+        HttpFileRequestHandler handler = new HttpFileRequestHandler(configurationManager);
+        handler.channelRead0(context, request);
+        verify(context, httpRequest, channel, configurationManager);
+
+        // Range is ignored: file was modified after If-Range date
+        assertEquals(OK, response.getValue().getStatus());
+    }
+
     @Test(expected = HttpFileRequestException.class)
     public void testFileRequestHandlerWithEmptyOffset() throws Exception {
         File indexHtml = File.createTempFile("index", ".html");
@@ -165,6 +580,8 @@ public class HttpFileRequestHandlerTest {
         FullHttpRequest httpRequest = createMock(FullHttpRequest.class);
 
         expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
         expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
 
         HttpFileRequest request = new HttpFileRequest(httpRequest, new File(indexHtml.getAbsolutePath()), MimeType.valueOf("text/html"), true);
@@ -192,6 +609,8 @@ public class HttpFileRequestHandlerTest {
         FullHttpRequest httpRequest = createMock(FullHttpRequest.class);
 
         expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
         expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
 
         HttpFileRequest request = new HttpFileRequest(httpRequest, new File(indexHtml.getAbsolutePath()), MimeType.valueOf("text/html"), true);
@@ -220,6 +639,8 @@ public class HttpFileRequestHandlerTest {
         Channel channel = createMock(Channel.class);
 
         expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
         expect(httpRequest.headers()).andReturn(headers).atLeastOnce();
         expect(context.write(isA(HttpResponse.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
         expect(context.write(isA(ChunkedFile.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
@@ -240,6 +661,8 @@ public class HttpFileRequestHandlerTest {
         Channel channel = createMock(Channel.class);
 
         expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
         expect(context.channel()).andReturn(channel).atLeastOnce();
         expect(channel.isActive()).andReturn(true).atLeastOnce();
         expect(channel.writeAndFlush(isA(Object.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
@@ -255,6 +678,8 @@ public class HttpFileRequestHandlerTest {
         Channel channel = createMock(Channel.class);
 
         expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
         expect(context.channel()).andReturn(channel).atLeastOnce();
         expect(channel.isActive()).andReturn(true).atLeastOnce();
         expect(channel.writeAndFlush(isA(Object.class))).andReturn(new DefaultChannelPromise(channel)).atLeastOnce();
@@ -270,10 +695,81 @@ public class HttpFileRequestHandlerTest {
         Channel channel = createMock(Channel.class);
 
         expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
         expect(context.channel()).andReturn(channel).atLeastOnce();
         expect(channel.isActive()).andReturn(false).atLeastOnce();
         replay(context, channel, configurationManager);
         new HttpFileRequestHandler(configurationManager).exceptionCaught(context, new HttpFileRequestException("message", NOT_FOUND));
         verify(context, channel, configurationManager);
     }
+
+    @Test
+    public void testExceptionCaughtHeadRequest() throws Exception {
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        ChannelHandlerContext context = createMock(ChannelHandlerContext.class);
+        FullHttpRequest httpRequest = createMock(FullHttpRequest.class);
+        Channel channel = createMock(Channel.class);
+        Capture<FullHttpResponse> response = new Capture<>();
+
+        HttpFileRequest request = new HttpFileRequest(httpRequest, new File("invalidFile"), MimeType.valueOf("text/html"), false, true);
+
+        expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
+        expect(context.channel()).andReturn(channel).atLeastOnce();
+        expect(channel.isActive()).andReturn(true).atLeastOnce();
+        expect(channel.writeAndFlush(and(isA(FullHttpResponse.class), capture(response)))).andReturn(new DefaultChannelPromise(channel));
+        replay(context, httpRequest, channel, configurationManager);
+        try {
+            HttpFileRequestHandler handler = new HttpFileRequestHandler(configurationManager);
+            try {
+                handler.channelRead0(context, request);
+                fail();
+            } catch (HttpFileRequestException e) {
+                handler.exceptionCaught(context, e);
+            }
+            // Error response to a HEAD request has no body
+            assertEquals(NOT_FOUND, response.getValue().getStatus());
+            assertEquals(0, response.getValue().content().readableBytes());
+        } finally {
+            verify(context, httpRequest, channel, configurationManager);
+        }
+    }
+
+    @Test
+    public void testExceptionCaughtAfterHeadRequest() throws Exception {
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        ChannelHandlerContext context = createMock(ChannelHandlerContext.class);
+        FullHttpRequest httpRequest = createMock(FullHttpRequest.class);
+        Channel channel = createMock(Channel.class);
+        Capture<FullHttpResponse> response = new Capture<>();
+
+        HttpFileRequest request = new HttpFileRequest(httpRequest, new File("invalidFile"), MimeType.valueOf("text/html"), false, true);
+
+        expect(configurationManager.getParameter(HTTP_SERVER_CACHE_SECOND)).andReturn(60);
+        expect(configurationManager.getParameter(HTTP_SERVER_ZERO_COPY_ENABLE)).andReturn(false);
+        expect(configurationManager.getParameter(HTTP_SERVER_CHUNK_SIZE)).andReturn(8192);
+        expect(context.channel()).andReturn(channel).atLeastOnce();
+        expect(channel.isActive()).andReturn(true).atLeastOnce();
+        expect(channel.writeAndFlush(and(isA(FullHttpResponse.class), capture(response)))).andReturn(new DefaultChannelPromise(channel)).times(2);
+        replay(context, httpRequest, channel, configurationManager);
+        try {
+            HttpFileRequestHandler handler = new HttpFileRequestHandler(configurationManager);
+            try {
+                handler.channelRead0(context, request);
+                fail();
+            } catch (HttpFileRequestException e) {
+                handler.exceptionCaught(context, e);
+            }
+            assertEquals(0, response.getValue().content().readableBytes());
+
+            // Next failure on same connection is not raised by a HEAD request: error response has a body
+            handler.exceptionCaught(context, new HttpFileRequestException("message", NOT_FOUND));
+            assertEquals(NOT_FOUND, response.getValue().getStatus());
+            assertTrue(response.getValue().content().readableBytes() > 0);
+        } finally {
+            verify(context, httpRequest, channel, configurationManager);
+        }
+    }
 }
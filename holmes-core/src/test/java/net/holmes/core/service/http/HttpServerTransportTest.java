@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.service.http;
+
+import org.junit.Test;
+
+import static net.holmes.core.service.http.HttpServerTransport.*;
+import static org.junit.Assert.*;
+
+public class HttpServerTransportTest {
+
+    @Test
+    public void testIsValid() {
+        assertTrue(isValid("nio"));
+        assertTrue(isValid("EPOLL"));
+        assertTrue(isValid("auto"));
+        assertFalse(isValid("epol"));
+        assertFalse(isValid(""));
+        assertFalse(isValid(null));
+    }
+
+    @Test
+    public void testSelect() {
+        HttpServerTransport nativeTransport = EPOLL.isAvailable() ? EPOLL : NIO;
+        assertEquals(NIO, select("nio"));
+        assertEquals(nativeTransport, select("epoll"));
+        assertEquals(nativeTransport, select("auto"));
+        assertEquals(NIO, select("epol"));
+        assertEquals(NIO, select(null));
+    }
+}
@@ -38,6 +38,64 @@ public class HttpServiceTest {
         expect(configurationManager.getParameter(HTTP_SERVER_PORT)).andReturn(8080).atLeastOnce();
         expect(configurationManager.getParameter(HTTP_SERVER_BOSS_THREADS)).andReturn(0).atLeastOnce();
         expect(configurationManager.getParameter(HTTP_SERVER_WORKER_THREADS)).andReturn(0).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_TRANSPORT)).andReturn("nio").atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_REUSE_PORT_ENABLE)).andReturn(false).anyTimes();
+        expect(configurationManager.getParameter(HTTP_SERVER_TCP_NO_DELAY_ENABLE)).andReturn(true).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_SEND_BUFFER_SIZE)).andReturn(0).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_WRITE_BUFFER_HIGH_WATER_MARK)).andReturn(65536).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_WRITE_BUFFER_LOW_WATER_MARK)).andReturn(32768).atLeastOnce();
+        expect(injector.getBindings()).andReturn(new HashMap<Key<?>, Binding<?>>(0)).atLeastOnce();
+
+        replay(injector, configurationManager);
+        try {
+            HttpService httpService = new HttpService(injector, configurationManager);
+            httpService.start();
+            httpService.stop();
+        } finally {
+            verify(injector, configurationManager);
+        }
+    }
+
+    @Test
+    public void testHttpServerAutoTransport() {
+        Injector injector = createMock(Injector.class);
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+
+        expect(configurationManager.getParameter(HTTP_SERVER_PORT)).andReturn(8080).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_BOSS_THREADS)).andReturn(2).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_WORKER_THREADS)).andReturn(0).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_TRANSPORT)).andReturn("auto").atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_REUSE_PORT_ENABLE)).andReturn(true).anyTimes();
+        expect(configurationManager.getParameter(HTTP_SERVER_TCP_NO_DELAY_ENABLE)).andReturn(true).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_SEND_BUFFER_SIZE)).andReturn(65536).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_WRITE_BUFFER_HIGH_WATER_MARK)).andReturn(65536).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_WRITE_BUFFER_LOW_WATER_MARK)).andReturn(32768).atLeastOnce();
+        expect(injector.getBindings()).andReturn(new HashMap<Key<?>, Binding<?>>(0)).atLeastOnce();
+
+        replay(injector, configurationManager);
+        try {
+            HttpService httpService = new HttpService(injector, configurationManager);
+            httpService.start();
+            httpService.stop();
+        } finally {
+            verify(injector, configurationManager);
+        }
+    }
+
+    @Test
+    public void testHttpServerInvalidSettings() {
+        Injector injector = createMock(Injector.class);
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+
+        expect(configurationManager.getParameter(HTTP_SERVER_PORT)).andReturn(8080).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_BOSS_THREADS)).andReturn(0).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_WORKER_THREADS)).andReturn(0).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_TRANSPORT)).andReturn("unknown").atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_REUSE_PORT_ENABLE)).andReturn(false).anyTimes();
+        expect(configurationManager.getParameter(HTTP_SERVER_TCP_NO_DELAY_ENABLE)).andReturn(true).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_SEND_BUFFER_SIZE)).andReturn(0).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_WRITE_BUFFER_HIGH_WATER_MARK)).andReturn(16384).atLeastOnce();
+        expect(configurationManager.getParameter(HTTP_SERVER_WRITE_BUFFER_LOW_WATER_MARK)).andReturn(32768).atLeastOnce();
         expect(injector.getBindings()).andReturn(new HashMap<Key<?>, Binding<?>>(0)).atLeastOnce();
 
         replay(injector, configurationManager);
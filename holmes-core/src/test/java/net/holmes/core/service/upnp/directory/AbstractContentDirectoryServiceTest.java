@@ -33,6 +33,11 @@ public class AbstractContentDirectoryServiceTest {
         new AbstractContentDirectoryServiceTester().browse("0", "BrowseMetadata", "", new UnsignedIntegerFourBytes(0), new UnsignedIntegerFourBytes(1), "+name", null);
     }
 
+    @Test
+    public void testSearch() throws ContentDirectoryException {
+        new AbstractContentDirectoryServiceTester().search("0", "*", "", new UnsignedIntegerFourBytes(0), new UnsignedIntegerFourBytes(1), "+name", null);
+    }
+
     private class AbstractContentDirectoryServiceTester extends AbstractContentDirectoryService {
 
         AbstractContentDirectoryServiceTester() {
@@ -41,7 +46,12 @@ public class AbstractContentDirectoryServiceTest {
         }
 
         @Override
-        public BrowseResult browse(String objectID, BrowseFlag browseFlag, long firstResult, long maxResults, RemoteClientInfo remoteClientInfo) throws ContentDirectoryException {
+        public BrowseResult browse(String objectID, BrowseFlag browseFlag, long firstResult, long maxResults, String orderBy, RemoteClientInfo remoteClientInfo) throws ContentDirectoryException {
+            return null;
+        }
+
+        @Override
+        public BrowseResult search(String containerId, String searchCriteria, long firstResult, long maxResults, String orderBy, RemoteClientInfo remoteClientInfo) throws ContentDirectoryException {
             return null;
         }
     }
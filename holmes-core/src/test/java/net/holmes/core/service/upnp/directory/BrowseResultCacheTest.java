@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.service.upnp.directory;
+
+import net.holmes.core.service.upnp.directory.BrowseResultCache.BrowseKey;
+import org.fourthline.cling.support.model.BrowseResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.fourthline.cling.support.model.BrowseFlag.DIRECT_CHILDREN;
+import static org.fourthline.cling.support.model.BrowseFlag.METADATA;
+import static org.junit.Assert.*;
+
+public class BrowseResultCacheTest {
+
+    @Test
+    public void testBrowseKey() {
+        BrowseKey key = new BrowseKey("0", DIRECT_CHILDREN, 0, 10, null, Arrays.asList("video/avi"), 1);
+
+        assertEquals(key, key);
+        assertEquals(key, new BrowseKey("0", DIRECT_CHILDREN, 0, 10, null, Arrays.asList("video/avi"), 1));
+        assertEquals(key.hashCode(), new BrowseKey("0", DIRECT_CHILDREN, 0, 10, null, Arrays.asList("video/avi"), 1).hashCode());
+        assertNotEquals(key, null);
+        assertNotEquals(key, "0");
+        assertNotEquals(key, new BrowseKey("1", DIRECT_CHILDREN, 0, 10, null, Arrays.asList("video/avi"), 1));
+        assertNotEquals(key, new BrowseKey("0", METADATA, 0, 10, null, Arrays.asList("video/avi"), 1));
+        assertNotEquals(key, new BrowseKey("0", DIRECT_CHILDREN, 10, 10, null, Arrays.asList("video/avi"), 1));
+        assertNotEquals(key, new BrowseKey("0", DIRECT_CHILDREN, 0, 20, null, Arrays.asList("video/avi"), 1));
+        assertNotEquals(key, new BrowseKey("0", DIRECT_CHILDREN, 0, 10, "+dc:title", Arrays.asList("video/avi"), 1));
+        assertNotEquals(key, new BrowseKey("0", DIRECT_CHILDREN, 0, 10, null, Collections.<String>emptyList(), 1));
+        assertNotEquals(key, new BrowseKey("0", DIRECT_CHILDREN, 0, 10, null, Arrays.asList("video/avi"), 2));
+        assertNotNull(key.toString());
+    }
+
+    @Test
+    public void testGetPut() {
+        BrowseResultCache browseResultCache = new BrowseResultCache(10, 60);
+        BrowseKey key = new BrowseKey("0", DIRECT_CHILDREN, 0, 10, null, Collections.<String>emptyList(), 0);
+        BrowseResult result = new BrowseResult("didl", 1, 1);
+
+        assertNull(browseResultCache.get(key));
+        browseResultCache.put(key, result);
+        assertSame(result, browseResultCache.get(key));
+        assertSame(result, browseResultCache.get(new BrowseKey("0", DIRECT_CHILDREN, 0, 10, null, Collections.<String>emptyList(), 0)));
+
+        assertEquals(2, browseResultCache.getStatistics().getHits());
+        assertEquals(1, browseResultCache.getStatistics().getMisses());
+        assertEquals(1, browseResultCache.getStatistics().getSize());
+
+        // Result cached before a media change is not reused
+        assertNull(browseResultCache.get(new BrowseKey("0", DIRECT_CHILDREN, 0, 10, null, Collections.<String>emptyList(), 1)));
+    }
+
+    @Test
+    public void testMaxElements() {
+        BrowseResultCache browseResultCache = new BrowseResultCache(1, 60);
+        BrowseKey key1 = new BrowseKey("1", DIRECT_CHILDREN, 0, 10, null, Collections.<String>emptyList(), 0);
+        BrowseKey key2 = new BrowseKey("2", DIRECT_CHILDREN, 0, 10, null, Collections.<String>emptyList(), 0);
+
+        browseResultCache.put(key1, new BrowseResult("didl1", 1, 1));
+        browseResultCache.put(key2, new BrowseResult("didl2", 1, 1));
+        assertNull(browseResultCache.get(key1));
+        assertNotNull(browseResultCache.get(key2));
+        assertEquals(1, browseResultCache.getStatistics().getEvictions());
+    }
+
+    @Test
+    public void testDisabled() {
+        BrowseResultCache browseResultCache = new BrowseResultCache(0, 60);
+        BrowseKey key = new BrowseKey("0", DIRECT_CHILDREN, 0, 10, null, Collections.<String>emptyList(), 0);
+
+        browseResultCache.put(key, new BrowseResult("didl", 1, 1));
+        assertNull(browseResultCache.get(key));
+    }
+}
@@ -21,11 +21,22 @@ import com.google.common.collect.Lists;
 import net.holmes.core.business.configuration.ConfigurationManager;
 import net.holmes.core.business.media.MediaManager;
 import net.holmes.core.business.media.MediaSearchRequest;
+import net.holmes.core.business.media.MediaSearchResult;
 import net.holmes.core.business.media.model.*;
+import net.holmes.core.business.media.search.InvalidSortCriteriaException;
+import net.holmes.core.business.media.search.SearchCriteria;
+import net.holmes.core.business.media.search.SortCriteria;
+import net.holmes.core.business.mimetype.MimeTypeManager;
+import net.holmes.core.business.mimetype.MimeTypeManagerImpl;
+import net.holmes.core.business.mimetype.dao.MimeTypeDaoImpl;
 import net.holmes.core.business.mimetype.model.MimeType;
 import net.holmes.core.business.streaming.StreamingManager;
 import net.holmes.core.business.streaming.airplay.device.AirplayDevice;
+import net.holmes.core.business.streaming.device.Device;
 import net.holmes.core.business.streaming.upnp.device.UpnpDevice;
+import net.holmes.core.common.event.ConfigurationEvent;
+import net.holmes.core.common.event.MediaEvent;
+import org.easymock.Capture;
 import org.fourthline.cling.model.message.Connection;
 import org.fourthline.cling.model.profile.RemoteClientInfo;
 import org.fourthline.cling.support.contentdirectory.ContentDirectoryException;
@@ -35,6 +46,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
@@ -45,10 +58,16 @@ import static com.google.common.collect.Lists.newArrayList;
 import static net.holmes.core.business.media.model.AbstractNode.NodeType.TYPE_PODCAST_ENTRY;
 import static net.holmes.core.business.media.model.RootNode.VIDEO;
 import static net.holmes.core.common.ConfigurationParameter.*;
+import static net.holmes.core.common.event.ConfigurationEvent.EventType.SAVE_SETTINGS;
+import static net.holmes.core.common.event.MediaEvent.MediaEventType.CONTAINER_UPDATED;
+import static net.holmes.core.common.event.MediaEvent.MediaEventType.FOLDER_CHANGED;
 import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 
 public class ContentDirectoryServiceTest {
+    private static final MimeTypeManager MIME_TYPE_MANAGER = new MimeTypeManagerImpl(new MimeTypeDaoImpl("/mimetypes.properties"));
 
     @Rule
     public TestName testName = new TestName();
@@ -76,20 +95,25 @@ public class ContentDirectoryServiceTest {
         contentDirectoryService.setConfigurationManager(configurationManager);
         contentDirectoryService.setMediaManager(mediaManager);
         contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
 
         expect(remoteClientInfo.getConnection()).andReturn(connection);
         expect(remoteClientInfo.getRemoteAddress()).andReturn(inetAddress);
         expect(inetAddress.getHostAddress()).andReturn("localhost");
+        expect(streamingManager.getDeviceUpdateId()).andReturn(0L);
         expect(streamingManager.findDevices(eq("localhost"))).andReturn(newArrayList(upnpDevice, airplayDevice));
         expect(upnpDevice.getSupportedMimeTypes()).andReturn(newArrayList("video/avi"));
         expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root"));
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
         List<AbstractNode> rootChildren = Lists.<AbstractNode>newArrayList(new FolderNode(VIDEO.getId(), VIDEO.getParentId(), VIDEO.name()));
-        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(rootChildren);
+        expect(mediaManager.getChildCount(isA(MediaSearchRequest.class))).andReturn(rootChildren.size());
         expect(configurationManager.getParameter(UPNP_ADD_SUBTITLE)).andReturn(true);
 
         replay(mediaManager, streamingManager, remoteClientInfo, connection, inetAddress, upnpDevice, airplayDevice, configurationManager);
 
-        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.METADATA, 0, 100, remoteClientInfo);
+        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.METADATA, 0, 100, null, remoteClientInfo);
         assertNotNull(result);
 
         verify(mediaManager, streamingManager, remoteClientInfo, connection, inetAddress, upnpDevice, airplayDevice, configurationManager);
@@ -110,25 +134,73 @@ public class ContentDirectoryServiceTest {
         contentDirectoryService.setConfigurationManager(configurationManager);
         contentDirectoryService.setMediaManager(mediaManager);
         contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
 
         expect(remoteClientInfo.getConnection()).andReturn(connection);
         expect(remoteClientInfo.getRemoteAddress()).andReturn(inetAddress);
         expect(inetAddress.getHostAddress()).andReturn("localhost");
+        expect(streamingManager.getDeviceUpdateId()).andReturn(0L);
         expect(streamingManager.findDevices(eq("localhost"))).andReturn(newArrayList(upnpDevice, airplayDevice));
         expect(upnpDevice.getSupportedMimeTypes()).andReturn(newArrayList("video/avi"));
         expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root"));
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
         List<AbstractNode> rootChildren = Lists.<AbstractNode>newArrayList(new FolderNode(VIDEO.getId(), VIDEO.getParentId(), VIDEO.name()));
-        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(rootChildren);
+        expect(mediaManager.getChildCount(isA(MediaSearchRequest.class))).andReturn(rootChildren.size());
         expect(configurationManager.getParameter(UPNP_ADD_SUBTITLE)).andReturn(false);
 
         replay(mediaManager, streamingManager, remoteClientInfo, connection, inetAddress, upnpDevice, airplayDevice, configurationManager);
 
-        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.METADATA, 0, 100, remoteClientInfo);
+        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.METADATA, 0, 100, null, remoteClientInfo);
         assertNotNull(result);
 
         verify(mediaManager, streamingManager, remoteClientInfo, connection, inetAddress, upnpDevice, airplayDevice, configurationManager);
     }
 
+    @Test
+    public void testBrowseMetadataClientMimeTypesCached() throws ContentDirectoryException {
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+        StreamingManager streamingManager = createMock(StreamingManager.class);
+        RemoteClientInfo remoteClientInfo = createMock(RemoteClientInfo.class);
+        Connection connection = createMock(Connection.class);
+        InetAddress inetAddress = createMock(InetAddress.class);
+        UpnpDevice upnpDevice = createMock(UpnpDevice.class);
+
+        ContentDirectoryService contentDirectoryService = new ContentDirectoryService();
+        contentDirectoryService.setConfigurationManager(configurationManager);
+        contentDirectoryService.setMediaManager(mediaManager);
+        contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
+
+        expect(remoteClientInfo.getConnection()).andReturn(connection).times(4);
+        expect(remoteClientInfo.getRemoteAddress()).andReturn(inetAddress).times(4);
+        expect(inetAddress.getHostAddress()).andReturn("localhost").times(4);
+        expect(streamingManager.getDeviceUpdateId()).andReturn(0L).times(2).andReturn(1L).times(2);
+        expect(streamingManager.findDevices(eq("localhost"))).andReturn(Lists.<Device>newArrayList(upnpDevice)).times(3);
+        expect(upnpDevice.getSupportedMimeTypes()).andReturn(newArrayList("video/avi")).times(3);
+        expect(configurationManager.getParameter(UPNP_ADD_SUBTITLE)).andReturn(false).times(3);
+        expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root")).times(4);
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
+        expect(mediaManager.getChildCount(isA(MediaSearchRequest.class))).andReturn(1);
+
+        replay(mediaManager, streamingManager, remoteClientInfo, connection, inetAddress, upnpDevice, configurationManager);
+
+        // Mime types are resolved once
+        assertNotNull(contentDirectoryService.browse("0", BrowseFlag.METADATA, 0, 100, null, remoteClientInfo));
+        assertNotNull(contentDirectoryService.browse("0", BrowseFlag.METADATA, 0, 100, null, remoteClientInfo));
+        // Device change
+        assertNotNull(contentDirectoryService.browse("0", BrowseFlag.METADATA, 0, 100, null, remoteClientInfo));
+        // Settings change
+        contentDirectoryService.handleConfigurationEvent(new ConfigurationEvent(SAVE_SETTINGS));
+        assertNotNull(contentDirectoryService.browse("0", BrowseFlag.METADATA, 0, 100, null, remoteClientInfo));
+
+        verify(mediaManager, streamingManager, remoteClientInfo, connection, inetAddress, upnpDevice, configurationManager);
+    }
+
     @Test
     public void testBrowseMetadataBadClientInfo() throws ContentDirectoryException {
         ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
@@ -140,15 +212,19 @@ public class ContentDirectoryServiceTest {
         contentDirectoryService.setConfigurationManager(configurationManager);
         contentDirectoryService.setMediaManager(mediaManager);
         contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
 
         expect(remoteClientInfo.getConnection()).andReturn(null);
         expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root"));
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
         List<AbstractNode> rootChildren = Lists.<AbstractNode>newArrayList(new FolderNode(VIDEO.getId(), VIDEO.getParentId(), VIDEO.name()));
-        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(rootChildren);
+        expect(mediaManager.getChildCount(isA(MediaSearchRequest.class))).andReturn(rootChildren.size());
 
         replay(mediaManager, streamingManager, remoteClientInfo, configurationManager);
 
-        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.METADATA, 0, 100, remoteClientInfo);
+        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.METADATA, 0, 100, null, remoteClientInfo);
         assertNotNull(result);
 
         verify(mediaManager, streamingManager, remoteClientInfo, configurationManager);
@@ -165,13 +241,16 @@ public class ContentDirectoryServiceTest {
         contentDirectoryService.setConfigurationManager(configurationManager);
         contentDirectoryService.setMediaManager(mediaManager);
         contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
 
         expect(mediaManager.getNode(eq("0"))).andReturn(null);
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
 
         replay(mediaManager, streamingManager, remoteClientInfo, configurationManager);
 
         try {
-            BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.METADATA, 0, 100, remoteClientInfo);
+            BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.METADATA, 0, 100, null, remoteClientInfo);
             assertNotNull(result);
         } finally {
             verify(mediaManager, streamingManager, remoteClientInfo, configurationManager);
@@ -189,13 +268,17 @@ public class ContentDirectoryServiceTest {
         contentDirectoryService.setConfigurationManager(configurationManager);
         contentDirectoryService.setMediaManager(mediaManager);
         contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
 
         expect(remoteClientInfo.getConnection()).andReturn(null);
         expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root"));
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
 
         replay(mediaManager, streamingManager, remoteClientInfo, configurationManager);
 
-        BrowseResult result = contentDirectoryService.browse("0", null, 0, 100, remoteClientInfo);
+        BrowseResult result = contentDirectoryService.browse("0", null, 0, 100, null, remoteClientInfo);
         assertNotNull(result);
 
         verify(mediaManager, streamingManager, remoteClientInfo, configurationManager);
@@ -212,9 +295,13 @@ public class ContentDirectoryServiceTest {
         contentDirectoryService.setConfigurationManager(configurationManager);
         contentDirectoryService.setMediaManager(mediaManager);
         contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
 
         expect(remoteClientInfo.getConnection()).andReturn(null);
         expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root"));
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
         expect(mediaManager.getNodeUrl(isA(AbstractNode.class))).andReturn("url");
         expect(configurationManager.getParameter(PODCAST_PREPEND_ENTRY_NAME)).andReturn(true).atLeastOnce();
 
@@ -228,11 +315,11 @@ public class ContentDirectoryServiceTest {
         children.add(dummyNode);
         children.add(new RawUrlNode(TYPE_PODCAST_ENTRY, "id6", "parentId", "name", MimeType.valueOf("video/avi"), "url", "duration"));
         children.add(new RawUrlNode(TYPE_PODCAST_ENTRY, "id7", "parentId", "name", MimeType.valueOf("video/avi"), "url", "duration"));
-        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(children).atLeastOnce();
+        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(new MediaSearchResult(children, children.size())).atLeastOnce();
 
         replay(mediaManager, streamingManager, remoteClientInfo, dummyNode, configurationManager);
 
-        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.DIRECT_CHILDREN, 0, 6, remoteClientInfo);
+        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.DIRECT_CHILDREN, 0, 6, null, remoteClientInfo);
         assertNotNull(result);
 
         verify(mediaManager, streamingManager, remoteClientInfo, dummyNode, configurationManager);
@@ -249,9 +336,13 @@ public class ContentDirectoryServiceTest {
         contentDirectoryService.setConfigurationManager(configurationManager);
         contentDirectoryService.setMediaManager(mediaManager);
         contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
 
         expect(remoteClientInfo.getConnection()).andReturn(null);
         expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root"));
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
         expect(configurationManager.getParameter(PODCAST_PREPEND_ENTRY_NAME)).andReturn(true).atLeastOnce();
 
         MimeType mimeType = MimeType.valueOf("video/avi");
@@ -259,11 +350,11 @@ public class ContentDirectoryServiceTest {
         for (int i = 0; i <= 101; i++) {
             children.add(new RawUrlNode(TYPE_PODCAST_ENTRY, "id" + i, "parentId", "name", mimeType, "url", "duration"));
         }
-        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(children).atLeastOnce();
+        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(new MediaSearchResult(children, children.size())).atLeastOnce();
 
         replay(mediaManager, streamingManager, remoteClientInfo, configurationManager);
 
-        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.DIRECT_CHILDREN, 0, 6, remoteClientInfo);
+        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.DIRECT_CHILDREN, 0, 6, null, remoteClientInfo);
         assertNotNull(result);
 
         verify(mediaManager, streamingManager, remoteClientInfo, configurationManager);
@@ -280,21 +371,357 @@ public class ContentDirectoryServiceTest {
         contentDirectoryService.setConfigurationManager(configurationManager);
         contentDirectoryService.setMediaManager(mediaManager);
         contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
 
         expect(remoteClientInfo.getConnection()).andReturn(null);
         expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root"));
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
         expect(configurationManager.getParameter(PODCAST_PREPEND_ENTRY_NAME)).andReturn(false).atLeastOnce();
 
         List<AbstractNode> children = new ArrayList<>();
         children.add(new RawUrlNode(TYPE_PODCAST_ENTRY, "id1", "parentId", "name", MimeType.valueOf("video/avi"), "url", "duration"));
-        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(children).atLeastOnce();
+        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(new MediaSearchResult(children, children.size())).atLeastOnce();
+
+        replay(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+
+        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.DIRECT_CHILDREN, 0, 6, null, remoteClientInfo);
+        assertNotNull(result);
+
+        verify(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+    }
+
+    @Test
+    public void testBrowseDirectChildrenPage() throws ContentDirectoryException {
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+        StreamingManager streamingManager = createMock(StreamingManager.class);
+        RemoteClientInfo remoteClientInfo = createMock(RemoteClientInfo.class);
+
+        ContentDirectoryService contentDirectoryService = new ContentDirectoryService();
+        contentDirectoryService.setConfigurationManager(configurationManager);
+        contentDirectoryService.setMediaManager(mediaManager);
+        contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
+
+        List<AbstractNode> children = new ArrayList<>();
+        children.add(new PodcastNode("id1", "0", "name1", "url"));
+        children.add(new PodcastNode("id2", "0", "name2", "url"));
+
+        expect(remoteClientInfo.getConnection()).andReturn(null);
+        expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root"));
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
+        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(new MediaSearchResult(children, 20000));
+
+        replay(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+
+        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.DIRECT_CHILDREN, 100, 2, null, remoteClientInfo);
+        assertNotNull(result);
+        assertEquals(2, result.getCountLong());
+        assertEquals(20000, result.getTotalMatchesLong());
+
+        verify(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+    }
+
+    @Test
+    public void testBrowseDirectChildrenCached() throws ContentDirectoryException {
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+        StreamingManager streamingManager = createMock(StreamingManager.class);
+        RemoteClientInfo remoteClientInfo = createMock(RemoteClientInfo.class);
+        BrowseResultCache browseResultCache = new BrowseResultCache(100, 60);
+
+        ContentDirectoryService contentDirectoryService = new ContentDirectoryService();
+        contentDirectoryService.setConfigurationManager(configurationManager);
+        contentDirectoryService.setMediaManager(mediaManager);
+        contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(browseResultCache);
+
+        List<AbstractNode> children = new ArrayList<>();
+        children.add(new PodcastNode("id1", "0", "name1", "url"));
+
+        expect(remoteClientInfo.getConnection()).andReturn(null).times(3);
+        expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root")).times(3);
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).times(2).andReturn(1L);
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
+        expect(mediaManager.searchChildNodes(isA(MediaSearchRequest.class))).andReturn(new MediaSearchResult(children, 1)).times(2);
+
+        replay(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+
+        // Same browse request is served from cache
+        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.DIRECT_CHILDREN, 0, 10, null, remoteClientInfo);
+        assertEquals(1, result.getCountLong());
+        assertEquals(result, contentDirectoryService.browse("0", BrowseFlag.DIRECT_CHILDREN, 0, 10, null, remoteClientInfo));
+
+        // Media changed: browse result is built again
+        assertNotSame(result, contentDirectoryService.browse("0", BrowseFlag.DIRECT_CHILDREN, 0, 10, null, remoteClientInfo));
+        assertEquals(1, browseResultCache.getStatistics().getHits());
+        assertEquals(2, browseResultCache.getStatistics().getMisses());
+        assertEquals(2, browseResultCache.getStatistics().getSize());
+
+        verify(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+    }
+
+    @Test
+    public void testBrowseDirectChildrenSorted() throws ContentDirectoryException, InvalidSortCriteriaException {
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+        StreamingManager streamingManager = createMock(StreamingManager.class);
+        RemoteClientInfo remoteClientInfo = createMock(RemoteClientInfo.class);
+
+        ContentDirectoryService contentDirectoryService = new ContentDirectoryService();
+        contentDirectoryService.setConfigurationManager(configurationManager);
+        contentDirectoryService.setMediaManager(mediaManager);
+        contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
+
+        Capture<MediaSearchRequest> request = new Capture<>();
+        expect(remoteClientInfo.getConnection()).andReturn(null);
+        expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root"));
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
+        expect(mediaManager.searchChildNodes(capture(request))).andReturn(new MediaSearchResult(new ArrayList<AbstractNode>(), 0));
+
+        replay(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+
+        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.DIRECT_CHILDREN, 0, 10, "-dc:date,+dc:title", remoteClientInfo);
+        assertNotNull(result);
+        assertEquals(0, result.getCountLong());
+        assertEquals(SortCriteria.parse("-dc:date,+dc:title"), request.getValue().getSortCriteria());
+
+        verify(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+    }
+
+    @Test(expected = ContentDirectoryException.class)
+    public void testBrowseDirectChildrenUnsupportedSort() throws ContentDirectoryException {
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+        StreamingManager streamingManager = createMock(StreamingManager.class);
+        RemoteClientInfo remoteClientInfo = createMock(RemoteClientInfo.class);
+
+        ContentDirectoryService contentDirectoryService = new ContentDirectoryService();
+        contentDirectoryService.setConfigurationManager(configurationManager);
+        contentDirectoryService.setMediaManager(mediaManager);
+        contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
+
+        expect(remoteClientInfo.getConnection()).andReturn(null);
+        expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root"));
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
+
+        replay(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+
+        try {
+            contentDirectoryService.browse("0", BrowseFlag.DIRECT_CHILDREN, 0, 10, "+upnp:artist", remoteClientInfo);
+        } finally {
+            verify(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+        }
+    }
+
+    @Test
+    public void testSearch() throws ContentDirectoryException {
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+        StreamingManager streamingManager = createMock(StreamingManager.class);
+        RemoteClientInfo remoteClientInfo = createMock(RemoteClientInfo.class);
+
+        ContentDirectoryService contentDirectoryService = new ContentDirectoryService();
+        contentDirectoryService.setConfigurationManager(configurationManager);
+        contentDirectoryService.setMediaManager(mediaManager);
+        contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
+
+        List<AbstractNode> nodes = new ArrayList<>();
+        nodes.add(new ContentNode("id1", "folderId", "name1", new File("name1.avi"), MimeType.valueOf("video/avi")));
+
+        expect(remoteClientInfo.getConnection()).andReturn(null);
+        expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root"));
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
+        expect(mediaManager.searchNodes(isA(MediaSearchRequest.class), isA(SearchCriteria.class))).andReturn(new MediaSearchResult(nodes, 10));
+        expect(mediaManager.getNodeUrl(isA(ContentNode.class))).andReturn("url");
 
         replay(mediaManager, streamingManager, remoteClientInfo, configurationManager);
 
-        BrowseResult result = contentDirectoryService.browse("0", BrowseFlag.DIRECT_CHILDREN, 0, 6, remoteClientInfo);
+        BrowseResult result = contentDirectoryService.search("0", "upnp:class derivedfrom \"object.item.videoItem\" and dc:title contains \"name\"", 5, 1, "+dc:title", remoteClientInfo);
         assertNotNull(result);
+        assertEquals(1, result.getCountLong());
+        assertEquals(10, result.getTotalMatchesLong());
 
         verify(mediaManager, streamingManager, remoteClientInfo, configurationManager);
     }
 
+    @Test(expected = ContentDirectoryException.class)
+    public void testSearchUnknownContainer() throws ContentDirectoryException {
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+        StreamingManager streamingManager = createMock(StreamingManager.class);
+        RemoteClientInfo remoteClientInfo = createMock(RemoteClientInfo.class);
+
+        ContentDirectoryService contentDirectoryService = new ContentDirectoryService();
+        contentDirectoryService.setConfigurationManager(configurationManager);
+        contentDirectoryService.setMediaManager(mediaManager);
+        contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
+
+        expect(mediaManager.getNode(eq("0"))).andReturn(null);
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+
+        replay(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+
+        try {
+            contentDirectoryService.search("0", "*", 0, 100, null, remoteClientInfo);
+        } finally {
+            verify(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+        }
+    }
+
+    @Test(expected = ContentDirectoryException.class)
+    public void testSearchInvalidCriteria() throws ContentDirectoryException {
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+        StreamingManager streamingManager = createMock(StreamingManager.class);
+        RemoteClientInfo remoteClientInfo = createMock(RemoteClientInfo.class);
+
+        ContentDirectoryService contentDirectoryService = new ContentDirectoryService();
+        contentDirectoryService.setConfigurationManager(configurationManager);
+        contentDirectoryService.setMediaManager(mediaManager);
+        contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
+
+        expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root"));
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
+
+        replay(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+
+        try {
+            contentDirectoryService.search("0", "dc:title like \"name\"", 0, 100, null, remoteClientInfo);
+        } finally {
+            verify(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+        }
+    }
+
+    @Test(expected = ContentDirectoryException.class)
+    public void testSearchInvalidSortCriteria() throws ContentDirectoryException {
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        MediaManager mediaManager = createMock(MediaManager.class);
+        StreamingManager streamingManager = createMock(StreamingManager.class);
+        RemoteClientInfo remoteClientInfo = createMock(RemoteClientInfo.class);
+
+        ContentDirectoryService contentDirectoryService = new ContentDirectoryService();
+        contentDirectoryService.setConfigurationManager(configurationManager);
+        contentDirectoryService.setMediaManager(mediaManager);
+        contentDirectoryService.setStreamingManager(streamingManager);
+        contentDirectoryService.setMimeTypeManager(MIME_TYPE_MANAGER);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
+
+        expect(mediaManager.getNode(eq("0"))).andReturn(new FolderNode("0", "-1", "root"));
+        expect(mediaManager.getSystemUpdateId()).andReturn(0L).anyTimes();
+        expect(mediaManager.getContainerUpdateId(eq("0"))).andReturn(0L).anyTimes();
+
+        replay(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+
+        try {
+            contentDirectoryService.search("0", "*", 0, 100, "+upnp:artist", remoteClientInfo);
+        } finally {
+            verify(mediaManager, streamingManager, remoteClientInfo, configurationManager);
+        }
+    }
+
+    @Test
+    public void testHandleMediaEvent() {
+        MediaManager mediaManager = createMock(MediaManager.class);
+        PropertyChangeListener listener = createMock(PropertyChangeListener.class);
+
+        ContentDirectoryService contentDirectoryService = new ContentDirectoryService();
+        contentDirectoryService.setMediaManager(mediaManager);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
+        contentDirectoryService.getPropertyChangeSupport().addPropertyChangeListener(listener);
+
+        expect(mediaManager.getSystemUpdateId()).andReturn(5L).andReturn(6L);
+        expect(mediaManager.getContainerUpdateId(eq("folderId"))).andReturn(5L);
+        listener.propertyChange(isA(PropertyChangeEvent.class));
+        expectLastCall().times(2);
+
+        replay(mediaManager, listener);
+
+        contentDirectoryService.handleMediaEvent(new MediaEvent(CONTAINER_UPDATED, "folderId"));
+        assertEquals(5L, contentDirectoryService.getSystemUpdateID().getValue().longValue());
+        assertEquals("folderId,5", contentDirectoryService.getContainerUpdateIDs());
+
+        contentDirectoryService.handleMediaEvent(new MediaEvent(CONTAINER_UPDATED, null));
+        assertEquals(6L, contentDirectoryService.getSystemUpdateID().getValue().longValue());
+        assertEquals("folderId,5", contentDirectoryService.getContainerUpdateIDs());
+
+        contentDirectoryService.handleMediaEvent(new MediaEvent(FOLDER_CHANGED, "path"));
+
+        verify(mediaManager, listener);
+    }
+
+    @Test
+    public void testHandleMediaEventPendingContainerUpdateIds() {
+        MediaManager mediaManager = createMock(MediaManager.class);
+        PropertyChangeListener listener = createMock(PropertyChangeListener.class);
+
+        ContentDirectoryService contentDirectoryService = new ContentDirectoryService();
+        contentDirectoryService.setMediaManager(mediaManager);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
+        contentDirectoryService.getPropertyChangeSupport().addPropertyChangeListener(listener);
+
+        expect(mediaManager.getSystemUpdateId()).andReturn(5L).andReturn(6L).andReturn(7L);
+        expect(mediaManager.getContainerUpdateId(eq("folderId1"))).andReturn(5L);
+        expect(mediaManager.getContainerUpdateId(eq("folderId2"))).andReturn(6L);
+        expect(mediaManager.getContainerUpdateId(eq("folderId3"))).andReturn(7L);
+        listener.propertyChange(isA(PropertyChangeEvent.class));
+        expectLastCall().times(3);
+
+        replay(mediaManager, listener);
+
+        contentDirectoryService.handleMediaEvent(new MediaEvent(CONTAINER_UPDATED, "folderId1"));
+        contentDirectoryService.handleMediaEvent(new MediaEvent(CONTAINER_UPDATED, "folderId2"));
+        assertEquals(6L, contentDirectoryService.getSystemUpdateID().getValue().longValue());
+        assertEquals("folderId1,5,folderId2,6", contentDirectoryService.getContainerUpdateIDs());
+        assertEquals("folderId1,5,folderId2,6", contentDirectoryService.getContainerUpdateIDs());
+
+        contentDirectoryService.handleMediaEvent(new MediaEvent(CONTAINER_UPDATED, "folderId3"));
+        assertEquals("folderId3,7", contentDirectoryService.getContainerUpdateIDs());
+
+        verify(mediaManager, listener);
+    }
+
+    @Test
+    public void testHandleMediaEventOutOfOrder() {
+        MediaManager mediaManager = createMock(MediaManager.class);
+        PropertyChangeListener listener = createMock(PropertyChangeListener.class);
+
+        ContentDirectoryService contentDirectoryService = new ContentDirectoryService();
+        contentDirectoryService.setMediaManager(mediaManager);
+        contentDirectoryService.setBrowseResultCache(new BrowseResultCache(100, 60));
+        contentDirectoryService.getPropertyChangeSupport().addPropertyChangeListener(listener);
+
+        expect(mediaManager.getSystemUpdateId()).andReturn(6L).andReturn(5L);
+        expect(mediaManager.getContainerUpdateId(eq("folderId"))).andReturn(5L);
+        listener.propertyChange(isA(PropertyChangeEvent.class));
+        expectLastCall().times(2);
+
+        replay(mediaManager, listener);
+
+        contentDirectoryService.handleMediaEvent(new MediaEvent(CONTAINER_UPDATED, null));
+        contentDirectoryService.handleMediaEvent(new MediaEvent(CONTAINER_UPDATED, "folderId"));
+        assertEquals(6L, contentDirectoryService.getSystemUpdateID().getValue().longValue());
+        assertEquals("folderId,5", contentDirectoryService.getContainerUpdateIDs());
+
+        verify(mediaManager, listener);
+    }
 }
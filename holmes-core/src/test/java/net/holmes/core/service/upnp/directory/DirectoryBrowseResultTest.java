@@ -22,7 +22,7 @@ import net.holmes.core.business.media.model.FolderNode;
 import net.holmes.core.business.media.model.RawUrlNode;
 import net.holmes.core.business.mimetype.model.MimeType;
 import org.fourthline.cling.support.contentdirectory.ContentDirectoryException;
-import org.fourthline.cling.support.contentdirectory.DIDLParser;
+import org.fourthline.cling.support.model.BrowseResult;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
@@ -42,9 +42,9 @@ public class DirectoryBrowseResultTest {
     public void testDirectoryBrowseResult() {
         DirectoryBrowseResult directoryBrowseResult = new DirectoryBrowseResult(0, 1);
         assertEquals(directoryBrowseResult.getFirstResult(), 0);
-        assertEquals(directoryBrowseResult.getTotalCount(), 0);
+        assertEquals(directoryBrowseResult.getTotalCount(), 1);
         assertEquals(directoryBrowseResult.getItemCount(), 0);
-        assertNotNull(directoryBrowseResult.getDidl());
+        assertEquals(directoryBrowseResult.getResultCount(), 0);
     }
 
     @Test
@@ -57,7 +57,7 @@ public class DirectoryBrowseResultTest {
         DirectoryBrowseResult directoryBrowseResult = new DirectoryBrowseResult(0, 1);
         directoryBrowseResult.addItem("1", node, "http://google.com");
         assertEquals(directoryBrowseResult.getItemCount(), 1);
-        assertEquals(directoryBrowseResult.getDidl().getCount(), 1);
+        assertTrue(directoryBrowseResult.buildBrowseResult(0).getResult().contains("<item id=\"id\" parentID=\"1\""));
     }
 
     @Test
@@ -71,7 +71,7 @@ public class DirectoryBrowseResultTest {
         DirectoryBrowseResult directoryBrowseResult = new DirectoryBrowseResult(0, 1);
         directoryBrowseResult.addItem("1", node, "http://google.com");
         assertEquals(directoryBrowseResult.getItemCount(), 1);
-        assertEquals(directoryBrowseResult.getDidl().getCount(), 1);
+        assertTrue(directoryBrowseResult.buildBrowseResult(0).getResult().contains("<item id=\"id\" parentID=\"1\""));
     }
 
     @Test
@@ -84,7 +84,7 @@ public class DirectoryBrowseResultTest {
         DirectoryBrowseResult directoryBrowseResult = new DirectoryBrowseResult(0, 1);
         directoryBrowseResult.addItem("1", node, "http://google.com");
         assertEquals(directoryBrowseResult.getItemCount(), 1);
-        assertEquals(directoryBrowseResult.getDidl().getCount(), 1);
+        assertTrue(directoryBrowseResult.buildBrowseResult(0).getResult().contains("<item id=\"id\" parentID=\"1\""));
     }
 
     @Test
@@ -97,7 +97,7 @@ public class DirectoryBrowseResultTest {
         DirectoryBrowseResult directoryBrowseResult = new DirectoryBrowseResult(0, 1);
         directoryBrowseResult.addItem("1", node, "http://google.com");
         assertEquals(directoryBrowseResult.getItemCount(), 1);
-        assertEquals(directoryBrowseResult.getDidl().getCount(), 1);
+        assertTrue(directoryBrowseResult.buildBrowseResult(0).getResult().contains("<item id=\"id\" parentID=\"1\""));
     }
 
     @Test
@@ -110,7 +110,7 @@ public class DirectoryBrowseResultTest {
         DirectoryBrowseResult directoryBrowseResult = new DirectoryBrowseResult(0, 1);
         directoryBrowseResult.addItem("1", node, "http://google.com");
         assertEquals(directoryBrowseResult.getItemCount(), 0);
-        assertEquals(directoryBrowseResult.getDidl().getCount(), 0);
+        assertFalse(directoryBrowseResult.buildBrowseResult(0).getResult().contains("<item"));
     }
 
     @Test
@@ -123,7 +123,7 @@ public class DirectoryBrowseResultTest {
         DirectoryBrowseResult directoryBrowseResult = new DirectoryBrowseResult(0, 1);
         directoryBrowseResult.addItem("1", node, "http://google.com");
         assertEquals(directoryBrowseResult.getItemCount(), 1);
-        assertEquals(directoryBrowseResult.getDidl().getCount(), 1);
+        assertTrue(directoryBrowseResult.buildBrowseResult(0).getResult().contains("<item id=\"id\" parentID=\"1\""));
     }
 
     @Test
@@ -136,7 +136,7 @@ public class DirectoryBrowseResultTest {
         DirectoryBrowseResult directoryBrowseResult = new DirectoryBrowseResult(0, 1);
         directoryBrowseResult.addItem("1", node, "http://google.com");
         assertEquals(directoryBrowseResult.getItemCount(), 0);
-        assertEquals(directoryBrowseResult.getDidl().getCount(), 0);
+        assertFalse(directoryBrowseResult.buildBrowseResult(0).getResult().contains("<item"));
     }
 
     @Test(expected = ContentDirectoryException.class)
@@ -157,7 +157,7 @@ public class DirectoryBrowseResultTest {
         DirectoryBrowseResult directoryBrowseResult = new DirectoryBrowseResult(0, 1);
         directoryBrowseResult.addContainer("1", node, 1);
         assertEquals(directoryBrowseResult.getItemCount(), 1);
-        assertEquals(directoryBrowseResult.getDidl().getCount(), 1);
+        assertTrue(directoryBrowseResult.buildBrowseResult(0).getResult().contains("<container childCount=\"1\" id=\"id\" parentID=\"1\""));
     }
 
     @Test
@@ -167,52 +167,34 @@ public class DirectoryBrowseResultTest {
         DirectoryBrowseResult directoryBrowseResult = new DirectoryBrowseResult(0, 1);
         directoryBrowseResult.addUrlItem("1", node, "name");
         assertEquals(directoryBrowseResult.getItemCount(), 1);
-        assertEquals(directoryBrowseResult.getDidl().getCount(), 1);
+        assertTrue(directoryBrowseResult.buildBrowseResult(0).getResult().contains("<item id=\"id\" parentID=\"1\""));
     }
 
     @Test
-    public void testFilterResult() throws IOException, ContentDirectoryException {
+    public void testBuildResult() throws IOException, ContentDirectoryException {
         File file = File.createTempFile(testName.getMethodName(), "avi");
         file.deleteOnExit();
         MimeType mimeType = MimeType.valueOf("audio/mpeg");
         ContentNode node = new ContentNode("id", "1", "name", file, mimeType);
         node.setIconUrl("http://google.com");
 
-        DirectoryBrowseResult directoryBrowseResult = new DirectoryBrowseResult(0, 1);
-        assertTrue(directoryBrowseResult.acceptNode());
-        assertEquals(directoryBrowseResult.getTotalCount(), 1);
+        DirectoryBrowseResult directoryBrowseResult = new DirectoryBrowseResult(10, 20);
         directoryBrowseResult.addItem("1", node, "http://google.com");
         assertEquals(directoryBrowseResult.getItemCount(), 1);
-        assertEquals(directoryBrowseResult.getDidl().getCount(), 1);
+        assertEquals(directoryBrowseResult.getResultCount(), 11);
 
-        assertFalse(directoryBrowseResult.acceptNode());
-        assertEquals(directoryBrowseResult.getTotalCount(), 2);
-    }
-
-    @Test(expected = ContentDirectoryException.class)
-    public void testBuildResultWithNoParser() throws ContentDirectoryException {
-        new DirectoryBrowseResult(0, 0).buildBrowseResult(null);
+        BrowseResult browseResult = directoryBrowseResult.buildBrowseResult(0);
+        assertEquals(browseResult.getCountLong(), 1);
+        assertEquals(browseResult.getTotalMatchesLong(), 20);
+        assertTrue(browseResult.getResult().contains("<upnp:icon>http://google.com</upnp:icon>"));
+        assertTrue(browseResult.getResult().endsWith("</DIDL-Lite>"));
     }
 
     @Test
-    public void testFilterResultNoMaxResult() throws IOException, ContentDirectoryException {
-        File file = File.createTempFile(testName.getMethodName(), "avi");
-        file.deleteOnExit();
-        MimeType mimeType = MimeType.valueOf("audio/mpeg");
-        ContentNode node = new ContentNode("id", "1", "name", file, mimeType);
-        node.setIconUrl("http://google.com");
-
-        DirectoryBrowseResult directoryBrowseResult = new DirectoryBrowseResult(0, 0);
-        assertTrue(directoryBrowseResult.acceptNode());
-        assertEquals(directoryBrowseResult.getTotalCount(), 1);
-        assertEquals(directoryBrowseResult.getResultCount(), 0);
-        directoryBrowseResult.addItem("1", node, "http://google.com");
-        assertEquals(directoryBrowseResult.getItemCount(), 1);
-        assertEquals(directoryBrowseResult.getResultCount(), 1);
-        assertEquals(directoryBrowseResult.getDidl().getCount(), 1);
-        assertNotNull(directoryBrowseResult.buildBrowseResult(new DIDLParser()));
-
-        assertTrue(directoryBrowseResult.acceptNode());
-        assertEquals(directoryBrowseResult.getTotalCount(), 2);
+    public void testBuildEmptyResult() {
+        BrowseResult browseResult = new DirectoryBrowseResult(0, 0).buildBrowseResult(0);
+        assertEquals(browseResult.getCountLong(), 0);
+        assertTrue(browseResult.getResult().startsWith("<DIDL-Lite "));
+        assertTrue(browseResult.getResult().endsWith("/>"));
     }
 }
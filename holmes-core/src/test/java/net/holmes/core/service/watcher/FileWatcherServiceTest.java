@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2012-2015  Cedric Cheneau
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.holmes.core.service.watcher;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import net.holmes.core.business.configuration.ConfigurationManager;
+import net.holmes.core.business.configuration.model.ConfigurationNode;
+import net.holmes.core.common.event.ConfigurationEvent;
+import net.holmes.core.common.event.MediaEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static net.holmes.core.business.media.model.RootNode.*;
+import static net.holmes.core.common.ConfigurationParameter.FILE_WATCHER_BATCH_DELAY_MILLISECONDS;
+import static net.holmes.core.common.ConfigurationParameter.FILE_WATCHER_ENABLE;
+import static net.holmes.core.common.event.ConfigurationEvent.EventType.ADD_FOLDER;
+import static net.holmes.core.common.event.MediaEvent.MediaEventType.FOLDER_CHANGED;
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+public class FileWatcherServiceTest {
+    private Path rootPath;
+    private List<ConfigurationNode> videoNodes;
+    private BlockingQueue<MediaEvent> mediaEvents;
+    private EventBus eventBus;
+
+    @Before
+    public void setUp() throws IOException {
+        rootPath = Files.createTempDirectory("holmesWatcher").toAbsolutePath();
+        Files.createDirectory(rootPath.resolve("subFolder"));
+        videoNodes = new ArrayList<>();
+        videoNodes.add(new ConfigurationNode("videoId", "video", rootPath.toString()));
+        mediaEvents = new LinkedBlockingQueue<>();
+        eventBus = new EventBus();
+        eventBus.register(new Object() {
+            @Subscribe
+            public void handleMediaEvent(final MediaEvent mediaEvent) {
+                mediaEvents.add(mediaEvent);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        deleteTree(rootPath);
+    }
+
+    @Test
+    public void testFileWatcherService() throws IOException, InterruptedException, TimeoutException {
+        ConfigurationManager configurationManager = createConfigurationManager(true);
+        replay(configurationManager);
+
+        FileWatcherService service = new FileWatcherService(configurationManager, eventBus);
+        try {
+            service.start();
+            service.awaitRunning(10, SECONDS);
+            assertEquals(2, service.getWatchedFolderCount());
+
+            // New file in root folder
+            Files.createFile(rootPath.resolve("video.avi"));
+            assertFolderChanged(rootPath);
+
+            // New file in sub folder
+            Files.createFile(rootPath.resolve("subFolder").resolve("video.avi"));
+            assertFolderChanged(rootPath.resolve("subFolder"));
+
+            // New folder is watched
+            Path newFolder = Files.createDirectory(rootPath.resolve("newFolder"));
+            assertFolderChanged(rootPath);
+            assertEquals(3, service.getWatchedFolderCount());
+            Files.createFile(newFolder.resolve("video.avi"));
+            assertFolderChanged(newFolder);
+
+            // Removed file
+            Files.delete(rootPath.resolve("video.avi"));
+            assertFolderChanged(rootPath);
+        } finally {
+            service.stop();
+            service.awaitTerminated(10, SECONDS);
+        }
+        verify(configurationManager);
+    }
+
+    @Test
+    public void testFileWatcherServiceHandleConfigEvent() throws IOException, InterruptedException, TimeoutException {
+        ConfigurationManager configurationManager = createConfigurationManager(true);
+        replay(configurationManager);
+
+        FileWatcherService service = new FileWatcherService(configurationManager, eventBus);
+        try {
+            service.start();
+            service.awaitRunning(10, SECONDS);
+            assertEquals(2, service.getWatchedFolderCount());
+
+            // Remove configured folder
+            videoNodes.clear();
+            service.handleConfigEvent(new ConfigurationEvent(ADD_FOLDER, null, VIDEO));
+            assertEquals(0, service.getWatchedFolderCount());
+
+            // Configuration event for podcasts is ignored
+            videoNodes.add(new ConfigurationNode("videoId", "video", rootPath.toString()));
+            service.handleConfigEvent(new ConfigurationEvent(ADD_FOLDER, null, PODCAST));
+            assertEquals(0, service.getWatchedFolderCount());
+
+            // Add configured folder
+            service.handleConfigEvent(new ConfigurationEvent(ADD_FOLDER, null, VIDEO));
+            assertEquals(2, service.getWatchedFolderCount());
+        } finally {
+            service.stop();
+            service.awaitTerminated(10, SECONDS);
+        }
+        verify(configurationManager);
+    }
+
+    @Test
+    public void testFileWatcherServiceDisabled() {
+        ConfigurationManager configurationManager = createConfigurationManager(false);
+        replay(configurationManager);
+
+        FileWatcherService service = new FileWatcherService(configurationManager, eventBus);
+        service.start();
+        assertFalse(service.isRunning());
+        service.stop();
+        assertEquals(0, service.getWatchedFolderCount());
+    }
+
+    private ConfigurationManager createConfigurationManager(final boolean enabled) {
+        ConfigurationManager configurationManager = createMock(ConfigurationManager.class);
+        expect(configurationManager.getParameter(FILE_WATCHER_ENABLE)).andReturn(enabled);
+        expect(configurationManager.getParameter(FILE_WATCHER_BATCH_DELAY_MILLISECONDS)).andReturn(50);
+        expect(configurationManager.getNodes(VIDEO)).andReturn(videoNodes).anyTimes();
+        expect(configurationManager.getNodes(AUDIO)).andReturn(Collections.<ConfigurationNode>emptyList()).anyTimes();
+        expect(configurationManager.getNodes(PICTURE)).andReturn(Collections.<ConfigurationNode>emptyList()).anyTimes();
+        return configurationManager;
+    }
+
+    private void assertFolderChanged(final Path folder) throws InterruptedException {
+        while (true) {
+            MediaEvent mediaEvent = mediaEvents.poll(20, SECONDS);
+            assertNotNull("No change for " + folder, mediaEvent);
+            assertEquals(FOLDER_CHANGED, mediaEvent.getType());
+            if (folder.toString().equals(mediaEvent.getParameter())) {
+                break;
+            }
+        }
+    }
+
+    private static void deleteTree(final Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(path)) {
+                for (Path child : children) {
+                    deleteTree(child);
+                }
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+}